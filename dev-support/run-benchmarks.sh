@@ -0,0 +1,55 @@
+#!/bin/bash
+# Licensed to the Apache Software Foundation (ASF) under one or more
+# contributor license agreements.  See the NOTICE file distributed with
+# this work for additional information regarding copyright ownership.
+# The ASF licenses this file to You under the Apache License, Version 2.0
+# (the "License"); you may not use this file except in compliance with
+# the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Run the JMH benchmarks and write a baseline, or compare two baselines.
+usage() {
+  echo "Usage: $0 run <OUTPUT_JSON> [JMH_OPTIONS]"
+  echo "       $0 compare <BASE_JSON> <NEW_JSON>"
+  echo
+  echo "JMH_OPTIONS are passed to the JMH runner, e.g. a benchmark regex or '-p size=1024'; see '-h'."
+  exit 1
+}
+
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" >/dev/null 2>&1 && pwd )"
+
+case "$1" in
+  run)
+    [ $# -ge 2 ] || usage
+    OUTPUT=$2
+    shift 2
+    source "${DIR}/find_maven.sh"
+    cd "${DIR}/.." || exit 1
+    ${MVN} -B -q clean package -DskipTests -DbuildBenchmarks -pl ratis-benchmarks -am || exit 1
+    java -jar ratis-benchmarks/target/benchmarks.jar -rf json -rff "${OUTPUT}" "$@"
+    ;;
+  compare)
+    [ $# -eq 3 ] || usage
+    command -v jq >/dev/null || { echo "jq is required for comparing the results"; exit 1; }
+    # key: benchmark name and parameters; value: score and unit
+    SCORES='map({key: ((.benchmark | sub("^org[.]apache[.]ratis[.]"; "")) + " " + ((.params // {}) | to_entries | map(.key + "=" + .value) | join(","))),
+                 value: {score: .primaryMetric.score, unit: .primaryMetric.scoreUnit}}) | from_entries'
+    jq -r -n --slurpfile base "$2" --slurpfile new "$3" "
+      (\$base[0] | ${SCORES}) as \$b | (\$new[0] | ${SCORES}) as \$n
+      | \$n | keys[] | select(\$b[.] != null)
+      | [., \$b[.].score, \$n[.].score, (\$n[.].score / \$b[.].score - 1) * 100, \$n[.].unit]
+      | \"\(.[0])\t\(.[1] | floor)\t\(.[2] | floor)\t\(.[3] * 10 | round / 10)%\t\(.[4])\"" \
+      | (printf "BENCHMARK\tBASE\tNEW\tCHANGE\tUNIT\n"; cat) \
+      | awk -F '\t' '{ printf "%-90s %14s %14s %9s  %s\n", $1, $2, $3, $4, $5 }'
+    ;;
+  *)
+    usage
+    ;;
+esac
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.benchmarks.cluster;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.statemachine.TransactionContext;
+import org.apache.ratis.statemachine.impl.BaseStateMachine;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A state machine with a negligible cost so that the benchmarks measure the Ratis overhead.
+ * <p>
+ * The transactions are applied by only updating the last applied index.
+ * The queries are answered with the number of bytes given in the query message.
+ * The streamed data is discarded.
+ */
+public class BenchmarkStateMachine extends BaseStateMachine {
+  private static final CompletableFuture<Message> EMPTY = CompletableFuture.completedFuture(Message.EMPTY);
+
+  /** @return a query message asking for a reply with the given size. */
+  public static Message newQuery(int replySize) {
+    return Message.valueOf(UnsafeByteOperations.unsafeWrap(ByteBuffer.allocate(4).putInt(0, replySize)));
+  }
+
+  private volatile byte[] zeros = new byte[0];
+
+  @Override
+  public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
+    final LogEntryProto entry = trx.getLogEntry();
+    updateLastAppliedTermIndex(entry.getTerm(), entry.getIndex());
+    return EMPTY;
+  }
+
+  @Override
+  public CompletableFuture<Message> query(Message request) {
+    final ByteString content = request.getContent();
+    if (content.size() != 4) {
+      return EMPTY;
+    }
+    final int replySize = content.asReadOnlyByteBuffer().getInt();
+    byte[] z = zeros;
+    if (z.length < replySize) {
+      z = new byte[replySize];
+      zeros = z;
+    }
+    return CompletableFuture.completedFuture(Message.valueOf(UnsafeByteOperations.unsafeWrap(z, 0, replySize)));
+  }
+
+  @Override
+  public CompletableFuture<DataStream> stream(RaftClientRequest request) {
+    return CompletableFuture.completedFuture(new DiscardingDataStream());
+  }
+
+  @Override
+  public CompletableFuture<?> link(DataStream stream, LogEntryProto entry) {
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /** A {@link DataStream} discarding the data. */
+  private static class DiscardingDataStream implements DataStream, DataChannel {
+    private volatile boolean open = true;
+
+    @Override
+    public DataChannel getDataChannel() {
+      return this;
+    }
+
+    @Override
+    public CompletableFuture<?> cleanUp() {
+      open = false;
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public int write(ByteBuffer buffer) {
+      final int n = buffer.remaining();
+      buffer.position(buffer.limit());
+      return n;
+    }
+
+    @Override
+    public void force(boolean metadata) {
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.benchmarks.cluster;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An end-to-end benchmark of a Ratis cluster.
+ * <p>
+ * The run command runs a workload against either an in-process cluster or a multi-process cluster
+ * and then reports the throughput and the latency percentiles in JSON.
+ * The servers of a multi-process cluster are started by the server command.
+ */
+public final class ClusterBenchmark {
+  private ClusterBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Map<String, SubCommand> commands = new LinkedHashMap<>();
+    commands.put("run", new Workload());
+    commands.put("server", new Server());
+
+    final JCommander.Builder builder = JCommander.newBuilder()
+        .programName("java -cp ratis-benchmarks/target/benchmarks.jar " + ClusterBenchmark.class.getName());
+    commands.forEach((name, command) -> builder.addCommand(name, command));
+    final JCommander jc = builder.build();
+    try {
+      jc.parse(args);
+    } catch (ParameterException e) {
+      System.err.println("Wrong parameters: " + e.getMessage());
+      jc.usage();
+      System.exit(1);
+    }
+
+    final SubCommand command = commands.get(jc.getParsedCommand());
+    if (command == null) {
+      jc.usage();
+      System.exit(1);
+    }
+    try {
+      command.run();
+    } catch (Exception e) {
+      // print it here since the uncaught exception handler may be replaced by the servers
+      e.printStackTrace();
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.benchmarks.cluster;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.ratis.thirdparty.com.google.gson.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/** The latency histogram, the throughput and the error count of an operation type. */
+final class OperationStats {
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  private final String name;
+  /** The latencies in nanoseconds. */
+  private final Recorder recorder = new Recorder(3);
+  private final LongAdder errors = new LongAdder();
+
+  private Histogram histogram;
+  private long errorCount;
+
+  OperationStats(String name) {
+    this.name = name;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  void succeeded(long startNanos) {
+    recorder.recordValue(System.nanoTime() - startNanos);
+  }
+
+  void failed() {
+    errors.increment();
+  }
+
+  /** Discard the values recorded so far, e.g. during the warmup. */
+  void reset() {
+    recorder.reset();
+    errors.reset();
+  }
+
+  /** Take a snapshot of the values recorded since the last {@link #reset()}. */
+  void stop() {
+    histogram = recorder.getIntervalHistogram();
+    errorCount = errors.sumThenReset();
+  }
+
+  long getCount() {
+    return histogram.getTotalCount();
+  }
+
+  long getErrorCount() {
+    return errorCount;
+  }
+
+  private double getMegaBytesPerSecond(double seconds, int bytesPerOp) {
+    return getCount() * (double) bytesPerOp / seconds / (1 << 20);
+  }
+
+  private static double toMicros(double nanos) {
+    return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+  }
+
+  JsonObject toJson(double seconds, int bytesPerOp) {
+    final JsonObject latency = new JsonObject();
+    latency.addProperty("mean", toMicros(histogram.getMean()));
+    for (double p : PERCENTILES) {
+      latency.addProperty("p" + toString(p).replace(".", ""), toMicros(histogram.getValueAtPercentile(p)));
+    }
+    latency.addProperty("max", toMicros(histogram.getMaxValue()));
+
+    final JsonObject json = new JsonObject();
+    json.addProperty("count", getCount());
+    json.addProperty("errors", getErrorCount());
+    json.addProperty("opsPerSecond", getCount() / seconds);
+    json.addProperty("mbPerSecond", getMegaBytesPerSecond(seconds, bytesPerOp));
+    json.add("latencyMicros", latency);
+    return json;
+  }
+
+  private static String toString(double percentile) {
+    return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+  }
+
+  String toString(double seconds, int bytesPerOp) {
+    final StringBuilder b = new StringBuilder()
+        .append(String.format("%-6s %10d ops, %10.1f ops/s, %8.2f MB/s, %d errors; latency (us):",
+            name, getCount(), getCount() / seconds, getMegaBytesPerSecond(seconds, bytesPerOp), getErrorCount()))
+        .append(String.format(" mean=%.1f", toMicros(histogram.getMean())));
+    for (double p : PERCENTILES) {
+      b.append(String.format(" p%s=%.1f", toString(p), toMicros(histogram.getValueAtPercentile(p))));
+    }
+    return b.append(String.format(" max=%.1f", toMicros(histogram.getMaxValue()))).toString();
+  }
+}
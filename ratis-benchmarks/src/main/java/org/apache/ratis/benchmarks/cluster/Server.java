@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.benchmarks.cluster;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.netty.NettyConfigKeys;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.LifeCycle;
+import org.apache.ratis.util.NetUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start a server of a multi-process cluster.
+ * The server starts without any groups; the groups are added and removed by the run command.
+ */
+@Parameters(commandDescription = "Start a server of a multi-process cluster")
+class Server extends SubCommand {
+  @Parameter(names = "--id", description = "The id of this server in --peers", required = true)
+  private String id;
+
+  @Parameter(names = "--storage", description = "The storage directory", required = true)
+  private File storageDir;
+
+  @Override
+  void run() throws Exception {
+    final RaftPeer peer = parsePeers().stream()
+        .filter(p -> p.getId().toString().equals(id))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Peer " + id + " not found in " + getPeersOption()));
+
+    final RaftProperties properties = newRaftProperties();
+    getRpc().setTypes(properties);
+    final int port = NetUtils.createSocketAddr(peer.getAddress()).getPort();
+    if (getRpc() == Rpc.NETTY) {
+      NettyConfigKeys.Server.setPort(properties, port);
+    } else {
+      GrpcConfigKeys.Server.setPort(properties, port);
+    }
+    if (getRpc() == Rpc.DATASTREAM) {
+      final String address = Objects.requireNonNull(peer.getDataStreamAddress(),
+          () -> "The data stream port of " + id + " is not specified");
+      NettyConfigKeys.DataStream.setPort(properties, NetUtils.createSocketAddr(address).getPort());
+    }
+    RaftServerConfigKeys.setStorageDir(properties, Collections.singletonList(storageDir));
+
+    final RaftServer server = RaftServer.newBuilder()
+        .setServerId(peer.getId())
+        .setStateMachineRegistry(groupId -> new BenchmarkStateMachine())
+        .setProperties(properties)
+        .build();
+    server.start();
+
+    for (; server.getLifeCycleState() != LifeCycle.State.CLOSED; ) {
+      TimeUnit.SECONDS.sleep(1);
+    }
+  }
+}
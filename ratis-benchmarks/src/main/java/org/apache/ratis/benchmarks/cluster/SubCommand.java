@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.benchmarks.cluster;
+
+import com.beust.jcommander.DynamicParameter;
+import com.beust.jcommander.Parameter;
+import org.apache.ratis.RaftConfigKeys;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.datastream.SupportedDataStreamType;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.netty.MiniRaftClusterWithNetty;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.rpc.SupportedRpcType;
+import org.apache.ratis.server.impl.MiniRaftCluster;
+import org.apache.ratis.server.simulation.MiniRaftClusterWithSimulatedRpc;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** The options common to the subcommands of {@link ClusterBenchmark}. */
+abstract class SubCommand {
+  /** The RPC types supported by the benchmark. */
+  enum Rpc {
+    GRPC(MiniRaftClusterWithGrpc.FACTORY),
+    NETTY(MiniRaftClusterWithNetty.FACTORY),
+    /** gRPC for the raft requests and Netty for the data stream writes. */
+    DATASTREAM(MiniRaftClusterWithDataStream.FACTORY),
+    /** In-process clusters only. */
+    SIMULATED(MiniRaftClusterWithSimulatedRpc.FACTORY);
+
+    private final MiniRaftCluster.Factory<?> factory;
+
+    Rpc(MiniRaftCluster.Factory<?> factory) {
+      this.factory = factory;
+    }
+
+    MiniRaftCluster.Factory<?> getFactory() {
+      return factory;
+    }
+
+    /** Set the types for a multi-process cluster. */
+    void setTypes(RaftProperties properties) {
+      switch (this) {
+        case GRPC:
+          RaftConfigKeys.Rpc.setType(properties, SupportedRpcType.GRPC);
+          return;
+        case NETTY:
+          RaftConfigKeys.Rpc.setType(properties, SupportedRpcType.NETTY);
+          return;
+        case DATASTREAM:
+          RaftConfigKeys.Rpc.setType(properties, SupportedRpcType.GRPC);
+          RaftConfigKeys.DataStream.setType(properties, SupportedDataStreamType.NETTY);
+          return;
+        default:
+          throw new IllegalArgumentException(this + " is only supported by in-process clusters");
+      }
+    }
+  }
+
+  @Parameter(names = "--rpc", description = "The RPC type")
+  private Rpc rpc = Rpc.GRPC;
+
+  @Parameter(names = "--peers", description = "The peers of a multi-process cluster"
+      + " (format: id:host:port[:dataStreamPort],...)")
+  private String peers;
+
+  @DynamicParameter(names = "-D", description = "The raft properties, e.g. -Draft.server.log.segment.size.max=32MB")
+  private Map<String, String> raftProperties = new LinkedHashMap<>();
+
+  Rpc getRpc() {
+    return rpc;
+  }
+
+  String getPeersOption() {
+    return peers;
+  }
+
+  List<RaftPeer> parsePeers() {
+    if (peers == null) {
+      throw new IllegalArgumentException("--peers is not specified");
+    }
+    return Stream.of(peers.split(",")).map(SubCommand::parsePeer).collect(Collectors.toList());
+  }
+
+  private static RaftPeer parsePeer(String peer) {
+    final String[] parts = peer.split(":");
+    if (parts.length < 3 || parts.length > 4) {
+      throw new IllegalArgumentException("Failed to parse peer " + peer
+          + ": the format is id:host:port[:dataStreamPort]");
+    }
+    final RaftPeer.Builder builder = RaftPeer.newBuilder()
+        .setId(parts[0])
+        .setAddress(parts[1] + ":" + parts[2]);
+    if (parts.length == 4) {
+      builder.setDataStreamAddress(parts[1] + ":" + parts[3]);
+    }
+    return builder.build();
+  }
+
+  Map<String, String> getProperties() {
+    return raftProperties;
+  }
+
+  RaftProperties newRaftProperties() {
+    final RaftProperties p = new RaftProperties();
+    raftProperties.forEach(p::set);
+    return p;
+  }
+
+  abstract void run() throws Exception;
+}
@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.benchmarks.cluster;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.api.DataStreamOutput;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.io.StandardWriteOption;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftGroup;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.retry.RetryPolicies;
+import org.apache.ratis.retry.RetryPolicy;
+import org.apache.ratis.server.impl.MiniRaftCluster;
+import org.apache.ratis.thirdparty.com.google.gson.GsonBuilder;
+import org.apache.ratis.thirdparty.com.google.gson.JsonObject;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run a closed-loop workload against a cluster and then report the throughput and the latency percentiles.
+ * <p>
+ * Each client keeps the given number of outstanding async requests;
+ * a new request is sent once a reply is received.
+ * Since the simulated RPC does not support async, its requests are sent by blocking calls from a thread pool.
+ * The latencies during the warmup are discarded.
+ */
+@Parameters(commandDescription = "Run a workload against an in-process cluster,"
+    + " or against a multi-process cluster if --peers is specified")
+class Workload extends SubCommand {
+  static final Logger LOG = LoggerFactory.getLogger(Workload.class);
+
+  private static final String TEST_BUILD_DATA = "test.build.data";
+  private static final RetryPolicy RETRY_POLICY = RetryPolicies.retryUpToMaximumCountWithFixedSleep(
+      100, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS));
+
+  @Parameter(names = "--servers", description = "The number of the servers of an in-process cluster")
+  private int numServers = 3;
+
+  @Parameter(names = "--groups", description = "The number of the groups, each with all the servers")
+  private int numGroups = 1;
+
+  @Parameter(names = "--clients", description = "The number of the clients, assigned to the groups round-robin")
+  private int numClients = 4;
+
+  @Parameter(names = "--outstanding", description = "The number of the outstanding requests per client")
+  private int outstanding = 16;
+
+  @Parameter(names = "--messageSize", description = "The size in bytes of the written messages and the read replies")
+  private int messageSize = 1024;
+
+  @Parameter(names = "--readRatio", description = "The ratio of the read-only requests, from 0 to 1")
+  private double readRatio = 0;
+
+  @Parameter(names = "--warmup", description = "The warmup time, e.g. 10s; the default unit is second")
+  private String warmup = "5s";
+
+  @Parameter(names = "--duration", description = "The measurement time, e.g. 1min; the default unit is second")
+  private String duration = "30s";
+
+  @Parameter(names = "--output", description = "The JSON result file; print to stdout if it is not specified")
+  private File output;
+
+  private final OperationStats writes = new OperationStats("write");
+  private final OperationStats reads = new OperationStats("read");
+  /** For the clients not supporting async, i.e. {@link Rpc#SIMULATED}. */
+  private ExecutorService blockingExecutor;
+  private volatile boolean running;
+
+  /** A cluster with the benchmark groups. */
+  private abstract class Cluster implements Closeable {
+    private final List<RaftGroup> groups = new ArrayList<>();
+
+    List<RaftGroup> getGroups() {
+      return groups;
+    }
+
+    abstract List<RaftPeer> getPeers();
+
+    abstract RaftClient newClient(RaftGroup group);
+
+    /** Add the groups until there are {@link #numGroups} groups. */
+    void addGroups() throws IOException {
+      while (groups.size() < numGroups) {
+        final RaftGroup group = RaftGroup.valueOf(RaftGroupId.randomId(), getPeers());
+        try (RaftClient client = newClient(group)) {
+          for (RaftPeer peer : group.getPeers()) {
+            final RaftClientReply reply = client.getGroupManagementApi(peer.getId()).add(group);
+            if (!reply.isSuccess()) {
+              throw new IOException("Failed to add " + group + " to " + peer.getId() + ": " + reply);
+            }
+          }
+        }
+        groups.add(group);
+      }
+    }
+  }
+
+  /** A {@link MiniRaftCluster} running in this process. */
+  private final class InProcessCluster extends Cluster {
+    private final File testDir;
+    private final MiniRaftCluster cluster;
+
+    private InProcessCluster(RaftProperties properties) throws IOException {
+      if (System.getProperty(TEST_BUILD_DATA) == null) {
+        testDir = Files.createTempDirectory("ratis-cluster-benchmark").toFile();
+        System.setProperty(TEST_BUILD_DATA, testDir.getPath());
+      } else {
+        testDir = null;
+      }
+      cluster = getRpc().getFactory().newCluster(numServers, properties);
+      cluster.setStateMachineRegistry(groupId -> new BenchmarkStateMachine());
+      cluster.start();
+      getGroups().add(cluster.getGroup());
+    }
+
+    @Override
+    List<RaftPeer> getPeers() {
+      return cluster.getPeers();
+    }
+
+    @Override
+    RaftClient newClient(RaftGroup group) {
+      return cluster.createClient(null, group, RETRY_POLICY, group.getPeers().iterator().next());
+    }
+
+    @Override
+    public void close() throws IOException {
+      cluster.shutdown();
+      if (testDir != null) {
+        FileUtils.deleteFully(testDir);
+      }
+    }
+  }
+
+  /** A cluster of the {@link Server}s running in the other processes. */
+  private final class MultiProcessCluster extends Cluster {
+    private final RaftProperties properties;
+    private final List<RaftPeer> peers;
+
+    private MultiProcessCluster(RaftProperties properties) {
+      Preconditions.assertTrue(getRpc() != Rpc.SIMULATED, "SIMULATED is only supported by in-process clusters");
+      getRpc().setTypes(properties);
+      this.properties = properties;
+      this.peers = parsePeers();
+    }
+
+    @Override
+    List<RaftPeer> getPeers() {
+      return peers;
+    }
+
+    @Override
+    RaftClient newClient(RaftGroup group) {
+      return RaftClient.newBuilder()
+          .setRaftGroup(group)
+          .setProperties(properties)
+          .setPrimaryDataStreamServer(group.getPeers().iterator().next())
+          .setRetryPolicy(RETRY_POLICY)
+          .build();
+    }
+
+    @Override
+    public void close() {
+      for (RaftGroup group : getGroups()) {
+        try (RaftClient client = newClient(group)) {
+          for (RaftPeer peer : group.getPeers()) {
+            client.getGroupManagementApi(peer.getId()).remove(group.getGroupId(), true, false);
+          }
+        } catch (IOException e) {
+          LOG.warn("Failed to remove {}", group, e);
+        }
+      }
+    }
+  }
+
+  /** Send the requests of a client one after another. */
+  private final class Driver {
+    private final RaftClient client;
+    private final Message writeMessage;
+    private final Message readMessage;
+    private final ByteBuffer streamBuffer;
+    private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+
+    private Driver(RaftClient client, Message writeMessage, Message readMessage, ByteBuffer streamBuffer) {
+      this.client = client;
+      this.writeMessage = writeMessage;
+      this.readMessage = readMessage;
+      this.streamBuffer = streamBuffer;
+    }
+
+    private CompletableFuture<RaftClientReply> send(boolean isRead) {
+      if (blockingExecutor != null) {
+        return CompletableFuture.supplyAsync(() -> sendBlocking(isRead), blockingExecutor);
+      } else if (isRead) {
+        return client.async().sendReadOnly(readMessage);
+      } else if (getRpc() != Rpc.DATASTREAM) {
+        return client.async().send(writeMessage);
+      }
+      final DataStreamOutput out = client.getDataStreamApi().stream();
+      out.writeAsync(streamBuffer.duplicate(), StandardWriteOption.CLOSE);
+      return out.getRaftClientReplyFuture();
+    }
+
+    private RaftClientReply sendBlocking(boolean isRead) {
+      try {
+        return isRead ? client.io().sendReadOnly(readMessage) : client.io().send(writeMessage);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }
+
+    private void run() {
+      while (running) {
+        final boolean isRead = readRatio > 0 && ThreadLocalRandom.current().nextDouble() < readRatio;
+        final OperationStats stats = isRead ? reads : writes;
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<RaftClientReply> f = send(isRead);
+        if (!f.isDone()) {
+          f.whenComplete((reply, e) -> {
+            complete(stats, startNanos, reply, e);
+            run();
+          });
+          return;
+        }
+        f.whenComplete((reply, e) -> complete(stats, startNanos, reply, e));
+      }
+      stopped.complete(null);
+    }
+
+    private void complete(OperationStats stats, long startNanos, RaftClientReply reply, Throwable e) {
+      if (e == null && reply.isSuccess()) {
+        stats.succeeded(startNanos);
+      } else {
+        stats.failed();
+        LOG.debug("{} failed: reply={}", stats.getName(), reply, e);
+      }
+    }
+  }
+
+  private void validate() {
+    Preconditions.assertTrue(numServers > 0, () -> "--servers = " + numServers + " <= 0");
+    Preconditions.assertTrue(numGroups > 0, () -> "--groups = " + numGroups + " <= 0");
+    Preconditions.assertTrue(numClients > 0, () -> "--clients = " + numClients + " <= 0");
+    Preconditions.assertTrue(outstanding > 0, () -> "--outstanding = " + outstanding + " <= 0");
+    Preconditions.assertTrue(messageSize >= 0, () -> "--messageSize = " + messageSize + " < 0");
+    Preconditions.assertTrue(readRatio >= 0 && readRatio <= 1, () -> "--readRatio = " + readRatio + " not in [0, 1]");
+  }
+
+  @Override
+  void run() throws Exception {
+    validate();
+    final TimeDuration warmupTime = TimeDuration.valueOf(warmup, TimeUnit.SECONDS);
+    final TimeDuration measurementTime = TimeDuration.valueOf(duration, TimeUnit.SECONDS);
+    final RaftProperties properties = newRaftProperties();
+
+    final JsonObject result;
+    try (Cluster cluster = getPeersOption() == null ? new InProcessCluster(properties)
+        : new MultiProcessCluster(properties)) {
+      cluster.addGroups();
+      result = run(cluster, warmupTime, measurementTime);
+    }
+
+    final String json = new GsonBuilder().setPrettyPrinting().create().toJson(result);
+    if (output == null) {
+      System.out.println(json);
+    } else {
+      try (PrintStream out = new PrintStream(output, StandardCharsets.UTF_8.name())) {
+        out.println(json);
+      }
+      System.out.println("The result is written to " + output);
+    }
+  }
+
+  private JsonObject run(Cluster cluster, TimeDuration warmupTime, TimeDuration measurementTime) throws Exception {
+    final byte[] data = new byte[messageSize];
+    ThreadLocalRandom.current().nextBytes(data);
+    final Message writeMessage = Message.valueOf(UnsafeByteOperations.unsafeWrap(data));
+    final Message readMessage = BenchmarkStateMachine.newQuery(messageSize);
+    final ByteBuffer streamBuffer = ByteBuffer.allocateDirect(messageSize).put(data);
+    streamBuffer.flip();
+
+    if (getRpc() == Rpc.SIMULATED) {
+      blockingExecutor = Executors.newFixedThreadPool(numClients * outstanding);
+    }
+    final List<RaftGroup> groups = cluster.getGroups();
+    final List<RaftClient> clients = new ArrayList<>();
+    final List<Driver> drivers = new ArrayList<>();
+    try {
+      for (int i = 0; i < numClients; i++) {
+        final RaftClient client = cluster.newClient(groups.get(i % groups.size()));
+        clients.add(client);
+        if (i < groups.size()) {
+          // wait for the leader of the group
+          final RaftClientReply reply = client.io().send(writeMessage);
+          Preconditions.assertTrue(reply.isSuccess(), () -> "Failed to write to " + groups + ": " + reply);
+        }
+        for (int j = 0; j < outstanding; j++) {
+          drivers.add(new Driver(client, writeMessage, readMessage, streamBuffer));
+        }
+      }
+
+      running = true;
+      drivers.forEach(Driver::run);
+      LOG.warn("Warming up for {} ...", warmupTime);
+      warmupTime.sleep();
+      writes.reset();
+      reads.reset();
+
+      LOG.warn("Measuring for {} ...", measurementTime);
+      final long startNanos = System.nanoTime();
+      measurementTime.sleep();
+      writes.stop();
+      reads.stop();
+      final double seconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+
+      running = false;
+      for (Driver driver : drivers) {
+        driver.stopped.get();
+      }
+      return toJson(cluster, warmupTime, measurementTime, seconds);
+    } finally {
+      running = false;
+      Optional.ofNullable(blockingExecutor).ifPresent(ExecutorService::shutdown);
+      for (RaftClient client : clients) {
+        client.close();
+      }
+    }
+  }
+
+  private JsonObject toJson(Cluster cluster, TimeDuration warmupTime, TimeDuration measurementTime,
+      double seconds) {
+    final JsonObject config = new JsonObject();
+    config.addProperty("cluster", getPeersOption() == null ? "in-process" : "multi-process");
+    config.addProperty("rpc", getRpc().name());
+    config.addProperty("servers", cluster.getPeers().size());
+    config.addProperty("groups", numGroups);
+    config.addProperty("clients", numClients);
+    config.addProperty("outstanding", outstanding);
+    config.addProperty("messageSize", messageSize);
+    config.addProperty("readRatio", readRatio);
+    config.addProperty("warmup", warmupTime.toString());
+    config.addProperty("duration", measurementTime.toString());
+    final JsonObject raftProperties = new JsonObject();
+    getProperties().forEach(raftProperties::addProperty);
+    config.add("properties", raftProperties);
+
+    final JsonObject operations = new JsonObject();
+    long count = 0;
+    long errors = 0;
+    for (OperationStats stats : Arrays.asList(writes, reads)) {
+      if (stats.getCount() > 0 || stats.getErrorCount() > 0) {
+        operations.add(stats.getName(), stats.toJson(seconds, messageSize));
+        System.out.println(stats.toString(seconds, messageSize));
+        count += stats.getCount();
+        errors += stats.getErrorCount();
+      }
+    }
+    final JsonObject total = new JsonObject();
+    total.addProperty("count", count);
+    total.addProperty("errors", errors);
+    total.addProperty("opsPerSecond", count / seconds);
+    total.addProperty("mbPerSecond", count * (double) messageSize / seconds / (1 << 20));
+
+    final JsonObject json = new JsonObject();
+    json.add("config", config);
+    json.addProperty("seconds", seconds);
+    json.add("operations", operations);
+    json.add("total", total);
+    return json;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client.impl;
+
+import org.apache.ratis.proto.RaftProtos.RaftClientReplyProto;
+import org.apache.ratis.proto.RaftProtos.RaftClientRequestProto;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the {@link ClientProtoUtils} conversions of write requests and replies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientProtoUtilsBenchmark {
+  @Param({"16", "1024", "65536"})
+  private int messageSize;
+
+  private RaftClientRequest request;
+  private RaftClientRequestProto requestProto;
+  private RaftClientReply reply;
+  private RaftClientReplyProto replyProto;
+
+  @Setup
+  public void setup() {
+    final byte[] data = new byte[messageSize];
+    ThreadLocalRandom.current().nextBytes(data);
+    final Message message = Message.valueOf(UnsafeByteOperations.unsafeWrap(data));
+
+    request = RaftClientRequest.newBuilder()
+        .setClientId(ClientId.randomId())
+        .setServerId(RaftPeerId.valueOf("s0"))
+        .setGroupId(RaftGroupId.randomId())
+        .setCallId(100)
+        .setMessage(message)
+        .setType(RaftClientRequest.writeRequestType())
+        .setTimeoutMs(3000)
+        .build();
+    requestProto = ClientProtoUtils.toRaftClientRequestProto(request);
+
+    reply = RaftClientReply.newBuilder()
+        .setRequest(request)
+        .setSuccess()
+        .setMessage(message)
+        .setLogIndex(1000)
+        .build();
+    replyProto = ClientProtoUtils.toRaftClientReplyProto(reply);
+  }
+
+  @Benchmark
+  public RaftClientRequestProto toRequestProto() {
+    return ClientProtoUtils.toRaftClientRequestProto(request);
+  }
+
+  @Benchmark
+  public RaftClientRequest toRequest() {
+    return ClientProtoUtils.toRaftClientRequest(requestProto);
+  }
+
+  @Benchmark
+  public RaftClientReplyProto toReplyProto() {
+    return ClientProtoUtils.toRaftClientReplyProto(reply);
+  }
+
+  @Benchmark
+  public RaftClientReply toReply() {
+    return ClientProtoUtils.toRaftClientReply(replyProto);
+  }
+}
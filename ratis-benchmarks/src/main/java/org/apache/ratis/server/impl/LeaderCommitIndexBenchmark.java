@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.impl.LeaderStateImpl.MinMajorityMax;
+import org.apache.ratis.server.leader.FollowerInfo;
+import org.apache.ratis.util.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the commit index computation of {@link LeaderStateImpl}:
+ * a follower acknowledges an append and then the leader computes the majority of the match indices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderCommitIndexBenchmark {
+  /** The number of peers, including the leader. */
+  @Param({"3", "5", "7"})
+  private int numPeers;
+
+  /** Is the configuration in the transitional state, i.e. are there also the old peers? */
+  @Param({"false", "true"})
+  private boolean transitional;
+
+  private List<FollowerInfo> followers;
+  private List<FollowerInfo> oldFollowers;
+  /** The followers acknowledging the appends. */
+  private List<FollowerInfo> acking;
+  private long leaderFlushIndex;
+  private int[] acks;
+  private int nextAck;
+
+  @Setup
+  public void setup() {
+    final RaftGroupMemberId leaderId = RaftGroupMemberId.valueOf(RaftPeerId.valueOf("s0"), RaftGroupId.randomId());
+    final List<FollowerInfo> all = new ArrayList<>();
+    for (int i = 1; i < 2 * numPeers; i++) {
+      final RaftPeer peer = RaftPeer.newBuilder().setId("s" + i).build();
+      all.add(new FollowerInfoImpl(leaderId, peer, id -> peer, Timestamp.currentTime(), 0, true));
+    }
+    followers = all.subList(0, numPeers - 1);
+    // the old conf shares half of the peers with the new conf
+    oldFollowers = transitional ? all.subList(numPeers / 2, numPeers / 2 + numPeers - 1) : null;
+
+    acking = transitional ? all.subList(0, numPeers / 2 + numPeers - 1) : followers;
+    final Random random = new Random(1);
+    acks = new int[1 << 12];
+    for (int i = 0; i < acks.length; i++) {
+      acks[i] = random.nextInt(acking.size());
+    }
+  }
+
+  @Benchmark
+  public MinMajorityMax ackAndComputeCommitIndex() {
+    leaderFlushIndex++;
+    acking.get(acks[nextAck++ & (acks.length - 1)]).updateMatchIndex(leaderFlushIndex - 1);
+
+    final long[] sorted = LeaderStateImpl.getSorted(followers, true,
+        FollowerInfo::getMatchIndex, () -> leaderFlushIndex);
+    final MinMajorityMax newConf = MinMajorityMax.valueOf(sorted, -1);
+    if (oldFollowers == null) {
+      return newConf;
+    }
+    final long[] oldSorted = LeaderStateImpl.getSorted(oldFollowers, true,
+        FollowerInfo::getMatchIndex, () -> leaderFlushIndex);
+    return newConf.combine(MinMajorityMax.valueOf(oldSorted, -1));
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.ClientInvocationId;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.impl.RetryCacheImpl.CacheQueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the {@link RetryCacheImpl} lookups with the default expiry time,
+ * comparing the Guava cache with the {@link StripedRetryCacheStore}.
+ * Run with {@code -prof gc} to compare the allocation rates.
+ * <p>
+ * A request piggybacks the call id replied a window earlier, as the clients do,
+ * so that the size of the cache stays at (clients * window) entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetryCacheBenchmark {
+  @Param({"false", "true"})
+  private boolean striped;
+
+  @Param({"16", "1024"})
+  private int numClients;
+
+  /** The number of outstanding requests per client. */
+  @Param({"64"})
+  private int window;
+
+  private RetryCacheImpl cache;
+  /** The requests with new call ids, which replied the call ids of the previous window. */
+  private RaftClientRequest[] newRequests;
+  /** The retries of the requests already in the cache. */
+  private RaftClientRequest[] retries;
+  private RaftClientReply[] replies;
+  private int nextNew;
+  private int nextRetry;
+
+  @Setup
+  public void setup() {
+    final RaftProperties properties = new RaftProperties();
+    RaftServerConfigKeys.RetryCache.setStripedEnabled(properties, striped);
+    cache = new RetryCacheImpl(properties);
+
+    final int n = numClients * window * 2; // a ring of call ids; half of them are in the cache
+    newRequests = new RaftClientRequest[n];
+    replies = new RaftClientReply[n];
+    final RaftPeerId serverId = RaftPeerId.valueOf("s0");
+    final RaftGroupId groupId = RaftGroupId.randomId();
+    final ClientId[] clients = new ClientId[numClients];
+    for (int c = 0; c < numClients; c++) {
+      clients[c] = ClientId.randomId();
+    }
+    for (int i = 0; i < n; i++) {
+      final int callId = i / numClients;
+      final long replied = Math.floorMod(callId - window, n / numClients);
+      newRequests[i] = RaftClientRequest.newBuilder()
+          .setClientId(clients[i % numClients])
+          .setServerId(serverId)
+          .setGroupId(groupId)
+          .setCallId(callId)
+          .setRepliedCallIds(Collections.singletonList(replied))
+          .setMessage(Message.EMPTY)
+          .setType(RaftClientRequest.writeRequestType())
+          .build();
+      replies[i] = RaftClientReply.newBuilder().setRequest(newRequests[i]).setSuccess().build();
+    }
+
+    // fill the cache with the first half
+    retries = new RaftClientRequest[n / 2];
+    for (; nextNew < retries.length; nextNew++) {
+      retries[nextNew] = newRequests[nextNew];
+      queryNew();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    cache.close();
+  }
+
+  private CacheQueryResult queryNew() {
+    final int i = nextNew;
+    final RaftClientRequest request = newRequests[i];
+    final CacheQueryResult result = cache.queryCache(request);
+    if (!result.isRetry()) {
+      result.getEntry().updateResult(replies[i]);
+    }
+    cache.invalidateRepliedRequests(request);
+    return result;
+  }
+
+  /** A new request: a cache miss, and then invalidate the replied call id. */
+  @Benchmark
+  public CacheQueryResult queryNewRequest() {
+    final CacheQueryResult result = queryNew();
+    nextNew = (nextNew + 1) % newRequests.length;
+    return result;
+  }
+
+  /** A retry of a replied request: a cache hit. */
+  @Benchmark
+  public CacheQueryResult queryRetry() {
+    final CacheQueryResult result = cache.queryCache(retries[nextRetry]);
+    nextRetry = (nextRetry + 1) % retries.length;
+    return result;
+  }
+
+  /** Look up a replied request by its invocation id. */
+  @Benchmark
+  public RetryCacheImpl.CacheEntry getIfPresent() {
+    final RaftClientRequest request = retries[nextRetry];
+    nextRetry = (nextRetry + 1) % retries.length;
+    return cache.getIfPresent(ClientInvocationId.valueOf(request));
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
+import org.apache.ratis.server.raftlog.LogEntryHeader;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.apache.ratis.server.raftlog.segmented.LogSegment.LogRecord;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the entry lookups and the cache eviction of {@link SegmentedRaftLogCache}.
+ * <p>
+ * The segments are built in memory; the entries are read from the cache as the leader does for a follower.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentedRaftLogCacheBenchmark {
+  static final int ENTRY_SIZE = 1024;
+
+  /** A cache with closed segments and an open segment. */
+  @State(Scope.Thread)
+  public static class CacheState {
+    @Param({"8", "64"})
+    private int numSegments;
+
+    @Param({"1024"})
+    private int entriesPerSegment;
+
+    private final StateMachineLogEntryProto smLog = StateMachineLogEntryProto.newBuilder()
+        .setLogData(UnsafeByteOperations.unsafeWrap(new byte[ENTRY_SIZE]))
+        .build();
+    private SegmentedRaftLogMetrics metrics;
+    private SegmentedRaftLogCache cache;
+
+    @Setup(Level.Trial)
+    public void setupCache() {
+      final RaftGroupMemberId id = RaftGroupMemberId.valueOf(RaftPeerId.valueOf("s0"), RaftGroupId.randomId());
+      metrics = new SegmentedRaftLogMetrics(id);
+      cache = new SegmentedRaftLogCache(id, null, new RaftProperties(), metrics);
+
+      for (int s = 0; s < numSegments; s++) {
+        final long start = (long) s * entriesPerSegment;
+        final LogSegment segment = LogSegment.newOpenSegment(null, start, cache.getReadOptions(), metrics);
+        for (long i = start; i < start + entriesPerSegment; i++) {
+          final LogEntryProto entry = LogProtoUtils.toLogEntryProto(smLog, 1, i);
+          segment.appendToOpenSegment(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+        }
+        if (s < numSegments - 1) {
+          segment.close();
+        }
+        cache.addSegment(segment);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownCache() {
+      cache.close();
+      metrics.unregister();
+    }
+
+    long getEndIndex() {
+      return cache.getEndIndex();
+    }
+  }
+
+  /** Random indices to look up. */
+  @State(Scope.Thread)
+  public static class Lookups {
+    private long[] indices;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setupLookups(CacheState state) {
+      final Random random = new Random(1);
+      indices = new long[1 << 16];
+      for (int i = 0; i < indices.length; i++) {
+        indices[i] = (long) (random.nextDouble() * (state.getEndIndex() + 1));
+      }
+    }
+
+    long next() {
+      return indices[next++ & (indices.length - 1)];
+    }
+  }
+
+  /** Refill the caches of the closed segments before each eviction. */
+  @State(Scope.Thread)
+  public static class Evictions {
+    private long[] followerIndices;
+
+    @Setup(Level.Trial)
+    public void setupEvictions(CacheState state) {
+      followerIndices = new long[]{state.getEndIndex(), state.getEndIndex()};
+    }
+
+    @Setup(Level.Invocation)
+    public void refill(CacheState state) {
+      final SegmentedRaftLogCache cache = state.cache;
+      for (long i = 0; i <= cache.getLastIndexInClosedSegments(); ) {
+        final LogSegment segment = cache.getSegment(i);
+        for (; !segment.hasCache() && i <= segment.getEndIndex(); i++) {
+          final LogEntryProto entry = LogProtoUtils.toLogEntryProto(state.smLog, 1, i);
+          segment.putEntryCache(segment.getLogRecord(i).getTermIndex(), entry,
+              LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+        }
+        i = segment.getEndIndex() + 1;
+      }
+    }
+  }
+
+  /** Look up an entry as {@link SegmentedRaftLog#get(long)} does. */
+  @Benchmark
+  public LogEntryProto get(CacheState state, Lookups lookups) {
+    final long index = lookups.next();
+    final LogSegment segment = state.cache.getSegment(index);
+    final LogRecord record = segment.getLogRecord(index);
+    return segment.getEntryFromCache(record.getTermIndex());
+  }
+
+  /** Look up the headers of a batch of entries as the log appender does. */
+  @Benchmark
+  public LogEntryHeader[] getTermIndices(CacheState state, Lookups lookups) {
+    final long index = lookups.next();
+    return state.cache.getTermIndices(index, index + 64);
+  }
+
+  /** Evict the caches of the closed segments once all the followers have caught up. */
+  @Benchmark
+  public boolean evict(CacheState state, Evictions evictions) {
+    final long end = state.getEndIndex();
+    state.cache.evictCache(evictions.followerIndices, end, end);
+    return state.cache.shouldEvict();
+  }
+}
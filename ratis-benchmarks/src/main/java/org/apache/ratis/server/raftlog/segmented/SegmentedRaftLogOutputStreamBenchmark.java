@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.apache.ratis.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link SegmentedRaftLogOutputStream#write(LogEntryProto)} and
+ * {@link SegmentedRaftLogOutputStream#flush()} with the default segment, preallocation and buffer sizes.
+ * <p>
+ * The segment files are created in a temporary directory.
+ * A segment is rolled once it reaches the max segment size, as the log worker does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentedRaftLogOutputStreamBenchmark {
+  @Param({"128", "1024", "16384"})
+  private int entrySize;
+
+  /** The number of entries written between two flushes. */
+  @Param({"1", "64"})
+  private int batchSize;
+
+  private File dir;
+  private long segmentMaxSize;
+  private long preallocatedSize;
+  private ByteBuffer writeBuffer;
+  private LogEntryProto[] entries;
+
+  private SegmentedRaftLogOutputStream out;
+  private int segmentCount;
+  private long segmentSize;
+  private long nextIndex;
+
+  @Setup
+  public void setup() throws IOException {
+    final RaftProperties properties = new RaftProperties();
+    segmentMaxSize = RaftServerConfigKeys.Log.segmentSizeMax(properties).getSize();
+    preallocatedSize = RaftServerConfigKeys.Log.preallocatedSize(properties).getSize();
+    writeBuffer = ByteBuffer.allocateDirect(RaftServerConfigKeys.Log.writeBufferSize(properties).getSizeInt());
+
+    entries = new LogEntryProto[1024];
+    final byte[] data = new byte[entrySize];
+    for (int i = 0; i < entries.length; i++) {
+      ThreadLocalRandom.current().nextBytes(data);
+      final StateMachineLogEntryProto smLog = StateMachineLogEntryProto.newBuilder()
+          .setLogData(UnsafeByteOperations.unsafeWrap(data.clone()))
+          .build();
+      entries[i] = LogProtoUtils.toLogEntryProto(smLog, 1, i);
+    }
+
+    dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+    rollSegment();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    out.close();
+    FileUtils.deleteFully(dir);
+  }
+
+  private void rollSegment() throws IOException {
+    if (out != null) {
+      out.close();
+      FileUtils.deleteFile(new File(dir, "segment" + (segmentCount - 1)));
+    }
+    writeBuffer.clear();
+    out = new SegmentedRaftLogOutputStream(new File(dir, "segment" + segmentCount++), false,
+        segmentMaxSize, preallocatedSize, writeBuffer);
+    segmentSize = SegmentedRaftLogFormat.getHeaderLength();
+  }
+
+  private void write() throws IOException {
+    final LogEntryProto entry = entries[(int) (nextIndex++ % entries.length)];
+    final long size = LogSegment.getEntrySize(entry, LogSegment.Op.CHECK_SEGMENT_FILE_FULL);
+    if (segmentSize + size > segmentMaxSize) {
+      rollSegment();
+    }
+    out.write(entry);
+    segmentSize += size;
+  }
+
+  /** Write a batch of entries without flushing. */
+  @Benchmark
+  public void writeBatch() throws IOException {
+    for (int i = 0; i < batchSize; i++) {
+      write();
+    }
+  }
+
+  /** Write a batch of entries and then flush them to the disk. */
+  @Benchmark
+  public void writeBatchAndFlush() throws IOException {
+    writeBatch();
+    out.flush();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the {@link Crc32CFactory} implementations for the typical log entry sizes.
+ * <p>
+ * The throughput in MB/s is reported as the secondary result {@code megabytes}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Crc32CBenchmark {
+  private static final double ONE_MB = 1 << 20;
+
+  /** Count the bytes checksummed, in MB. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Bytes {
+    private double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      megabytes = 0;
+    }
+
+    void add(int size) {
+      megabytes += size / ONE_MB;
+    }
+
+    public double megabytes() {
+      return megabytes;
+    }
+  }
+
+  @Param({"JAVA_UTIL", "PURE_JAVA"})
+  private Crc32CFactory factory;
+
+  @Param({"128", "1024", "16384", "1048576"})
+  private int size;
+
+  @Param({"ARRAY", "HEAP_BUFFER", "DIRECT_BUFFER"})
+  private String input;
+
+  private ByteBufferChecksum checksum;
+  private byte[] array;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setup() {
+    if (!factory.isSupported()) {
+      throw new IllegalStateException(factory + " is not supported in this JVM");
+    }
+    checksum = factory.newChecksum();
+    array = new byte[size];
+    ThreadLocalRandom.current().nextBytes(array);
+    buffer = "DIRECT_BUFFER".equals(input) ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    buffer.put(array).flip();
+  }
+
+  @Benchmark
+  public long checksum(Bytes bytes) {
+    checksum.reset();
+    if ("ARRAY".equals(input)) {
+      checksum.update(array, 0, array.length);
+    } else {
+      checksum.update(buffer.duplicate());
+    }
+    bytes.add(size);
+    return checksum.getValue();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link DataBlockingQueue#offer} and {@link DataBlockingQueue#poll},
+ * by a single thread and by a producer-consumer pair as the log worker queue is used.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataBlockingQueueBenchmark {
+  static final TimeDuration TIMEOUT = TimeDuration.valueOf(10, TimeUnit.MILLISECONDS);
+
+  @Param({"64", "4096"})
+  private int elementLimit;
+
+  private final Long element = 1024L;
+  private DataBlockingQueue<Long> queue;
+
+  @Setup
+  public void setup() {
+    queue = new DataBlockingQueue<>("benchmark", SizeInBytes.valueOf("64MB"), elementLimit, Long::longValue);
+  }
+
+  /** Offer an element and then poll it by the same thread. */
+  @Benchmark
+  @Group("offerPoll")
+  @GroupThreads(1)
+  public Long offerPoll() {
+    queue.offer(element);
+    return queue.poll();
+  }
+
+  /** Offer elements to a consumer; block when the queue is full. */
+  @Benchmark
+  @Group("producerConsumer")
+  @GroupThreads(1)
+  public boolean offer() throws InterruptedException {
+    return queue.offer(element, TIMEOUT);
+  }
+
+  /** Poll elements from a producer; block when the queue is empty. */
+  @Benchmark
+  @Group("producerConsumer")
+  @GroupThreads(1)
+  public Long poll() throws InterruptedException {
+    return queue.poll(TIMEOUT);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link SlidingWindow.Client} and {@link SlidingWindow.Server}.
+ * <p>
+ * Each operation submits (or receives) a window of requests and then replies all of them,
+ * either in order or in the reverse order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlidingWindowBenchmark {
+  static final class Request implements SlidingWindow.ClientSideRequest<Long>, SlidingWindow.ServerSideRequest<Long> {
+    private final long seqNum;
+    private boolean first;
+    private Long reply;
+
+    Request(long seqNum) {
+      this.seqNum = seqNum;
+    }
+
+    @Override
+    public long getSeqNum() {
+      return seqNum;
+    }
+
+    @Override
+    public void setFirstRequest() {
+      first = true;
+    }
+
+    @Override
+    public boolean isFirstRequest() {
+      return first;
+    }
+
+    @Override
+    public void setReply(Long reply) {
+      this.reply = reply;
+    }
+
+    @Override
+    public boolean hasReply() {
+      return reply != null;
+    }
+
+    @Override
+    public void fail(Throwable e) {
+      throw new IllegalStateException("Unexpected failure for " + seqNum, e);
+    }
+  }
+
+  /** The number of requests in a window. */
+  @Param({"1", "16", "256"})
+  private int window;
+
+  @Param({"true", "false"})
+  private boolean inOrder;
+
+  private SlidingWindow.Client<Request, Long> client;
+  private SlidingWindow.Server<Request, Long> server;
+  private long nextServerSeqNum;
+  private long replied;
+
+  private final Deque<Request> sent = new ArrayDeque<>();
+  private final Deque<Request> received = new ArrayDeque<>();
+  private final Deque<Request> processed = new ArrayDeque<>();
+
+  @Setup
+  public void setup() {
+    client = new SlidingWindow.Client<>("benchmark");
+    server = new SlidingWindow.Server<>("benchmark", new Request(Long.MAX_VALUE));
+  }
+
+  private Request next(Deque<Request> requests) {
+    return inOrder ? requests.pollFirst() : requests.pollLast();
+  }
+
+  /** Submit a window of requests and then receive the replies. */
+  @Benchmark
+  public void client() {
+    for (int i = 0; i < window; i++) {
+      client.submitNewRequest(Request::new, sent::add);
+    }
+    // the requests are delayed until the first request is replied
+    for (Request r; (r = next(sent)) != null; ) {
+      client.receiveReply(r.getSeqNum(), r.getSeqNum(), sent::add);
+    }
+  }
+
+  /** Receive a window of requests, process them and then send the replies. */
+  @Benchmark
+  public long server() {
+    for (int i = 0; i < window; i++) {
+      received.add(new Request(nextServerSeqNum++));
+    }
+    for (Request r; (r = next(received)) != null; ) {
+      server.receivedRequest(r, processed::add);
+    }
+    for (Request r; (r = next(processed)) != null; ) {
+      server.receiveReply(r.getSeqNum(), r.getSeqNum(), reply -> replied++);
+    }
+    return replied;
+  }
+}
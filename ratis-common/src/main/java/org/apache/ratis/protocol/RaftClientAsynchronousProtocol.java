@@ -17,6 +17,8 @@
  */
 package org.apache.ratis.protocol;
 
+import org.apache.ratis.util.ReferenceCountedObject;
+
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
@@ -25,4 +27,17 @@ public interface RaftClientAsynchronousProtocol {
   CompletableFuture<RaftClientReply> submitClientRequestAsync(
       RaftClientRequest request) throws IOException;
 
+  /**
+   * The same as {@link #submitClientRequestAsync(RaftClientRequest)}
+   * except that the request is reference counted, e.g. it is backed by zero-copy network buffers.
+   * The caller retains the request until the returned future is completed.
+   * The implementation must retain the request, or copy the parts of it, if it uses them afterward.
+   * <p>
+   * By default, the request is copied and then passed to {@link #submitClientRequestAsync(RaftClientRequest)}.
+   */
+  default CompletableFuture<RaftClientReply> submitClientRequestAsync(
+      ReferenceCountedObject<RaftClientRequest> requestRef) throws IOException {
+    return submitClientRequestAsync(RaftClientRequest.copy(requestRef.get()));
+  }
+
 }
\ No newline at end of file
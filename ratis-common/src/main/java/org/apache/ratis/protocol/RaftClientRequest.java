@@ -27,6 +27,7 @@ import org.apache.ratis.proto.RaftProtos.SlidingWindowEntry;
 import org.apache.ratis.proto.RaftProtos.StaleReadRequestTypeProto;
 import org.apache.ratis.proto.RaftProtos.WatchRequestTypeProto;
 import org.apache.ratis.proto.RaftProtos.WriteRequestTypeProto;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.ProtoUtils;
 
@@ -385,6 +386,26 @@ public class RaftClientRequest extends RaftClientMessage {
         .build();
   }
 
+  /**
+   * Copy the given request, including its message content,
+   * so that the copy remains valid after the buffers of the given request are released.
+   */
+  public static RaftClientRequest copy(RaftClientRequest r) {
+    final Builder b = newBuilder()
+        .setClientId(r.getClientId())
+        .setGroupId(r.getRaftGroupId())
+        .setCallId(r.getCallId())
+        .setRepliedCallIds(r.getRepliedCallIds())
+        .setMessage(Optional.ofNullable(r.getMessage())
+            .map(m -> Message.valueOf(ByteString.copyFrom(m.getContent().asReadOnlyByteBuffer())))
+            .orElse(null))
+        .setType(r.getType())
+        .setSlidingWindowEntry(r.getSlidingWindowEntry())
+        .setRoutingTable(r.getRoutingTable())
+        .setTimeoutMs(r.getTimeoutMs());
+    return (r.isToLeader()? b.setLeaderId(r.getServerId()): b.setServerId(r.getServerId())).build();
+  }
+
   private final Message message;
   private final Type type;
 
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * A {@link Checksum} which can be updated with a {@link ByteBuffer}.
+ * <p>
+ * Note that {@link Checksum} has the same method since Java 9.
+ * It is declared here since Ratis is compiled with Java 8.
+ */
+public interface ByteBufferChecksum extends Checksum {
+  /**
+   * Update this checksum with the remaining bytes of the given buffer.
+   * The position of the buffer may or may not be advanced, so the callers may pass a duplicate.
+   */
+  void update(ByteBuffer buffer);
+}
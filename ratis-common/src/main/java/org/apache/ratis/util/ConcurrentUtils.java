@@ -81,6 +81,15 @@ public interface ConcurrentUtils {
     };
   }
 
+  /**
+   * The same as {@link #newThreadFactory(String)}
+   * except that it creates virtual threads when virtual is true and virtual threads are supported.
+   */
+  static ThreadFactory newThreadFactory(String namePrefix, boolean virtual) {
+    final ThreadFactory f = virtual? VirtualThreads.newThreadFactory(namePrefix): null;
+    return f != null? f: newThreadFactory(namePrefix);
+  }
+
   /**
     * This method is similar to {@link java.util.concurrent.Executors#newSingleThreadExecutor(ThreadFactory)}
     * except that this method takes a specific thread name as there is only one thread.g
@@ -122,7 +131,16 @@ public interface ConcurrentUtils {
    * @return a new {@link ExecutorService}.
    */
   static ExecutorService newThreadPoolWithMax(boolean cached, int maximumPoolSize, String namePrefix) {
-    final ThreadFactory f = newThreadFactory(namePrefix);
+    return newThreadPoolWithMax(cached, maximumPoolSize, namePrefix, false);
+  }
+
+  /**
+   * The same as {@link #newThreadPoolWithMax(boolean, int, String)}
+   * except that it creates virtual threads when virtual is true and virtual threads are supported.
+   */
+  static ExecutorService newThreadPoolWithMax(boolean cached, int maximumPoolSize, String namePrefix,
+      boolean virtual) {
+    final ThreadFactory f = newThreadFactory(namePrefix, virtual);
     return cached ? newCachedThreadPool(maximumPoolSize, f)
         : Executors.newFixedThreadPool(maximumPoolSize, f);
   }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Create CRC32C checksums.
+ * <p>
+ * On Java 9 or above, {@code java.util.zip.CRC32C} is used since it is a JVM intrinsic.
+ * Since Ratis is compiled with Java 8, it is invoked by method handles.
+ * On Java 8, it falls back to {@link PureJavaCrc32C}.
+ */
+public enum Crc32CFactory {
+  /** {@code java.util.zip.CRC32C}, which is supported in Java 9 or above. */
+  JAVA_UTIL {
+    @Override
+    public boolean isSupported() {
+      return JavaUtilCrc32C.NEW != null;
+    }
+
+    @Override
+    public ByteBufferChecksum newChecksum() {
+      Preconditions.assertTrue(isSupported(), () -> this + " is unsupported in Java " + JAVA_VERSION);
+      return new JavaUtilCrc32C();
+    }
+  },
+  /** {@link PureJavaCrc32C}, which is supported in all Java versions. */
+  PURE_JAVA {
+    @Override
+    public boolean isSupported() {
+      return true;
+    }
+
+    @Override
+    public ByteBufferChecksum newChecksum() {
+      return new PureJavaCrc32C();
+    }
+  };
+
+  static final Logger LOG = LoggerFactory.getLogger(Crc32CFactory.class);
+  static final String JAVA_VERSION = System.getProperty("java.version");
+
+  /** @return true iff this implementation is supported in this JVM. */
+  public abstract boolean isSupported();
+
+  /** @return a new checksum object, which is not thread-safe. */
+  public abstract ByteBufferChecksum newChecksum();
+
+  /** @return the fastest implementation supported in this JVM. */
+  public static Crc32CFactory getDefault() {
+    return DefaultHolder.DEFAULT;
+  }
+
+  /** The same as getDefault().newChecksum(). */
+  public static ByteBufferChecksum newCrc32C() {
+    return getDefault().newChecksum();
+  }
+
+  private static final class DefaultHolder {
+    private static final Crc32CFactory DEFAULT = JAVA_UTIL.isSupported()? JAVA_UTIL : PURE_JAVA;
+
+    static {
+      LOG.debug("Use {} for CRC32C in Java {}", DEFAULT, JAVA_VERSION);
+    }
+  }
+
+  /** Invoke {@code java.util.zip.CRC32C} by method handles. */
+  private static final class JavaUtilCrc32C implements ByteBufferChecksum {
+    /** The constructor; null if it is unsupported. */
+    private static final MethodHandle NEW;
+    /** The {@code Checksum.update(ByteBuffer)} method. */
+    private static final MethodHandle UPDATE;
+
+    static {
+      MethodHandle newCrc = null;
+      MethodHandle update = null;
+      try {
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        final Class<?> clazz = Class.forName("java.util.zip.CRC32C");
+        newCrc = lookup.findConstructor(clazz, MethodType.methodType(void.class))
+            .asType(MethodType.methodType(Checksum.class));
+        update = lookup.findVirtual(Checksum.class, "update", MethodType.methodType(void.class, ByteBuffer.class));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        LOG.debug("java.util.zip.CRC32C is unsupported in Java {}", JAVA_VERSION, e);
+        newCrc = null;
+      }
+      NEW = newCrc;
+      UPDATE = update;
+    }
+
+    private final Checksum crc;
+
+    JavaUtilCrc32C() {
+      try {
+        this.crc = (Checksum) NEW.invokeExact();
+      } catch (Throwable t) {
+        throw new IllegalStateException("Failed to create java.util.zip.CRC32C", t);
+      }
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+      try {
+        UPDATE.invokeExact(crc, buffer);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException("Failed to update " + crc, t);
+      }
+    }
+
+    @Override
+    public void update(int b) {
+      crc.update(b);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+      crc.update(b, off, len);
+    }
+
+    @Override
+    public long getValue() {
+      return crc.getValue();
+    }
+
+    @Override
+    public void reset() {
+      crc.reset();
+    }
+  }
+}
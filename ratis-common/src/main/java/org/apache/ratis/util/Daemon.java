@@ -39,6 +39,7 @@ public class Daemon extends Thread {
     private String name;
     private Runnable runnable;
     private ThreadGroup threadGroup;
+    private boolean virtual;
 
     public Builder setName(String name) {
       this.name = name;
@@ -55,9 +56,25 @@ public class Daemon extends Thread {
       return this;
     }
 
+    /** Should {@link #buildThread()} create a virtual thread?  The thread group is ignored for virtual threads. */
+    public Builder setVirtual(boolean virtual) {
+      this.virtual = virtual;
+      return this;
+    }
+
     public Daemon build() {
       Objects.requireNonNull(name, "name == null");
       return new Daemon(this);
     }
+
+    /**
+     * Build a virtual thread if it is set and virtual threads are supported (Java 21+);
+     * otherwise, build a {@link Daemon}.
+     */
+    public Thread buildThread() {
+      Objects.requireNonNull(name, "name == null");
+      final Thread t = virtual? VirtualThreads.newThread(name, runnable): null;
+      return t != null? t: new Daemon(this);
+    }
   }
 }
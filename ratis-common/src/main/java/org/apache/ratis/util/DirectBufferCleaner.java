@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Free the memory of direct buffers, including mapped buffers, explicitly
+ * instead of waiting for the buffers to be garbage collected.
+ * <p>
+ * It uses {@code sun.misc.Unsafe.invokeCleaner} in Java 9 or above
+ * and {@code sun.misc.Cleaner} in Java 8.
+ * When neither is available, the buffers are released by the garbage collector as usual.
+ */
+public final class DirectBufferCleaner {
+  static final Logger LOG = LoggerFactory.getLogger(DirectBufferCleaner.class);
+  static final String JAVA_VERSION = System.getProperty("java.version");
+
+  /** The {@code (ByteBuffer)void} method to free a buffer; null if it is unsupported. */
+  private static final MethodHandle CLEAN = initClean();
+
+  private DirectBufferCleaner() {
+    // Utility class, cannot instantiate
+  }
+
+  private static MethodHandle initClean() {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final MethodHandle invokeCleaner = lookup.findVirtual(unsafeClass, "invokeCleaner",
+          MethodType.methodType(void.class, ByteBuffer.class));
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      return invokeCleaner.bindTo(theUnsafe.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.debug("Unsafe.invokeCleaner is unsupported in Java {}", JAVA_VERSION, e);
+    }
+
+    try {
+      final Method cleaner = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+      cleaner.setAccessible(true);
+      final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      clean.setAccessible(true);
+      return MethodHandles.filterReturnValue(lookup.unreflect(cleaner), lookup.unreflect(clean))
+          .asType(MethodType.methodType(void.class, ByteBuffer.class));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.debug("sun.misc.Cleaner is unsupported in Java {}", JAVA_VERSION, e);
+    }
+    LOG.info("Direct buffers cannot be freed explicitly in Java {}", JAVA_VERSION);
+    return null;
+  }
+
+  /** @return true iff direct buffers can be freed explicitly in this JVM. */
+  public static boolean isSupported() {
+    return CLEAN != null;
+  }
+
+  /**
+   * Free the memory of the given buffer.
+   * The buffer must be the buffer returned by {@link ByteBuffer#allocateDirect(int)}
+   * or {@link java.nio.channels.FileChannel#map}, but not a slice or a duplicate.
+   * Neither the buffer nor any of its slices or duplicates can be accessed afterward.
+   *
+   * @return true iff the buffer is freed;
+   *         otherwise, the buffer is released once it is garbage collected.
+   */
+  public static boolean clean(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || CLEAN == null) {
+      return false;
+    }
+    try {
+      CLEAN.invokeExact(buffer);
+      return true;
+    } catch (Throwable t) {
+      LOG.warn("Failed to clean {}", buffer, t);
+      return false;
+    }
+  }
+}
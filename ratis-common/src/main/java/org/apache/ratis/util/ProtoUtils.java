@@ -35,6 +35,9 @@ import org.apache.ratis.protocol.RaftGroupMemberId;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedInputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.ratis.thirdparty.com.google.protobuf.MessageLite;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
@@ -111,6 +114,28 @@ public interface ProtoUtils {
         ByteString.EMPTY : ByteString.copyFrom(bytes, offset, size);
   }
 
+  /**
+   * Copy the given message to the heap.
+   * The returned message does not share any buffers with the given message,
+   * which may be backed by buffers, such as zero-copy network buffers, released afterward.
+   *
+   * The message is serialized to a new array once,
+   * and the bytes fields of the returned message are aliased to the array instead of copied again.
+   *
+   * @return a deep copy of the given message.
+   */
+  static <M extends MessageLite> M copy(M message) {
+    final CodedInputStream in = CodedInputStream.newInstance(message.toByteArray());
+    in.enableAliasing(true);
+    try {
+      @SuppressWarnings("unchecked")
+      final M copied = (M) message.getParserForType().parseFrom(in);
+      return copied;
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Failed to copy " + JavaUtils.getClassSimpleName(message.getClass()), e);
+    }
+  }
+
   static RaftPeer toRaftPeer(RaftPeerProto p) {
     return RaftPeer.newBuilder()
         .setId(RaftPeerId.valueOf(p.getId()))
@@ -22,14 +22,13 @@ package org.apache.ratis.util;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.zip.Checksum;
 
 /**
  * A pure-java implementation of the CRC32 checksum that uses
  * the CRC32-C polynomial, the same polynomial used by iSCSI
  * and implemented on many Intel chipsets supporting SSE4.2.
  */
-public class PureJavaCrc32C implements Checksum {
+public class PureJavaCrc32C implements ByteBufferChecksum {
 
   /** the current CRC value, bit-flipped */
   private int crc;
@@ -91,6 +90,7 @@ public class PureJavaCrc32C implements Checksum {
     crc = localCrc;
   }
 
+  @Override
   public void update(ByteBuffer b) {
     int localCrc = crc;
 
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create virtual threads when running on Java 21 or above.
+ * <p>
+ * Since Ratis is compiled with Java 8, the virtual thread API is invoked by reflection.
+ * When virtual threads are unsupported, the methods in this class return null
+ * and the callers should fall back to platform threads.
+ */
+public final class VirtualThreads {
+  static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+  /** The reflective methods of {@code Thread.ofVirtual()} and {@code Thread.Builder}. */
+  private static final class Methods {
+    private final Method ofVirtual;
+    private final Method name;
+    private final Method unstarted;
+
+    private Methods() throws ReflectiveOperationException {
+      this.ofVirtual = Thread.class.getMethod("ofVirtual");
+      final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      this.name = builder.getMethod("name", String.class);
+      this.unstarted = builder.getMethod("unstarted", Runnable.class);
+    }
+
+    Thread newThread(String threadName, Runnable runnable) throws ReflectiveOperationException {
+      final Object builder = name.invoke(ofVirtual.invoke(null), threadName);
+      return (Thread) unstarted.invoke(builder, runnable);
+    }
+
+    static Methods get() {
+      try {
+        return new Methods();
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        LOG.debug("Virtual threads are unsupported in Java {}", System.getProperty("java.version"), e);
+        return null;
+      }
+    }
+  }
+
+  private static final Methods METHODS = Methods.get();
+
+  private VirtualThreads() {
+    // Utility class, cannot instantiate
+  }
+
+  /** @return true iff virtual threads are supported in this JVM. */
+  public static boolean isSupported() {
+    return METHODS != null;
+  }
+
+  /**
+   * Create an unstarted virtual thread.
+   *
+   * @return a new virtual thread, or null if virtual threads are unsupported.
+   */
+  public static Thread newThread(String name, Runnable runnable) {
+    if (METHODS == null) {
+      return null;
+    }
+    try {
+      return METHODS.newThread(name, runnable);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Failed to create a virtual thread " + name, e);
+    }
+  }
+
+  /**
+   * The same as {@link ConcurrentUtils#newThreadFactory(String)} except that it creates virtual threads.
+   *
+   * @return a new {@link ThreadFactory}, or null if virtual threads are unsupported.
+   */
+  public static ThreadFactory newThreadFactory(String namePrefix) {
+    if (METHODS == null) {
+      return null;
+    }
+    final AtomicInteger numThread = new AtomicInteger();
+    return runnable -> newThread(namePrefix + "-thread" + numThread.incrementAndGet(), runnable);
+  }
+}
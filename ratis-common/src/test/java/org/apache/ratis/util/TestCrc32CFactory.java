@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.apache.ratis.BaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Testing {@link Crc32CFactory}. */
+public class TestCrc32CFactory extends BaseTest {
+  static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
+
+  @Test
+  public void testDefault() {
+    final boolean java9 = !System.getProperty("java.specification.version").startsWith("1.");
+    Assertions.assertEquals(java9, Crc32CFactory.JAVA_UTIL.isSupported());
+    Assertions.assertEquals(java9? Crc32CFactory.JAVA_UTIL: Crc32CFactory.PURE_JAVA, Crc32CFactory.getDefault());
+  }
+
+  @Test
+  public void testSameChecksums() {
+    for (Crc32CFactory factory : Crc32CFactory.values()) {
+      if (!factory.isSupported()) {
+        continue;
+      }
+      for(int length = 1; length < 1 << 20; length <<= 2) {
+        runTestSameChecksums(factory, length - 1);
+        runTestSameChecksums(factory, length);
+        runTestSameChecksums(factory, length + 1);
+      }
+    }
+  }
+
+  /** Verify if the given factory computes the same CRC as {@link PureJavaCrc32C} with arrays and buffers. */
+  static void runTestSameChecksums(Crc32CFactory factory, int length) {
+    final byte[] array = new byte[length];
+    RANDOM.nextBytes(array);
+    final ByteBuffer heap = ByteBuffer.wrap(array);
+    final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+    direct.put(array);
+
+    final PureJavaCrc32C expected = new PureJavaCrc32C();
+    final ByteBufferChecksum arrayCrc = factory.newChecksum();
+    final ByteBufferChecksum heapCrc = factory.newChecksum();
+    final ByteBufferChecksum directCrc = factory.newChecksum();
+    for (int off = 0; off < array.length; ) {
+      final int len = RANDOM.nextInt(array.length - off) + 1;
+      expected.update(array, off, len);
+      arrayCrc.update(array, off, len);
+      Assertions.assertEquals(expected.getValue(), arrayCrc.getValue());
+
+      heap.limit(off + len).position(off);
+      heapCrc.update(heap.duplicate());
+      Assertions.assertEquals(expected.getValue(), heapCrc.getValue());
+
+      direct.limit(off + len).position(off);
+      directCrc.update(direct.duplicate());
+      Assertions.assertEquals(expected.getValue(), directCrc.getValue());
+      off += len;
+    }
+  }
+}
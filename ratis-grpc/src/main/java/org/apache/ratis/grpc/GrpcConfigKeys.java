@@ -252,6 +252,47 @@ public interface GrpcConfigKeys {
       setBoolean(properties::setBoolean, HEARTBEAT_CHANNEL_KEY, useSeparate);
     }
 
+    /**
+     * The compressor, either NONE or a compressor name such as gzip,
+     * for the AppendEntries and InstallSnapshot messages sent to the other servers.
+     */
+    String COMPRESSION_CODEC_KEY = PREFIX + ".compression.codec";
+    String COMPRESSION_CODEC_DEFAULT = "NONE";
+    static String compressionCodec(RaftProperties properties) {
+      return get(properties::get, COMPRESSION_CODEC_KEY, COMPRESSION_CODEC_DEFAULT, getDefaultLog());
+    }
+    static void setCompressionCodec(RaftProperties properties, String codec) {
+      set(properties::set, COMPRESSION_CODEC_KEY, codec);
+    }
+
+    /** The messages smaller than the threshold, such as heartbeats, are sent uncompressed. */
+    String COMPRESSION_THRESHOLD_KEY = PREFIX + ".compression.threshold";
+    SizeInBytes COMPRESSION_THRESHOLD_DEFAULT = SizeInBytes.valueOf("4KB");
+    static SizeInBytes compressionThreshold(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes,
+          COMPRESSION_THRESHOLD_KEY, COMPRESSION_THRESHOLD_DEFAULT, getDefaultLog());
+    }
+    static void setCompressionThreshold(RaftProperties properties, SizeInBytes threshold) {
+      setSizeInBytes(properties::set, COMPRESSION_THRESHOLD_KEY, threshold);
+    }
+
+    /**
+     * Receive the AppendEntries requests and the client requests
+     * without copying the log entries and the messages out of the network buffers.
+     * The state machine data is passed to the state machine as it is,
+     * so the state machine must copy the data if it keeps the data after the write future is completed.
+     * Similarly, the state machine must copy the parts of a client request or a transaction
+     * if it keeps them after the transaction is applied.
+     */
+    String ZERO_COPY_ENABLED_KEY = PREFIX + ".zerocopy.enabled";
+    boolean ZERO_COPY_ENABLED_DEFAULT = false;
+    static boolean zeroCopyEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, ZERO_COPY_ENABLED_KEY, ZERO_COPY_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setZeroCopyEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, ZERO_COPY_ENABLED_KEY, enabled);
+    }
+
     String LOG_MESSAGE_BATCH_DURATION_KEY = PREFIX + ".log-message.batch.duration";
     TimeDuration LOG_MESSAGE_BATCH_DURATION_DEFAULT = TimeDuration.valueOf(5, TimeUnit.SECONDS);
     static TimeDuration logMessageBatchDuration(RaftProperties properties) {
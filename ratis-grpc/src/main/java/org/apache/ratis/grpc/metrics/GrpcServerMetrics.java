@@ -47,6 +47,13 @@ public class GrpcServerMetrics extends RatisMetrics {
   public static final String RATIS_GRPC_METRICS_LOG_APPENDER_PENDING_COUNT
       = "%s_pending_log_requests_count";
 
+  public static final String RATIS_GRPC_METRICS_LOG_APPENDER_UNCOMPRESSED_BYTES
+      = "%s_sent_uncompressed_bytes";
+  public static final String RATIS_GRPC_METRICS_LOG_APPENDER_WIRE_BYTES
+      = "%s_sent_wire_bytes";
+  public static final String RATIS_GRPC_METRICS_LOG_APPENDER_COMPRESSION_RATIO
+      = "%s_compression_ratio";
+
   public static final String RATIS_GRPC_METRICS_REQUEST_RETRY_COUNT = "num_retries";
   public static final String RATIS_GRPC_METRICS_REQUESTS_COUNT = "num_requests";
   public static final String RATIS_GRPC_INSTALL_SNAPSHOT_COUNT = "num_install_snapshot";
@@ -62,6 +69,8 @@ public class GrpcServerMetrics extends RatisMetrics {
   private final Map<String, LongCounter> requestNotLeader = new ConcurrentHashMap<>();
   private final Map<String, LongCounter> requestInconsistency = new ConcurrentHashMap<>();
 
+  private final Map<String, MessageSizes> messageSizes = new ConcurrentHashMap<>();
+
   private final Map<String, String> heartbeatLatency = new ConcurrentHashMap<>();
   private final Map<String, String> appendLogLatency = new ConcurrentHashMap<>();
 
@@ -132,4 +141,29 @@ public class GrpcServerMetrics extends RatisMetrics {
   public void onInstallSnapshot() {
     requestInstallSnapshot.inc();
   }
+
+  /** The sizes of the messages sent to a follower, before and after compression. */
+  private final class MessageSizes {
+    private final LongCounter uncompressed;
+    private final LongCounter wire;
+
+    private MessageSizes(String follower) {
+      this.uncompressed = getRegistry().counter(
+          String.format(RATIS_GRPC_METRICS_LOG_APPENDER_UNCOMPRESSED_BYTES, follower));
+      this.wire = getRegistry().counter(String.format(RATIS_GRPC_METRICS_LOG_APPENDER_WIRE_BYTES, follower));
+      getRegistry().gauge(String.format(RATIS_GRPC_METRICS_LOG_APPENDER_COMPRESSION_RATIO, follower),
+          () -> this::getCompressionRatio);
+    }
+
+    private double getCompressionRatio() {
+      final long u = uncompressed.getCount();
+      return u == 0? 1: wire.getCount() / (double) u;
+    }
+  }
+
+  public void onMessageSent(String follower, long uncompressedSize, long wireSize) {
+    final MessageSizes sizes = messageSizes.computeIfAbsent(follower, MessageSizes::new);
+    sizes.uncompressed.inc(uncompressedSize);
+    sizes.wire.inc(wireSize);
+  }
 }
@@ -19,10 +19,13 @@ package org.apache.ratis.grpc.server;
 
 import org.apache.ratis.client.impl.ClientProtoUtils;
 import org.apache.ratis.grpc.GrpcUtil;
+import org.apache.ratis.grpc.util.ZeroCopyMessageMarshaller;
 import org.apache.ratis.protocol.*;
 import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
 import org.apache.ratis.protocol.exceptions.GroupMismatchException;
 import org.apache.ratis.protocol.exceptions.RaftException;
+import org.apache.ratis.thirdparty.io.grpc.ServerMethodDefinition;
+import org.apache.ratis.thirdparty.io.grpc.ServerServiceDefinition;
 import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
 import org.apache.ratis.proto.RaftProtos.RaftClientReplyProto;
 import org.apache.ratis.proto.RaftProtos.RaftClientRequestProto;
@@ -30,6 +33,7 @@ import org.apache.ratis.proto.grpc.RaftClientProtocolServiceGrpc.RaftClientProto
 import org.apache.ratis.util.CollectionUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.apache.ratis.util.SlidingWindow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,11 +56,43 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
   private static final Logger LOG = LoggerFactory.getLogger(GrpcClientProtocolService.class);
 
   private static class PendingOrderedRequest implements SlidingWindow.ServerSideRequest<RaftClientReply> {
-    private final RaftClientRequest request;
+    /** For zero copy, the request is backed by the network buffers until it is copied. */
+    private volatile RaftClientRequest request;
+    /** For zero copy, the request reference retained by this object; otherwise, it is null. */
+    private ReferenceCountedObject<RaftClientRequest> requestRef;
+    private boolean processing = false;
     private final AtomicReference<RaftClientReply> reply = new AtomicReference<>();
 
-    PendingOrderedRequest(RaftClientRequest request) {
+    PendingOrderedRequest(RaftClientRequest request, ReferenceCountedObject<RaftClientRequest> requestRef) {
       this.request = request;
+      this.requestRef = requestRef;
+      if (requestRef != null) {
+        requestRef.retain();
+      }
+    }
+
+    /** @return the zero-copy request reference, or null if the request is not zero-copy. */
+    synchronized ReferenceCountedObject<RaftClientRequest> startProcessing() {
+      processing = true;
+      return requestRef;
+    }
+
+    /**
+     * If this request is not yet being processed, e.g. it has arrived out of order,
+     * copy the zero-copy request so that the network buffers can be released.
+     */
+    synchronized void copyIfNotProcessing() {
+      if (requestRef != null && !processing) {
+        request = RaftClientRequest.copy(request);
+        release();
+      }
+    }
+
+    synchronized void release() {
+      if (requestRef != null) {
+        requestRef.release();
+        requestRef = null;
+      }
     }
 
     @Override
@@ -102,7 +138,7 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
       return request != null? getSeqNum() + ":" + reply: "COMPLETED";
     }
   }
-  private static final PendingOrderedRequest COMPLETED = new PendingOrderedRequest(null);
+  private static final PendingOrderedRequest COMPLETED = new PendingOrderedRequest(null, null);
 
   static class OrderedStreamObservers {
     private final Map<Integer, OrderedRequestStreamObserver> map = new ConcurrentHashMap<>();
@@ -133,14 +169,62 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
   private final Supplier<RaftPeerId> idSupplier;
   private final RaftClientAsynchronousProtocol protocol;
   private final ExecutorService executor;
+  /** For receiving the client requests with zero copy; null if zero copy is disabled. */
+  private final ZeroCopyMessageMarshaller<RaftClientRequestProto> zeroCopyRequestMarshaller;
 
   private final OrderedStreamObservers orderedStreamObservers = new OrderedStreamObservers();
 
   GrpcClientProtocolService(Supplier<RaftPeerId> idSupplier, RaftClientAsynchronousProtocol protocol,
-      ExecutorService executor) {
+      ExecutorService executor, boolean zeroCopyEnabled) {
     this.idSupplier = idSupplier;
     this.protocol = protocol;
     this.executor = executor;
+    this.zeroCopyRequestMarshaller = zeroCopyEnabled?
+        new ZeroCopyMessageMarshaller<>(RaftClientRequestProto.getDefaultInstance()) : null;
+  }
+
+  /**
+   * Bind this service.
+   * When zero copy is enabled, all the methods use the zero-copy request marshaller.
+   */
+  ServerServiceDefinition bindServiceWithZeroCopy() {
+    final ServerServiceDefinition service = bindService();
+    if (zeroCopyRequestMarshaller == null) {
+      return service;
+    }
+
+    final ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(service.getServiceDescriptor()
+        .getName());
+    for (ServerMethodDefinition<?, ?> m : service.getMethods()) {
+      @SuppressWarnings("unchecked")
+      final ServerMethodDefinition<RaftClientRequestProto, RaftClientReplyProto> method
+          = (ServerMethodDefinition<RaftClientRequestProto, RaftClientReplyProto>) m;
+      builder.addMethod(method.getMethodDescriptor().toBuilder().setRequestMarshaller(zeroCopyRequestMarshaller)
+          .build(), method.getServerCallHandler());
+    }
+    return builder.build();
+  }
+
+  private boolean isZeroCopy() {
+    return zeroCopyRequestMarshaller != null;
+  }
+
+  /** @return the number of the zero-copy requests not yet released. */
+  int getZeroCopyUnclosedCount() {
+    return isZeroCopy()? zeroCopyRequestMarshaller.getUnclosedCount(): 0;
+  }
+
+  /** @return the request converted from the given proto, which is retained. */
+  private ReferenceCountedObject<RaftClientRequest> toRequestRef(RaftClientRequestProto proto) {
+    final RaftClientRequest request = ClientProtoUtils.toRaftClientRequest(proto);
+    final ReferenceCountedObject<RaftClientRequest> ref = !isZeroCopy()? ReferenceCountedObject.wrap(request)
+        : ReferenceCountedObject.wrap(request, () -> {}, released -> {
+          if (released) {
+            zeroCopyRequestMarshaller.release(proto);
+          }
+        });
+    ref.retain();
+    return ref;
   }
 
   RaftPeerId getId() {
@@ -220,10 +304,21 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
       return isClosed.get();
     }
 
-    CompletableFuture<Void> processClientRequest(RaftClientRequest request, Consumer<RaftClientReply> replyHandler) {
+    /**
+     * Process the given request.
+     * For zero copy, the request reference is retained until the reply is handled.
+     *
+     * @param requestRef the zero-copy request reference, or null if the request is not zero-copy.
+     */
+    CompletableFuture<Void> processClientRequest(RaftClientRequest request,
+        ReferenceCountedObject<RaftClientRequest> requestRef, Consumer<RaftClientReply> replyHandler) {
+      if (requestRef != null) {
+        requestRef.retain();
+      }
       try {
         final String errMsg = LOG.isDebugEnabled() ? "processClientRequest for " + request : "";
-        return protocol.submitClientRequestAsync(request
+        final CompletableFuture<Void> f = (requestRef != null? protocol.submitClientRequestAsync(requestRef)
+            : protocol.submitClientRequestAsync(request)
         ).thenAcceptAsync(replyHandler, executor
         ).exceptionally(exception -> {
           // TODO: the exception may be from either raft or state machine.
@@ -232,20 +327,37 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
           responseError(exception, () -> errMsg);
           return null;
         });
+        return requestRef == null? f : f.whenComplete((v, e) -> requestRef.release());
       } catch (IOException e) {
-        throw new CompletionException("Failed processClientRequest for " + request + " in " + name, e);
+        final String s = "Failed processClientRequest for " + request + " in " + name;
+        if (requestRef != null) {
+          requestRef.release();
+        }
+        throw new CompletionException(s, e);
       }
     }
 
-    abstract void processClientRequest(RaftClientRequest request);
+    abstract void processClientRequest(ReferenceCountedObject<RaftClientRequest> requestRef);
 
     @Override
     public void onNext(RaftClientRequestProto request) {
+      final ReferenceCountedObject<RaftClientRequest> requestRef;
       try {
-        final RaftClientRequest r = ClientProtoUtils.toRaftClientRequest(request);
-        processClientRequest(r);
+        requestRef = toRequestRef(request);
       } catch (Exception e) {
         responseError(e, () -> "onNext for " + ClientProtoUtils.toString(request) + " in " + name);
+        if (isZeroCopy()) {
+          zeroCopyRequestMarshaller.release(request);
+        }
+        return;
+      }
+
+      try {
+        processClientRequest(requestRef);
+      } catch (Exception e) {
+        responseError(e, () -> "onNext for " + ClientProtoUtils.toString(request) + " in " + name);
+      } finally {
+        requestRef.release();
       }
     }
 
@@ -278,8 +390,9 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
     }
 
     @Override
-    void processClientRequest(RaftClientRequest request) {
-      final CompletableFuture<Void> f = processClientRequest(request, reply -> {
+    void processClientRequest(ReferenceCountedObject<RaftClientRequest> requestRef) {
+      final RaftClientRequest request = requestRef.get();
+      final CompletableFuture<Void> f = processClientRequest(request, isZeroCopy()? requestRef: null, reply -> {
         if (!reply.isSuccess()) {
           LOG.info("Failed " + request + ", reply=" + reply);
         }
@@ -329,12 +442,17 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
 
     void processClientRequest(PendingOrderedRequest pending) {
       final long seq = pending.getSeqNum();
-      processClientRequest(pending.getRequest(),
-          reply -> slidingWindow.receiveReply(seq, reply, this::sendReply));
+      try {
+        processClientRequest(pending.getRequest(), pending.startProcessing(),
+            reply -> slidingWindow.receiveReply(seq, reply, this::sendReply));
+      } finally {
+        pending.release();
+      }
     }
 
     @Override
-    void processClientRequest(RaftClientRequest r) {
+    void processClientRequest(ReferenceCountedObject<RaftClientRequest> requestRef) {
+      final RaftClientRequest r = requestRef.get();
       if (isClosed()) {
         final AlreadyClosedException exception = new AlreadyClosedException(getName() + ": the stream is closed");
         responseError(exception, () -> "processClientRequest (stream already closed) for " + r);
@@ -343,8 +461,6 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
       final RaftGroupId requestGroupId = r.getRaftGroupId();
       // use the group id in the first request as the group id of this observer
       final RaftGroupId updated = groupId.updateAndGet(g -> g != null ? g: requestGroupId);
-      final PendingOrderedRequest pending = new PendingOrderedRequest(r);
-
       if (!requestGroupId.equals(updated)) {
         final GroupMismatchException exception = new GroupMismatchException(getId()
             + ": The group (" + requestGroupId + ") of " + r.getClientId()
@@ -353,7 +469,9 @@ class GrpcClientProtocolService extends RaftClientProtocolServiceImplBase {
         return;
       }
 
+      final PendingOrderedRequest pending = new PendingOrderedRequest(r, isZeroCopy()? requestRef: null);
       slidingWindow.receivedRequest(pending, this::processClientRequest);
+      pending.copyIfNotProcessing();
     }
 
     private void sendReply(PendingOrderedRequest ready) {
@@ -173,6 +173,9 @@ public class GrpcLogAppender extends LogAppenderBase {
   private final StackTraceElement caller;
   private final RetryPolicy errorRetryWaitPolicy;
   private final ReplyState replyState = new ReplyState();
+  /** The snapshot installation running in a dedicated thread when this is driven by {@link #runOnce()}. */
+  @SuppressWarnings({"squid:S3077"}) // Suppress volatile for generic type
+  private volatile CompletableFuture<Void> installSnapshotFuture;
 
   public GrpcLogAppender(RaftServer.Division server, LeaderState leaderState, FollowerInfo f) {
     super(server, leaderState, f);
@@ -203,6 +206,10 @@ public class GrpcLogAppender extends LogAppenderBase {
     return (GrpcServicesImpl)super.getServerRpc();
   }
 
+  private void onMessageSent(long uncompressedSize, long wireSize) {
+    grpcServerMetrics.onMessageSent(getFollowerId().toString(), uncompressedSize, wireSize);
+  }
+
   private GrpcServerProtocolClient getClient() throws IOException {
     return getServerRpc().getProxies().getProxy(getFollowerId());
   }
@@ -243,21 +250,48 @@ public class GrpcLogAppender extends LogAppenderBase {
   }
 
   private boolean installSnapshot() {
+    final Runnable installSnapshot = newInstallSnapshotTask();
+    if (installSnapshot == null) {
+      return false;
+    }
+    installSnapshot.run();
+    return true;
+  }
+
+  /** @return a task to install a snapshot, or to notify the follower to install a snapshot; or null if not needed. */
+  private Runnable newInstallSnapshotTask() {
     if (installSnapshotEnabled) {
       final SnapshotInfo snapshot = shouldInstallSnapshot();
-      if (snapshot != null) {
-        installSnapshot(snapshot);
-        return true;
-      }
-    } else {
-      // check installSnapshotNotification
-      final TermIndex firstAvailable = shouldNotifyToInstallSnapshot();
-      if (firstAvailable != null) {
-        notifyInstallSnapshot(firstAvailable);
-        return true;
-      }
+      return snapshot == null? null: () -> installSnapshot(snapshot);
     }
-    return false;
+    // check installSnapshotNotification
+    final TermIndex firstAvailable = shouldNotifyToInstallSnapshot();
+    return firstAvailable == null? null: () -> notifyInstallSnapshot(firstAvailable);
+  }
+
+  /**
+   * Installing a snapshot waits for the follower responses,
+   * so it is run in a dedicated thread instead of the shared scheduler.
+   * This appender is notified when the installation is completed.
+   */
+  private void installSnapshotAsync(Runnable installSnapshot) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    installSnapshotFuture = future;
+    Daemon.newBuilder().setName(this + "-installSnapshot").setRunnable(() -> {
+      try {
+        installSnapshot.run();
+      } catch (Exception e) {
+        LOG.warn(this + ": Failed to install snapshot", e);
+      } finally {
+        future.complete(null);
+        notifyLogAppender();
+      }
+    }).setThreadGroup(getServer().getThreadGroup()).build().start();
+  }
+
+  private boolean isInstallingSnapshot() {
+    final CompletableFuture<Void> future = installSnapshotFuture;
+    return future != null && !future.isDone();
   }
 
   @Override
@@ -265,8 +299,7 @@ public class GrpcLogAppender extends LogAppenderBase {
     for(; isRunning(); mayWait()) {
       //HB period is expired OR we have messages OR follower is behind with commit index
       if (shouldSendAppendEntries() || isFollowerCommitBehindLastCommitIndex()) {
-        final boolean installingSnapshot = installSnapshot();
-        appendLog(installingSnapshot || haveTooManyPendingRequests());
+        sendAppendEntries();
       }
       getLeaderState().checkHealth(getFollower());
     }
@@ -274,6 +307,49 @@ public class GrpcLogAppender extends LogAppenderBase {
     Optional.ofNullable(appendLogRequestObserver).ifPresent(StreamObservers::onCompleted);
   }
 
+  @Override
+  public boolean isRunOnceSupported() {
+    return true;
+  }
+
+  @Override
+  public long runOnce() throws IOException {
+    if (!isRunning()) {
+      Optional.ofNullable(appendLogRequestObserver).ifPresent(StreamObservers::onCompleted);
+      return -1;
+    }
+    if (isInstallingSnapshot()) {
+      // it will be notified once the installation is completed.
+      return getHeartbeatWaitTimeMs();
+    }
+    //HB period is expired OR we have messages OR follower is behind with commit index
+    if (shouldSendAppendEntries() || isFollowerCommitBehindLastCommitIndex()) {
+      final TimeDuration remaining = getRemainingWaitTime();
+      if (remaining.isPositive()) {
+        // do not sleep in the shared scheduler; come back later instead.
+        return Math.max(1, remaining.toLong(TimeUnit.MILLISECONDS));
+      }
+      final StreamObservers observers = appendLogRequestObserver;
+      if (observers != null && !observers.isReady()) {
+        // do not wait for the streams in the shared scheduler; come back later instead.
+        return observers.getWaitForReadyMs();
+      }
+      final Runnable installSnapshot = newInstallSnapshotTask();
+      if (installSnapshot != null) {
+        installSnapshotAsync(installSnapshot);
+        return getHeartbeatWaitTimeMs();
+      }
+      appendLog(haveTooManyPendingRequests());
+    }
+    getLeaderState().checkHealth(getFollower());
+    return getWaitTimeMs() + errorWaitTimeMs();
+  }
+
+  private void sendAppendEntries() throws IOException {
+    final boolean installingSnapshot = installSnapshot();
+    appendLog(installingSnapshot || haveTooManyPendingRequests());
+  }
+
   public long getWaitTimeMs() {
     if (haveTooManyPendingRequests()) {
       return getHeartbeatWaitTimeMs(); // Should wait for a short time
@@ -343,9 +419,9 @@ public class GrpcLogAppender extends LogAppenderBase {
     private volatile boolean running = true;
 
     StreamObservers(GrpcServerProtocolClient client, AppendLogResponseHandler handler, boolean separateHeartbeat,
-        TimeDuration waitTimeMin) {
-      this.appendLog = client.appendEntries(handler, false);
-      this.heartbeat = separateHeartbeat? client.appendEntries(handler, true): null;
+        TimeDuration waitTimeMin, GrpcMessageCompression.Listener listener) {
+      this.appendLog = client.appendEntries(handler, false, listener);
+      this.heartbeat = separateHeartbeat? client.appendEntries(handler, true, listener): null;
       this.waitForReady = waitTimeMin.isPositive()? waitTimeMin: TimeDuration.ONE_MILLISECOND;
     }
 
@@ -365,6 +441,15 @@ public class GrpcLogAppender extends LogAppenderBase {
       stream.onNext(proto);
     }
 
+    /** Are the streams ready so that {@link #onNext(AppendEntriesRequestProto)} will not wait? */
+    boolean isReady() {
+      return appendLog.isReady() && (heartbeat == null || heartbeat.isReady());
+    }
+
+    long getWaitForReadyMs() {
+      return Math.max(1, waitForReady.toLong(TimeUnit.MILLISECONDS));
+    }
+
     void stop() {
       running = false;
     }
@@ -400,7 +485,8 @@ public class GrpcLogAppender extends LogAppenderBase {
       increaseNextIndex(pending);
       if (appendLogRequestObserver == null) {
         appendLogRequestObserver = new StreamObservers(
-            getClient(), new AppendLogResponseHandler(), useSeparateHBChannel, getWaitTimeMin());
+            getClient(), new AppendLogResponseHandler(), useSeparateHBChannel, getWaitTimeMin(),
+            this::onMessageSent);
       }
     }
 
@@ -764,7 +850,7 @@ public class GrpcLogAppender extends LogAppenderBase {
     try {
       snapshotRequestObserver = getClient().installSnapshot(
           getFollower().getName() + "-installSnapshot-" + requestId,
-          installSnapshotStreamTimeout, maxOutstandingInstallSnapshots, responseHandler);
+          installSnapshotStreamTimeout, maxOutstandingInstallSnapshots, responseHandler, this::onMessageSent);
       for (InstallSnapshotRequestProto request : newInstallSnapshotRequests(requestId, snapshot)) {
         if (isRunning()) {
           snapshotRequestObserver.onNext(request);
@@ -808,7 +894,7 @@ public class GrpcLogAppender extends LogAppenderBase {
     }
     try {
       snapshotRequestObserver = getClient().installSnapshot(getFollower().getName() + "-notifyInstallSnapshot",
-          requestTimeoutDuration, 0, responseHandler);
+          requestTimeoutDuration, 0, responseHandler, this::onMessageSent);
 
       snapshotRequestObserver.onNext(request);
       getFollower().updateLastRpcSendTime(false);
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.server;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.thirdparty.com.google.protobuf.MessageLite;
+import org.apache.ratis.thirdparty.io.grpc.CallOptions;
+import org.apache.ratis.thirdparty.io.grpc.Channel;
+import org.apache.ratis.thirdparty.io.grpc.ClientCall;
+import org.apache.ratis.thirdparty.io.grpc.ClientInterceptor;
+import org.apache.ratis.thirdparty.io.grpc.ClientStreamTracer;
+import org.apache.ratis.thirdparty.io.grpc.CompressorRegistry;
+import org.apache.ratis.thirdparty.io.grpc.ForwardingClientCall;
+import org.apache.ratis.thirdparty.io.grpc.Metadata;
+import org.apache.ratis.thirdparty.io.grpc.MethodDescriptor;
+import org.apache.ratis.util.SizeInBytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compress the messages sent to the other servers.
+ * <p>
+ * The compressor is set in the call options, so that it is advertised in the message encoding header
+ * and the receiver decompresses the messages with its decompressor registry.
+ * The messages smaller than the threshold, such as heartbeats, are sent uncompressed.
+ */
+final class GrpcMessageCompression {
+  static final Logger LOG = LoggerFactory.getLogger(GrpcMessageCompression.class);
+
+  static final String NONE = "NONE";
+
+  /** Listen to the sizes of the messages sent. */
+  interface Listener {
+    void onMessageSent(long uncompressedSize, long wireSize);
+  }
+
+  /** @return a new instance if compression is enabled; otherwise, return null. */
+  static GrpcMessageCompression newInstance(RaftProperties properties) {
+    final String codec = GrpcConfigKeys.Server.compressionCodec(properties);
+    if (NONE.equalsIgnoreCase(codec)) {
+      return null;
+    }
+    if (CompressorRegistry.getDefaultInstance().lookupCompressor(codec) == null) {
+      throw new IllegalArgumentException("Compressor not found: " + GrpcConfigKeys.Server.COMPRESSION_CODEC_KEY
+          + " = " + codec);
+    }
+    return new GrpcMessageCompression(codec, GrpcConfigKeys.Server.compressionThreshold(properties));
+  }
+
+  private final String codec;
+  private final int threshold;
+
+  private GrpcMessageCompression(String codec, SizeInBytes threshold) {
+    this.codec = codec;
+    this.threshold = threshold.getSizeInt();
+    LOG.info("codec={}, threshold={}", codec, threshold);
+  }
+
+  /** @return a new interceptor to compress the messages and then report the sizes to the given listener. */
+  ClientInterceptor newClientInterceptor(Listener listener) {
+    final ClientStreamTracer.Factory tracerFactory = newTracerFactory(listener);
+    return new ClientInterceptor() {
+      @Override
+      public <REQUEST, REPLY> ClientCall<REQUEST, REPLY> interceptCall(MethodDescriptor<REQUEST, REPLY> method,
+          CallOptions callOptions, Channel next) {
+        final CallOptions options = callOptions.withCompression(codec).withStreamTracerFactory(tracerFactory);
+        return new ForwardingClientCall.SimpleForwardingClientCall<REQUEST, REPLY>(next.newCall(method, options)) {
+          @Override
+          public void sendMessage(REQUEST message) {
+            setMessageCompression(((MessageLite) message).getSerializedSize() >= threshold);
+            super.sendMessage(message);
+          }
+        };
+      }
+    };
+  }
+
+  private static ClientStreamTracer.Factory newTracerFactory(Listener listener) {
+    final ClientStreamTracer tracer = new ClientStreamTracer() {
+      @Override
+      public void outboundMessageSent(int seqNo, long wireSize, long uncompressedSize) {
+        if (wireSize >= 0 && uncompressedSize >= 0) {
+          listener.onMessageSent(uncompressedSize, wireSize);
+        }
+      }
+    };
+    return new ClientStreamTracer.Factory() {
+      @Override
+      public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+        return tracer;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "codec=" + codec + ", threshold=" + threshold;
+  }
+}
@@ -53,6 +53,8 @@ public class GrpcServerProtocolClient implements Closeable {
   private final RaftServerProtocolServiceStub asyncStub;
   private final RaftServerProtocolServiceBlockingStub blockingStub;
   private final boolean useSeparateHBChannel;
+  /** Compress the appendEntries and installSnapshot messages; null if compression is disabled. */
+  private final GrpcMessageCompression compression;
 
   private final TimeDuration requestTimeoutDuration;
   private static final Logger LOG = LoggerFactory.getLogger(GrpcServerProtocolClient.class);
@@ -61,9 +63,15 @@ public class GrpcServerProtocolClient implements Closeable {
 
   public GrpcServerProtocolClient(RaftPeer target, int flowControlWindow,
       TimeDuration requestTimeout, GrpcTlsConfig tlsConfig, boolean separateHBChannel) {
+    this(target, flowControlWindow, requestTimeout, tlsConfig, separateHBChannel, null);
+  }
+
+  GrpcServerProtocolClient(RaftPeer target, int flowControlWindow, TimeDuration requestTimeout,
+      GrpcTlsConfig tlsConfig, boolean separateHBChannel, GrpcMessageCompression compression) {
     raftPeerId = target.getId();
     LOG.info("Build channel for {}", target);
     useSeparateHBChannel = separateHBChannel;
+    this.compression = compression;
     channel = buildChannel(target, flowControlWindow, tlsConfig);
     blockingStub = RaftServerProtocolServiceGrpc.newBlockingStub(channel);
     asyncStub = RaftServerProtocolServiceGrpc.newStub(channel);
@@ -129,19 +137,24 @@ public class GrpcServerProtocolClient implements Closeable {
         .readIndex(request, s);
   }
 
-  CallStreamObserver<AppendEntriesRequestProto> appendEntries(
-      StreamObserver<AppendEntriesReplyProto> responseHandler, boolean isHeartbeat) {
+  private RaftServerProtocolServiceStub getAsyncStub(GrpcMessageCompression.Listener listener) {
+    return compression == null? asyncStub: asyncStub.withInterceptors(compression.newClientInterceptor(listener));
+  }
+
+  CallStreamObserver<AppendEntriesRequestProto> appendEntries(StreamObserver<AppendEntriesReplyProto> responseHandler,
+      boolean isHeartbeat, GrpcMessageCompression.Listener listener) {
     if (isHeartbeat && useSeparateHBChannel) {
       return (CallStreamObserver<AppendEntriesRequestProto>) hbAsyncStub.appendEntries(responseHandler);
     } else {
-      return (CallStreamObserver<AppendEntriesRequestProto>) asyncStub.appendEntries(responseHandler);
+      return (CallStreamObserver<AppendEntriesRequestProto>) getAsyncStub(listener).appendEntries(responseHandler);
     }
   }
 
-  StreamObserver<InstallSnapshotRequestProto> installSnapshot(
-      String name, TimeDuration timeout, int limit, StreamObserver<InstallSnapshotReplyProto> responseHandler) {
+  StreamObserver<InstallSnapshotRequestProto> installSnapshot(String name, TimeDuration timeout, int limit,
+      StreamObserver<InstallSnapshotReplyProto> responseHandler, GrpcMessageCompression.Listener listener) {
+    final RaftServerProtocolServiceStub stub = getAsyncStub(listener);
     return StreamObserverWithTimeout.newInstance(name, ServerStringUtils::toInstallSnapshotRequestString,
-        () -> timeout, limit, i -> asyncStub.withInterceptors(i).installSnapshot(responseHandler));
+        () -> timeout, limit, i -> stub.withInterceptors(i).installSnapshot(responseHandler));
   }
 
   // short-circuit the backoff timer and make them reconnect immediately.
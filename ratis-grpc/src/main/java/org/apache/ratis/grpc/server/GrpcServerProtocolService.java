@@ -20,18 +20,24 @@ package org.apache.ratis.grpc.server;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import org.apache.ratis.grpc.GrpcUtil;
+import org.apache.ratis.grpc.util.ZeroCopyMessageMarshaller;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.protocol.RaftServerProtocol;
 import org.apache.ratis.server.util.ServerStringUtils;
+import org.apache.ratis.thirdparty.io.grpc.MethodDescriptor;
+import org.apache.ratis.thirdparty.io.grpc.ServerMethodDefinition;
+import org.apache.ratis.thirdparty.io.grpc.ServerServiceDefinition;
 import org.apache.ratis.thirdparty.io.grpc.Status;
 import org.apache.ratis.thirdparty.io.grpc.StatusRuntimeException;
 import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
 import org.apache.ratis.proto.RaftProtos.*;
+import org.apache.ratis.proto.grpc.RaftServerProtocolServiceGrpc;
 import org.apache.ratis.proto.grpc.RaftServerProtocolServiceGrpc.RaftServerProtocolServiceImplBase;
 import org.apache.ratis.util.BatchLogger;
 import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,15 +57,21 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
   }
 
   static class PendingServerRequest<REQUEST> {
-    private final REQUEST request;
+    private final ReferenceCountedObject<REQUEST> requestRef;
     private final CompletableFuture<Void> future = new CompletableFuture<>();
 
-    PendingServerRequest(REQUEST request) {
-      this.request = request;
+    /** Retain the given request until this object is released. */
+    PendingServerRequest(ReferenceCountedObject<REQUEST> requestRef) {
+      requestRef.retain();
+      this.requestRef = requestRef;
     }
 
     REQUEST getRequest() {
-      return request;
+      return requestRef.get();
+    }
+
+    void release() {
+      requestRef.release();
     }
 
     CompletableFuture<Void> getFuture() {
@@ -97,6 +109,16 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
 
     abstract CompletableFuture<REPLY> process(REQUEST request) throws IOException;
 
+    /** Process the given request, which is retained until the returned future is completed. */
+    CompletableFuture<REPLY> process(ReferenceCountedObject<REQUEST> requestRef) throws IOException {
+      return process(requestRef.get());
+    }
+
+    /** @return a reference-counted object wrapping the given request. */
+    ReferenceCountedObject<REQUEST> wrap(REQUEST request) {
+      return ReferenceCountedObject.wrap(request);
+    }
+
     abstract long getCallId(REQUEST request);
 
     abstract String requestToString(REQUEST request);
@@ -132,22 +154,28 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
 
     @Override
     public void onNext(REQUEST request) {
+      final ReferenceCountedObject<REQUEST> requestRef = wrap(request);
+      requestRef.retain();
       if (!replyInOrder(request)) {
         try {
-          composeRequest(process(request).thenApply(this::handleReply));
+          composeRequest(process(requestRef).whenComplete((r, e) -> requestRef.release())
+              .thenApply(this::handleReply));
         } catch (Exception e) {
           handleError(e, request);
+          requestRef.release();
         }
         return;
       }
 
-      final PendingServerRequest<REQUEST> current = new PendingServerRequest<>(request);
+      // the previous request is retained for logging until it is replaced.
+      final PendingServerRequest<REQUEST> current = new PendingServerRequest<>(requestRef);
       final PendingServerRequest<REQUEST> previous = previousOnNext.getAndSet(current);
       final CompletableFuture<Void> previousFuture = Optional.ofNullable(previous)
           .map(PendingServerRequest::getFuture)
           .orElse(CompletableFuture.completedFuture(null));
+      Optional.ofNullable(previous).ifPresent(PendingServerRequest::release);
       try {
-        final CompletableFuture<REPLY> f = process(request).exceptionally(e -> {
+        final CompletableFuture<REPLY> f = process(requestRef).exceptionally(e -> {
           // Handle cases, such as RaftServer is paused
           handleError(e, request);
           current.getFuture().completeExceptionally(e);
@@ -158,18 +186,25 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
           return null;
         });
         composeRequest(f);
+        f.whenComplete((r, e) -> requestRef.release());
       } catch (Exception e) {
         handleError(e, request);
         current.getFuture().completeExceptionally(e);
+        requestRef.release();
       }
     }
 
+    private void releasePrevious() {
+      Optional.ofNullable(previousOnNext.getAndSet(null)).ifPresent(PendingServerRequest::release);
+    }
+
     @Override
     public void onCompleted() {
       if (isClosed.compareAndSet(false, true)) {
+        final String lastRequest = getPreviousRequestString();
+        releasePrevious();
         BatchLogger.print(BatchLogKey.COMPLETED_REQUEST, getName(),
-            suffix -> LOG.info("{}: Completed {}, lastRequest: {} {}",
-                getId(), op, getPreviousRequestString(), suffix));
+            suffix -> LOG.info("{}: Completed {}, lastRequest: {} {}", getId(), op, lastRequest, suffix));
         requestFuture.get().thenAccept(reply -> {
           BatchLogger.print(BatchLogKey.COMPLETED_REPLY, getName(),
               suffix -> LOG.info("{}: Completed {}, lastReply: {} {}", getId(), op, reply, suffix));
@@ -181,6 +216,7 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
     public void onError(Throwable t) {
       GrpcUtil.warn(LOG, () -> getId() + ": "+ op + " onError, lastRequest: " + getPreviousRequestString(), t);
       if (isClosed.compareAndSet(false, true)) {
+        releasePrevious();
         Status status = Status.fromThrowable(t);
         if (status != null && status.getCode() != Status.Code.CANCELLED) {
           responseObserver.onCompleted();
@@ -191,10 +227,41 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
 
   private final Supplier<RaftPeerId> idSupplier;
   private final RaftServer server;
+  /** For receiving the appendEntries requests with zero copy; null if zero copy is disabled. */
+  private final ZeroCopyMessageMarshaller<AppendEntriesRequestProto> zeroCopyRequestMarshaller;
 
-  GrpcServerProtocolService(Supplier<RaftPeerId> idSupplier, RaftServer server) {
+  GrpcServerProtocolService(Supplier<RaftPeerId> idSupplier, RaftServer server, boolean zeroCopyEnabled) {
     this.idSupplier = idSupplier;
     this.server = server;
+    this.zeroCopyRequestMarshaller = zeroCopyEnabled?
+        new ZeroCopyMessageMarshaller<>(AppendEntriesRequestProto.getDefaultInstance()) : null;
+  }
+
+  /**
+   * Bind this service.
+   * When zero copy is enabled, the appendEntries method uses the zero-copy request marshaller.
+   */
+  ServerServiceDefinition bindServiceWithZeroCopy() {
+    final ServerServiceDefinition service = bindService();
+    if (zeroCopyRequestMarshaller == null) {
+      return service;
+    }
+
+    final MethodDescriptor<AppendEntriesRequestProto, AppendEntriesReplyProto> appendEntries
+        = RaftServerProtocolServiceGrpc.getAppendEntriesMethod();
+    final String appendEntriesName = appendEntries.getFullMethodName();
+    @SuppressWarnings("unchecked")
+    final ServerMethodDefinition<AppendEntriesRequestProto, AppendEntriesReplyProto> method
+        = (ServerMethodDefinition<AppendEntriesRequestProto, AppendEntriesReplyProto>)
+        service.getMethod(appendEntriesName);
+    final ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(service.getServiceDescriptor()
+        .getName());
+    builder.addMethod(appendEntries.toBuilder().setRequestMarshaller(zeroCopyRequestMarshaller).build(),
+        method.getServerCallHandler());
+    service.getMethods().stream()
+        .filter(m -> !m.getMethodDescriptor().getFullMethodName().equals(appendEntriesName))
+        .forEach(builder::addMethod);
+    return builder.build();
   }
 
   RaftPeerId getId() {
@@ -245,6 +312,22 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
         return server.appendEntriesAsync(request);
       }
 
+      @Override
+      CompletableFuture<AppendEntriesReplyProto> process(
+          ReferenceCountedObject<AppendEntriesRequestProto> requestRef) throws IOException {
+        return zeroCopyRequestMarshaller == null? process(requestRef.get()) : server.appendEntriesAsync(requestRef);
+      }
+
+      @Override
+      ReferenceCountedObject<AppendEntriesRequestProto> wrap(AppendEntriesRequestProto request) {
+        return zeroCopyRequestMarshaller == null? super.wrap(request) : ReferenceCountedObject.wrap(request,
+            () -> {}, released -> {
+              if (released) {
+                zeroCopyRequestMarshaller.release(request);
+              }
+            });
+      }
+
       @Override
       long getCallId(AppendEntriesRequestProto request) {
         return request.getServerRequest().getCallId();
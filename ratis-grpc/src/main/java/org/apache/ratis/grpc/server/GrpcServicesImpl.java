@@ -118,6 +118,7 @@ public final class GrpcServicesImpl
     private SizeInBytes flowControlWindow;
     private TimeDuration requestTimeoutDuration;
     private boolean separateHeartbeatChannel;
+    private GrpcMessageCompression compression;
 
     private Builder() {}
 
@@ -135,6 +136,7 @@ public final class GrpcServicesImpl
       this.flowControlWindow = GrpcConfigKeys.flowControlWindow(properties, LOG::info);
       this.requestTimeoutDuration = RaftServerConfigKeys.Rpc.requestTimeout(properties);
       this.separateHeartbeatChannel = GrpcConfigKeys.Server.heartbeatChannel(properties);
+      this.compression = GrpcMessageCompression.newInstance(properties);
 
       final SizeInBytes appenderBufferSize = RaftServerConfigKeys.Log.Appender.bufferByteLimit(properties);
       final SizeInBytes gap = SizeInBytes.ONE_MB;
@@ -156,7 +158,7 @@ public final class GrpcServicesImpl
 
     private GrpcServerProtocolClient newGrpcServerProtocolClient(RaftPeer target) {
       return new GrpcServerProtocolClient(target, flowControlWindow.getSizeInt(),
-          requestTimeoutDuration, serverTlsConfig, separateHeartbeatChannel);
+          requestTimeoutDuration, serverTlsConfig, separateHeartbeatChannel, compression);
     }
 
     private ExecutorService newExecutor() {
@@ -169,11 +171,13 @@ public final class GrpcServicesImpl
 
     private GrpcClientProtocolService newGrpcClientProtocolService(
         ExecutorService executor) {
-      return new GrpcClientProtocolService(server::getId, server, executor);
+      return new GrpcClientProtocolService(server::getId, server, executor,
+          GrpcConfigKeys.Server.zeroCopyEnabled(server.getProperties()));
     }
 
     private GrpcServerProtocolService newGrpcServerProtocolService() {
-      return new GrpcServerProtocolService(server::getId, server);
+      return new GrpcServerProtocolService(server::getId, server,
+          GrpcConfigKeys.Server.zeroCopyEnabled(server.getProperties()));
     }
 
     private MetricServerInterceptor newMetricServerInterceptor() {
@@ -234,7 +238,7 @@ public final class GrpcServicesImpl
       final EnumSet<GrpcServices.Type> types = EnumSet.of(GrpcServices.Type.SERVER);
       final NettyServerBuilder serverBuilder = newNettyServerBuilderForServer();
       final GrpcServerProtocolService service = newGrpcServerProtocolService();
-      serverBuilder.addService(ServerInterceptors.intercept(service, interceptor));
+      serverBuilder.addService(ServerInterceptors.intercept(service.bindServiceWithZeroCopy(), interceptor));
 
       if (!separateAdminServer()) {
         types.add(GrpcServices.Type.ADMIN);
@@ -321,7 +325,7 @@ public final class GrpcServicesImpl
 
   static void addClientService(NettyServerBuilder builder, GrpcClientProtocolService client,
       ServerInterceptor interceptor) {
-    builder.addService(ServerInterceptors.intercept(client, interceptor));
+    builder.addService(ServerInterceptors.intercept(client.bindServiceWithZeroCopy(), interceptor));
   }
 
   static void addAdminService(NettyServerBuilder builder, AdminAsynchronousProtocol admin,
@@ -426,4 +430,8 @@ public final class GrpcServicesImpl
   MessageMetrics getMessageMetrics() {
     return serverInterceptor.getMetrics();
   }
+
+  GrpcClientProtocolService getClientProtocolService() {
+    return clientProtocolService;
+  }
 }
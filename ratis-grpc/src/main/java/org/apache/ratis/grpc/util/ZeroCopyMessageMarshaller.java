@@ -222,4 +222,9 @@ public class ZeroCopyMessageMarshaller<T extends MessageLite> implements Prototy
   public InputStream popStream(T message) {
     return unclosedStreams.remove(message);
   }
+
+  /** @return the number of the messages whose buffers are not yet released. */
+  public int getUnclosedCount() {
+    return unclosedStreams.size();
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.ratis.netty;
 import org.apache.ratis.client.RaftClientConfigKeys;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
 import org.apache.ratis.protocol.exceptions.TimeoutIOException;
 import org.apache.ratis.thirdparty.io.netty.channel.*;
 import org.apache.ratis.thirdparty.io.netty.channel.socket.SocketChannel;
@@ -34,19 +35,26 @@ import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.PeerProxyMap;
 import org.apache.ratis.util.ProtoUtils;
 import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.TimeoutExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import static org.apache.ratis.proto.netty.NettyProtos.RaftNettyServerReplyProto.RaftNettyServerReplyCase.EXCEPTIONREPLY;
 
 public class NettyRpcProxy implements Closeable {
+  public static final Logger LOG = LoggerFactory.getLogger(NettyRpcProxy.class);
+  private static final TimeoutExecutor TIMEOUT_EXECUTOR = TimeoutExecutor.getInstance();
+
   public static class PeerMap extends PeerProxyMap<NettyRpcProxy> {
     private final EventLoopGroup group;
 
@@ -98,10 +106,20 @@ public class NettyRpcProxy implements Closeable {
   }
 
 
+  /**
+   * A connection supporting multiple outstanding calls.
+   * Each request is assigned a call id so that the replies can be received out of order.
+   * A peer without call id support replies in order with call id 0;
+   * such a reply is matched to the oldest outstanding call.
+   * Therefore, the call ids are assigned in the order of the writes
+   * and a timed-out call remains outstanding until its reply is received.
+   */
   class Connection implements Closeable {
     private final NettyClient client = new NettyClient(peer.getAddress());
-    private final Queue<CompletableFuture<RaftNettyServerReplyProto>> replies
-        = new LinkedList<>();
+    /** Guarded by this. */
+    private long callIdCounter = 0;
+    private final ConcurrentNavigableMap<Long, CompletableFuture<RaftNettyServerReplyProto>> replies
+        = new ConcurrentSkipListMap<>();
 
     Connection(EventLoopGroup group) throws InterruptedException {
       final ChannelInboundHandler inboundHandler
@@ -109,10 +127,13 @@ public class NettyRpcProxy implements Closeable {
         @Override
         protected void channelRead0(ChannelHandlerContext ctx,
                                     RaftNettyServerReplyProto proto) {
-          final CompletableFuture<RaftNettyServerReplyProto> future = pollReply();
+          final CompletableFuture<RaftNettyServerReplyProto> future = removeReply(proto.getCallId());
           if (future == null) {
-            throw new IllegalStateException("Request #" + getCallId(proto)
-                + " not found");
+            LOG.debug("{}: Request #{} not found", peer, getCallId(proto));
+            return;
+          } else if (future.isDone()) {
+            LOG.debug("{}: Request #{} has already failed, it may have timed out", peer, getCallId(proto));
+            return;
           }
           if (proto.getRaftNettyServerReplyCase() == EXCEPTIONREPLY) {
             final Object ioe = ProtoUtils.toObject(proto.getExceptionReply().getException());
@@ -121,6 +142,12 @@ public class NettyRpcProxy implements Closeable {
             future.complete(proto);
           }
         }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+          failAll(new AlreadyClosedException("Channel to " + peer + " is inactive"));
+          super.channelInactive(ctx);
+        }
       };
       final ChannelInitializer<SocketChannel> initializer
           = new ChannelInitializer<SocketChannel>() {
@@ -140,24 +167,64 @@ public class NettyRpcProxy implements Closeable {
       client.connect(group, initializer);
     }
 
-    synchronized ChannelFuture offer(RaftNettyServerRequestProto request,
-        CompletableFuture<RaftNettyServerReplyProto> reply) {
-      replies.offer(reply);
-      return client.writeAndFlush(request);
+    /** Send the given request; if the timeout is non-null, fail the reply future when the timeout elapses. */
+    CompletableFuture<RaftNettyServerReplyProto> offer(RaftNettyServerRequestProto request, TimeDuration timeout) {
+      final long callId;
+      final CompletableFuture<RaftNettyServerReplyProto> reply = new CompletableFuture<>();
+      synchronized (this) {
+        callId = ++callIdCounter;
+        replies.put(callId, reply);
+        try {
+          client.writeAndFlush(request.toBuilder().setCallId(callId).build()).addListener(f -> {
+            if (!f.isSuccess()) {
+              fail(callId, reply, IOUtils.asIOException(f.cause()));
+            }
+          });
+        } catch (Exception e) {
+          fail(callId, reply, IOUtils.asIOException(e));
+          return reply;
+        }
+      }
+      if (timeout == null) {
+        return reply;
+      }
+      // Do not remove the timed-out call: a peer without call ids will still reply to it in order.
+      TIMEOUT_EXECUTOR.onTimeout(timeout,
+          () -> reply.completeExceptionally(new TimeoutIOException("Request #" + callId + " to " + peer
+              + " timeout " + timeout)),
+          LOG, () -> "Timeout check for request #" + callId + " to " + peer);
+      return reply;
+    }
+
+    private CompletableFuture<RaftNettyServerReplyProto> removeReply(long callId) {
+      if (callId != 0) {
+        return replies.remove(callId);
+      }
+      // the call ids start from 1, so 0 means that the peer does not support call ids
+      return Optional.ofNullable(replies.pollFirstEntry()).map(Map.Entry::getValue).orElse(null);
+    }
+
+    int getNumPendingReplies() {
+      return replies.size();
+    }
+
+    /** The request has not been sent, so the peer will not reply to it. */
+    private void fail(long callId, CompletableFuture<RaftNettyServerReplyProto> reply, IOException e) {
+      if (replies.remove(callId, reply)) {
+        reply.completeExceptionally(e);
+      }
     }
 
-    synchronized CompletableFuture<RaftNettyServerReplyProto> pollReply() {
-      return replies.poll();
+    private void failAll(IOException e) {
+      for (Long callId : replies.keySet()) {
+        Optional.ofNullable(replies.remove(callId)).ifPresent(f -> f.completeExceptionally(e));
+      }
     }
 
     @Override
-    public synchronized void close() {
+    public void close() {
       client.close();
-      if (!replies.isEmpty()) {
-        final IOException e = new IOException("Connection to " + peer + " is closed.");
-        replies.stream().forEach(f -> f.completeExceptionally(e));
-        replies.clear();
-      }
+      failAll(new IOException("Connection to " + peer + " is closed."));
     }
   }
 
@@ -176,30 +243,27 @@ public class NettyRpcProxy implements Closeable {
     connection.close();
   }
 
+  int getNumPendingReplies() {
+    return connection.getNumPendingReplies();
+  }
+
+  /** Send the given request asynchronously; the reply future fails if the request timeout elapses. */
   public CompletableFuture<RaftNettyServerReplyProto> sendAsync(RaftNettyServerRequestProto proto) {
-    final CompletableFuture<RaftNettyServerReplyProto> reply = new CompletableFuture<>();
-    connection.offer(proto, reply);
-    return reply;
+    return connection.offer(proto, requestTimeoutDuration);
   }
 
   public RaftNettyServerReplyProto send(
       RaftRpcRequestProto request, RaftNettyServerRequestProto proto)
       throws IOException {
-    final CompletableFuture<RaftNettyServerReplyProto> reply = new CompletableFuture<>();
-    final ChannelFuture channelFuture = connection.offer(proto, reply);
-
+    final TimeDuration timeout = requestTimeoutDuration.add(request.getTimeoutMs(), TimeUnit.MILLISECONDS);
     try {
-      channelFuture.sync();
-      TimeDuration newDuration = requestTimeoutDuration.add(request.getTimeoutMs(), TimeUnit.MILLISECONDS);
-      return reply.get(newDuration.getDuration(), newDuration.getUnit());
+      return connection.offer(proto, timeout).get();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw IOUtils.toInterruptedIOException(ProtoUtils.toString(request)
           + " sending from " + peer + " is interrupted.", e);
     } catch (ExecutionException e) {
       throw IOUtils.toIOException(e);
-    } catch (TimeoutException e) {
-      throw new TimeoutIOException(e.getMessage(), e);
     }
   }
 }
@@ -21,12 +21,20 @@ import org.apache.ratis.client.impl.ClientProtoUtils;
 import org.apache.ratis.netty.NettyConfigKeys;
 import org.apache.ratis.netty.NettyRpcProxy;
 import org.apache.ratis.netty.NettyUtils;
-import org.apache.ratis.protocol.GroupInfoReply;
-import org.apache.ratis.protocol.GroupListReply;
+import org.apache.ratis.protocol.GroupManagementRequest;
+import org.apache.ratis.protocol.LeaderElectionManagementRequest;
 import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.SetConfigurationRequest;
+import org.apache.ratis.protocol.SnapshotManagementRequest;
+import org.apache.ratis.protocol.TransferLeadershipRequest;
+import org.apache.ratis.protocol.exceptions.NotLeaderException;
+import org.apache.ratis.protocol.exceptions.RaftException;
+import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.rpc.SupportedRpcType;
 import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.RaftServerRpcWithProxy;
 import org.apache.ratis.thirdparty.io.netty.bootstrap.ServerBootstrap;
 import org.apache.ratis.thirdparty.io.netty.channel.*;
@@ -42,16 +50,21 @@ import org.apache.ratis.proto.netty.NettyProtos.RaftNettyExceptionReplyProto;
 import org.apache.ratis.proto.netty.NettyProtos.RaftNettyServerReplyProto;
 import org.apache.ratis.proto.netty.NettyProtos.RaftNettyServerRequestProto;
 import org.apache.ratis.util.CodeInjectionForTesting;
+import org.apache.ratis.util.ConcurrentUtils;
+import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.function.CheckedSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.Objects;
 
 /**
  * A netty server endpoint that acts as the communication layer.
@@ -86,13 +99,29 @@ public final class NettyRpcService extends RaftServerRpcWithProxy<NettyRpcProxy,
   private final EventLoopGroup workerGroup;
   private final MemoizedSupplier<ChannelFuture> channel;
   private final InetSocketAddress socketAddress;
-
-  @ChannelHandler.Sharable
+  /** For the server APIs without an async version, i.e. requestVote, startLeaderElection and installSnapshot. */
+  private final ExecutorService executor;
+
+  /**
+   * Dispatch the requests to the async server APIs without blocking the event loop.
+   * The replies are written, in the order of completion, with the call ids of the requests.
+   * A client without call id support (i.e. call id 0) matches the replies in order,
+   * so the replies to its requests are written in the order of the requests.
+   * <p>
+   * This handler is created for each channel.
+   */
   class InboundHandler extends SimpleChannelInboundHandler<RaftNettyServerRequestProto> {
+    /** The last reply written in order.  It is only accessed by the event loop of the channel. */
+    private CompletableFuture<?> lastInOrderReply = CompletableFuture.completedFuture(null);
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RaftNettyServerRequestProto proto) {
-      final RaftNettyServerReplyProto reply = handle(proto);
-      ctx.writeAndFlush(reply);
+      final CompletableFuture<RaftNettyServerReplyProto> reply = handle(proto);
+      if (proto.getCallId() != 0) {
+        reply.thenAccept(ctx::writeAndFlush);
+      } else {
+        lastInOrderReply = lastInOrderReply.thenCombine(reply, (previous, r) -> ctx.writeAndFlush(r));
+      }
     }
   }
 
@@ -119,6 +148,10 @@ public final class NettyRpcService extends RaftServerRpcWithProxy<NettyRpcProxy,
     final boolean useEpoll = NettyConfigKeys.Server.useEpoll(server.getProperties());
     this.bossGroup = NettyUtils.newEventLoopGroup(CLASS_NAME + "-bossGroup", 0, useEpoll);
     this.workerGroup = NettyUtils.newEventLoopGroup(CLASS_NAME + "-workerGroup",0, useEpoll);
+    this.executor = ConcurrentUtils.newThreadPoolWithMax(
+        RaftServerConfigKeys.ThreadPool.serverCached(server.getProperties()),
+        RaftServerConfigKeys.ThreadPool.serverSize(server.getProperties()),
+        CLASS_NAME);
 
     final String host = NettyConfigKeys.Server.host(server.getProperties());
     final int port = NettyConfigKeys.Server.port(server.getProperties());
@@ -166,6 +199,7 @@ public final class NettyRpcService extends RaftServerRpcWithProxy<NettyRpcProxy,
       LOG.error("Interrupt EventLoopGroup terminate", e);
       Thread.currentThread().interrupt();
     }
+    ConcurrentUtils.shutdownAndWait(executor);
     super.closeImpl();
   }
 
@@ -181,127 +215,156 @@ public final class NettyRpcService extends RaftServerRpcWithProxy<NettyRpcProxy,
     }
   }
 
-  RaftNettyServerReplyProto handle(RaftNettyServerRequestProto proto) {
-    RaftRpcRequestProto rpcRequest = null;
+  /** Handle the given request; any failure, including an invalid request, is replied as an exception reply. */
+  CompletableFuture<RaftNettyServerReplyProto> handle(RaftNettyServerRequestProto proto) {
+    RaftRpcRequestProto rpcRequest = RaftRpcRequestProto.getDefaultInstance();
+    CompletableFuture<RaftNettyServerReplyProto.Builder> future;
     try {
-      switch (proto.getRaftNettyServerRequestCase()) {
-        case REQUESTVOTEREQUEST:
-          final RequestVoteRequestProto request = proto.getRequestVoteRequest();
-          rpcRequest = request.getServerRequest();
-          final RequestVoteReplyProto reply = server.requestVote(request);
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRequestVoteReply(reply)
-              .build();
-
-        case TRANSFERLEADERSHIPREQUEST:
-          final TransferLeadershipRequestProto transferLeadershipRequest = proto.getTransferLeadershipRequest();
-          rpcRequest = transferLeadershipRequest.getRpcRequest();
-          final RaftClientReply transferLeadershipReply = server.transferLeadership(
-              ClientProtoUtils.toTransferLeadershipRequest(transferLeadershipRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(transferLeadershipReply))
-              .build();
-
-        case STARTLEADERELECTIONREQUEST:
-          final StartLeaderElectionRequestProto startLeaderElectionRequest = proto.getStartLeaderElectionRequest();
-          rpcRequest = startLeaderElectionRequest.getServerRequest();
-          final StartLeaderElectionReplyProto startLeaderElectionReply =
-              server.startLeaderElection(startLeaderElectionRequest);
-          return RaftNettyServerReplyProto.newBuilder().setStartLeaderElectionReply(startLeaderElectionReply).build();
-
-        case SNAPSHOTMANAGEMENTREQUEST:
-          final SnapshotManagementRequestProto snapshotManagementRequest = proto.getSnapshotManagementRequest();
-          rpcRequest = snapshotManagementRequest.getRpcRequest();
-          final RaftClientReply snapshotManagementReply = server.snapshotManagement(
-              ClientProtoUtils.toSnapshotManagementRequest(snapshotManagementRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(snapshotManagementReply))
-              .build();
-
-        case LEADERELECTIONMANAGEMENTREQUEST:
-          final LeaderElectionManagementRequestProto leaderElectionManagementRequest =
-              proto.getLeaderElectionManagementRequest();
-          rpcRequest = leaderElectionManagementRequest.getRpcRequest();
-          final RaftClientReply leaderElectionManagementReply = server.leaderElectionManagement(
-              ClientProtoUtils.toLeaderElectionManagementRequest(leaderElectionManagementRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(leaderElectionManagementReply))
-              .build();
-
-        case APPENDENTRIESREQUEST:
-          final AppendEntriesRequestProto appendEntriesRequest = proto.getAppendEntriesRequest();
-          rpcRequest = appendEntriesRequest.getServerRequest();
-          final AppendEntriesReplyProto appendEntriesReply = server.appendEntries(appendEntriesRequest);
-          return RaftNettyServerReplyProto.newBuilder()
-              .setAppendEntriesReply(appendEntriesReply)
-              .build();
-
-        case INSTALLSNAPSHOTREQUEST:
-          final InstallSnapshotRequestProto installSnapshotRequest = proto.getInstallSnapshotRequest();
-          rpcRequest = installSnapshotRequest.getServerRequest();
-          final InstallSnapshotReplyProto installSnapshotReply = server.installSnapshot(installSnapshotRequest);
-          return RaftNettyServerReplyProto.newBuilder()
-              .setInstallSnapshotReply(installSnapshotReply)
-              .build();
-
-        case RAFTCLIENTREQUEST:
-          final RaftClientRequestProto raftClientRequest = proto.getRaftClientRequest();
-          rpcRequest = raftClientRequest.getRpcRequest();
-          final RaftClientReply raftClientReply = server.submitClientRequest(
-              ClientProtoUtils.toRaftClientRequest(raftClientRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(raftClientReply))
-              .build();
-
-        case SETCONFIGURATIONREQUEST:
-          final SetConfigurationRequestProto configurationRequest = proto.getSetConfigurationRequest();
-          rpcRequest = configurationRequest.getRpcRequest();
-          final RaftClientReply configurationReply = server.setConfiguration(
-              ClientProtoUtils.toSetConfigurationRequest(configurationRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(configurationReply))
-              .build();
-
-        case GROUPMANAGEMENTREQUEST:
-          final GroupManagementRequestProto groupManagementRequest = proto.getGroupManagementRequest();
-          rpcRequest = groupManagementRequest.getRpcRequest();
-          final RaftClientReply groupManagementReply = server.groupManagement(
-              ClientProtoUtils.toGroupManagementRequest(groupManagementRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(groupManagementReply))
-              .build();
-
-        case GROUPLISTREQUEST:
-          final GroupListRequestProto groupListRequest = proto.getGroupListRequest();
-          rpcRequest = groupListRequest.getRpcRequest();
-          final GroupListReply groupListReply = server.getGroupList(
-              ClientProtoUtils.toGroupListRequest(groupListRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setGroupListReply(ClientProtoUtils.toGroupListReplyProto(groupListReply))
-              .build();
-
-        case GROUPINFOREQUEST:
-          final GroupInfoRequestProto groupInfoRequest = proto.getGroupInfoRequest();
-          rpcRequest = groupInfoRequest.getRpcRequest();
-          final GroupInfoReply groupInfoReply = server.getGroupInfo(
-              ClientProtoUtils.toGroupInfoRequest(groupInfoRequest));
-          return RaftNettyServerReplyProto.newBuilder()
-              .setGroupInfoReply(ClientProtoUtils.toGroupInfoReplyProto(groupInfoReply))
-              .build();
-
-        case RAFTNETTYSERVERREQUEST_NOT_SET:
-          throw new IllegalArgumentException("Request case not set in proto: "
-              + proto.getRaftNettyServerRequestCase());
-        default:
-          throw new UnsupportedOperationException("Request case not supported: "
-              + proto.getRaftNettyServerRequestCase());
-      }
-    } catch (IOException ioe) {
-      return toRaftNettyServerReplyProto(
-          Objects.requireNonNull(rpcRequest, "rpcRequest = null"), ioe);
+      rpcRequest = getRpcRequest(proto);
+      future = handleAsync(proto);
+    } catch (Exception e) {
+      future = JavaUtils.completeExceptionally(e);
+    }
+    final RaftRpcRequestProto request = rpcRequest;
+    return future.exceptionally(e -> toRaftNettyServerReplyProto(request,
+            IOUtils.asIOException(JavaUtils.unwrapCompletionException(e))).toBuilder())
+        .thenApply(reply -> reply.setCallId(proto.getCallId()).build());
+  }
+
+  private static RaftRpcRequestProto getRpcRequest(RaftNettyServerRequestProto proto) {
+    switch (proto.getRaftNettyServerRequestCase()) {
+      case REQUESTVOTEREQUEST:
+        return proto.getRequestVoteRequest().getServerRequest();
+      case TRANSFERLEADERSHIPREQUEST:
+        return proto.getTransferLeadershipRequest().getRpcRequest();
+      case STARTLEADERELECTIONREQUEST:
+        return proto.getStartLeaderElectionRequest().getServerRequest();
+      case SNAPSHOTMANAGEMENTREQUEST:
+        return proto.getSnapshotManagementRequest().getRpcRequest();
+      case LEADERELECTIONMANAGEMENTREQUEST:
+        return proto.getLeaderElectionManagementRequest().getRpcRequest();
+      case APPENDENTRIESREQUEST:
+        return proto.getAppendEntriesRequest().getServerRequest();
+      case INSTALLSNAPSHOTREQUEST:
+        return proto.getInstallSnapshotRequest().getServerRequest();
+      case RAFTCLIENTREQUEST:
+        return proto.getRaftClientRequest().getRpcRequest();
+      case SETCONFIGURATIONREQUEST:
+        return proto.getSetConfigurationRequest().getRpcRequest();
+      case GROUPMANAGEMENTREQUEST:
+        return proto.getGroupManagementRequest().getRpcRequest();
+      case GROUPLISTREQUEST:
+        return proto.getGroupListRequest().getRpcRequest();
+      case GROUPINFOREQUEST:
+        return proto.getGroupInfoRequest().getRpcRequest();
+      case RAFTNETTYSERVERREQUEST_NOT_SET:
+        throw new IllegalArgumentException("Request case not set in proto: "
+            + proto.getRaftNettyServerRequestCase());
+      default:
+        throw new UnsupportedOperationException("Request case not supported: "
+            + proto.getRaftNettyServerRequestCase());
+    }
+  }
+
+  private CompletableFuture<RaftNettyServerReplyProto.Builder> handleAsync(RaftNettyServerRequestProto proto)
+      throws IOException {
+    switch (proto.getRaftNettyServerRequestCase()) {
+      case REQUESTVOTEREQUEST:
+        final RequestVoteRequestProto request = proto.getRequestVoteRequest();
+        return supplyAsync(() -> server.requestVote(request))
+            .thenApply(reply -> RaftNettyServerReplyProto.newBuilder().setRequestVoteReply(reply));
+
+      case TRANSFERLEADERSHIPREQUEST:
+        final TransferLeadershipRequest transferLeadershipRequest =
+            ClientProtoUtils.toTransferLeadershipRequest(proto.getTransferLeadershipRequest());
+        return toRaftClientReplyProto(transferLeadershipRequest,
+            server.transferLeadershipAsync(transferLeadershipRequest));
+
+      case STARTLEADERELECTIONREQUEST:
+        final StartLeaderElectionRequestProto startLeaderElectionRequest = proto.getStartLeaderElectionRequest();
+        return supplyAsync(() -> server.startLeaderElection(startLeaderElectionRequest))
+            .thenApply(reply -> RaftNettyServerReplyProto.newBuilder().setStartLeaderElectionReply(reply));
+
+      case SNAPSHOTMANAGEMENTREQUEST:
+        final SnapshotManagementRequest snapshotManagementRequest =
+            ClientProtoUtils.toSnapshotManagementRequest(proto.getSnapshotManagementRequest());
+        return toRaftClientReplyProto(snapshotManagementRequest,
+            server.snapshotManagementAsync(snapshotManagementRequest));
+
+      case LEADERELECTIONMANAGEMENTREQUEST:
+        final LeaderElectionManagementRequest leaderElectionManagementRequest =
+            ClientProtoUtils.toLeaderElectionManagementRequest(proto.getLeaderElectionManagementRequest());
+        return toRaftClientReplyProto(leaderElectionManagementRequest,
+            server.leaderElectionManagementAsync(leaderElectionManagementRequest));
+
+      case APPENDENTRIESREQUEST:
+        return server.appendEntriesAsync(proto.getAppendEntriesRequest())
+            .thenApply(reply -> RaftNettyServerReplyProto.newBuilder().setAppendEntriesReply(reply));
+
+      case INSTALLSNAPSHOTREQUEST:
+        final InstallSnapshotRequestProto installSnapshotRequest = proto.getInstallSnapshotRequest();
+        return supplyAsync(() -> server.installSnapshot(installSnapshotRequest))
+            .thenApply(reply -> RaftNettyServerReplyProto.newBuilder().setInstallSnapshotReply(reply));
+
+      case RAFTCLIENTREQUEST:
+        final RaftClientRequest raftClientRequest = ClientProtoUtils.toRaftClientRequest(proto.getRaftClientRequest());
+        return toRaftClientReplyProto(raftClientRequest, server.submitClientRequestAsync(raftClientRequest));
+
+      case SETCONFIGURATIONREQUEST:
+        final SetConfigurationRequest setConfigurationRequest =
+            ClientProtoUtils.toSetConfigurationRequest(proto.getSetConfigurationRequest());
+        return toRaftClientReplyProto(setConfigurationRequest, server.setConfigurationAsync(setConfigurationRequest));
+
+      case GROUPMANAGEMENTREQUEST:
+        final GroupManagementRequest groupManagementRequest =
+            ClientProtoUtils.toGroupManagementRequest(proto.getGroupManagementRequest());
+        return toRaftClientReplyProto(groupManagementRequest, server.groupManagementAsync(groupManagementRequest));
+
+      case GROUPLISTREQUEST:
+        return server.getGroupListAsync(ClientProtoUtils.toGroupListRequest(proto.getGroupListRequest()))
+            .thenApply(reply -> RaftNettyServerReplyProto.newBuilder()
+                .setGroupListReply(ClientProtoUtils.toGroupListReplyProto(reply)));
+
+      case GROUPINFOREQUEST:
+        return server.getGroupInfoAsync(ClientProtoUtils.toGroupInfoRequest(proto.getGroupInfoRequest()))
+            .thenApply(reply -> RaftNettyServerReplyProto.newBuilder()
+                .setGroupInfoReply(ClientProtoUtils.toGroupInfoReplyProto(reply)));
+
+      default:
+        throw new UnsupportedOperationException("Request case not supported: "
+            + proto.getRaftNettyServerRequestCase());
     }
   }
 
+  /**
+   * Similar to the blocking server APIs,
+   * reply {@link NotLeaderException} and {@link StateMachineException} in {@link RaftClientReply}.
+   */
+  private static CompletableFuture<RaftNettyServerReplyProto.Builder> toRaftClientReplyProto(
+      RaftClientRequest request, CompletableFuture<RaftClientReply> future) {
+    return future.handle((reply, e) -> {
+      if (e != null) {
+        final Throwable cause = JavaUtils.unwrapCompletionException(e);
+        if (!(cause instanceof NotLeaderException || cause instanceof StateMachineException)) {
+          throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        }
+        reply = RaftClientReply.newBuilder().setRequest(request).setException((RaftException) cause).build();
+      }
+      return RaftNettyServerReplyProto.newBuilder().setRaftClientReply(ClientProtoUtils.toRaftClientReplyProto(reply));
+    });
+  }
+
+  /** Run the blocking server APIs in {@link #executor}. */
+  private <T> CompletableFuture<T> supplyAsync(CheckedSupplier<T, IOException> supplier) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return supplier.get();
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
   private static RaftNettyServerReplyProto toRaftNettyServerReplyProto(
       RaftRpcRequestProto request, IOException e) {
     final RaftRpcReplyProto.Builder rpcReply = RaftRpcReplyProto.newBuilder()
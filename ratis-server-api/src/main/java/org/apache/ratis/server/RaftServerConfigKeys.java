@@ -190,6 +190,20 @@ public interface RaftServerConfigKeys {
     static void setClientSize(RaftProperties properties, int size) {
       setInt(properties::setInt, CLIENT_SIZE_KEY, size);
     }
+
+    /**
+     * Use virtual threads for the server, client and division threads
+     * when running on Java 21 or above; otherwise, this property is ignored.
+     */
+    String VIRTUAL_THREADS_ENABLED_KEY = PREFIX + ".virtual-threads.enabled";
+    boolean VIRTUAL_THREADS_ENABLED_DEFAULT = false;
+    static boolean virtualThreadsEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, VIRTUAL_THREADS_ENABLED_KEY, VIRTUAL_THREADS_ENABLED_DEFAULT,
+          getDefaultLog());
+    }
+    static void setVirtualThreadsEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, VIRTUAL_THREADS_ENABLED_KEY, enabled);
+    }
   }
 
   interface Read {
@@ -301,6 +315,30 @@ public interface RaftServerConfigKeys {
     static void setFollowerGapRatioMax(RaftProperties properties, float ratio) {
       setDouble(properties::setDouble, FOLLOWER_GAP_RATIO_MAX_KEY, ratio, requireMax(1d));
     }
+
+    interface Sequencer {
+      String PREFIX = Write.PREFIX + ".sequencer";
+
+      /** Should the leader append the concurrent write requests in batches? */
+      String ENABLED_KEY = PREFIX + ".enabled";
+      boolean ENABLED_DEFAULT = false;
+      static boolean enabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean, ENABLED_KEY, ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setEnabled(RaftProperties properties, boolean enabled) {
+        setBoolean(properties::setBoolean, ENABLED_KEY, enabled);
+      }
+
+      String BATCH_SIZE_MAX_KEY = PREFIX + ".batch.size.max";
+      int BATCH_SIZE_MAX_DEFAULT = 256;
+      static int batchSizeMax(RaftProperties properties) {
+        return getInt(properties::getInt, BATCH_SIZE_MAX_KEY, BATCH_SIZE_MAX_DEFAULT, getDefaultLog(),
+            requireMin(1));
+      }
+      static void setBatchSizeMax(RaftProperties properties, int batchSizeMax) {
+        setInt(properties::setInt, BATCH_SIZE_MAX_KEY, batchSizeMax, requireMin(1));
+      }
+    }
   }
 
   interface Watch {
@@ -438,6 +476,45 @@ public interface RaftServerConfigKeys {
       setSizeInBytes(properties::set, SEGMENT_CACHE_SIZE_MAX_KEY, maxCachedSegmentSize);
     }
 
+    /**
+     * The max total size of the log entry caches of all the groups in a server.
+     * A zero size disables the server-wide budget.
+     */
+    String SEGMENT_CACHE_GLOBAL_SIZE_MAX_KEY = PREFIX + ".segment.cache.global.size.max";
+    SizeInBytes SEGMENT_CACHE_GLOBAL_SIZE_MAX_DEFAULT = SizeInBytes.ZERO;
+    static SizeInBytes segmentCacheGlobalSizeMax(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes, SEGMENT_CACHE_GLOBAL_SIZE_MAX_KEY,
+          SEGMENT_CACHE_GLOBAL_SIZE_MAX_DEFAULT, getDefaultLog());
+    }
+    static void setSegmentCacheGlobalSizeMax(RaftProperties properties, SizeInBytes segmentCacheGlobalSizeMax) {
+      setSizeInBytes(properties::set, SEGMENT_CACHE_GLOBAL_SIZE_MAX_KEY, segmentCacheGlobalSizeMax);
+    }
+
+    /**
+     * Cache the log entries serialized in direct buffers, instead of as objects on the heap?
+     * The entries are decoded when they are read.
+     */
+    String SEGMENT_CACHE_OFF_HEAP_ENABLED_KEY = PREFIX + ".segment.cache.off-heap.enabled";
+    boolean SEGMENT_CACHE_OFF_HEAP_ENABLED_DEFAULT = false;
+    static boolean segmentCacheOffHeapEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean,
+          SEGMENT_CACHE_OFF_HEAP_ENABLED_KEY, SEGMENT_CACHE_OFF_HEAP_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setSegmentCacheOffHeapEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, SEGMENT_CACHE_OFF_HEAP_ENABLED_KEY, enabled);
+    }
+
+    /** The size of the direct buffer slabs for the off-heap cache. */
+    String SEGMENT_CACHE_OFF_HEAP_SLAB_SIZE_KEY = PREFIX + ".segment.cache.off-heap.slab.size";
+    SizeInBytes SEGMENT_CACHE_OFF_HEAP_SLAB_SIZE_DEFAULT = SizeInBytes.valueOf("1MB");
+    static SizeInBytes segmentCacheOffHeapSlabSize(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes, SEGMENT_CACHE_OFF_HEAP_SLAB_SIZE_KEY,
+          SEGMENT_CACHE_OFF_HEAP_SLAB_SIZE_DEFAULT, getDefaultLog(), requireMinSizeInByte(SizeInBytes.ONE_KB));
+    }
+    static void setSegmentCacheOffHeapSlabSize(RaftProperties properties, SizeInBytes slabSize) {
+      setSizeInBytes(properties::set, SEGMENT_CACHE_OFF_HEAP_SLAB_SIZE_KEY, slabSize);
+    }
+
     String PREALLOCATED_SIZE_KEY = PREFIX + ".preallocated.size";
     SizeInBytes PREALLOCATED_SIZE_DEFAULT = SizeInBytes.valueOf("4MB");
     static SizeInBytes preallocatedSize(RaftProperties properties) {
@@ -458,6 +535,41 @@ public interface RaftServerConfigKeys {
       setSizeInBytes(properties::set, WRITE_BUFFER_SIZE_KEY, writeBufferSize);
     }
 
+    /** Read the closed log segment files using mmap instead of copying them to heap buffers. */
+    String READ_MMAP_ENABLED_KEY = PREFIX + ".read.mmap.enabled";
+    boolean READ_MMAP_ENABLED_DEFAULT = false;
+    static boolean readMmapEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean,
+          READ_MMAP_ENABLED_KEY, READ_MMAP_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setReadMmapEnabled(RaftProperties properties, boolean readMmap) {
+      setBoolean(properties::setBoolean, READ_MMAP_ENABLED_KEY, readMmap);
+    }
+
+    /**
+     * The size of the log worker pool shared by all the groups in a server.
+     * When it is 0, each group has a dedicated log worker thread.
+     */
+    String WORKER_POOL_SIZE_KEY = PREFIX + ".worker.pool.size";
+    int WORKER_POOL_SIZE_DEFAULT = 0;
+    static int workerPoolSize(RaftProperties properties) {
+      return getInt(properties::getInt, WORKER_POOL_SIZE_KEY, WORKER_POOL_SIZE_DEFAULT, getDefaultLog(),
+          requireMin(0), requireMax(65536));
+    }
+    static void setWorkerPoolSize(RaftProperties properties, int size) {
+      setInt(properties::setInt, WORKER_POOL_SIZE_KEY, size);
+    }
+
+    String SEGMENT_INDEX_ENABLED_KEY = PREFIX + ".segment.index.enabled";
+    boolean SEGMENT_INDEX_ENABLED_DEFAULT = false;
+    static boolean segmentIndexEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean,
+          SEGMENT_INDEX_ENABLED_KEY, SEGMENT_INDEX_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setSegmentIndexEnabled(RaftProperties properties, boolean segmentIndex) {
+      setBoolean(properties::setBoolean, SEGMENT_INDEX_ENABLED_KEY, segmentIndex);
+    }
+
     String FORCE_SYNC_NUM_KEY = PREFIX + ".force.sync.num";
     int FORCE_SYNC_NUM_DEFAULT = 128;
     static int forceSyncNum(RaftProperties properties) {
@@ -584,6 +696,100 @@ public interface RaftServerConfigKeys {
       static void setReadTimeout(RaftProperties properties, TimeDuration readTimeout) {
         setTimeDuration(properties::setTimeDuration, READ_TIMEOUT_KEY, readTimeout);
       }
+
+      /**
+       * The max size of the leader-side cache of the state machine data read for the followers.
+       * The data read for one follower is reused by the other followers.
+       * A zero size disables the cache.
+       */
+      String READ_CACHE_SIZE_MAX_KEY = PREFIX + ".read.cache.size.max";
+      SizeInBytes READ_CACHE_SIZE_MAX_DEFAULT = SizeInBytes.ZERO;
+      static SizeInBytes readCacheSizeMax(RaftProperties properties) {
+        return getSizeInBytes(properties::getSizeInBytes,
+            READ_CACHE_SIZE_MAX_KEY, READ_CACHE_SIZE_MAX_DEFAULT, getDefaultLog());
+      }
+      static void setReadCacheSizeMax(RaftProperties properties, SizeInBytes readCacheSizeMax) {
+        setSizeInBytes(properties::set, READ_CACHE_SIZE_MAX_KEY, readCacheSizeMax);
+      }
+    }
+
+    /**
+     * Group commit: the log syncs of all the groups sharing the same volume
+     * are batched by a coordinator owned by the server.
+     */
+    interface GroupCommit {
+      String PREFIX = Log.PREFIX + ".group-commit";
+
+      String ENABLED_KEY = PREFIX + ".enabled";
+      boolean ENABLED_DEFAULT = false;
+      static boolean enabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean,
+            ENABLED_KEY, ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setEnabled(RaftProperties properties, boolean enabled) {
+        setBoolean(properties::setBoolean, ENABLED_KEY, enabled);
+      }
+
+      /** The max time to wait for more syncs, when the previous batch had more than one sync. */
+      String WINDOW_KEY = PREFIX + ".window";
+      TimeDuration WINDOW_DEFAULT = TimeDuration.valueOf(1, TimeUnit.MILLISECONDS);
+      static TimeDuration window(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(WINDOW_DEFAULT.getUnit()),
+            WINDOW_KEY, WINDOW_DEFAULT, getDefaultLog(), requireNonNegativeTimeDuration());
+      }
+      static void setWindow(RaftProperties properties, TimeDuration window) {
+        setTimeDuration(properties::setTimeDuration, WINDOW_KEY, window);
+      }
+
+      String BATCH_SIZE_MAX_KEY = PREFIX + ".batch.size.max";
+      int BATCH_SIZE_MAX_DEFAULT = 256;
+      static int batchSizeMax(RaftProperties properties) {
+        return getInt(properties::getInt, BATCH_SIZE_MAX_KEY, BATCH_SIZE_MAX_DEFAULT, getDefaultLog(),
+            requireMin(1));
+      }
+      static void setBatchSizeMax(RaftProperties properties, int batchSizeMax) {
+        setInt(properties::setInt, BATCH_SIZE_MAX_KEY, batchSizeMax, requireMin(1));
+      }
+
+      /** The max number of threads per volume for running the syncs of a batch concurrently. */
+      String SYNC_THREADS_KEY = PREFIX + ".sync.threads";
+      int SYNC_THREADS_DEFAULT = 8;
+      static int syncThreads(RaftProperties properties) {
+        return getInt(properties::getInt, SYNC_THREADS_KEY, SYNC_THREADS_DEFAULT, getDefaultLog(),
+            requireMin(1));
+      }
+      static void setSyncThreads(RaftProperties properties, int syncThreads) {
+        setInt(properties::setInt, SYNC_THREADS_KEY, syncThreads, requireMin(1));
+      }
+    }
+
+    /** Compress the log data of the state machine log entries written to the segmented raft log. */
+    interface Compression {
+      String PREFIX = Log.PREFIX + ".compression";
+
+      /**
+       * The codec, either NONE, DEFLATE
+       * or the class name of a {@link org.apache.ratis.server.raftlog.LogDataCodec} implementation.
+       */
+      String CODEC_KEY = PREFIX + ".codec";
+      String CODEC_DEFAULT = "NONE";
+      static String codec(RaftProperties properties) {
+        return get(properties::get, CODEC_KEY, CODEC_DEFAULT, getDefaultLog());
+      }
+      static void setCodec(RaftProperties properties, String codec) {
+        set(properties::set, CODEC_KEY, codec);
+      }
+
+      /** The log data smaller than the threshold is not compressed. */
+      String THRESHOLD_KEY = PREFIX + ".threshold";
+      SizeInBytes THRESHOLD_DEFAULT = SizeInBytes.valueOf("4KB");
+      static SizeInBytes threshold(RaftProperties properties) {
+        return getSizeInBytes(properties::getSizeInBytes,
+            THRESHOLD_KEY, THRESHOLD_DEFAULT, getDefaultLog());
+      }
+      static void setThreshold(RaftProperties properties, SizeInBytes threshold) {
+        setSizeInBytes(properties::set, THRESHOLD_KEY, threshold);
+      }
     }
 
     interface Appender {
@@ -654,6 +860,54 @@ public interface RaftServerConfigKeys {
       static void setRetryPolicy(RaftProperties properties, String retryPolicy) {
         properties.set(RETRY_POLICY_KEY, retryPolicy);
       }
+
+      enum ExecutionMode {
+        /** Each appender runs in its own thread. */
+        THREAD,
+
+        /**
+         * The appenders are driven by a shared scheduler.
+         * An appender runs only when it is notified, or when its wait time is expired.
+         * An appender not supporting this mode falls back to {@link #THREAD}.
+         */
+        SCHEDULER
+      }
+
+      String EXECUTION_MODE_KEY = PREFIX + ".execution.mode";
+      ExecutionMode EXECUTION_MODE_DEFAULT = ExecutionMode.THREAD;
+      static ExecutionMode executionMode(RaftProperties properties) {
+        return get(properties::getEnum, EXECUTION_MODE_KEY, EXECUTION_MODE_DEFAULT, getDefaultLog());
+      }
+      static void setExecutionMode(RaftProperties properties, ExecutionMode mode) {
+        set(properties::setEnum, EXECUTION_MODE_KEY, mode);
+      }
+
+      String SCHEDULER_THREADS_KEY = PREFIX + ".scheduler.threads";
+      int SCHEDULER_THREADS_DEFAULT = 4;
+      static int schedulerThreads(RaftProperties properties) {
+        return getInt(properties::getInt, SCHEDULER_THREADS_KEY, SCHEDULER_THREADS_DEFAULT, getDefaultLog(),
+            requireMin(1), requireMax(65536));
+      }
+      static void setSchedulerThreads(RaftProperties properties, int threads) {
+        setInt(properties::setInt, SCHEDULER_THREADS_KEY, threads);
+      }
+    }
+  }
+
+  interface Apply {
+    String PREFIX = RaftServerConfigKeys.PREFIX + ".apply";
+
+    /**
+     * The maximum number of committed entries applied in a batch
+     * when the state machine supports {@link org.apache.ratis.statemachine.StateMachine.BatchApi}.
+     */
+    String BATCH_SIZE_MAX_KEY = PREFIX + ".batch.size.max";
+    int BATCH_SIZE_MAX_DEFAULT = 1024;
+    static int batchSizeMax(RaftProperties properties) {
+      return getInt(properties::getInt, BATCH_SIZE_MAX_KEY, BATCH_SIZE_MAX_DEFAULT, getDefaultLog(), requireMin(1));
+    }
+    static void setBatchSizeMax(RaftProperties properties, int batchSizeMax) {
+      setInt(properties::setInt, BATCH_SIZE_MAX_KEY, batchSizeMax);
     }
   }
 
@@ -894,6 +1148,16 @@ public interface RaftServerConfigKeys {
     static void setStatisticsExpiryTime(RaftProperties properties, TimeDuration expiryTime) {
       setTimeDuration(properties::setTimeDuration, STATISTICS_EXPIRY_TIME_KEY, expiryTime);
     }
+
+    /** Use the striped hash tables with timer wheel expiry instead of the Guava cache? */
+    String STRIPED_ENABLED_KEY = PREFIX + ".striped.enabled";
+    boolean STRIPED_ENABLED_DEFAULT = false;
+    static boolean stripedEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, STRIPED_ENABLED_KEY, STRIPED_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setStripedEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, STRIPED_ENABLED_KEY, enabled);
+    }
   }
 
   interface Notification {
@@ -171,6 +171,26 @@ public interface LogAppender {
   /** Define how this {@link LogAppender} should run. */
   void run() throws InterruptedException, IOException;
 
+  /**
+   * Run a single iteration of this {@link LogAppender}.
+   * It is used, instead of {@link #run()}, when the appenders are driven by a shared scheduler.
+   * Therefore, it must not wait for the events.
+   * <p>
+   * This method is only called when {@link #isRunOnceSupported()} returns true;
+   * the default implementation, which does not support it, does nothing and returns -1.
+   *
+   * @return the time in milliseconds to wait before the next iteration, unless this {@link LogAppender} is notified;
+   *         or a negative value if this {@link LogAppender} is no longer running.
+   */
+  default long runOnce() throws InterruptedException, IOException {
+    return -1;
+  }
+
+  /** Is {@link #runOnce()} supported? */
+  default boolean isRunOnceSupported() {
+    return false;
+  }
+
   /**
    * Get the {@link AwaitForSignal} for events, which can be:
    * (1) new log entries available,
@@ -22,6 +22,8 @@ import org.apache.ratis.proto.RaftProtos.ReadIndexRequestProto;
 import org.apache.ratis.proto.RaftProtos.ReadIndexReplyProto;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesReplyProto;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
+import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
@@ -31,6 +33,19 @@ public interface RaftServerAsynchronousProtocol {
   CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(AppendEntriesRequestProto request)
       throws IOException;
 
+  /**
+   * The same as {@link #appendEntriesAsync(AppendEntriesRequestProto)}
+   * except that the request is reference counted, e.g. it is backed by zero-copy network buffers.
+   * The caller retains the request until the returned future is completed.
+   * The implementation must copy the parts of the request it keeps afterward.
+   * <p>
+   * By default, the request is copied and then passed to {@link #appendEntriesAsync(AppendEntriesRequestProto)}.
+   */
+  default CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(
+      ReferenceCountedObject<AppendEntriesRequestProto> requestRef) throws IOException {
+    return appendEntriesAsync(ProtoUtils.copy(requestRef.get()));
+  }
+
   CompletableFuture<ReadIndexReplyProto> readIndexAsync(ReadIndexRequestProto request)
       throws IOException;
 }
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog;
+
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+import java.io.IOException;
+
+/**
+ * A codec to compress the log data of the state machine log entries in a raft log.
+ * <p>
+ * The codec, i.e. the class name of a custom codec, is recorded in each compressed entry
+ * so that the entry can be decompressed even if the configured codec is changed later.
+ * The implementations must be thread-safe and must have a no-arg constructor.
+ */
+public interface LogDataCodec {
+  /** @return the compressed data. */
+  ByteString compress(ByteString data) throws IOException;
+
+  /** @return the decompressed data, which must have the given size. */
+  ByteString decompress(ByteString compressed, int uncompressedSize) throws IOException;
+}
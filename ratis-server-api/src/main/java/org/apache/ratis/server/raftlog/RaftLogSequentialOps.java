@@ -22,6 +22,8 @@ import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.apache.ratis.util.StringUtils;
 import org.apache.ratis.util.function.CheckedSupplier;
 
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Sequential operations in {@link RaftLog}.
@@ -150,6 +153,18 @@ interface RaftLogSequentialOps {
    */
   List<CompletableFuture<Long>> append(List<LogEntryProto> entries);
 
+  /**
+   * The same as {@link #append(List)}
+   * except that the entries are reference counted, e.g. they are backed by zero-copy network buffers.
+   * The caller retains the entries until the returned futures are completed.
+   * The implementation must copy the entries, or the parts of them, it keeps afterward.
+   * <p>
+   * By default, the entries are copied and then passed to {@link #append(List)}.
+   */
+  default List<CompletableFuture<Long>> append(ReferenceCountedObject<List<LogEntryProto>> entriesRef) {
+    return append(entriesRef.get().stream().map(ProtoUtils::copy).collect(Collectors.toList()));
+  }
+
   /**
    * Truncate asynchronously the log entries till the given index (inclusively).
    * Used by the leader and the followers.
@@ -41,6 +41,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
@@ -296,6 +297,27 @@ public interface StateMachine extends Closeable {
     }
   }
 
+  /**
+   * An optional API for applying committed transactions in batches,
+   * so that the per-transaction overhead can be amortized,
+   * e.g. the state machine may commit a batch to the underlying store in a single write.
+   */
+  interface BatchApi {
+    /**
+     * Apply a batch of committed log entries to the state machine.
+     * The batch contains consecutive log entries, in the log order,
+     * and {@link StateMachine#applyTransactionSerial(TransactionContext)}
+     * has already been called for each of them.
+     * Except for batching, this method has the same semantic as
+     * {@link StateMachine#applyTransaction(TransactionContext)}.
+     *
+     * @param trxs the transactions to be applied.
+     * @return a list of futures, one for each transaction in the same order,
+     *         containing the result messages of the transactions.
+     */
+    List<CompletableFuture<Message>> applyTransactions(List<TransactionContext> trxs);
+  }
+
   /**
    * For write state machine data.
    */
@@ -430,6 +452,21 @@ public interface StateMachine extends Closeable {
     return this instanceof FollowerEventApi? (FollowerEventApi)this : FollowerEventApi.DEFAULT;
   }
 
+  /**
+   * Get the {@link BatchApi} object.
+   *
+   * If this {@link StateMachine} chooses to support the optional {@link BatchApi},
+   * it may either implement {@link BatchApi} directly
+   * or override this method to return an {@link BatchApi} object.
+   * Otherwise, this {@link StateMachine} does not support {@link BatchApi}
+   * and the transactions are applied one by one using {@link #applyTransaction(TransactionContext)}.
+   *
+   * @return The {@link BatchApi} object, or null if it is unsupported.
+   */
+  default BatchApi batch() {
+    return this instanceof BatchApi? (BatchApi)this : null;
+  }
+
   /**
    * Initializes the State Machine with the given parameter.
    * The state machine must, if there is any, read the latest snapshot.
@@ -475,6 +512,28 @@ public interface StateMachine extends Closeable {
   // TODO: refactor this
   long takeSnapshot() throws IOException;
 
+  /**
+   * Take a snapshot asynchronously.
+   * <p>
+   * This method is invoked by the state machine updater after all the applied transactions have completed.
+   * The implementation should capture a consistent point of the state cheaply in this method
+   * and then persist it asynchronously,
+   * so that the subsequent transactions can be applied while the snapshot is being persisted.
+   * The server does not invoke this method again until the returned future is completed.
+   * When the future is completed, the server may purge the log up to the snapshot index.
+   * <p>
+   * The default implementation invokes {@link #takeSnapshot()} synchronously.
+   *
+   * @return a future of the snapshot index; see {@link #takeSnapshot()}.
+   */
+  default CompletableFuture<Long> takeSnapshotAsync() {
+    try {
+      return CompletableFuture.completedFuture(takeSnapshot());
+    } catch (IOException e) {
+      return JavaUtils.completeExceptionally(e);
+    }
+  }
+
   /**
    * @return StateMachineStorage to interact with the durability guarantees provided by the
    * state machine.
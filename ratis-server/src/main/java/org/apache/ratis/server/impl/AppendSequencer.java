@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.impl.RetryCacheImpl.CacheEntry;
+import org.apache.ratis.statemachine.impl.TransactionContextImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Sequence the appends of the client write requests in a leader.
+ * <p>
+ * The write requests are collected in a queue.
+ * The first thread finding the sequencer idle becomes the appender.
+ * It drains a batch from the queue and passes it to the batch appender,
+ * which checks the leader state once and then appends the entire batch under a single lock acquisition.
+ * The other threads return without waiting for the lock.
+ * <p>
+ * In order to bound the latency of the submitting threads,
+ * a submitting thread appends at most one batch.
+ * The remaining requests, if there are any, are handed off to the executor.
+ */
+class AppendSequencer {
+  static final Logger LOG = LoggerFactory.getLogger(AppendSequencer.class);
+
+  /** @return a new sequencer if it is enabled; otherwise, return null. */
+  static AppendSequencer newInstance(Object name, RaftProperties properties, BatchAppender batchAppender,
+      Executor executor) {
+    return RaftServerConfigKeys.Write.Sequencer.enabled(properties)?
+        new AppendSequencer(name, RaftServerConfigKeys.Write.Sequencer.batchSizeMax(properties), batchAppender,
+            executor)
+        : null;
+  }
+
+  /** Append a batch and then return the reply futures in the same order. */
+  interface BatchAppender extends Function<List<Append>, List<CompletableFuture<RaftClientReply>>> {
+  }
+
+  /** A write request to be appended. */
+  static final class Append {
+    private final RaftClientRequest request;
+    private final TransactionContextImpl context;
+    private final CacheEntry cacheEntry;
+    private final LeaderStateImpl unsyncedLeaderState;
+    private final PendingRequests.Permit unsyncedPermit;
+    private final CompletableFuture<RaftClientReply> future = new CompletableFuture<>();
+
+    Append(RaftClientRequest request, TransactionContextImpl context, CacheEntry cacheEntry,
+        LeaderStateImpl unsyncedLeaderState, PendingRequests.Permit unsyncedPermit) {
+      this.request = request;
+      this.context = context;
+      this.cacheEntry = cacheEntry;
+      this.unsyncedLeaderState = unsyncedLeaderState;
+      this.unsyncedPermit = unsyncedPermit;
+    }
+
+    RaftClientRequest getRequest() {
+      return request;
+    }
+
+    TransactionContextImpl getContext() {
+      return context;
+    }
+
+    CacheEntry getCacheEntry() {
+      return cacheEntry;
+    }
+
+    LeaderStateImpl getUnsyncedLeaderState() {
+      return unsyncedLeaderState;
+    }
+
+    PendingRequests.Permit getUnsyncedPermit() {
+      return unsyncedPermit;
+    }
+
+    CompletableFuture<RaftClientReply> getFuture() {
+      return future;
+    }
+
+    /** Complete this append with the given reply future. */
+    void complete(CompletableFuture<RaftClientReply> reply) {
+      reply.whenComplete((r, e) -> {
+        if (e != null) {
+          future.completeExceptionally(e);
+        } else {
+          future.complete(r);
+        }
+      });
+    }
+  }
+
+  private final String name;
+  private final int batchSizeMax;
+  private final BatchAppender batchAppender;
+  /** For appending the requests handed off by the submitting threads. */
+  private final Executor executor;
+  private final Queue<Append> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean appending = new AtomicBoolean();
+
+  AppendSequencer(Object name, int batchSizeMax, BatchAppender batchAppender, Executor executor) {
+    this.name = name + "-" + getClass().getSimpleName();
+    this.batchSizeMax = batchSizeMax;
+    this.batchAppender = batchAppender;
+    this.executor = executor;
+    LOG.info("{}: batchSizeMax={}", this.name, batchSizeMax);
+  }
+
+  /** Submit the given append; it will be appended by the current appender thread, if there is any. */
+  CompletableFuture<RaftClientReply> submit(Append append) {
+    queue.offer(append);
+    drain();
+    return append.getFuture();
+  }
+
+  private void drain() {
+    drain(true);
+  }
+
+  /**
+   * Append the requests in the queue.
+   *
+   * @param handOff Should it append at most one batch and then hand off the remaining requests to the executor?
+   */
+  private void drain(boolean handOff) {
+    // check the queue again after releasing the appender role; otherwise, an append may be left in the queue.
+    while (!queue.isEmpty() && appending.compareAndSet(false, true)) {
+      boolean appended = false;
+      try {
+        for (List<Append> batch; !(batch = pollBatch()).isEmpty(); ) {
+          appendBatch(batch);
+          appended = true;
+          if (handOff) {
+            break;
+          }
+        }
+      } finally {
+        appending.set(false);
+      }
+
+      if (handOff && appended) {
+        if (!queue.isEmpty()) {
+          handOff();
+        }
+        return;
+      }
+    }
+  }
+
+  private void handOff() {
+    try {
+      executor.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      LOG.debug("{}: Failed to hand off, append in the current thread", name, e);
+      drain(false);
+    }
+  }
+
+  private List<Append> pollBatch() {
+    final List<Append> batch = new ArrayList<>(Math.min(batchSizeMax, 16));
+    for (Append a; batch.size() < batchSizeMax && (a = queue.poll()) != null; ) {
+      batch.add(a);
+    }
+    return batch;
+  }
+
+  private void appendBatch(List<Append> batch) {
+    LOG.debug("{}: append a batch of {}", name, batch.size());
+    try {
+      final List<CompletableFuture<RaftClientReply>> replies = batchAppender.apply(batch);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).complete(replies.get(i));
+      }
+    } catch (Throwable t) {
+      LOG.error("{}: Failed to append a batch of {}", name, batch.size(), t);
+      for (Append a : batch) {
+        a.getFuture().completeExceptionally(t);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
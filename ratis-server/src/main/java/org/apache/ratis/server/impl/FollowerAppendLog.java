@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.impl.ServerImplUtils.ConsecutiveIndices;
+import org.apache.ratis.server.impl.ServerImplUtils.NavigableIndices;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ReferenceCountedObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * The log append pipeline of a follower.
+ * <p>
+ * The appends are chained in the order of the appendEntries requests.
+ * A request waiting for the previous appends, or for a role change such as shutting down the leader state,
+ * is chained to them instead of blocking the rpc thread.
+ * <p>
+ * When an append fails, e.g. its role change failed, all the appends chained after it also fail
+ * since their entries would otherwise leave a gap in the log.
+ * The term-indices being appended are cleared and the {@link #getGeneration() generation} is incremented,
+ * so that the requests checked against the failed entries are rejected.
+ */
+class FollowerAppendLog {
+  private final Supplier<RaftLog> log;
+  private final Executor executor;
+  /** The future of the last append; guarded by this object. */
+  private CompletableFuture<Void> appendLogFuture = CompletableFuture.completedFuture(null);
+  /** The term-indices of the entries which are being appended. */
+  private final NavigableIndices appendLogTermIndices = new NavigableIndices();
+  /** The number of the failures of the appends; guarded by this object. */
+  private long generation = 0;
+
+  FollowerAppendLog(Supplier<RaftLog> log, Executor executor) {
+    this.log = log;
+    this.executor = executor;
+  }
+
+  /** @return the current generation, which must be obtained before checking {@link #contains(TermIndex)}. */
+  synchronized long getGeneration() {
+    return generation;
+  }
+
+  /** @return true if the given term-index is being appended. */
+  boolean contains(TermIndex ti) {
+    return appendLogTermIndices.contains(ti);
+  }
+
+  /**
+   * Append the given entries after the given role change and all the previous appends are completed.
+   *
+   * @param requestRef the zero-copy request containing the entries, or null if the entries are not zero-copy.
+   * @param generation the generation obtained before the request was checked against {@link #contains(TermIndex)}.
+   * @return a future of the append, or the role change future if there are no entries or the role change failed.
+   *         The future fails if the role change or any previous append fails,
+   *         or if any append has failed since the given generation.
+   */
+  synchronized CompletableFuture<Void> append(List<LogEntryProto> entries, ReferenceCountedObject<?> requestRef,
+      CompletableFuture<Void> roleChange, long generation) {
+    if (roleChange.isCompletedExceptionally()) {
+      return roleChange;
+    } else if (generation != this.generation) {
+      // the request might have been checked against the entries of a failed append
+      return JavaUtils.completeExceptionally(new IOException("Rejected since an append has failed: generation "
+          + generation + " != current " + this.generation));
+    } else if (entries.isEmpty()) {
+      return roleChange;
+    }
+    final List<ConsecutiveIndices> entriesTermIndices = ConsecutiveIndices.convert(entries);
+    if (!appendLogTermIndices.append(entriesTermIndices)) {
+      // index already exists, return the last future
+      return appendLogFuture;
+    }
+
+    final CompletableFuture<Void> previous = appendLogFuture;
+    final CompletableFuture<Void> appended = new CompletableFuture<>();
+    appendLogFuture = appended;
+    // A failure of the role change or the previous append fails this append.
+    (roleChange.isDone()? previous : previous.thenCombine(roleChange.exceptionally(e -> null), (a, b) -> a))
+        .thenComposeAsync(ignored -> roleChange.isCompletedExceptionally()? roleChange
+            : JavaUtils.allOf(appendLog(entries, requestRef)), executor)
+        .whenComplete((v, e) -> onAppendCompleted(appended, entriesTermIndices, generation, e));
+    return appended;
+  }
+
+  private void onAppendCompleted(CompletableFuture<Void> appended, List<ConsecutiveIndices> entriesTermIndices,
+      long appendGeneration, Throwable e) {
+    synchronized (this) {
+      if (appendGeneration != generation) {
+        // the term-indices were cleared by the first failure of the generation
+        Preconditions.assertNotNull(e, "e");
+      } else if (e == null) {
+        appendLogTermIndices.removeExisting(entriesTermIndices);
+      } else {
+        // the first failure of the generation: the appends chained after this will also fail.
+        generation++;
+        appendLogTermIndices.clear();
+        appendLogFuture = CompletableFuture.completedFuture(null);
+      }
+    }
+
+    if (e != null) {
+      appended.completeExceptionally(e);
+    } else {
+      appended.complete(null);
+    }
+  }
+
+  private List<CompletableFuture<Long>> appendLog(List<LogEntryProto> entries, ReferenceCountedObject<?> requestRef) {
+    if (requestRef == null) {
+      return log.get().append(entries);
+    }
+    // retain the request until the entries are written
+    final ReferenceCountedObject<List<LogEntryProto>> entriesRef
+        = ReferenceCountedObject.wrap(entries, requestRef::retain, requestRef::release);
+    entriesRef.retain();
+    final List<CompletableFuture<Long>> futures;
+    try {
+      futures = log.get().append(entriesRef);
+    } catch (RuntimeException e) {
+      entriesRef.release();
+      throw e;
+    }
+    JavaUtils.allOf(futures).whenComplete((v, e) -> entriesRef.release());
+    return futures;
+  }
+}
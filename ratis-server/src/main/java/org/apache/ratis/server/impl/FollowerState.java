@@ -34,7 +34,7 @@ import java.util.function.ToIntFunction;
 /**
  * Used when the peer is a follower. Used to track the election timeout.
  */
-class FollowerState extends Daemon {
+class FollowerState implements Runnable {
   enum UpdateType {
     APPEND_START(AtomicInteger::incrementAndGet),
     APPEND_COMPLETE(AtomicInteger::decrementAndGet),
@@ -56,6 +56,8 @@ class FollowerState extends Daemon {
 
   static final Logger LOG = LoggerFactory.getLogger(FollowerState.class);
 
+  private final String name;
+  private final Thread thread;
   private final Object reason;
   private final RaftServerImpl server;
 
@@ -67,13 +69,17 @@ class FollowerState extends Daemon {
   private final AtomicInteger outstandingOp = new AtomicInteger();
 
   FollowerState(RaftServerImpl server, Object reason) {
-    super(newBuilder()
-        .setName(ServerStringUtils.generateUnifiedName(server.getMemberId(), FollowerState.class))
-        .setThreadGroup(server.getThreadGroup()));
+    this.name = ServerStringUtils.generateUnifiedName(server.getMemberId(), FollowerState.class);
+    this.thread = Daemon.newBuilder().setName(name).setRunnable(this)
+        .setThreadGroup(server.getThreadGroup()).setVirtual(server.isVirtualThreadsEnabled()).buildThread();
     this.server = server;
     this.reason = reason;
   }
 
+  void start() {
+    thread.start();
+  }
+
   void updateLastRpcTime(UpdateType type) {
     lastRpcTime = Timestamp.currentTime();
 
@@ -97,7 +103,7 @@ class FollowerState extends Daemon {
 
   CompletableFuture<Void> stopRunning() {
     this.isRunning = false;
-    interrupt();
+    thread.interrupt();
     return stopped;
   }
 
@@ -179,6 +185,6 @@ class FollowerState extends Daemon {
 
   @Override
   public String toString() {
-    return getName();
+    return name;
   }
 }
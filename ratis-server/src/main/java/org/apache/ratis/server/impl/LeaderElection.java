@@ -107,6 +107,10 @@ class LeaderElection implements Runnable {
     TimeDuration getRandomElectionTimeout();
     ThreadGroup getThreadGroup();
 
+    default boolean isVirtualThreadsEnabled() {
+      return false;
+    }
+
     static ServerInterface get(RaftServerImpl server) {
       final boolean preVote = RaftServerConfigKeys.LeaderElection.preVote(server.getRaftServer().getProperties());
 
@@ -191,6 +195,11 @@ class LeaderElection implements Runnable {
         public ThreadGroup getThreadGroup() {
           return server.getThreadGroup();
         }
+
+        @Override
+        public boolean isVirtualThreadsEnabled() {
+          return server.isVirtualThreadsEnabled();
+        }
       };
     }
   }
@@ -252,10 +261,10 @@ class LeaderElection implements Runnable {
 
     private final AtomicInteger count = new AtomicInteger();
 
-    Executor(Object name, int size) {
+    Executor(Object name, int size, boolean virtual) {
       Preconditions.assertTrue(size > 0);
-      executor = Executors.newFixedThreadPool(size, r ->
-          Daemon.newBuilder().setName(name + "-" + count.incrementAndGet()).setRunnable(r).build());
+      executor = Executors.newFixedThreadPool(size, r -> Daemon.newBuilder()
+          .setName(name + "-" + count.incrementAndGet()).setRunnable(r).setVirtual(virtual).buildThread());
       service = new ExecutorCompletionService<>(executor);
     }
 
@@ -299,7 +308,7 @@ class LeaderElection implements Runnable {
 
   private final String name;
   private final LifeCycle lifeCycle;
-  private final Daemon daemon;
+  private final Thread daemon;
   private final CompletableFuture<Void> stopped = new CompletableFuture<>();
 
   private final ServerInterface server;
@@ -314,7 +323,7 @@ class LeaderElection implements Runnable {
     this.name = ServerStringUtils.generateUnifiedName(server.getMemberId(), getClass()) + COUNT.incrementAndGet();
     this.lifeCycle = new LifeCycle(this);
     this.daemon = Daemon.newBuilder().setName(name).setRunnable(this)
-        .setThreadGroup(server.getThreadGroup()).build();
+        .setThreadGroup(server.getThreadGroup()).setVirtual(server.isVirtualThreadsEnabled()).buildThread();
     this.server = server;
     this.skipPreVote = force || !server.isPreVoteEnabled();
     try {
@@ -418,7 +427,7 @@ class LeaderElection implements Runnable {
       r = new ResultAndTerm(Result.PASSED, electionTerm);
     } else {
       final TermIndex lastEntry = server.getLastEntry();
-      final Executor voteExecutor = new Executor(this, others.size());
+      final Executor voteExecutor = new Executor(this, others.size(), server.isVirtualThreadsEnabled());
       try {
         final int submitted = submitRequests(phase, electionTerm, lastEntry, others, voteExecutor);
         r = waitForResults(phase, electionTerm, submitted, conf, voteExecutor);
@@ -747,11 +747,18 @@ class LeaderStateImpl implements LeaderState {
    * The processor thread takes the responsibility to update the raft server's
    * state, such as changing to follower, or updating the committed index.
    */
-  private class EventProcessor extends Daemon {
-    public EventProcessor(String name, RaftServerImpl server) {
-      super(Daemon.newBuilder()
-          .setName(name).setThreadGroup(server.getThreadGroup()));
+  private class EventProcessor implements Runnable {
+    private final Thread thread;
+
+    EventProcessor(String name, RaftServerImpl server) {
+      this.thread = Daemon.newBuilder().setName(name).setRunnable(this)
+          .setThreadGroup(server.getThreadGroup()).setVirtual(server.isVirtualThreadsEnabled()).buildThread();
+    }
+
+    void start() {
+      thread.start();
     }
+
     @Override
     public void run() {
       // apply an empty message; check if necessary to replicate (new) conf
@@ -1032,7 +1039,7 @@ class LeaderStateImpl implements LeaderState {
     notifySenders();
   }
 
-  private long[] getSorted(List<FollowerInfo> followerInfos, boolean includeSelf,
+  static long[] getSorted(List<FollowerInfo> followerInfos, boolean includeSelf,
       ToLongFunction<FollowerInfo> getFollowerIndex, LongSupplier getLogIndex) {
     final int length = includeSelf ? followerInfos.size() + 1 : followerInfos.size();
     if (length == 0) {
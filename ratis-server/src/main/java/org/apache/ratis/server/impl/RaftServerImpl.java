@@ -81,11 +81,10 @@ import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.RaftServerRpc;
 import org.apache.ratis.server.impl.LeaderElection.Phase;
 import org.apache.ratis.server.impl.RetryCacheImpl.CacheEntry;
-import org.apache.ratis.server.impl.ServerImplUtils.ConsecutiveIndices;
-import org.apache.ratis.server.impl.ServerImplUtils.NavigableIndices;
 import org.apache.ratis.server.leader.LeaderState;
 import org.apache.ratis.server.metrics.LeaderElectionMetrics;
 import org.apache.ratis.server.metrics.RaftServerMetricsImpl;
+import org.apache.ratis.server.metrics.RaftServerMetricsImpl.FollowerAppendStage;
 import org.apache.ratis.server.protocol.RaftServerAsynchronousProtocol;
 import org.apache.ratis.server.protocol.RaftServerProtocol;
 import org.apache.ratis.server.protocol.TermIndex;
@@ -111,6 +110,7 @@ import org.apache.ratis.util.LifeCycle.State;
 import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.function.CheckedSupplier;
 
@@ -119,6 +119,7 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -128,15 +129,11 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.apache.ratis.server.impl.ServerImplUtils.assertEntries;
@@ -236,6 +233,8 @@ class RaftServerImpl implements RaftServer.Division,
   private final RetryCacheImpl retryCache;
   private final CommitInfoCache commitInfoCache = new CommitInfoCache();
   private final WriteIndexCache writeIndexCache;
+  /** Sequence the appends of the write requests; null if it is disabled. */
+  private final AppendSequencer appendSequencer;
 
   private final RaftServerJmxAdapter jmxAdapter = new RaftServerJmxAdapter(this);
   private final LeaderElectionMetrics leaderElectionMetrics;
@@ -258,9 +257,9 @@ class RaftServerImpl implements RaftServer.Division,
 
   private final AtomicBoolean firstElectionSinceStartup = new AtomicBoolean(true);
   private final ThreadGroup threadGroup;
+  private final boolean virtualThreadsEnabled;
 
-  private final AtomicReference<CompletableFuture<Void>> appendLogFuture;
-  private final NavigableIndices appendLogTermIndices = new NavigableIndices();
+  private final FollowerAppendLog followerAppendLog;
 
   RaftServerImpl(RaftGroup group, StateMachine stateMachine, RaftServerProxy proxy, RaftStorage.StartupOption option)
       throws IOException {
@@ -275,6 +274,7 @@ class RaftServerImpl implements RaftServer.Division,
     this.leaderStepDownWaitTime = RaftServerConfigKeys.LeaderElection.leaderStepDownWaitTime(properties);
     this.memberMajorityAddEnabled = RaftServerConfigKeys.LeaderElection.memberMajorityAdd(properties);
     this.sleepDeviationThreshold = RaftServerConfigKeys.sleepDeviationThreshold(properties);
+    this.virtualThreadsEnabled = RaftServerConfigKeys.ThreadPool.virtualThreadsEnabled(properties);
     this.proxy = proxy;
 
     this.state = new ServerState(id, group, stateMachine, this, option, properties);
@@ -295,16 +295,18 @@ class RaftServerImpl implements RaftServer.Division,
     this.transferLeadership = new TransferLeadership(this, properties);
     this.snapshotRequestHandler = new SnapshotManagementRequestHandler(this);
     this.snapshotInstallationHandler = new SnapshotInstallationHandler(this, properties);
-    this.appendLogFuture = new AtomicReference<>(CompletableFuture.completedFuture(null));
 
     this.serverExecutor = ConcurrentUtils.newThreadPoolWithMax(
         RaftServerConfigKeys.ThreadPool.serverCached(properties),
         RaftServerConfigKeys.ThreadPool.serverSize(properties),
-        id + "-server");
+        id + "-server", virtualThreadsEnabled);
+    this.followerAppendLog = new FollowerAppendLog(state::getLog, serverExecutor);
     this.clientExecutor = ConcurrentUtils.newThreadPoolWithMax(
         RaftServerConfigKeys.ThreadPool.clientCached(properties),
         RaftServerConfigKeys.ThreadPool.clientSize(properties),
-        id + "-client");
+        id + "-client", virtualThreadsEnabled);
+    this.appendSequencer = AppendSequencer.newInstance(getMemberId(), properties, this::appendTransactions,
+        clientExecutor);
   }
 
   private long getCommitIndex(RaftPeerId id) {
@@ -350,6 +352,11 @@ class RaftServerImpl implements RaftServer.Division,
     return threadGroup;
   }
 
+  /** @return should the division threads be virtual threads? */
+  boolean isVirtualThreadsEnabled() {
+    return virtualThreadsEnabled;
+  }
+
   @Override
   public StateMachine getStateMachine() {
     return stateMachine;
@@ -677,25 +684,7 @@ class RaftServerImpl implements RaftServer.Division,
   }
 
   LogInfoProto getLogInfo(){
-    final RaftLog log = getRaftLog();
-    LogInfoProto.Builder logInfoBuilder = LogInfoProto.newBuilder();
-    final TermIndex applied = getStateMachine().getLastAppliedTermIndex();
-    if (applied != null) {
-      logInfoBuilder.setApplied(applied.toProto());
-    }
-    final TermIndex committed = log.getTermIndex(log.getLastCommittedIndex());
-    if (committed != null) {
-      logInfoBuilder.setCommitted(committed.toProto());
-    }
-    final TermIndex entry = log.getLastEntryTermIndex();
-    if (entry != null) {
-      logInfoBuilder.setLastEntry(entry.toProto());
-    }
-    final SnapshotInfo snapshot = getStateMachine().getLatestSnapshot();
-    if (snapshot != null) {
-      logInfoBuilder.setLastSnapshot(snapshot.getTermIndex().toProto());
-    }
-    return logInfoBuilder.build();
+    return ServerImplUtils.toLogInfoProto(getRaftLog(), getStateMachine());
   }
 
   RoleInfoProto getRoleInfoProto() {
@@ -764,28 +753,38 @@ class RaftServerImpl implements RaftServer.Division,
    * @return null if the server is in leader state.
    */
   private CompletableFuture<RaftClientReply> checkLeaderState(RaftClientRequest request, CacheEntry entry) {
+    final RaftException exception = getLeaderStateException(request.isReadOnly());
+    return exception == null? null: failWithLeaderStateException(request, entry, exception);
+  }
+
+  /**
+   * @return null if the server is in leader state;
+   *         otherwise, return the exception for the requests of the given kind.
+   */
+  private RaftException getLeaderStateException(boolean readOnly) {
     if (!getInfo().isLeader()) {
-      NotLeaderException exception = generateNotLeaderException();
-      final RaftClientReply reply = newExceptionReply(request, exception);
-      return RetryCacheImpl.failWithReply(reply, entry);
+      return generateNotLeaderException();
     }
     if (!getInfo().isLeaderReady()) {
+      return new LeaderNotReadyException(getMemberId());
+    }
+    if (!readOnly && isSteppingDown()) {
+      return new LeaderSteppingDownException(getMemberId() + " is stepping down");
+    }
+    return null;
+  }
+
+  /** Fail the given request with the exception returned by {@link #getLeaderStateException(boolean)}. */
+  private CompletableFuture<RaftClientReply> failWithLeaderStateException(RaftClientRequest request,
+      CacheEntry entry, RaftException exception) {
+    if (exception instanceof LeaderNotReadyException) {
       final CacheEntry cacheEntry = retryCache.getIfPresent(ClientInvocationId.valueOf(request));
       if (cacheEntry != null && cacheEntry.isCompletedNormally()) {
         return cacheEntry.getReplyFuture();
       }
-      final LeaderNotReadyException lnre = new LeaderNotReadyException(getMemberId());
-      final RaftClientReply reply = newExceptionReply(request, lnre);
-      return RetryCacheImpl.failWithReply(reply, entry);
     }
-
-    if (!request.isReadOnly() && isSteppingDown()) {
-      final LeaderSteppingDownException lsde = new LeaderSteppingDownException(getMemberId() + " is stepping down");
-      final RaftClientReply reply = newExceptionReply(request, lsde);
-      return RetryCacheImpl.failWithReply(reply, entry);
-    }
-
-    return null;
+    final RaftClientReply reply = newExceptionReply(request, exception);
+    return RetryCacheImpl.failWithReply(reply, entry);
   }
 
   NotLeaderException generateNotLeaderException() {
@@ -833,45 +832,65 @@ class RaftServerImpl implements RaftServer.Division,
       return getResourceUnavailableReply(request, cacheEntry);
     }
 
+    final AppendSequencer.Append append = new AppendSequencer.Append(
+        request, context, cacheEntry, unsyncedLeaderState, unsyncedPermit);
+    return appendSequencer != null? appendSequencer.submit(append)
+        : appendTransactions(Collections.singletonList(append)).get(0);
+  }
+
+  /** Append a batch of requests and check the leader state only once; return the replies in the same order. */
+  private List<CompletableFuture<RaftClientReply>> appendTransactions(List<AppendSequencer.Append> batch) {
+    final List<CompletableFuture<RaftClientReply>> replies = new ArrayList<>(batch.size());
     final LeaderStateImpl leaderState;
-    final PendingRequest pending;
     synchronized (this) {
-      final CompletableFuture<RaftClientReply> reply = checkLeaderState(request, cacheEntry);
-      if (reply != null) {
-        return reply;
+      // all the requests in the batch are write requests
+      final RaftException exception = getLeaderStateException(false);
+      leaderState = role.getLeaderState().orElse(null);
+      for (AppendSequencer.Append a : batch) {
+        replies.add(exception != null? failWithLeaderStateException(a.getRequest(), a.getCacheEntry(), exception)
+            : appendTransaction(a, leaderState));
       }
+    }
+    if (leaderState != null) {
+      leaderState.notifySenders();
+    }
+    return replies;
+  }
 
-      leaderState = role.getLeaderStateNonNull();
-      final PendingRequests.Permit permit = leaderState == unsyncedLeaderState? unsyncedPermit
-          : leaderState.tryAcquirePendingRequest(request.getMessage());
-      if (permit == null) {
-        return getResourceUnavailableReply(request, cacheEntry);
-      }
+  /** Append the request to the log; the caller must hold the lock and have checked the leader state. */
+  private CompletableFuture<RaftClientReply> appendTransaction(AppendSequencer.Append append,
+      LeaderStateImpl leaderState) {
+    final RaftClientRequest request = append.getRequest();
+    final TransactionContextImpl context = append.getContext();
+    final CacheEntry cacheEntry = append.getCacheEntry();
+    final PendingRequests.Permit permit = leaderState == append.getUnsyncedLeaderState()? append.getUnsyncedPermit()
+        : leaderState.tryAcquirePendingRequest(request.getMessage());
+    if (permit == null) {
+      return getResourceUnavailableReply(request, cacheEntry);
+    }
 
-      // append the message to its local log
-      writeIndexCache.add(request.getClientId(), context.getLogIndexFuture());
-      try {
-        state.appendLog(context);
-      } catch (StateMachineException e) {
-        // the StateMachineException is thrown by the SM in the preAppend stage.
-        // Return the exception in a RaftClientReply.
-        RaftClientReply exceptionReply = newExceptionReply(request, e);
-        cacheEntry.failWithReply(exceptionReply);
-        // leader will step down here
-        if (e.leaderShouldStepDown() && getInfo().isLeader()) {
-          leaderState.submitStepDownEvent(LeaderState.StepDownReason.STATE_MACHINE_EXCEPTION);
-        }
-        return CompletableFuture.completedFuture(exceptionReply);
+    // append the message to its local log
+    writeIndexCache.add(request.getClientId(), context.getLogIndexFuture());
+    try {
+      state.appendLog(context);
+    } catch (StateMachineException e) {
+      // the StateMachineException is thrown by the SM in the preAppend stage.
+      // Return the exception in a RaftClientReply.
+      RaftClientReply exceptionReply = newExceptionReply(request, e);
+      cacheEntry.failWithReply(exceptionReply);
+      // leader will step down here
+      if (e.leaderShouldStepDown() && getInfo().isLeader()) {
+        leaderState.submitStepDownEvent(LeaderState.StepDownReason.STATE_MACHINE_EXCEPTION);
       }
+      return CompletableFuture.completedFuture(exceptionReply);
+    }
 
-      // put the request into the pending queue
-      pending = leaderState.addPendingRequest(permit, request, context);
-      if (pending == null) {
-        return cacheEntry.failWithException(new ResourceUnavailableException(
-            getMemberId() + ": Failed to add a pending write request for " + request));
-      }
+    // put the request into the pending queue
+    final PendingRequest pending = leaderState.addPendingRequest(permit, request, context);
+    if (pending == null) {
+      return cacheEntry.failWithException(new ResourceUnavailableException(
+          getMemberId() + ": Failed to add a pending write request for " + request));
     }
-    leaderState.notifySenders();
     return pending.getFuture();
   }
 
@@ -932,14 +951,35 @@ class RaftServerImpl implements RaftServer.Division,
         clientExecutor).join();
   }
 
+  CompletableFuture<RaftClientReply> executeSubmitClientRequestAsync(
+      ReferenceCountedObject<RaftClientRequest> requestRef) {
+    return CompletableFuture.supplyAsync(
+        () -> JavaUtils.callAsUnchecked(() -> submitClientRequestAsync(requestRef), CompletionException::new),
+        clientExecutor).join();
+  }
+
   @Override
   public CompletableFuture<RaftClientReply> submitClientRequestAsync(
       RaftClientRequest request) throws IOException {
+    return submitClientRequestAsync(request, null);
+  }
+
+  @Override
+  public CompletableFuture<RaftClientReply> submitClientRequestAsync(
+      ReferenceCountedObject<RaftClientRequest> requestRef) throws IOException {
+    final RaftClientRequest request = requestRef.get();
+    // the leader keeps the message stream requests until the end of the stream, so copy them.
+    return request.is(TypeCase.MESSAGESTREAM)? submitClientRequestAsync(RaftClientRequest.copy(request))
+        : submitClientRequestAsync(request, requestRef);
+  }
+
+  private CompletableFuture<RaftClientReply> submitClientRequestAsync(RaftClientRequest request,
+      ReferenceCountedObject<RaftClientRequest> requestRef) throws IOException {
     assertLifeCycleState(LifeCycle.States.RUNNING);
     LOG.debug("{}: receive client request({})", getMemberId(), request);
     final Timekeeper timer = raftServerMetrics.getClientRequestTimer(request.getType());
     final Optional<Timekeeper.Context> timerContext = Optional.ofNullable(timer).map(Timekeeper::time);
-    return replyFuture(request).whenComplete((clientReply, exception) -> {
+    return replyFuture(request, requestRef).whenComplete((clientReply, exception) -> {
       timerContext.ifPresent(Timekeeper.Context::stop);
       if (exception != null || clientReply.getException() != null) {
         raftServerMetrics.incFailedRequestCount(request.getType());
@@ -947,7 +987,8 @@ class RaftServerImpl implements RaftServer.Division,
     });
   }
 
-  private CompletableFuture<RaftClientReply> replyFuture(RaftClientRequest request) throws IOException {
+  private CompletableFuture<RaftClientReply> replyFuture(RaftClientRequest request,
+      ReferenceCountedObject<RaftClientRequest> requestRef) throws IOException {
     retryCache.invalidateRepliedRequests(request);
 
     final TypeCase type = request.getType().getTypeCase();
@@ -962,14 +1003,15 @@ class RaftServerImpl implements RaftServer.Division,
         return messageStreamAsync(request);
       case WRITE:
       case FORWARD:
-        return writeAsync(request);
+        return writeAsync(request, requestRef);
       default:
         throw new IllegalStateException("Unexpected request type: " + type + ", request=" + request);
     }
   }
 
-  private CompletableFuture<RaftClientReply> writeAsync(RaftClientRequest request) throws IOException {
-    final CompletableFuture<RaftClientReply> future = writeAsyncImpl(request);
+  private CompletableFuture<RaftClientReply> writeAsync(RaftClientRequest request,
+      ReferenceCountedObject<RaftClientRequest> requestRef) throws IOException {
+    final CompletableFuture<RaftClientReply> future = writeAsyncImpl(request, requestRef);
     if (request.is(TypeCase.WRITE)) {
       // check replication
       final ReplicationLevel replication = request.getType().getWrite().getReplication();
@@ -980,7 +1022,8 @@ class RaftServerImpl implements RaftServer.Division,
     return future;
   }
 
-  private CompletableFuture<RaftClientReply> writeAsyncImpl(RaftClientRequest request) throws IOException {
+  private CompletableFuture<RaftClientReply> writeAsyncImpl(RaftClientRequest request,
+      ReferenceCountedObject<RaftClientRequest> requestRef) throws IOException {
     final CompletableFuture<RaftClientReply> reply = checkLeaderState(request);
     if (reply != null) {
       return reply;
@@ -1004,6 +1047,7 @@ class RaftServerImpl implements RaftServer.Division,
       cacheEntry.failWithReply(exceptionReply);
       return CompletableFuture.completedFuture(exceptionReply);
     }
+    context.setRequestRef(requestRef);
 
     return appendTransaction(request, context, cacheEntry);
   }
@@ -1119,7 +1163,7 @@ class RaftServerImpl implements RaftServer.Division,
         return f.thenApply(r -> null);
       }
       // the message stream has ended and the request become a WRITE request
-      return replyFuture(f.join());
+      return replyFuture(f.join(), null);
     }
 
     return role.getLeaderState()
@@ -1158,34 +1202,7 @@ class RaftServerImpl implements RaftServer.Division,
 
   RaftClientReply waitForReply(RaftClientRequest request, CompletableFuture<RaftClientReply> future)
       throws IOException {
-    return waitForReply(getMemberId(), request, future, e -> newExceptionReply(request, e));
-  }
-
-  static <REPLY extends RaftClientReply> REPLY waitForReply(
-      Object id, RaftClientRequest request, CompletableFuture<REPLY> future,
-      Function<RaftException, REPLY> exceptionReply)
-      throws IOException {
-    try {
-      return future.get();
-    } catch (InterruptedException e) {
-      final String s = id + ": Interrupted when waiting for reply, request=" + request;
-      LOG.info(s, e);
-      Thread.currentThread().interrupt();
-      throw IOUtils.toInterruptedIOException(s, e);
-    } catch (ExecutionException e) {
-      final Throwable cause = e.getCause();
-      if (cause == null) {
-        throw new IOException(e);
-      }
-      if (cause instanceof NotLeaderException ||
-          cause instanceof StateMachineException) {
-        final REPLY reply = exceptionReply.apply((RaftException) cause);
-        if (reply != null) {
-          return reply;
-        }
-      }
-      throw IOUtils.asIOException(cause);
-    }
+    return ServerImplUtils.waitForReply(getMemberId(), request, future, e -> newExceptionReply(request, e));
   }
 
   RaftClientReply transferLeadership(TransferLeadershipRequest request) throws IOException {
@@ -1347,8 +1364,8 @@ class RaftServerImpl implements RaftServer.Division,
       final List<RaftPeer> serversInNewConf;
       final List<RaftPeer> listenersInNewConf;
       if (arguments.getMode() == SetConfigurationRequest.Mode.ADD) {
-        serversInNewConf = add(RaftPeerRole.FOLLOWER, current, arguments);
-        listenersInNewConf = add(RaftPeerRole.LISTENER, current, arguments);
+        serversInNewConf = ServerImplUtils.add(RaftPeerRole.FOLLOWER, current, arguments);
+        listenersInNewConf = ServerImplUtils.add(RaftPeerRole.LISTENER, current, arguments);
       } else if (arguments.getMode() == SetConfigurationRequest.Mode.COMPARE_AND_SET) {
         final Comparator<RaftPeer> comparator = Comparator.comparing(RaftPeer::getId,
             Comparator.comparing(RaftPeerId::toString));
@@ -1389,16 +1406,6 @@ class RaftServerImpl implements RaftServer.Division,
     return pending.getFuture();
   }
 
-  static List<RaftPeer> add(RaftPeerRole role, RaftConfigurationImpl conf, SetConfigurationRequest.Arguments args) {
-    final Map<RaftPeerId, RaftPeer> inConfs = conf.getAllPeers(role).stream()
-        .collect(Collectors.toMap(RaftPeer::getId, Function.identity()));
-
-    final List<RaftPeer> toAdds = args.getPeersInNewConf(role);
-    toAdds.stream().map(RaftPeer::getId).forEach(inConfs::remove);
-
-    return Stream.concat(toAdds.stream(), inConfs.values().stream()).collect(Collectors.toList());
-  }
-
   /**
    * The remote peer should shut down if all the following are true.
    * 1. this is the current leader
@@ -1487,6 +1494,17 @@ class RaftServerImpl implements RaftServer.Division,
   @Override
   public CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(AppendEntriesRequestProto r)
       throws IOException {
+    return appendEntriesAsync(r, null);
+  }
+
+  @Override
+  public CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(
+      ReferenceCountedObject<AppendEntriesRequestProto> requestRef) throws IOException {
+    return appendEntriesAsync(requestRef.get(), requestRef);
+  }
+
+  private CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(AppendEntriesRequestProto r,
+      ReferenceCountedObject<AppendEntriesRequestProto> requestRef) throws IOException {
     final RaftRpcRequestProto request = r.getServerRequest();
     final TermIndex previous = r.hasPreviousLog()? TermIndex.valueOf(r.getPreviousLog()) : null;
     try {
@@ -1502,7 +1520,7 @@ class RaftServerImpl implements RaftServer.Division,
       assertGroup(getMemberId(), leaderId, leaderGroupId);
       assertEntries(r, previous, state);
 
-      return appendEntriesAsync(leaderId, request.getCallId(), previous, r);
+      return appendEntriesAsync(leaderId, request.getCallId(), previous, r, requestRef);
     } catch(Exception t) {
       LOG.error("{}: Failed appendEntries* {}", getMemberId(),
           toAppendEntriesRequestString(r, stateMachine::toStateMachineLogEntryString), t);
@@ -1557,7 +1575,7 @@ class RaftServerImpl implements RaftServer.Division,
   }
 
   private CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(RaftPeerId leaderId, long callId,
-      TermIndex previous, AppendEntriesRequestProto proto) throws IOException {
+      TermIndex previous, AppendEntriesRequestProto proto, ReferenceCountedObject<?> requestRef) throws IOException {
     final List<LogEntryProto> entries = proto.getEntriesList();
     final boolean isHeartbeat = entries.isEmpty();
     logAppendEntries(isHeartbeat, () -> getMemberId() + ": appendEntries* "
@@ -1568,51 +1586,76 @@ class RaftServerImpl implements RaftServer.Division,
     final long followerCommit = state.getLog().getLastCommittedIndex();
     final Optional<FollowerState> followerState;
     final Timekeeper.Context timer = raftServerMetrics.getFollowerAppendEntryTimer(isHeartbeat).time();
+    final Timekeeper.Context validateTimer
+        = raftServerMetrics.getFollowerAppendEntryTimer(FollowerAppendStage.VALIDATE).time();
     final CompletableFuture<Void> future;
-    synchronized (this) {
-      // Check life cycle state again to avoid the PAUSING/PAUSED state.
-      assertLifeCycleState(LifeCycle.States.STARTING_OR_RUNNING);
-      currentTerm = state.getCurrentTerm();
-      final boolean recognized = state.recognizeLeader(Op.APPEND_ENTRIES, leaderId, leaderTerm);
-      if (!recognized) {
-        return CompletableFuture.completedFuture(toAppendEntriesReplyProto(
-            leaderId, getMemberId(), currentTerm, followerCommit, state.getNextIndex(),
-            AppendResult.NOT_LEADER, callId, RaftLog.INVALID_LOG_INDEX, isHeartbeat));
-      }
-      try {
-        future = changeToFollowerAndPersistMetadata(leaderTerm, true, "appendEntries");
-      } catch (IOException e) {
-        return JavaUtils.completeExceptionally(e);
-      }
-      state.setLeader(leaderId, "appendEntries");
-
-      if (!proto.getInitializing() && lifeCycle.compareAndTransition(State.STARTING, State.RUNNING)) {
-        role.startFollowerState(this, Op.APPEND_ENTRIES);
-      }
+    final long appendGeneration;
+    final long inconsistencyReplyNextIndex;
+    if (lifeCycle.getCurrentState() == State.RUNNING && state.isFollowerOf(leaderId, leaderTerm)
+        && entries.stream().noneMatch(LogEntryProto::hasConfigurationEntry)) {
+      // Fast path: already a follower of this leader in this term; no role change required.
+      currentTerm = leaderTerm;
+      future = CompletableFuture.completedFuture(null);
       followerState = updateLastRpcTime(FollowerState.UpdateType.APPEND_START);
-
-      // Check that the append entries are not inconsistent. There are 3
-      // scenarios which can result in inconsistency:
-      //      1. There is a snapshot installation in progress
-      //      2. There is an overlap between the snapshot index and the entries
-      //      3. There is a gap between the local log and the entries
-      // In any of these scenarios, we should return an INCONSISTENCY reply
-      // back to leader so that the leader can update this follower's next index.
-      final long inconsistencyReplyNextIndex = checkInconsistentAppendEntries(previous, entries);
-      if (inconsistencyReplyNextIndex > RaftLog.INVALID_LOG_INDEX) {
-        final AppendEntriesReplyProto reply = toAppendEntriesReplyProto(
-            leaderId, getMemberId(), currentTerm, followerCommit, inconsistencyReplyNextIndex,
-            AppendResult.INCONSISTENCY, callId, RaftLog.INVALID_LOG_INDEX, isHeartbeat);
-        LOG.info("{}: appendEntries* reply {}", getMemberId(), toAppendEntriesReplyString(reply));
-        followerState.ifPresent(fs -> fs.updateLastRpcTime(FollowerState.UpdateType.APPEND_COMPLETE));
-        return future.thenApply(dummy -> reply);
+      // The check and the update are still under the lock as in the slow path, since they must be atomic
+      // with respect to a concurrent snapshot installation or configuration change.
+      synchronized (this) {
+        appendGeneration = followerAppendLog.getGeneration();
+        inconsistencyReplyNextIndex = checkInconsistentAppendEntries(previous, entries);
+        if (inconsistencyReplyNextIndex == RaftLog.INVALID_LOG_INDEX) {
+          state.updateConfiguration(entries);
+        }
       }
+    } else {
+      synchronized (this) {
+        // Check life cycle state again to avoid the PAUSING/PAUSED state.
+        assertLifeCycleState(LifeCycle.States.STARTING_OR_RUNNING);
+        currentTerm = state.getCurrentTerm();
+        final boolean recognized = state.recognizeLeader(Op.APPEND_ENTRIES, leaderId, leaderTerm);
+        if (!recognized) {
+          return CompletableFuture.completedFuture(toAppendEntriesReplyProto(
+              leaderId, getMemberId(), currentTerm, followerCommit, state.getNextIndex(),
+              AppendResult.NOT_LEADER, callId, RaftLog.INVALID_LOG_INDEX, isHeartbeat));
+        }
+        try {
+          future = changeToFollowerAndPersistMetadata(leaderTerm, true, "appendEntries");
+        } catch (IOException e) {
+          return JavaUtils.completeExceptionally(e);
+        }
+        state.setLeader(leaderId, "appendEntries");
 
-      state.updateConfiguration(entries);
+        if (!proto.getInitializing() && lifeCycle.compareAndTransition(State.STARTING, State.RUNNING)) {
+          role.startFollowerState(this, Op.APPEND_ENTRIES);
+        }
+        followerState = updateLastRpcTime(FollowerState.UpdateType.APPEND_START);
+        appendGeneration = followerAppendLog.getGeneration();
+        inconsistencyReplyNextIndex = checkInconsistentAppendEntries(previous, entries);
+        if (inconsistencyReplyNextIndex == RaftLog.INVALID_LOG_INDEX) {
+          state.updateConfiguration(entries);
+        }
+      }
+    }
+    validateTimer.stop();
+
+    // Check that the append entries are not inconsistent. There are 3
+    // scenarios which can result in inconsistency:
+    //      1. There is a snapshot installation in progress
+    //      2. There is an overlap between the snapshot index and the entries
+    //      3. There is a gap between the local log and the entries
+    // In any of these scenarios, we should return an INCONSISTENCY reply
+    // back to leader so that the leader can update this follower's next index.
+    if (inconsistencyReplyNextIndex > RaftLog.INVALID_LOG_INDEX) {
+      final AppendEntriesReplyProto reply = toAppendEntriesReplyProto(
+          leaderId, getMemberId(), currentTerm, followerCommit, inconsistencyReplyNextIndex,
+          AppendResult.INCONSISTENCY, callId, RaftLog.INVALID_LOG_INDEX, isHeartbeat);
+      LOG.info("{}: appendEntries* reply {}", getMemberId(), toAppendEntriesReplyString(reply));
+      followerState.ifPresent(fs -> fs.updateLastRpcTime(FollowerState.UpdateType.APPEND_COMPLETE));
+      return future.thenApply(dummy -> reply);
     }
-    future.join();
-    final CompletableFuture<Void> appendLog = entries.isEmpty()? CompletableFuture.completedFuture(null)
-        : appendLog(entries);
+
+    // the log append is chained to the role change future instead of waiting for it.
+    final Timekeeper.Context logTimer = raftServerMetrics.getFollowerAppendEntryTimer(FollowerAppendStage.LOG).time();
+    final CompletableFuture<Void> appendLog = followerAppendLog.append(entries, requestRef, future, appendGeneration);
 
     proto.getCommitInfosList().forEach(commitInfoCache::update);
 
@@ -1628,9 +1671,12 @@ class RaftServerImpl implements RaftServer.Division,
     final long commitIndex = effectiveCommitIndex(proto.getLeaderCommit(), previous, entries.size());
     final long matchIndex = isHeartbeat? RaftLog.INVALID_LOG_INDEX: entries.get(entries.size() - 1).getIndex();
     return appendLog.whenCompleteAsync((r, t) -> {
+      logTimer.stop();
       followerState.ifPresent(fs -> fs.updateLastRpcTime(FollowerState.UpdateType.APPEND_COMPLETE));
       timer.stop();
     }, getServerExecutor()).thenApply(v -> {
+      final Timekeeper.Context commitTimer
+          = raftServerMetrics.getFollowerAppendEntryTimer(FollowerAppendStage.COMMIT).time();
       final boolean updated = state.updateCommitIndex(commitIndex, currentTerm, false);
       if (updated) {
         updateCommitInfoCache();
@@ -1641,21 +1687,10 @@ class RaftServerImpl implements RaftServer.Division,
           nextIndex, AppendResult.SUCCESS, callId, matchIndex, isHeartbeat);
       logAppendEntries(isHeartbeat, () -> getMemberId()
           + ": appendEntries* reply " + toAppendEntriesReplyString(reply));
+      commitTimer.stop();
       return reply;
     });
   }
-  private CompletableFuture<Void> appendLog(List<LogEntryProto> entries) {
-    final List<ConsecutiveIndices> entriesTermIndices = ConsecutiveIndices.convert(entries);
-    if (!appendLogTermIndices.append(entriesTermIndices)) {
-      // index already exists, return the last future
-      return appendLogFuture.get();
-    }
-
-
-    return appendLogFuture.updateAndGet(f -> f.thenComposeAsync(
-            ignored -> JavaUtils.allOf(state.getLog().append(entries)), serverExecutor))
-        .whenComplete((v, e) -> appendLogTermIndices.removeExisting(entriesTermIndices));
-  }
 
   private long checkInconsistentAppendEntries(TermIndex previous, List<LogEntryProto> entries) {
     // Check if a snapshot installation through state machine is in progress.
@@ -1681,7 +1716,7 @@ class RaftServerImpl implements RaftServer.Division,
     }
 
     // Check if "previous" is contained in current state.
-    if (previous != null && !(appendLogTermIndices.contains(previous) || state.containsTermIndex(previous))) {
+    if (previous != null && !(followerAppendLog.contains(previous) || state.containsTermIndex(previous))) {
       final long replyNextIndex = Math.min(state.getNextIndex(), previous.getIndex());
       LOG.info("{}: Failed appendEntries as previous log entry ({}) is not found", getMemberId(), previous);
       return replyNextIndex;
@@ -1859,20 +1894,16 @@ class RaftServerImpl implements RaftServer.Division,
       role.getLeaderState().ifPresent(leader -> leader.checkReady(next));
       break;
     case STATEMACHINELOGENTRY:
-      TransactionContext trx = getTransactionContext(next, true);
-      Objects.requireNonNull(trx, "trx == null");
-      final ClientInvocationId invocationId = ClientInvocationId.valueOf(next.getStateMachineLogEntry());
-      writeIndexCache.add(invocationId.getClientId(), ((TransactionContextImpl) trx).getLogIndexFuture());
-
+      final TransactionContext trx = getTransactionContextToApply(next);
+      final CompletableFuture<Message> stateMachineFuture;
       try {
-        // Let the StateMachine inject logic for committed transactions in sequential order.
-        trx = stateMachine.applyTransactionSerial(trx);
-
-        final CompletableFuture<Message> stateMachineFuture = stateMachine.applyTransaction(trx);
-        messageFuture = replyPendingRequest(invocationId, TermIndex.valueOf(next), stateMachineFuture);
+        stateMachineFuture = stateMachine.applyTransaction(applyTransactionSerial(next, trx));
       } catch (Exception e) {
+        TransactionContextImpl.releaseRequest(trx);
         throw new RaftLogIOException(e);
       }
+      messageFuture = replyPendingRequest(next,
+          stateMachineFuture.whenComplete((m, e) -> TransactionContextImpl.releaseRequest(trx)));
       break;
     case METADATAENTRY:
       break;
@@ -1886,6 +1917,68 @@ class RaftServerImpl implements RaftServer.Division,
     return messageFuture;
   }
 
+  /**
+   * Apply a batch of consecutive committed state machine log entries using the {@link StateMachine.BatchApi}.
+   *
+   * @return a list of futures, one for each entry in the same order.
+   */
+  List<CompletableFuture<Message>> applyLogsToStateMachine(StateMachine.BatchApi batchApi,
+      List<LogEntryProto> entries) throws RaftLogIOException {
+    final List<TransactionContext> retained = new ArrayList<>(entries.size());
+    final List<CompletableFuture<Message>> stateMachineFutures;
+    try {
+      final List<TransactionContext> trxs = new ArrayList<>(entries.size());
+      for (LogEntryProto next : entries) {
+        Preconditions.assertTrue(next.hasStateMachineLogEntry(), () -> "Not a state machine entry: " + next);
+        final TransactionContext trx = getTransactionContextToApply(next);
+        retained.add(trx);
+        trxs.add(applyTransactionSerial(next, trx));
+      }
+      stateMachineFutures = batchApi.applyTransactions(trxs);
+      Preconditions.assertSame(entries.size(), stateMachineFutures.size(), "stateMachineFutures.size()");
+    } catch (Exception e) {
+      retained.forEach(TransactionContextImpl::releaseRequest);
+      throw new RaftLogIOException(e);
+    }
+
+    final List<CompletableFuture<Message>> messageFutures = new ArrayList<>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      final TransactionContext trx = retained.get(i);
+      messageFutures.add(replyPendingRequest(entries.get(i),
+          stateMachineFutures.get(i).whenComplete((m, e) -> TransactionContextImpl.releaseRequest(trx))));
+    }
+    return messageFutures;
+  }
+
+  /**
+   * @return the transaction to apply the given entry.
+   *         If it has a zero-copy client request, the request is retained and must be released after applied.
+   */
+  private TransactionContext getTransactionContextToApply(LogEntryProto next) {
+    final TransactionContext trx = getTransactionContext(next, true);
+    Objects.requireNonNull(trx, "trx == null");
+    if (TransactionContextImpl.retainRequest(trx)) {
+      return trx;
+    }
+    // The request has been released, e.g. the leader has stepped down and replied to the client.
+    return stateMachine.startTransaction(next, getInfo().getCurrentRole());
+  }
+
+  private TransactionContext applyTransactionSerial(LogEntryProto next, TransactionContext trx)
+      throws InvalidProtocolBufferException {
+    final ClientInvocationId invocationId = ClientInvocationId.valueOf(next.getStateMachineLogEntry());
+    writeIndexCache.add(invocationId.getClientId(), ((TransactionContextImpl) trx).getLogIndexFuture());
+
+    // Let the StateMachine inject logic for committed transactions in sequential order.
+    return stateMachine.applyTransactionSerial(trx);
+  }
+
+  private CompletableFuture<Message> replyPendingRequest(LogEntryProto next,
+      CompletableFuture<Message> stateMachineFuture) {
+    final ClientInvocationId invocationId = ClientInvocationId.valueOf(next.getStateMachineLogEntry());
+    return replyPendingRequest(invocationId, TermIndex.valueOf(next), stateMachineFuture);
+  }
+
   /**
    * The given log entry is being truncated.
    * Fail the corresponding client request, if there is any.
@@ -40,6 +40,9 @@ import org.apache.ratis.rpc.RpcType;
 import org.apache.ratis.server.DataStreamServerRpc;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.ServerFactory;
+import org.apache.ratis.server.leader.LogAppenderScheduler;
+import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogCacheManager;
+import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogSyncCoordinator;
 import org.apache.ratis.server.storage.RaftStorage.StartupOption;
 import org.apache.ratis.util.ConcurrentUtils;
 import org.apache.ratis.util.JvmPauseMonitor;
@@ -52,6 +55,7 @@ import org.apache.ratis.util.LifeCycle;
 import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.apache.ratis.util.TimeDuration;
 
 import java.io.Closeable;
@@ -201,6 +205,14 @@ class RaftServerProxy implements RaftServer {
   private final ImplMap impls = new ImplMap();
   private final MemoizedSupplier<ExecutorService> implExecutor;
   private final MemoizedSupplier<ExecutorService> executor;
+  /** For group commit; the value is null if it is disabled. */
+  private final SegmentedRaftLogSyncCoordinator logSyncCoordinator;
+  /** The shared pool for the log workers; the value is null if it is disabled. */
+  private final ExecutorService logWorkerPool;
+  /** For the server-wide cache budget; the value is null if it is disabled. */
+  private final SegmentedRaftLogCacheManager logCacheManager;
+  /** Is the shared {@link LogAppenderScheduler} acquired? */
+  private final boolean logAppenderSchedulerAcquired;
 
   private final JvmPauseMonitor pauseMonitor;
   private final ThreadGroup threadGroup;
@@ -226,6 +238,11 @@ class RaftServerProxy implements RaftServer {
         RaftServerConfigKeys.ThreadPool.proxyCached(properties),
         RaftServerConfigKeys.ThreadPool.proxySize(properties),
         id + "-impl"));
+    this.logSyncCoordinator = SegmentedRaftLogSyncCoordinator.newInstance(this.id, properties);
+    final int logWorkerPoolSize = RaftServerConfigKeys.Log.workerPoolSize(properties);
+    this.logWorkerPool = logWorkerPoolSize == 0? null
+        : ConcurrentUtils.newThreadPoolWithMax(false, logWorkerPoolSize, this.id + "-logWorker");
+    this.logCacheManager = SegmentedRaftLogCacheManager.newInstance(this.id, properties);
 
     final TimeDuration sleepDeviationThreshold = RaftServerConfigKeys.sleepDeviationThreshold(properties);
     final TimeDuration closeThreshold = RaftServerConfigKeys.closeThreshold(properties);
@@ -235,6 +252,7 @@ class RaftServerProxy implements RaftServer {
         .setHandler(extraSleep -> handleJvmPause(extraSleep, closeThreshold, leaderStepDownWaitTime))
         .build();
     this.threadGroup = threadGroup == null ? new ThreadGroup(this.id.toString()) : threadGroup;
+    this.logAppenderSchedulerAcquired = LogAppenderScheduler.acquire(this.id, properties);
   }
 
   private void handleJvmPause(TimeDuration extraSleep, TimeDuration closeThreshold, TimeDuration stepDownThreshold)
@@ -397,6 +415,21 @@ class RaftServerProxy implements RaftServer {
     return lifeCycle.getCurrentState();
   }
 
+  /** @return the coordinator for group commit, or null if it is disabled. */
+  SegmentedRaftLogSyncCoordinator getLogSyncCoordinator() {
+    return logSyncCoordinator;
+  }
+
+  /** @return the shared pool for the log workers, or null if it is disabled. */
+  ExecutorService getLogWorkerPool() {
+    return logWorkerPool;
+  }
+
+  /** @return the manager for the server-wide cache budget, or null if it is disabled. */
+  SegmentedRaftLogCacheManager getLogCacheManager() {
+    return logCacheManager;
+  }
+
   ThreadGroup getThreadGroup() {
     return threadGroup;
   }
@@ -428,6 +461,9 @@ class RaftServerProxy implements RaftServer {
       }
 
       impls.close();
+      if (logAppenderSchedulerAcquired) {
+        LogAppenderScheduler.release(getId());
+      }
 
       try {
         getServerRpc().close();
@@ -446,6 +482,16 @@ class RaftServerProxy implements RaftServer {
       } catch (Exception ignored) {
         LOG.warn(getId() + ": Failed to shutdown executor", ignored);
       }
+
+      Optional.ofNullable(logSyncCoordinator).ifPresent(SegmentedRaftLogSyncCoordinator::close);
+      Optional.ofNullable(logCacheManager).ifPresent(SegmentedRaftLogCacheManager::close);
+      if (logWorkerPool != null) {
+        try {
+          ConcurrentUtils.shutdownAndWait(logWorkerPool);
+        } catch (Exception ignored) {
+          LOG.warn(getId() + ": Failed to shutdown logWorkerPool", ignored);
+        }
+      }
     });
     pauseMonitor.stop();
   }
@@ -456,6 +502,14 @@ class RaftServerProxy implements RaftServer {
         .thenCompose(impl -> impl.executeSubmitClientRequestAsync(request));
   }
 
+  @Override
+  public CompletableFuture<RaftClientReply> submitClientRequestAsync(
+      ReferenceCountedObject<RaftClientRequest> requestRef) {
+    final RaftClientRequest request = requestRef.get();
+    return getImplFuture(request.getRaftGroupId())
+        .thenCompose(impl -> impl.executeSubmitClientRequestAsync(requestRef));
+  }
+
   @Override
   public RaftClientReply submitClientRequest(RaftClientRequest request)
       throws IOException {
@@ -476,7 +530,7 @@ class RaftServerProxy implements RaftServer {
 
   @Override
   public RaftClientReply groupManagement(GroupManagementRequest request) throws IOException {
-    return RaftServerImpl.waitForReply(getId(), request, groupManagementAsync(request),
+    return ServerImplUtils.waitForReply(getId(), request, groupManagementAsync(request),
         e -> RaftClientReply.newBuilder()
             .setRequest(request)
             .setException(e)
@@ -555,7 +609,7 @@ class RaftServerProxy implements RaftServer {
 
   @Override
   public RaftClientReply snapshotManagement(SnapshotManagementRequest request) throws IOException {
-    return RaftServerImpl.waitForReply(getId(), request, snapshotManagementAsync(request),
+    return ServerImplUtils.waitForReply(getId(), request, snapshotManagementAsync(request),
           e -> RaftClientReply.newBuilder()
                 .setRequest(request)
                 .setException(e)
@@ -584,7 +638,7 @@ class RaftServerProxy implements RaftServer {
 
   @Override
   public RaftClientReply leaderElectionManagement(LeaderElectionManagementRequest request) throws IOException {
-    return RaftServerImpl.waitForReply(getId(), request, leaderElectionManagementAsync(request),
+    return ServerImplUtils.waitForReply(getId(), request, leaderElectionManagementAsync(request),
         e -> RaftClientReply.newBuilder()
             .setRequest(request)
             .setException(e)
@@ -610,7 +664,7 @@ class RaftServerProxy implements RaftServer {
 
   @Override
   public GroupInfoReply getGroupInfo(GroupInfoRequest request) throws IOException {
-    return RaftServerImpl.waitForReply(getId(), request, getGroupInfoAsync(request), r -> null);
+    return ServerImplUtils.waitForReply(getId(), request, getGroupInfoAsync(request), r -> null);
   }
 
   @Override
@@ -652,6 +706,15 @@ class RaftServerProxy implements RaftServer {
             () -> impl.appendEntriesAsync(request), CompletionException::new));
   }
 
+  @Override
+  public CompletableFuture<AppendEntriesReplyProto> appendEntriesAsync(
+      ReferenceCountedObject<AppendEntriesRequestProto> requestRef) {
+    final RaftGroupId groupId = ProtoUtils.toRaftGroupId(requestRef.get().getServerRequest().getRaftGroupId());
+    return getImplFuture(groupId)
+        .thenCompose(impl -> JavaUtils.callAsUnchecked(
+            () -> impl.appendEntriesAsync(requestRef), CompletionException::new));
+  }
+
   @Override
   public CompletableFuture<ReadIndexReplyProto> readIndexAsync(ReadIndexRequestProto request) throws IOException {
     final RaftGroupId groupId = ProtoUtils.toRaftGroupId(request.getServerRequest().getRaftGroupId());
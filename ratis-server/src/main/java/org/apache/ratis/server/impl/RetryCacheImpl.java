@@ -29,7 +29,6 @@ import org.apache.ratis.thirdparty.com.google.common.cache.CacheBuilder;
 import org.apache.ratis.thirdparty.com.google.common.cache.CacheStats;
 import org.apache.ratis.util.CollectionUtils;
 import org.apache.ratis.util.JavaUtils;
-import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.Timestamp;
 
@@ -37,11 +36,13 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
 
 class RetryCacheImpl implements RetryCache {
   static class CacheEntry implements Entry {
-    private final ClientInvocationId key;
+    private final ClientId clientId;
+    private final long callId;
+    /** Created lazily since it is only required by {@link GuavaStore}. */
+    private ClientInvocationId key;
     private final CompletableFuture<RaftClientReply> replyFuture = new CompletableFuture<>();
 
     /**
@@ -53,13 +54,24 @@ class RetryCacheImpl implements RetryCache {
      */
     private volatile boolean failed = false;
 
+    /** The timer wheel tick when this entry is put to a {@link StripedRetryCacheStore}. */
+    private long writeTick;
+    /** The position in its timer wheel bucket; -1 if it is not in a bucket. */
+    private int wheelPosition = -1;
+
     CacheEntry(ClientInvocationId key) {
+      this(key.getClientId(), key.getLongId());
       this.key = key;
     }
 
+    CacheEntry(ClientId clientId, long callId) {
+      this.clientId = clientId;
+      this.callId = callId;
+    }
+
     @Override
     public String toString() {
-      return key + ":" + (isDone() ? "done" : "pending");
+      return getKey() + ":" + (isDone() ? "done" : "pending");
     }
 
     boolean isDone() {
@@ -97,8 +109,35 @@ class RetryCacheImpl implements RetryCache {
 
     @Override
     public ClientInvocationId getKey() {
+      if (key == null) {
+        key = ClientInvocationId.valueOf(clientId, callId);
+      }
       return key;
     }
+
+    ClientId getClientId() {
+      return clientId;
+    }
+
+    long getCallId() {
+      return callId;
+    }
+
+    long getWriteTick() {
+      return writeTick;
+    }
+
+    void setWriteTick(long writeTick) {
+      this.writeTick = writeTick;
+    }
+
+    int getWheelPosition() {
+      return wheelPosition;
+    }
+
+    void setWheelPosition(int wheelPosition) {
+      this.wheelPosition = wheelPosition;
+    }
   }
 
   static class CacheQueryResult {
@@ -119,14 +158,98 @@ class RetryCacheImpl implements RetryCache {
     }
   }
 
+  /** The storage of the {@link CacheEntry}s. */
+  interface Store {
+    /** @return the entry with the given key if it exists; otherwise, return null.  It is counted as a hit or a miss. */
+    CacheEntry getIfPresent(ClientInvocationId key);
+
+    /**
+     * Put the given entry if there is no entry with the same key.  It is counted as a hit or a miss.
+     *
+     * @return the existing entry if it exists; otherwise, return the given entry.
+     */
+    CacheEntry putIfAbsent(CacheEntry entry);
+
+    /** Put the given entry in order to replace the existing entry with the same key, if there is any. */
+    void put(CacheEntry entry);
+
+    /** Remove the entries with the given client id and call ids. */
+    void invalidate(ClientId clientId, Iterable<Long> callIds);
+
+    void invalidateAll();
+
+    long size();
+
+    long hitCount();
+
+    long missCount();
+  }
+
+  /** A {@link Store} backed by a Guava {@link Cache}. */
+  static class GuavaStore implements Store {
+    private final Cache<ClientInvocationId, CacheEntry> cache;
+
+    GuavaStore(TimeDuration cacheExpiryTime) {
+      this.cache = CacheBuilder.newBuilder()
+          .recordStats()
+          .expireAfterWrite(cacheExpiryTime.getDuration(), cacheExpiryTime.getUnit())
+          .build();
+    }
+
+    @Override
+    public CacheEntry getIfPresent(ClientInvocationId key) {
+      return cache.getIfPresent(key);
+    }
+
+    @Override
+    public CacheEntry putIfAbsent(CacheEntry entry) {
+      final ClientInvocationId key = entry.getKey();
+      try {
+        return cache.get(key, () -> entry);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to get " + key, e);
+      }
+    }
+
+    @Override
+    public void put(CacheEntry entry) {
+      cache.put(entry.getKey(), entry);
+    }
+
+    @Override
+    public void invalidate(ClientId clientId, Iterable<Long> callIds) {
+      cache.invalidateAll(CollectionUtils.as(callIds, callId -> ClientInvocationId.valueOf(clientId, callId)));
+    }
+
+    @Override
+    public void invalidateAll() {
+      cache.invalidateAll();
+    }
+
+    @Override
+    public long size() {
+      return cache.size();
+    }
+
+    @Override
+    public long hitCount() {
+      return cache.stats().hitCount();
+    }
+
+    @Override
+    public long missCount() {
+      return cache.stats().missCount();
+    }
+  }
+
   class StatisticsImpl implements Statistics {
     private final long size;
     private final CacheStats cacheStats;
     private final Timestamp creation = Timestamp.currentTime();
 
-    StatisticsImpl(Cache<?, ?> cache) {
-      this.size = cache.size();
-      this.cacheStats = cache.stats();
+    StatisticsImpl(Store store) {
+      this.size = store.size();
+      this.cacheStats = new CacheStats(store.hitCount(), store.missCount(), 0, 0, 0, 0);
     }
 
     boolean isExpired() {
@@ -164,14 +287,13 @@ class RetryCacheImpl implements RetryCache {
     }
   }
 
-  private final Cache<ClientInvocationId, CacheEntry> cache;
+  private final Store store;
   /** Cache statistics to reduce the number of expensive statistics computations. */
   private final AtomicReference<StatisticsImpl> statistics = new AtomicReference<>();
   private final TimeDuration statisticsExpiryTime;
 
   RetryCacheImpl(RaftProperties properties) {
-    this(RaftServerConfigKeys.RetryCache.expiryTime(properties),
-         RaftServerConfigKeys.RetryCache.statisticsExpiryTime(properties));
+    this(newStore(properties), RaftServerConfigKeys.RetryCache.statisticsExpiryTime(properties));
   }
 
   /**
@@ -179,35 +301,33 @@ class RetryCacheImpl implements RetryCache {
    * @param statisticsExpiryTime time for a {@link RetryCache.Statistics} object to expire.
    */
   RetryCacheImpl(TimeDuration cacheExpiryTime, TimeDuration statisticsExpiryTime) {
-    this.cache = CacheBuilder.newBuilder()
-        .recordStats()
-        .expireAfterWrite(cacheExpiryTime.getDuration(), cacheExpiryTime.getUnit())
-        .build();
+    this(new GuavaStore(cacheExpiryTime), statisticsExpiryTime);
+  }
+
+  RetryCacheImpl(Store store, TimeDuration statisticsExpiryTime) {
+    this.store = store;
     this.statisticsExpiryTime = statisticsExpiryTime;
   }
 
-  CacheEntry getOrCreateEntry(ClientInvocationId key) {
-    return getOrCreateEntry(key, () -> new CacheEntry(key));
+  static Store newStore(RaftProperties properties) {
+    final TimeDuration expiryTime = RaftServerConfigKeys.RetryCache.expiryTime(properties);
+    return RaftServerConfigKeys.RetryCache.stripedEnabled(properties)?
+        new StripedRetryCacheStore(expiryTime): new GuavaStore(expiryTime);
   }
 
-  private CacheEntry getOrCreateEntry(ClientInvocationId key, Supplier<CacheEntry> constructor) {
-    try {
-      return cache.get(key, constructor::get);
-    } catch (ExecutionException e) {
-      throw new IllegalStateException("Failed to get " + key, e);
-    }
+  CacheEntry getOrCreateEntry(ClientInvocationId key) {
+    return store.putIfAbsent(new CacheEntry(key));
   }
 
   CacheEntry refreshEntry(CacheEntry newEntry) {
-    cache.put(newEntry.getKey(), newEntry);
+    store.put(newEntry);
     return newEntry;
   }
 
   CacheQueryResult queryCache(RaftClientRequest request) {
-    final ClientInvocationId key = ClientInvocationId.valueOf(request);
-    final MemoizedSupplier<CacheEntry> newEntry = MemoizedSupplier.valueOf(() -> new CacheEntry(key));
-    final CacheEntry cacheEntry = getOrCreateEntry(key, newEntry);
-    if (newEntry.isInitialized()) {
+    final CacheEntry newEntry = new CacheEntry(request.getClientId(), request.getCallId());
+    final CacheEntry cacheEntry = store.putIfAbsent(newEntry);
+    if (cacheEntry == newEntry) {
       // this is the entry we just newly created
       return new CacheQueryResult(cacheEntry, false);
     } else if (!cacheEntry.isDone() || !cacheEntry.isFailed()){
@@ -220,11 +340,11 @@ class RetryCacheImpl implements RetryCache {
       // need to recheck, since there may be other retry attempts being
       // processed at the same time. The recheck+replacement should be protected
       // by lock.
-      final CacheEntry currentEntry = cache.getIfPresent(key);
+      final CacheEntry currentEntry = store.getIfPresent(cacheEntry.getKey());
       if (currentEntry == cacheEntry || currentEntry == null) {
         // if the failed entry has not got replaced by another retry, or the
         // failed entry got invalidated, we add a new cache entry
-        return new CacheQueryResult(refreshEntry(newEntry.get()), false);
+        return new CacheQueryResult(refreshEntry(newEntry), false);
       } else {
         return new CacheQueryResult(currentEntry, true);
       }
@@ -239,22 +359,22 @@ class RetryCacheImpl implements RetryCache {
     }
 
     LOG.debug("invalidateRepliedRequests callIds {} for {}", callIds, clientId);
-    cache.invalidateAll(CollectionUtils.as(callIds, callId -> ClientInvocationId.valueOf(clientId, callId)));
+    store.invalidate(clientId, callIds);
   }
 
   @Override
   public Statistics getStatistics() {
-    return statistics.updateAndGet(old -> old == null || old.isExpired()? new StatisticsImpl(cache): old);
+    return statistics.updateAndGet(old -> old == null || old.isExpired()? new StatisticsImpl(store): old);
   }
 
   @Override
   public CacheEntry getIfPresent(ClientInvocationId key) {
-    return cache.getIfPresent(key);
+    return store.getIfPresent(key);
   }
 
   @Override
   public synchronized void close() {
-    cache.invalidateAll();
+    store.invalidateAll();
     statistics.set(null);
   }
 
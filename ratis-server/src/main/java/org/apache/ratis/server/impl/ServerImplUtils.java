@@ -21,18 +21,26 @@ import org.apache.ratis.conf.Parameters;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.LogInfoProto;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
+import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.protocol.RaftGroup;
 import org.apache.ratis.protocol.RaftGroupId;
 import org.apache.ratis.protocol.RaftGroupMemberId;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.SetConfigurationRequest;
 import org.apache.ratis.protocol.exceptions.GroupMismatchException;
+import org.apache.ratis.protocol.exceptions.NotLeaderException;
+import org.apache.ratis.protocol.exceptions.RaftException;
+import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.protocol.TermIndex;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.statemachine.SnapshotInfo;
 import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
@@ -47,7 +55,12 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /** Server utilities for internal use. */
 public final class ServerImplUtils {
@@ -159,6 +172,10 @@ public final class ServerImplUtils {
         Preconditions.assertSame(indices, removed, "removed");
       }
     }
+
+    synchronized void clear() {
+      map.clear();
+    }
   }
 
   private ServerImplUtils() {
@@ -208,6 +225,43 @@ public final class ServerImplUtils {
     return b.build();
   }
 
+  static List<RaftPeer> add(RaftPeerRole role, RaftConfigurationImpl conf, SetConfigurationRequest.Arguments args) {
+    final Map<RaftPeerId, RaftPeer> inConfs = conf.getAllPeers(role).stream()
+        .collect(Collectors.toMap(RaftPeer::getId, Function.identity()));
+
+    final List<RaftPeer> toAdds = args.getPeersInNewConf(role);
+    toAdds.stream().map(RaftPeer::getId).forEach(inConfs::remove);
+
+    return Stream.concat(toAdds.stream(), inConfs.values().stream()).collect(Collectors.toList());
+  }
+
+  static <REPLY extends RaftClientReply> REPLY waitForReply(
+      Object id, RaftClientRequest request, CompletableFuture<REPLY> future,
+      Function<RaftException, REPLY> exceptionReply)
+      throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      final String s = id + ": Interrupted when waiting for reply, request=" + request;
+      RaftServer.LOG.info(s, e);
+      Thread.currentThread().interrupt();
+      throw IOUtils.toInterruptedIOException(s, e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause == null) {
+        throw new IOException(e);
+      }
+      if (cause instanceof NotLeaderException ||
+          cause instanceof StateMachineException) {
+        final REPLY reply = exceptionReply.apply((RaftException) cause);
+        if (reply != null) {
+          return reply;
+        }
+      }
+      throw IOUtils.asIOException(cause);
+    }
+  }
+
   static long effectiveCommitIndex(long leaderCommitIndex, TermIndex followerPrevious, int numAppendEntries) {
     final long previous = followerPrevious != null? followerPrevious.getIndex() : RaftLog.LEAST_VALID_LOG_INDEX;
     return Math.min(leaderCommitIndex, previous + numAppendEntries);
@@ -256,4 +310,25 @@ public final class ServerImplUtils {
       }
     }
   }
+
+  static LogInfoProto toLogInfoProto(RaftLog log, StateMachine stateMachine) {
+    final LogInfoProto.Builder logInfoBuilder = LogInfoProto.newBuilder();
+    final TermIndex applied = stateMachine.getLastAppliedTermIndex();
+    if (applied != null) {
+      logInfoBuilder.setApplied(applied.toProto());
+    }
+    final TermIndex committed = log.getTermIndex(log.getLastCommittedIndex());
+    if (committed != null) {
+      logInfoBuilder.setCommitted(committed.toProto());
+    }
+    final TermIndex entry = log.getLastEntryTermIndex();
+    if (entry != null) {
+      logInfoBuilder.setLastEntry(entry.toProto());
+    }
+    final SnapshotInfo snapshot = stateMachine.getLatestSnapshot();
+    if (snapshot != null) {
+      logInfoBuilder.setLastSnapshot(snapshot.getTermIndex().toProto());
+    }
+    return logInfoBuilder.build();
+  }
 }
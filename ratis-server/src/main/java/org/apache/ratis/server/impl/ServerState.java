@@ -38,6 +38,7 @@ import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.MemoizedCheckedSupplier;
 import org.apache.ratis.util.MemoizedSupplier;
+import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.Timestamp;
 
@@ -84,6 +85,12 @@ class ServerState {
    * no leader for this term yet or this server does not know who it is yet.
    */
   private final AtomicReference<RaftPeerId> leaderId = new AtomicReference<>();
+  /**
+   * A snapshot of {@link #leaderId} and {@link #currentTerm} for reading them together without the server lock.
+   * They are updated together with the snapshot while holding the snapshot lock.
+   */
+  private volatile LeaderTerm leaderTerm = new LeaderTerm(null, 0);
+  private final Object leaderTermLock = new Object();
   /**
    * Candidate that this peer granted vote for in current term (or null if none)
    */
@@ -146,7 +153,10 @@ class ServerState {
     // we cannot apply log entries to the state machine in this step, since we
     // do not know whether the local log entries have been committed.
     final RaftStorageMetadata metadata = log.get().loadMetadata();
-    currentTerm.set(metadata.getTerm());
+    synchronized (leaderTermLock) {
+      currentTerm.set(metadata.getTerm());
+      publishLeaderTerm();
+    }
     votedFor = metadata.getVotedFor();
   }
 
@@ -189,6 +199,9 @@ class ServerState {
           .setStorage(storage)
           .setSnapshotIndexSupplier(getSnapshotIndexFromStateMachine)
           .setProperties(prop)
+          .setSyncCoordinator(server.getRaftServer().getLogSyncCoordinator())
+          .setSharedWorkerPool(server.getRaftServer().getLogWorkerPool())
+          .setCacheManager(server.getRaftServer().getLogCacheManager())
           .build();
     }
     log.open(log.getSnapshotIndex(), logConsumer);
@@ -208,13 +221,19 @@ class ServerState {
   }
 
   boolean updateCurrentTerm(long newTerm) {
-    final long current = currentTerm.getAndUpdate(curTerm -> Math.max(curTerm, newTerm));
-    if (newTerm > current) {
+    final RaftPeerId oldLeaderId;
+    synchronized (leaderTermLock) {
+      final long current = currentTerm.getAndUpdate(curTerm -> Math.max(curTerm, newTerm));
+      if (newTerm <= current) {
+        return false;
+      }
       votedFor = null;
-      setLeader(null, "updateCurrentTerm");
-      return true;
+      // clear the leader together with the term update
+      oldLeaderId = leaderId.getAndSet(null);
+      publishLeaderTerm();
     }
-    return false;
+    onLeaderChanged(oldLeaderId, null, "updateCurrentTerm");
+    return true;
   }
 
   RaftPeerId getLeaderId() {
@@ -230,7 +249,10 @@ class ServerState {
     if (phase == Phase.PRE_VOTE) {
       term = getCurrentTerm();
     } else if (phase == Phase.ELECTION) {
-      term = currentTerm.incrementAndGet();
+      synchronized (leaderTermLock) {
+        term = currentTerm.incrementAndGet();
+        publishLeaderTerm();
+      }
       votedFor = getMemberId().getPeerId();
       persistMetadata();
     } else {
@@ -256,7 +278,21 @@ class ServerState {
   }
 
   void setLeader(RaftPeerId newLeaderId, Object op) {
-    final RaftPeerId oldLeaderId = leaderId.getAndSet(newLeaderId);
+    final RaftPeerId oldLeaderId;
+    synchronized (leaderTermLock) {
+      oldLeaderId = leaderId.getAndSet(newLeaderId);
+      publishLeaderTerm();
+    }
+    onLeaderChanged(oldLeaderId, newLeaderId, op);
+  }
+
+  /** Publish a new {@link #leaderTerm} snapshot; the caller must hold the snapshot lock. */
+  private void publishLeaderTerm() {
+    Preconditions.assertTrue(Thread.holdsLock(leaderTermLock), "leaderTermLock is not held");
+    leaderTerm = new LeaderTerm(leaderId.get(), currentTerm.get());
+  }
+
+  private void onLeaderChanged(RaftPeerId oldLeaderId, RaftPeerId newLeaderId, Object op) {
     if (!Objects.equals(oldLeaderId, newLeaderId)) {
       final String suffix;
       if (newLeaderId == null) {
@@ -341,6 +377,32 @@ class ServerState {
     return true;
   }
 
+  /**
+   * An optimistic check, without the server lock, whether this server is already a follower
+   * of the given leader in the given term.
+   * The leader and the term are read from the same snapshot.
+   * The snapshot is read again after the role so that a concurrent leader or term change is detected.
+   */
+  boolean isFollowerOf(RaftPeerId peerId, long peerTerm) {
+    final LeaderTerm snapshot = leaderTerm;
+    return snapshot.isLeader(peerId, peerTerm) && server.getInfo().isFollower() && leaderTerm == snapshot;
+  }
+
+  /** An immutable pair of a leader id and a term. */
+  private static final class LeaderTerm {
+    private final RaftPeerId leaderId;
+    private final long term;
+
+    private LeaderTerm(RaftPeerId leaderId, long term) {
+      this.leaderId = leaderId;
+      this.term = term;
+    }
+
+    boolean isLeader(RaftPeerId peerId, long peerTerm) {
+      return term == peerTerm && peerId.equals(leaderId);
+    }
+  }
+
   static int compareLog(TermIndex lastEntry, TermIndex candidateLastEntry) {
     if (lastEntry == null) {
       // If the lastEntry of candidate is null, the proto will transfer an empty TermIndexProto,
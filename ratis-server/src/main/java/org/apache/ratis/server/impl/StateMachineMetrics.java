@@ -37,29 +37,35 @@ public final class StateMachineMetrics extends RatisMetrics {
 
   public static final String STATEMACHINE_APPLIED_INDEX_GAUGE = "appliedIndex";
   public static final String STATEMACHINE_APPLY_COMPLETED_GAUGE = "applyCompletedIndex";
+  public static final String STATEMACHINE_APPLY_IN_FLIGHT_GAUGE = "applyInFlight";
+  public static final String STATEMACHINE_APPLY_LAG_GAUGE = "applyLag";
   public static final String STATEMACHINE_TAKE_SNAPSHOT_TIMER = "takeSnapshot";
 
   public static StateMachineMetrics getStateMachineMetrics(
       RaftServerImpl server, RaftLogIndex appliedIndex,
-      StateMachine stateMachine) {
+      StateMachine stateMachine, LongSupplier getApplyInFlight) {
 
     String serverId = server.getMemberId().toString();
     LongSupplier getApplied = appliedIndex::get;
     LongSupplier getApplyCompleted =
         () -> (stateMachine.getLastAppliedTermIndex() == null) ? -1
             : stateMachine.getLastAppliedTermIndex().getIndex();
+    LongSupplier getApplyLag =
+        () -> Math.max(0, server.getState().getLog().getLastCommittedIndex() - getApplyCompleted.getAsLong());
 
-    return new StateMachineMetrics(serverId, getApplied, getApplyCompleted);
+    return new StateMachineMetrics(serverId, getApplied, getApplyCompleted, getApplyInFlight, getApplyLag);
   }
 
   private final Timekeeper takeSnapshotTimer = getRegistry().timer(STATEMACHINE_TAKE_SNAPSHOT_TIMER);
 
   private StateMachineMetrics(String serverId, LongSupplier getApplied,
-      LongSupplier getApplyCompleted) {
+      LongSupplier getApplyCompleted, LongSupplier getApplyInFlight, LongSupplier getApplyLag) {
     super(createRegistry(serverId));
 
     getRegistry().gauge(STATEMACHINE_APPLIED_INDEX_GAUGE, () -> getApplied::getAsLong);
     getRegistry().gauge(STATEMACHINE_APPLY_COMPLETED_GAUGE, () -> getApplyCompleted::getAsLong);
+    getRegistry().gauge(STATEMACHINE_APPLY_IN_FLIGHT_GAUGE, () -> getApplyInFlight::getAsLong);
+    getRegistry().gauge(STATEMACHINE_APPLY_LAG_GAUGE, () -> getApplyLag::getAsLong);
   }
 
   private static RatisMetricRegistry createRegistry(String serverId) {
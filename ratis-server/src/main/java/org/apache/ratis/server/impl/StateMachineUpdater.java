@@ -38,6 +38,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -63,11 +65,49 @@ class StateMachineUpdater implements Runnable {
     RUNNING, STOP, RELOAD, EXCEPTION
   }
 
+  /**
+   * Track the applies in flight using a counter and a completion signal,
+   * so that the memory used is bounded by the number of outstanding applies
+   * instead of the number of entries applied.
+   */
+  static final class InFlightApplies {
+    private long count = 0;
+    private CompletableFuture<Void> allCompleted = CompletableFuture.completedFuture(null);
+
+    void add(CompletableFuture<?> apply) {
+      synchronized (this) {
+        if (count++ == 0) {
+          allCompleted = new CompletableFuture<>();
+        }
+      }
+      apply.whenComplete((r, e) -> remove());
+    }
+
+    private synchronized void remove() {
+      Preconditions.assertTrue(count > 0, () -> "count = " + count + " <= 0");
+      if (--count == 0) {
+        allCompleted.complete(null);
+      }
+    }
+
+    synchronized long getCount() {
+      return count;
+    }
+
+    /** @return a future which will be completed once all the applies in flight have been completed. */
+    synchronized CompletableFuture<Void> getAllCompleted() {
+      return allCompleted;
+    }
+  }
+
   private final Consumer<Object> infoIndexChange;
   private final Consumer<Object> debugIndexChange;
   private final String name;
 
   private final StateMachine stateMachine;
+  /** Non-null iff the state machine supports {@link StateMachine.BatchApi}. */
+  private final StateMachine.BatchApi batchApi;
+  private final int batchSizeMax;
   private final RaftServerImpl server;
   private final RaftLog raftLog;
 
@@ -91,8 +131,11 @@ class StateMachineUpdater implements Runnable {
   private final MemoizedSupplier<StateMachineMetrics> stateMachineMetrics;
 
   private final Consumer<Long> appliedIndexConsumer;
+  private final InFlightApplies inFlightApplies = new InFlightApplies();
 
   private volatile boolean isRemoving;
+  /** The snapshot being taken, or null if there is none; it is accessed only by the updater thread. */
+  private CompletableFuture<Long> snapshotFuture;
 
   StateMachineUpdater(StateMachine stateMachine, RaftServerImpl server,
       ServerState serverState, long lastAppliedIndex, RaftProperties properties, Consumer<Long> appliedIndexConsumer) {
@@ -102,6 +145,8 @@ class StateMachineUpdater implements Runnable {
     this.debugIndexChange = s -> LOG.debug("{}: {}", name, s);
 
     this.stateMachine = stateMachine;
+    this.batchApi = stateMachine.batch();
+    this.batchSizeMax = RaftServerConfigKeys.Apply.batchSizeMax(properties);
     this.server = server;
     this.raftLog = serverState.getLog();
 
@@ -121,10 +166,11 @@ class StateMachineUpdater implements Runnable {
     };
     this.purgeUptoSnapshotIndex = RaftServerConfigKeys.Log.purgeUptoSnapshotIndex(properties);
     updater = Daemon.newBuilder().setName(name).setRunnable(this)
-        .setThreadGroup(server.getThreadGroup()).build();
+        .setThreadGroup(server.getThreadGroup()).setVirtual(server.isVirtualThreadsEnabled()).buildThread();
     this.awaitForSignal = new AwaitForSignal(name);
     this.stateMachineMetrics = MemoizedSupplier.valueOf(
-        () -> StateMachineMetrics.getStateMachineMetrics(server, appliedIndex, stateMachine));
+        () -> StateMachineMetrics.getStateMachineMetrics(server, appliedIndex, stateMachine,
+            inFlightApplies::getCount));
   }
 
   void start() {
@@ -181,20 +227,21 @@ class StateMachineUpdater implements Runnable {
 
   @Override
   public void run() {
-    CompletableFuture<Void> applyLogFutures = CompletableFuture.completedFuture(null);
     for(; state != State.STOP; ) {
       try {
-        waitForCommit(applyLogFutures);
+        waitForCommit();
 
         if (state == State.RELOAD) {
+          waitForSnapshot();
           reload();
         }
 
-        applyLogFutures = applyLog(applyLogFutures);
-        checkAndTakeSnapshot(applyLogFutures);
+        applyLog();
+        checkAndTakeSnapshot();
 
         if (shouldStop()) {
-          applyLogFutures.get();
+          inFlightApplies.getAllCompleted().get();
+          waitForSnapshot();
           stop();
         }
       } catch (Throwable t) {
@@ -210,14 +257,14 @@ class StateMachineUpdater implements Runnable {
     }
   }
 
-  private void waitForCommit(CompletableFuture<?> applyLogFutures) throws InterruptedException, ExecutionException {
+  private void waitForCommit() throws InterruptedException, ExecutionException {
     // When a peer starts, the committed is initialized to 0.
     // It will be updated only after the leader contacts other peers.
     // Thus it is possible to have applied > committed initially.
     final long applied = getLastAppliedIndex();
     for(; applied >= raftLog.getLastCommittedIndex() && state == State.RUNNING && !shouldStop(); ) {
-      if (server.getSnapshotRequestHandler().shouldTriggerTakingSnapshot()) {
-        takeSnapshot(applyLogFutures);
+      if (isSnapshotDone() && server.getSnapshotRequestHandler().shouldTriggerTakingSnapshot()) {
+        takeSnapshot();
       }
       if (awaitForSignal.await(100, TimeUnit.MILLISECONDS)) {
         return;
@@ -239,12 +286,16 @@ class StateMachineUpdater implements Runnable {
     state = State.RUNNING;
   }
 
-  private CompletableFuture<Void> applyLog(CompletableFuture<Void> applyLogFutures) throws RaftLogIOException {
+  private void applyLog() throws RaftLogIOException {
     final long committed = raftLog.getLastCommittedIndex();
     for(long applied; (applied = getLastAppliedIndex()) < committed && state == State.RUNNING && !shouldStop(); ) {
       final long nextIndex = applied + 1;
       final LogEntryProto next = raftLog.get(nextIndex);
       if (next != null) {
+        if (batchApi != null && next.hasStateMachineLogEntry()) {
+          applyBatch(next, committed);
+          continue;
+        }
         if (LOG.isTraceEnabled()) {
           LOG.trace("{}: applying nextIndex={}, nextLog={}", this, nextIndex, LogProtoUtils.toLogEntryString(next));
         } else {
@@ -252,43 +303,103 @@ class StateMachineUpdater implements Runnable {
         }
 
         final CompletableFuture<Message> f = server.applyLogToStateMachine(next);
-        final long incremented = appliedIndex.incrementAndGet(debugIndexChange);
-        Preconditions.assertTrue(incremented == nextIndex);
-        if (f != null) {
-          CompletableFuture<Message> exceptionHandledFuture = f.exceptionally(ex -> {
-            LOG.error("Exception while {}: applying txn index={}, nextLog={}", this, nextIndex,
-                    LogProtoUtils.toLogEntryString(next), ex);
-            return null;
-          });
-          applyLogFutures = applyLogFutures.thenCombine(exceptionHandledFuture, (v, message) -> null);
-          f.thenAccept(m -> notifyAppliedIndex(incremented));
-        } else {
-          notifyAppliedIndex(incremented);
-        }
+        onApplied(next, f);
       } else {
         LOG.debug("{}: logEntry {} is null. There may be snapshot to load. state:{}",
             this, nextIndex, state);
         break;
       }
     }
-    return applyLogFutures;
   }
 
-  private void checkAndTakeSnapshot(CompletableFuture<?> futures)
-      throws ExecutionException, InterruptedException {
+  /** Apply the consecutive state machine entries starting from the given entry in a batch. */
+  private void applyBatch(LogEntryProto first, long committed) throws RaftLogIOException {
+    final long endIndex = Math.min(committed, Optional.ofNullable(stopIndex.get()).orElse(committed));
+    final List<LogEntryProto> batch = new ArrayList<>();
+    batch.add(first);
+    for(long i = first.getIndex() + 1; i <= endIndex && batch.size() < batchSizeMax; i++) {
+      final LogEntryProto next = raftLog.get(i);
+      if (next == null || !next.hasStateMachineLogEntry()) {
+        break;
+      }
+      batch.add(next);
+    }
+    LOG.debug("{}: applying a batch of {} entries from index {}", this, batch.size(), first.getIndex());
+
+    final List<CompletableFuture<Message>> futures = server.applyLogsToStateMachine(batchApi, batch);
+    for(int i = 0; i < batch.size(); i++) {
+      onApplied(batch.get(i), futures.get(i));
+    }
+  }
+
+  private void onApplied(LogEntryProto next, CompletableFuture<Message> f) {
+    final long nextIndex = next.getIndex();
+    final long incremented = appliedIndex.incrementAndGet(debugIndexChange);
+    Preconditions.assertTrue(incremented == nextIndex);
+    if (f != null) {
+      CompletableFuture<Message> exceptionHandledFuture = f.exceptionally(ex -> {
+        LOG.error("Exception while {}: applying txn index={}, nextLog={}", this, nextIndex,
+                LogProtoUtils.toLogEntryString(next), ex);
+        return null;
+      });
+      inFlightApplies.add(exceptionHandledFuture);
+      f.thenAccept(m -> notifyAppliedIndex(incremented));
+    } else {
+      notifyAppliedIndex(incremented);
+    }
+  }
+
+  private void checkAndTakeSnapshot() throws ExecutionException, InterruptedException {
+    if (shouldStop()) {
+      // wait for the snapshot being taken, if there is any, before checking the snapshot at stop.
+      waitForSnapshot();
+    }
     // check if need to trigger a snapshot
     if (shouldTakeSnapshot()) {
-      takeSnapshot(futures);
+      takeSnapshot();
     }
   }
 
-  private void takeSnapshot(CompletableFuture<?> applyLogFutures) throws ExecutionException, InterruptedException {
+  /**
+   * Complete the snapshot being taken if it is done.
+   *
+   * @return true if there is no snapshot being taken.
+   * @throws ExecutionException if the snapshot failed with an unexpected exception.
+   */
+  private boolean isSnapshotDone() throws ExecutionException, InterruptedException {
+    if (snapshotFuture == null) {
+      return true;
+    } else if (!snapshotFuture.isDone()) {
+      return false;
+    }
+    completeSnapshot();
+    return true;
+  }
+
+  /** Wait for the snapshot being taken, if there is any, and then complete it. */
+  private void waitForSnapshot() throws ExecutionException, InterruptedException {
+    if (snapshotFuture != null) {
+      completeSnapshot();
+    }
+  }
+
+  private void takeSnapshot() throws ExecutionException, InterruptedException {
+    inFlightApplies.getAllCompleted().get();
+    final Timekeeper.Context timer = stateMachineMetrics.get().getTakeSnapshotTimer().time();
+    // The snapshot is completed by the updater thread, not by the thread completing the future.
+    snapshotFuture = stateMachine.takeSnapshotAsync().whenComplete((i, e) -> {
+      timer.stop();
+      notifyUpdater();
+    });
+  }
+
+  private void completeSnapshot() throws ExecutionException, InterruptedException {
+    final CompletableFuture<Long> future = Objects.requireNonNull(snapshotFuture, "snapshotFuture == null");
+    snapshotFuture = null;
+
     final long i;
-    applyLogFutures.get();
     try {
-      try(UncheckedAutoCloseable ignored = Timekeeper.start(stateMachineMetrics.get().getTakeSnapshotTimer())) {
-        i = stateMachine.takeSnapshot();
-      }
+      i = getSnapshotIndex(future);
       server.getSnapshotRequestHandler().completeTakingSnapshot(i);
 
       final long lastAppliedIndex = getLastAppliedIndex();
@@ -321,11 +432,32 @@ class StateMachineUpdater implements Runnable {
     }
   }
 
+  /**
+   * @return the index of the snapshot taken.
+   * @throws IOException if the state machine failed to take the snapshot.
+   * @throws ExecutionException if the state machine failed with an unexpected exception.
+   */
+  private static long getSnapshotIndex(CompletableFuture<Long> future)
+      throws IOException, ExecutionException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      final Throwable cause = JavaUtils.unwrapCompletionException(e.getCause());
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw e;
+    }
+  }
+
   private boolean shouldStop() {
     return Optional.ofNullable(stopIndex.get()).filter(i -> i <= getLastAppliedIndex()).isPresent();
   }
 
-  private boolean shouldTakeSnapshot() {
+  private boolean shouldTakeSnapshot() throws ExecutionException, InterruptedException {
+    if (!isSnapshotDone()) {
+      return false;
+    }
     if (state == State.RUNNING && server.getSnapshotRequestHandler().shouldTriggerTakingSnapshot()) {
       return true;
     }
@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.ClientInvocationId;
+import org.apache.ratis.server.impl.RetryCacheImpl.CacheEntry;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.TimeDuration;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link RetryCacheImpl.Store} with less allocation and less expiry work than {@link RetryCacheImpl.GuavaStore}.
+ * <p>
+ * The entries are kept in striped open-addressing hash tables keyed by the client id and the primitive call id,
+ * so that no key or node object is allocated per entry.
+ * The stripe is selected by the client id so that all the calls of a client are in the same stripe.
+ * <p>
+ * The entries expire in bulk using a timer wheel:
+ * the expiry time is divided into {@link #TICKS_PER_EXPIRY} ticks and
+ * each bucket of the wheel holds the entries written in the same tick.
+ * Once per tick, the first writer passing the tick boundary expires the buckets older than the expiry time.
+ * An entry expires after the expiry time and at most one tick later;
+ * the lookups do not return the expired entries which are not yet removed.
+ */
+final class StripedRetryCacheStore implements RetryCacheImpl.Store {
+  static final int TICKS_PER_EXPIRY = 32;
+
+  private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+  /** The hash of a client id. */
+  private static int hash(ClientId clientId) {
+    final int h = clientId.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** The hash of a call of a client. */
+  private static int hash(int clientHash, long callId) {
+    long h = clientHash * 0x9E3779B97F4A7C15L + callId;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  /** An open-addressing hash table using linear probing. */
+  final class Stripe {
+    private long[] callIds = new long[INITIAL_STRIPE_CAPACITY];
+    private int[] hashes = new int[INITIAL_STRIPE_CAPACITY];
+    private CacheEntry[] entries = new CacheEntry[INITIAL_STRIPE_CAPACITY];
+    private int size = 0;
+
+    private int find(ClientId clientId, long callId, int hash) {
+      final int mask = entries.length - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        final CacheEntry e = entries[i];
+        if (e == null) {
+          return ~i;
+        } else if (callIds[i] == callId && hashes[i] == hash && e.getClientId().equals(clientId)) {
+          return i;
+        }
+      }
+    }
+
+    synchronized CacheEntry get(ClientId clientId, long callId, long now) {
+      final int i = find(clientId, callId, hash(hash(clientId), callId));
+      return i >= 0 && !wheel.isExpired(entries[i], now)? entries[i]: null;
+    }
+
+    synchronized CacheEntry putIfAbsent(CacheEntry entry, long now) {
+      final int hash = hash(hash(entry.getClientId()), entry.getCallId());
+      final int i = find(entry.getClientId(), entry.getCallId(), hash);
+      if (i >= 0) {
+        final CacheEntry existing = entries[i];
+        if (!wheel.isExpired(existing, now)) {
+          return existing;
+        }
+        // replace the expired entry
+        wheel.remove(existing);
+        set(i, entry, now);
+        return entry;
+      }
+      insert(~i, hash, entry, now);
+      return entry;
+    }
+
+    synchronized void put(CacheEntry entry, long now) {
+      final int hash = hash(hash(entry.getClientId()), entry.getCallId());
+      final int i = find(entry.getClientId(), entry.getCallId(), hash);
+      if (i >= 0) {
+        wheel.remove(entries[i]);
+        set(i, entry, now);
+      } else {
+        insert(~i, hash, entry, now);
+      }
+    }
+
+    private void set(int i, CacheEntry entry, long now) {
+      entries[i] = entry;
+      wheel.add(entry, now);
+    }
+
+    private void insert(int i, int hash, CacheEntry entry, long now) {
+      callIds[i] = entry.getCallId();
+      hashes[i] = hash;
+      set(i, entry, now);
+      if (++size > (entries.length >> 1) + (entries.length >> 2)) {
+        resize(entries.length << 1);
+      }
+    }
+
+    private void resize(int capacity) {
+      final CacheEntry[] oldEntries = entries;
+      final long[] oldCallIds = callIds;
+      final int[] oldHashes = hashes;
+      entries = new CacheEntry[capacity];
+      callIds = new long[capacity];
+      hashes = new int[capacity];
+      final int mask = capacity - 1;
+      for (int j = 0; j < oldEntries.length; j++) {
+        if (oldEntries[j] != null) {
+          int i = oldHashes[j] & mask;
+          while (entries[i] != null) {
+            i = (i + 1) & mask;
+          }
+          entries[i] = oldEntries[j];
+          callIds[i] = oldCallIds[j];
+          hashes[i] = oldHashes[j];
+        }
+      }
+    }
+
+    /** Remove the entry at the given slot using backward shift deletion. */
+    private CacheEntry removeAt(int i) {
+      final CacheEntry removed = entries[i];
+      final int mask = entries.length - 1;
+      for (int j = (i + 1) & mask; entries[j] != null; j = (j + 1) & mask) {
+        final int home = hashes[j] & mask;
+        // move the entry at j to the hole at i unless its home is cyclically in (i, j]
+        if (i <= j? (home <= i || home > j): (home <= i && home > j)) {
+          entries[i] = entries[j];
+          callIds[i] = callIds[j];
+          hashes[i] = hashes[j];
+          i = j;
+        }
+      }
+      entries[i] = null;
+      size--;
+      return removed;
+    }
+
+    synchronized void invalidate(ClientId clientId, Iterable<Long> callIds) {
+      final int clientHash = hash(clientId);
+      for (long callId : callIds) {
+        final int i = find(clientId, callId, hash(clientHash, callId));
+        if (i >= 0) {
+          wheel.remove(removeAt(i));
+        }
+      }
+    }
+
+    /** Remove the given entry if it is expired; otherwise, put it back to the wheel if it is still in this stripe. */
+    synchronized void expire(CacheEntry entry, long now) {
+      final int i = find(entry.getClientId(), entry.getCallId(), hash(hash(entry.getClientId()), entry.getCallId()));
+      if (i < 0 || entries[i] != entry) {
+        return; // already removed or replaced
+      }
+      if (wheel.isExpired(entry, now)) {
+        removeAt(i);
+      } else {
+        wheel.add(entry, entry.getWriteTick());
+      }
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized void clear() {
+      callIds = new long[INITIAL_STRIPE_CAPACITY];
+      hashes = new int[INITIAL_STRIPE_CAPACITY];
+      entries = new CacheEntry[INITIAL_STRIPE_CAPACITY];
+      size = 0;
+    }
+  }
+
+  /** A bucket of the timer wheel, i.e. the entries written in the same tick modulo the wheel size. */
+  static final class Bucket {
+    private CacheEntry[] entries = new CacheEntry[16];
+    private int size = 0;
+
+    synchronized void add(CacheEntry entry) {
+      if (size == entries.length) {
+        entries = Arrays.copyOf(entries, size << 1);
+      }
+      entry.setWheelPosition(size);
+      entries[size++] = entry;
+    }
+
+    synchronized void remove(CacheEntry entry) {
+      final int i = entry.getWheelPosition();
+      if (i >= 0 && i < size && entries[i] == entry) {
+        entries[i] = null;
+        entry.setWheelPosition(-1);
+      }
+    }
+
+    /** @return all the entries in this bucket, which may contain nulls, and then clear this bucket. */
+    synchronized CacheEntry[] drain() {
+      final CacheEntry[] drained = Arrays.copyOf(entries, size);
+      Arrays.fill(entries, 0, size, null);
+      size = 0;
+      for (CacheEntry e : drained) {
+        if (e != null) {
+          e.setWheelPosition(-1);
+        }
+      }
+      return drained;
+    }
+  }
+
+  final class TimerWheel {
+    private final long tickNanos;
+    private final long startNanos;
+    /** The number of ticks for an entry to expire. */
+    private final int expiryTicks;
+    private final Bucket[] buckets;
+    /** The buckets written before this tick minus the expiry ticks are expired. */
+    private final AtomicLong expiredTick = new AtomicLong();
+
+    TimerWheel(TimeDuration expiryTime) {
+      final long expiryNanos = expiryTime.toLong(TimeUnit.NANOSECONDS);
+      Preconditions.assertTrue(expiryNanos > 0, () -> "Non-positive expiryTime = " + expiryTime);
+      this.tickNanos = Math.max(1, expiryNanos / TICKS_PER_EXPIRY);
+      this.expiryTicks = Math.toIntExact((expiryNanos + tickNanos - 1) / tickNanos);
+      this.startNanos = clock.getAsLong();
+      // an extra bucket so that the bucket to expire is never the bucket being written
+      this.buckets = new Bucket[expiryTicks + 2];
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new Bucket();
+      }
+    }
+
+    long currentTick() {
+      return (clock.getAsLong() - startNanos) / tickNanos;
+    }
+
+    boolean isExpired(CacheEntry entry, long now) {
+      return now - entry.getWriteTick() > expiryTicks;
+    }
+
+    private Bucket getBucket(long tick) {
+      return buckets[Math.toIntExact(tick % buckets.length)];
+    }
+
+    void add(CacheEntry entry, long tick) {
+      entry.setWriteTick(tick);
+      getBucket(tick).add(entry);
+    }
+
+    void remove(CacheEntry entry) {
+      getBucket(entry.getWriteTick()).remove(entry);
+    }
+
+    /** Expire the buckets if the tick has advanced; only one caller per tick does the work. */
+    void expireIfNecessary(long now) {
+      final long previous = expiredTick.get();
+      if (now <= previous || !expiredTick.compareAndSet(previous, now)) {
+        return;
+      }
+      // the buckets with write ticks in [previous - expiryTicks, now - expiryTicks - 1] become expired
+      final long last = now - expiryTicks - 1;
+      final long first = Math.max(0, Math.max(previous - expiryTicks, last - buckets.length + 1));
+      for (long tick = first; tick <= last; tick++) {
+        for (CacheEntry e : getBucket(tick).drain()) {
+          if (e != null) {
+            getStripe(e.getClientId()).expire(e, now);
+          }
+        }
+      }
+    }
+
+    void clear() {
+      for (Bucket b : buckets) {
+        b.drain();
+      }
+    }
+  }
+
+  private final LongSupplier clock;
+  private final Stripe[] stripes;
+  private final TimerWheel wheel;
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+
+  StripedRetryCacheStore(TimeDuration expiryTime) {
+    this(expiryTime, defaultNumStripes(), System::nanoTime);
+  }
+
+  StripedRetryCacheStore(TimeDuration expiryTime, int numStripes, LongSupplier clock) {
+    Preconditions.assertTrue(numStripes > 0 && Integer.bitCount(numStripes) == 1,
+        () -> "numStripes = " + numStripes + " is not a power of two");
+    this.clock = clock;
+    this.stripes = new Stripe[numStripes];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.wheel = new TimerWheel(expiryTime);
+  }
+
+  private static int defaultNumStripes() {
+    return Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+  }
+
+  private Stripe getStripe(ClientId clientId) {
+    return stripes[hash(clientId) & (stripes.length - 1)];
+  }
+
+  private CacheEntry countHitOrMiss(CacheEntry entry, boolean hit) {
+    (hit? hitCount: missCount).increment();
+    return entry;
+  }
+
+  @Override
+  public CacheEntry getIfPresent(ClientInvocationId key) {
+    final CacheEntry entry = getStripe(key.getClientId()).get(key.getClientId(), key.getLongId(), wheel.currentTick());
+    return countHitOrMiss(entry, entry != null);
+  }
+
+  @Override
+  public CacheEntry putIfAbsent(CacheEntry entry) {
+    final long now = wheel.currentTick();
+    final CacheEntry existing = getStripe(entry.getClientId()).putIfAbsent(entry, now);
+    wheel.expireIfNecessary(now);
+    return countHitOrMiss(existing, existing != entry);
+  }
+
+  @Override
+  public void put(CacheEntry entry) {
+    final long now = wheel.currentTick();
+    getStripe(entry.getClientId()).put(entry, now);
+    wheel.expireIfNecessary(now);
+  }
+
+  @Override
+  public void invalidate(ClientId clientId, Iterable<Long> callIds) {
+    getStripe(clientId).invalidate(clientId, callIds);
+  }
+
+  @Override
+  public void invalidateAll() {
+    for (Stripe s : stripes) {
+      s.clear();
+    }
+    wheel.clear();
+  }
+
+  @Override
+  public long size() {
+    long total = 0;
+    for (Stripe s : stripes) {
+      total += s.size();
+    }
+    return total;
+  }
+
+  @Override
+  public long hitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long missCount() {
+    return missCount.sum();
+  }
+}
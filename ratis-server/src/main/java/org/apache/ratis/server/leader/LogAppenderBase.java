@@ -107,6 +107,12 @@ public abstract class LogAppenderBase implements LogAppender {
     return eventAwaitForSignal;
   }
 
+  @Override
+  public void notifyLogAppender() {
+    LogAppender.super.notifyLogAppender();
+    daemon.wakeUp();
+  }
+
   @Override
   public final RaftServer.Division getServer() {
     return server;
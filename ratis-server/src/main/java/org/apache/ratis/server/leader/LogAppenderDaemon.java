@@ -17,12 +17,20 @@
  */
 package org.apache.ratis.server.leader;
 
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Appender.ExecutionMode;
 import org.apache.ratis.util.Daemon;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.LifeCycle;
 
 import java.io.InterruptedIOException;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.UnaryOperator;
 
 import org.apache.ratis.util.LifeCycle.State;
@@ -36,22 +44,32 @@ import static org.apache.ratis.util.LifeCycle.State.NEW;
 import static org.apache.ratis.util.LifeCycle.State.RUNNING;
 import static org.apache.ratis.util.LifeCycle.State.STARTING;
 
+/**
+ * Run a {@link LogAppenderBase} either
+ * (1) in a dedicated thread, or
+ * (2) by {@link LogAppender#runOnce()} in a scheduler shared by all the appenders in the JVM;
+ * see {@link ExecutionMode} and {@link LogAppenderScheduler}.
+ */
 class LogAppenderDaemon {
   public static final Logger LOG = LoggerFactory.getLogger(LogAppenderDaemon.class);
 
   private final String name;
   private final LifeCycle lifeCycle;
-  private final Daemon daemon;
+  private final Thread daemon;
 
   private final LogAppenderBase logAppender;
   private final CompletableFuture<State> closeFuture = new CompletableFuture<>();
+  /** Non-null iff the {@link #logAppender} is driven by the shared scheduler. */
+  private volatile Stepper stepper;
 
   LogAppenderDaemon(LogAppenderBase logAppender) {
     this.logAppender = logAppender;
     this.name = logAppender + "-" + JavaUtils.getClassSimpleName(getClass());
     this.lifeCycle = new LifeCycle(name);
+    final RaftProperties properties = logAppender.getServer().getRaftServer().getProperties();
     this.daemon = Daemon.newBuilder().setName(name).setRunnable(this::run)
-        .setThreadGroup(logAppender.getServer().getThreadGroup()).build();
+        .setThreadGroup(logAppender.getServer().getThreadGroup())
+        .setVirtual(RaftServerConfigKeys.ThreadPool.virtualThreadsEnabled(properties)).buildThread();
   }
 
   public boolean isWorking() {
@@ -60,8 +78,39 @@ class LogAppenderDaemon {
 
   public void tryToStart() {
     if (lifeCycle.compareAndTransition(NEW, STARTING)) {
-      daemon.start();
+      final Stepper s = newStepper();
+      if (s == null) {
+        daemon.start();
+      } else {
+        stepper = s;
+        lifeCycle.transition(TRY_TO_RUN);
+        if (!s.schedule(0)) {
+          s.stop();
+        }
+      }
+    }
+  }
+
+  private Stepper newStepper() {
+    final RaftProperties properties = logAppender.getServer().getRaftServer().getProperties();
+    if (RaftServerConfigKeys.Log.Appender.executionMode(properties) != ExecutionMode.SCHEDULER) {
+      return null;
+    } else if (!logAppender.isRunOnceSupported()) {
+      LOG.warn("{}: runOnce() is not supported, fall back to {} mode", this, ExecutionMode.THREAD);
+      return null;
+    }
+    final ScheduledThreadPoolExecutor scheduler = LogAppenderScheduler.get();
+    if (scheduler == null) {
+      LOG.warn("{}: The LogAppender scheduler is not acquired by the server, fall back to {} mode",
+          this, ExecutionMode.THREAD);
+      return null;
     }
+    return new Stepper(scheduler);
+  }
+
+  /** Wake up the {@link #logAppender} if it is driven by the shared scheduler. */
+  void wakeUp() {
+    Optional.ofNullable(stepper).ifPresent(Stepper::wakeUp);
   }
 
   static final UnaryOperator<State> TRY_TO_RUN = current -> {
@@ -89,11 +138,101 @@ class LogAppenderDaemon {
       LOG.warn(this + " failed", e);
       lifeCycle.transitionIfValid(EXCEPTION);
     } finally {
-      final State finalState = lifeCycle.transitionAndGet(TRANSITION_FINALLY);
-      if (finalState == EXCEPTION) {
-        logAppender.restart();
+      onFinally();
+    }
+  }
+
+  private void onFinally() {
+    final State finalState = lifeCycle.transitionAndGet(TRANSITION_FINALLY);
+    if (finalState == EXCEPTION) {
+      logAppender.restart();
+    }
+    closeFuture.complete(finalState);
+  }
+
+  /**
+   * Drive the {@link #logAppender} by calling {@link LogAppender#runOnce()} in the shared scheduler.
+   * The next step is scheduled after the wait time returned by {@link LogAppender#runOnce()},
+   * or immediately when it is woken up by {@link #wakeUp()}.
+   * The steps of an appender never overlap.
+   * When the scheduler is shut down, the appender is stopped.
+   */
+  private final class Stepper {
+    private final ScheduledThreadPoolExecutor executor;
+    /** Is a step running?  Guarded by this object. */
+    private boolean stepping = false;
+    /** Is it woken up while a step is running?  Guarded by this object. */
+    private boolean wokenUp = false;
+    /** The next step scheduled; guarded by this object. */
+    private ScheduledFuture<?> next;
+
+    Stepper(ScheduledThreadPoolExecutor executor) {
+      this.executor = executor;
+    }
+
+    /** @return true iff the next step is scheduled; otherwise, the scheduler is shut down. */
+    synchronized boolean schedule(long delayMs) {
+      try {
+        next = executor.schedule(this::step, delayMs, TimeUnit.MILLISECONDS);
+        return true;
+      } catch (RejectedExecutionException e) {
+        LOG.info("{}: The LogAppender scheduler is shut down: {}", LogAppenderDaemon.this, e.toString());
+        next = null;
+        return false;
+      }
+    }
+
+    void wakeUp() {
+      synchronized (this) {
+        if (stepping) {
+          wokenUp = true;
+          return;
+        } else if (next == null || !next.cancel(false) || schedule(0)) {
+          return;
+        }
       }
-      closeFuture.complete(finalState);
+      stop();
+    }
+
+    /** Stop since no more steps can be scheduled. */
+    void stop() {
+      lifeCycle.compareAndTransition(RUNNING, CLOSING);
+      onFinally();
+    }
+
+    private void step() {
+      synchronized (this) {
+        stepping = true;
+        wokenUp = false;
+        next = null;
+      }
+
+      long waitTimeMs = -1;
+      try {
+        waitTimeMs = logAppender.runOnce();
+        if (waitTimeMs < 0) {
+          lifeCycle.compareAndTransition(RUNNING, CLOSING);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.info(LogAppenderDaemon.this + " was interrupted: " + e);
+      } catch (InterruptedIOException e) {
+        LOG.info(LogAppenderDaemon.this + " I/O was interrupted: " + e);
+      } catch (Throwable e) {
+        LOG.warn(LogAppenderDaemon.this + " failed", e);
+        lifeCycle.transitionIfValid(EXCEPTION);
+      }
+
+      synchronized (this) {
+        stepping = false;
+        if (waitTimeMs >= 0) {
+          if (schedule(wokenUp ? 0 : waitTimeMs)) {
+            return;
+          }
+          lifeCycle.compareAndTransition(RUNNING, CLOSING);
+        }
+      }
+      onFinally();
     }
   }
 
@@ -110,7 +249,13 @@ class LogAppenderDaemon {
   public CompletableFuture<State> tryToClose() {
     final State state = lifeCycle.transition(TRY_TO_CLOSE);
     if (state == CLOSING) {
-      daemon.interrupt();
+      final Stepper s = stepper;
+      if (s != null) {
+        // do not interrupt the shared scheduler; the next step will find that it is closing.
+        s.wakeUp();
+      } else {
+        daemon.interrupt();
+      }
     } else if (state == CLOSED) {
       closeFuture.complete(state);
     }
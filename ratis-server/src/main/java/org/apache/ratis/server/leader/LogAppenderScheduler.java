@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.leader;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Appender.ExecutionMode;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The scheduler shared by all the log appenders in the JVM running in {@link ExecutionMode#SCHEDULER} mode.
+ * <p>
+ * The scheduler is reference counted by the servers:
+ * a server acquires it when the server is created and releases it when the server is closed.
+ * The scheduler is created by the first acquisition and is shut down by the last release.
+ * When the servers are configured with different numbers of threads, the largest number is used.
+ */
+public final class LogAppenderScheduler {
+  public static final Logger LOG = LoggerFactory.getLogger(LogAppenderScheduler.class);
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  /** The shared scheduler; null if it is not acquired.  Guarded by the class. */
+  private static ScheduledThreadPoolExecutor scheduler;
+  /** The number of the servers holding the {@link #scheduler}.  Guarded by the class. */
+  private static int references = 0;
+
+  private LogAppenderScheduler() {
+    // Utility class, cannot instantiate
+  }
+
+  /**
+   * Acquire the shared scheduler if the given properties use {@link ExecutionMode#SCHEDULER}.
+   *
+   * @return true iff the scheduler is acquired, in which case the caller must call {@link #release(Object)}.
+   */
+  public static synchronized boolean acquire(Object server, RaftProperties properties) {
+    if (RaftServerConfigKeys.Log.Appender.executionMode(properties) != ExecutionMode.SCHEDULER) {
+      return false;
+    }
+
+    final int threads = RaftServerConfigKeys.Log.Appender.schedulerThreads(properties);
+    if (scheduler == null) {
+      LOG.info("{}: Create a LogAppender scheduler with {} threads", server, threads);
+      scheduler = new ScheduledThreadPoolExecutor(threads, runnable -> Daemon.newBuilder()
+          .setName("LogAppenderScheduler-" + THREAD_COUNT.getAndIncrement())
+          .setRunnable(runnable).build());
+      scheduler.setRemoveOnCancelPolicy(true);
+    } else if (threads != scheduler.getCorePoolSize()) {
+      final int current = scheduler.getCorePoolSize();
+      LOG.warn("{}: {} = {} is different from the shared LogAppender scheduler with {} threads, use {} threads",
+          server, RaftServerConfigKeys.Log.Appender.SCHEDULER_THREADS_KEY, threads, current,
+          Math.max(threads, current));
+      if (threads > current) {
+        scheduler.setCorePoolSize(threads);
+      }
+    }
+    references++;
+    return true;
+  }
+
+  /** Release the scheduler acquired by {@link #acquire(Object, RaftProperties)}. */
+  public static synchronized void release(Object server) {
+    Preconditions.assertTrue(references > 0, () -> server + ": The LogAppender scheduler is not acquired");
+    if (--references == 0) {
+      LOG.info("{}: Shutdown the LogAppender scheduler", server);
+      // the steps already scheduled still run, so that the closing appenders can finish.
+      scheduler.shutdown();
+      scheduler = null;
+    }
+  }
+
+  /** @return the shared scheduler, or null if it is not acquired. */
+  static synchronized ScheduledThreadPoolExecutor get() {
+    return scheduler;
+  }
+}
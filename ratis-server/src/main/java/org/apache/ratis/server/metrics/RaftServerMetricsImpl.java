@@ -42,12 +42,22 @@ import org.apache.ratis.thirdparty.com.google.common.annotations.VisibleForTesti
  * Metric Registry for Raft Group Server. One instance per leader/follower.
  */
 public final class RaftServerMetricsImpl extends RatisMetrics implements RaftServerMetrics {
+  /** The stages of handling an appendEntries request in a follower. */
+  public enum FollowerAppendStage {
+    /** Recognize the leader and check the consistency of the entries. */
+    VALIDATE,
+    /** Append the entries to the log, including the wait for the previous appends. */
+    LOG,
+    /** Update the commit index and build the reply. */
+    COMMIT
+  }
 
   public static final String RATIS_SERVER_METRICS = "server";
   public static final String RATIS_SERVER_METRICS_DESC = "Metrics for Raft server";
 
   public static final String FOLLOWER_LAST_HEARTBEAT_ELAPSED_TIME_METRIC = "%s_lastHeartbeatElapsedTime";
   public static final String FOLLOWER_APPEND_ENTRIES_LATENCY = "follower_append_entry_latency";
+  public static final String FOLLOWER_APPEND_ENTRIES_STAGE_LATENCY = "follower_append_entry_%s_latency";
   public static final String LEADER_METRIC_PEER_COMMIT_INDEX = "%s_peerCommitIndex";
   public static final String RAFT_CLIENT_READ_REQUEST = "clientReadRequest";
   public static final String RAFT_CLIENT_STALE_READ_REQUEST = "clientStaleReadRequest";
@@ -104,6 +114,9 @@ public final class RaftServerMetricsImpl extends RatisMetrics implements RaftSer
 
   private final Function<Boolean, Timekeeper> followerAppendEntryLatency
       = newHeartbeatTimer(FOLLOWER_APPEND_ENTRIES_LATENCY);
+  private final Map<FollowerAppendStage, Timekeeper> followerAppendEntryStageLatency = newTimerMap(
+      FollowerAppendStage.class, stage -> getRegistry().timer(
+          String.format(FOLLOWER_APPEND_ENTRIES_STAGE_LATENCY, stage.name().toLowerCase())));
 
   /** Follower Id -> heartbeat elapsed */
   private final Map<RaftPeerId, Long> followerLastHeartbeatElapsedTimeMap = new ConcurrentHashMap<>();
@@ -222,6 +235,10 @@ public final class RaftServerMetricsImpl extends RatisMetrics implements RaftSer
     return followerAppendEntryLatency.apply(isHeartbeat);
   }
 
+  public Timekeeper getFollowerAppendEntryTimer(FollowerAppendStage stage) {
+    return followerAppendEntryStageLatency.get(stage);
+  }
+
   public Timekeeper getClientRequestTimer(Type request) {
     if (request.is(TypeCase.READ)) {
       return readTimer;
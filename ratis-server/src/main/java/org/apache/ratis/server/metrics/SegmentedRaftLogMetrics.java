@@ -80,6 +80,22 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
   public static final String RAFT_LOG_READ_ENTRY_LATENCY = "readEntryLatency";
   /** Time required to load and process raft log segments during restart */
   public static final String RAFT_LOG_LOAD_SEGMENT_LATENCY = "segmentLoadLatency";
+  /** Number of log entries loaded from the segment files after their cache was evicted */
+  public static final String RAFT_LOG_LOAD_ENTRY_COUNT = "loadEntryCount";
+  /** Number of bytes read from the segment files for loading the evicted log entries */
+  public static final String RAFT_LOG_LOAD_ENTRY_BYTES = "loadEntryBytes";
+  /** Average number of bytes read from the segment files per loaded log entry */
+  public static final String RAFT_LOG_LOAD_BYTES_PER_ENTRY = "loadBytesPerEntry";
+  /** Count of the state machine data cache hits */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_CACHE_HIT_COUNT = "stateMachineDataCacheHitCount";
+  /** Count of the state machine data cache misses */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_CACHE_MISS_COUNT = "stateMachineDataCacheMissCount";
+  /** Percentage of the state machine data reads served by the cache */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_CACHE_HIT_RATE = "stateMachineDataCacheHitRate";
+  /** Number of bytes served by the state machine data cache instead of reading from the state machine */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_CACHE_BYTES_SAVED = "stateMachineDataCacheBytesSaved";
+  /** Size of the state machine data cache in bytes */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_CACHE_SIZE_IN_BYTES = "stateMachineDataCacheSizeInBytes";
 
   private final Timekeeper flushTimer = getRegistry().timer(RAFT_LOG_FLUSH_TIME);
   private final Timekeeper syncTimer = getRegistry().timer(RAFT_LOG_SYNC_TIME);
@@ -95,6 +111,14 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
   private final LongCounter cacheMissCount= getRegistry().counter(RAFT_LOG_CACHE_MISS_COUNT);
   private final LongCounter appendEntryCount = getRegistry().counter(RAFT_LOG_APPEND_ENTRY_COUNT);
   private final LongCounter flushCount = getRegistry().counter(RAFT_LOG_FLUSH_COUNT);
+  private final LongCounter loadEntryCount = getRegistry().counter(RAFT_LOG_LOAD_ENTRY_COUNT);
+  private final LongCounter loadEntryBytes = getRegistry().counter(RAFT_LOG_LOAD_ENTRY_BYTES);
+  private final LongCounter stateMachineDataCacheHitCount
+      = getRegistry().counter(RAFT_LOG_STATEMACHINE_DATA_CACHE_HIT_COUNT);
+  private final LongCounter stateMachineDataCacheMissCount
+      = getRegistry().counter(RAFT_LOG_STATEMACHINE_DATA_CACHE_MISS_COUNT);
+  private final LongCounter stateMachineDataCacheBytesSaved
+      = getRegistry().counter(RAFT_LOG_STATEMACHINE_DATA_CACHE_BYTES_SAVED);
 
   private final LongCounter numStateMachineDataWriteTimeout = getRegistry().counter(
       RAFT_LOG_STATEMACHINE_DATA_WRITE_TIMEOUT_COUNT);
@@ -105,6 +129,7 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
 
   public SegmentedRaftLogMetrics(RaftGroupMemberId serverId) {
     super(serverId);
+    getRegistry().gauge(RAFT_LOG_LOAD_BYTES_PER_ENTRY, () -> this::getLoadBytesPerEntry);
   }
 
   public void addDataQueueSizeGauge(Supplier<Integer> numElements) {
@@ -179,6 +204,39 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
     return readEntryTimer;
   }
 
+  public void onRaftLogLoadEntries(long numEntries, long numBytes) {
+    loadEntryCount.inc(numEntries);
+    loadEntryBytes.inc(numBytes);
+  }
+
+  public long getLoadBytesPerEntry() {
+    final long count = loadEntryCount.getCount();
+    return count == 0 ? 0 : loadEntryBytes.getCount() / count;
+  }
+
+  public void addStateMachineDataCacheSizeInBytes(Supplier<Long> cacheSizeInBytes) {
+    getRegistry().gauge(RAFT_LOG_STATEMACHINE_DATA_CACHE_SIZE_IN_BYTES, () -> cacheSizeInBytes);
+    getRegistry().gauge(RAFT_LOG_STATEMACHINE_DATA_CACHE_HIT_RATE, () -> this::getStateMachineDataCacheHitRate);
+  }
+
+  public void onStateMachineDataCacheHit() {
+    stateMachineDataCacheHitCount.inc();
+  }
+
+  public void onStateMachineDataCacheMiss() {
+    stateMachineDataCacheMissCount.inc();
+  }
+
+  public void onStateMachineDataCacheBytesSaved(long numBytes) {
+    stateMachineDataCacheBytesSaved.inc(numBytes);
+  }
+
+  public long getStateMachineDataCacheHitRate() {
+    final long hit = stateMachineDataCacheHitCount.getCount();
+    final long total = hit + stateMachineDataCacheMissCount.getCount();
+    return total == 0 ? 0 : hit * 100 / total;
+  }
+
   public UncheckedAutoCloseable startLoadSegmentTimer() {
     return Timekeeper.start(loadSegmentTimer);
   }
@@ -133,11 +133,15 @@ public final class LogProtoUtils {
    *         otherwise, return the given entry.
    */
   public static LogEntryProto removeStateMachineData(LogEntryProto entry) {
+    return hasStateMachineData(entry)? replaceStateMachineDataWithSerializedSize(entry): entry;
+  }
+
+  /** @return true iff the given entry has non-empty state machine data. */
+  public static boolean hasStateMachineData(LogEntryProto entry) {
     return getStateMachineEntry(entry)
         .map(StateMachineEntryProto::getStateMachineData)
         .filter(stateMachineData -> !stateMachineData.isEmpty())
-        .map(_dummy -> replaceStateMachineDataWithSerializedSize(entry))
-        .orElse(entry);
+        .isPresent();
   }
 
   private static LogEntryProto replaceStateMachineDataWithSerializedSize(LogEntryProto entry) {
@@ -31,6 +31,8 @@ import org.apache.ratis.util.AutoCloseableLock;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.OpenCloseState;
 import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.apache.ratis.util.TimeDuration;
 
 import java.io.IOException;
@@ -41,6 +43,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
 /**
  * Base class of RaftLog. Currently we provide two types of RaftLog
@@ -362,6 +365,16 @@ public abstract class RaftLogBase implements RaftLog {
 
   protected abstract List<CompletableFuture<Long>> appendImpl(List<LogEntryProto> entries);
 
+  @Override
+  public final List<CompletableFuture<Long>> append(ReferenceCountedObject<List<LogEntryProto>> entriesRef) {
+    return runner.runSequentially(() -> appendImpl(entriesRef));
+  }
+
+  /** Append the given reference-counted entries.  By default, the entries are copied and then appended. */
+  protected List<CompletableFuture<Long>> appendImpl(ReferenceCountedObject<List<LogEntryProto>> entriesRef) {
+    return appendImpl(entriesRef.get().stream().map(ProtoUtils::copy).collect(Collectors.toList()));
+  }
+
   @Override
   public String toString() {
     return getName() + ":" + state + ":c" + getLastCommittedIndex()
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.raftlog.LogDataCodec;
+import org.apache.ratis.server.raftlog.RaftLogIOException;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedInputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.apache.ratis.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compress the log data of the state machine log entries in the segmented raft log.
+ * <p>
+ * The compression is a part of the local segment file format.
+ * In a segment file with the compression header (see {@link SegmentedRaftLogFormat}),
+ * the logData of each state machine log entry is prefixed with
+ * (1) the length of the codec name as a varint, where 0 means that the data is not compressed,
+ * (2) the codec name in UTF-8, and
+ * (3) the uncompressed size as a varint, if the data is compressed.
+ * The segment files without the compression header store the log data as it is.
+ * <p>
+ * The entries are encoded once before they are written to the segment file
+ * and are decoded once when they are read from the segment file,
+ * so that the cache and the readers of the log always see the uncompressed log data.
+ *
+ * @see RaftServerConfigKeys.Log.Compression
+ */
+final class LogDataCompression {
+  static final Logger LOG = LoggerFactory.getLogger(LogDataCompression.class);
+
+  static final String NONE = "NONE";
+  static final String DEFLATE = "DEFLATE";
+
+  private static final Map<String, LogDataCodec> CODECS = new ConcurrentHashMap<>();
+  /** The prefix of the log data which is not compressed. */
+  private static final ByteString UNCOMPRESSED = ByteString.copyFrom(new byte[]{0});
+
+  /** The built-in codec using {@link Deflater} and {@link Inflater}. */
+  static final class Deflate implements LogDataCodec {
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public ByteString compress(ByteString data) {
+      final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(data.toByteArray());
+        deflater.finish();
+        final ByteString.Output out = ByteString.newOutput(data.size() / 2);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+          out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteString();
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    public ByteString decompress(ByteString compressed, int uncompressedSize) throws IOException {
+      final Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(compressed.toByteArray());
+        final byte[] data = new byte[uncompressedSize];
+        for (int n = 0; !inflater.finished(); ) {
+          final int inflated = inflater.inflate(data, n, data.length - n);
+          if (inflated == 0 && !inflater.finished()) {
+            throw new IOException("Failed to inflate: the data is truncated or larger than "
+                + uncompressedSize + " bytes");
+          }
+          n += inflated;
+        }
+        if (inflater.getBytesWritten() != uncompressedSize) {
+          throw new IOException("Failed to inflate: expected " + uncompressedSize
+              + " bytes but inflated " + inflater.getBytesWritten() + " bytes");
+        }
+        return UnsafeByteOperations.unsafeWrap(data);
+      } catch (DataFormatException e) {
+        throw new IOException("Failed to inflate", e);
+      } finally {
+        inflater.end();
+      }
+    }
+  }
+
+  private static final LogDataCodec DEFLATE_CODEC = new Deflate();
+
+  static boolean isEnabled(RaftProperties properties) {
+    return !NONE.equalsIgnoreCase(RaftServerConfigKeys.Log.Compression.codec(properties));
+  }
+
+  /** @return a new instance if compression is enabled; otherwise, return null. */
+  static LogDataCompression newInstance(Object name, RaftProperties properties) {
+    if (!isEnabled(properties)) {
+      return null;
+    }
+    final String codec = RaftServerConfigKeys.Log.Compression.codec(properties);
+    final long threshold = RaftServerConfigKeys.Log.Compression.threshold(properties).getSize();
+    return new LogDataCompression(name, DEFLATE.equalsIgnoreCase(codec)? DEFLATE: codec, threshold);
+  }
+
+  static LogDataCodec getCodec(String codec) {
+    return DEFLATE.equals(codec)? DEFLATE_CODEC
+        : CODECS.computeIfAbsent(codec,
+            c -> ReflectionUtils.newInstance(ReflectionUtils.getClass(c, LogDataCodec.class)));
+  }
+
+  /** @return the prefix of the log data compressed by the given codec. */
+  private static ByteString newPrefix(String codec, int uncompressedSize) {
+    final byte[] name = codec.getBytes(StandardCharsets.UTF_8);
+    final byte[] prefix = new byte[CodedOutputStream.computeUInt32SizeNoTag(name.length) + name.length
+        + CodedOutputStream.computeUInt32SizeNoTag(uncompressedSize)];
+    final CodedOutputStream out = CodedOutputStream.newInstance(prefix);
+    try {
+      out.writeUInt32NoTag(name.length);
+      out.writeRawBytes(name);
+      out.writeUInt32NoTag(uncompressedSize);
+      out.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write the prefix for " + codec, e);
+    }
+    return UnsafeByteOperations.unsafeWrap(prefix);
+  }
+
+  private static LogEntryProto setLogData(LogEntryProto entry, ByteString logData) {
+    final StateMachineLogEntryProto smLog = entry.getStateMachineLogEntry();
+    return entry.toBuilder()
+        .setStateMachineLogEntry(smLog.toBuilder().setLogData(logData))
+        .build();
+  }
+
+  /** @return the given entry encoded, without compression, for a segment with the compression header. */
+  static LogEntryProto encodeUncompressed(LogEntryProto entry) {
+    return !entry.hasStateMachineLogEntry()? entry
+        : setLogData(entry, UNCOMPRESSED.concat(entry.getStateMachineLogEntry().getLogData()));
+  }
+
+  /**
+   * Decode the given entry read from a segment file.
+   *
+   * @param compressed does the segment file have the compression header?
+   * @return the entry with the original log data.
+   */
+  static LogEntryProto decode(LogEntryProto stored, boolean compressed) throws RaftLogIOException {
+    if (!compressed || !stored.hasStateMachineLogEntry()) {
+      return stored;
+    }
+    final ByteString logData = stored.getStateMachineLogEntry().getLogData();
+    String codec = null;
+    try {
+      final CodedInputStream in = logData.newCodedInput();
+      final int nameLength = in.readUInt32();
+      if (nameLength == 0) {
+        return setLogData(stored, logData.substring(in.getTotalBytesRead()));
+      }
+      codec = new String(in.readRawBytes(nameLength), StandardCharsets.UTF_8);
+      final int uncompressedSize = in.readUInt32();
+      final ByteString compressedData = logData.substring(in.getTotalBytesRead());
+      return setLogData(stored, getCodec(codec).decompress(compressedData, uncompressedSize));
+    } catch (Exception e) {
+      throw new RaftLogIOException("Failed to decode the log data of entry " + stored.getIndex()
+          + (codec == null? "": " with codec " + codec), e);
+    }
+  }
+
+  private final String name;
+  private final String codecName;
+  private final LogDataCodec codec;
+  private final long threshold;
+
+  private LogDataCompression(Object name, String codecName, long threshold) {
+    this.name = name + "-" + getClass().getSimpleName();
+    this.codecName = codecName;
+    this.codec = getCodec(codecName);
+    this.threshold = threshold;
+    LOG.info("{}: codec={}, threshold={}", this.name, codecName, threshold);
+  }
+
+  /**
+   * Encode the given entry for a segment with the compression header.
+   * The log data is compressed if it is not smaller than the threshold and it is compressible.
+   *
+   * @return the encoded entry.
+   */
+  LogEntryProto encode(LogEntryProto entry) {
+    if (!entry.hasStateMachineLogEntry()) {
+      return entry;
+    }
+    final ByteString data = entry.getStateMachineLogEntry().getLogData();
+    if (data.size() < threshold) {
+      return encodeUncompressed(entry);
+    }
+
+    final ByteString compressed;
+    try {
+      compressed = codec.compress(data);
+    } catch (Exception e) {
+      LOG.warn("{}: Failed to compress the log data of entry {}, store it uncompressed", name, entry.getIndex(), e);
+      return encodeUncompressed(entry);
+    }
+    final ByteString prefix = newPrefix(codecName, data.size());
+    if (prefix.size() + compressed.size() >= UNCOMPRESSED.size() + data.size()) {
+      return encodeUncompressed(entry); // not compressible
+    }
+    return setLogData(entry, prefix.concat(compressed));
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
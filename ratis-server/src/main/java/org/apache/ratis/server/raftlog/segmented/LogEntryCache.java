@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.protocol.TermIndex;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The cache of the log entries in a {@link LogSegment}. */
+interface LogEntryCache {
+  static LogEntryCache newInstance(long startIndex, OffHeapLogEntryCache.SlabPool offHeapPool) {
+    return offHeapPool == null? new Heap(): new OffHeapLogEntryCache(startIndex, offHeapPool);
+  }
+
+  /** @return the cached entry; or null if it is not found. */
+  LogEntryProto get(TermIndex ti);
+
+  /**
+   * Put the given entry to the cache.
+   *
+   * @return true iff an entry with the same key was already cached.
+   */
+  boolean put(TermIndex ti, LogEntryProto entry);
+
+  /** @return the removed entry; or null if it is not found. */
+  LogEntryProto remove(TermIndex ti);
+
+  boolean isEmpty();
+
+  /**
+   * @return the size of the memory allocated by this cache;
+   *         or a negative value if the memory is not managed by this cache,
+   *         in which case the cache size is the sum of the entry sizes.
+   */
+  default long getAllocatedSize() {
+    return -1;
+  }
+
+  /** Remove all the entries and release the resources. */
+  void clear();
+
+  /** The default cache keeping the {@link LogEntryProto} objects on the heap. */
+  class Heap implements LogEntryCache {
+    private final Map<TermIndex, LogEntryProto> map = new ConcurrentHashMap<>();
+
+    @Override
+    public LogEntryProto get(TermIndex ti) {
+      return map.get(ti);
+    }
+
+    @Override
+    public boolean put(TermIndex ti, LogEntryProto entry) {
+      return map.put(ti, entry) != null;
+    }
+
+    @Override
+    public LogEntryProto remove(TermIndex ti) {
+      return map.remove(ti);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto.LogEntryBodyCase;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.LogEntryHeader;
+import org.apache.ratis.server.raftlog.segmented.LogSegment.LogRecord;
+import org.apache.ratis.util.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * The records of a {@link LogSegment}, i.e. the offset, the term and the body case of each entry,
+ * in primitive arrays indexed by the position of the entry in the segment.
+ * The index of an entry is its position plus the start index.
+ * The terms are run-length encoded since they rarely change within a segment.
+ * <p>
+ * {@link LogRecord}s are only created on demand.
+ * This class has the same thread-safety as {@link java.util.ArrayList}.
+ */
+final class LogRecordList {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final long startIndex;
+
+  private long[] offsets = new long[INITIAL_CAPACITY];
+  private byte[] bodyCases = new byte[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /** The position of the first entry of each run. */
+  private int[] runStarts = new int[1];
+  /** The term of each run. */
+  private long[] runTerms = new long[1];
+  private int numRuns = 0;
+
+  LogRecordList(long startIndex) {
+    this.startIndex = startIndex;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  long getStartIndex() {
+    return startIndex;
+  }
+
+  void add(long offset, LogEntryHeader header) {
+    Preconditions.assertSame(startIndex + size, header.getIndex(), "index");
+    add(offset, header.getTerm(), header.getLogEntryBodyCase());
+  }
+
+  void add(long offset, long term, LogEntryBodyCase bodyCase) {
+    if (size == offsets.length) {
+      final int capacity = size << 1;
+      offsets = Arrays.copyOf(offsets, capacity);
+      bodyCases = Arrays.copyOf(bodyCases, capacity);
+    }
+    offsets[size] = offset;
+    bodyCases[size] = (byte) bodyCase.getNumber();
+
+    if (numRuns == 0 || runTerms[numRuns - 1] != term) {
+      if (numRuns == runTerms.length) {
+        final int capacity = numRuns << 1;
+        runStarts = Arrays.copyOf(runStarts, capacity);
+        runTerms = Arrays.copyOf(runTerms, capacity);
+      }
+      runStarts[numRuns] = size;
+      runTerms[numRuns] = term;
+      numRuns++;
+    }
+    size++;
+  }
+
+  void addAll(LogRecordList that) {
+    Preconditions.assertSame(startIndex + size, that.startIndex, "startIndex");
+    for (int i = 0; i < that.size; i++) {
+      add(that.offsets[i], that.getTerm(i), that.getLogEntryBodyCase(i));
+    }
+  }
+
+  private void checkPosition(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("position " + i + " is out of bounds [0, " + size + ")");
+    }
+  }
+
+  long getOffset(int i) {
+    checkPosition(i);
+    return offsets[i];
+  }
+
+  long getTerm(int i) {
+    checkPosition(i);
+    // most lookups are in the last run
+    if (i >= runStarts[numRuns - 1]) {
+      return runTerms[numRuns - 1];
+    }
+    final int r = Arrays.binarySearch(runStarts, 0, numRuns, i);
+    return runTerms[r >= 0 ? r : -r - 2];
+  }
+
+  TermIndex getTermIndex(int i) {
+    return TermIndex.valueOf(getTerm(i), startIndex + i);
+  }
+
+  LogEntryBodyCase getLogEntryBodyCase(int i) {
+    checkPosition(i);
+    return LogEntryBodyCase.forNumber(bodyCases[i]);
+  }
+
+  LogRecord get(int i) {
+    final LogEntryHeader header = LogEntryHeader.valueOf(getTermIndex(i), getLogEntryBodyCase(i));
+    return new LogRecord(getOffset(i), header);
+  }
+
+  LogRecord getLast() {
+    return isEmpty() ? null : get(size - 1);
+  }
+
+  /** Remove the records from the given position (inclusive). */
+  void truncate(int newSize) {
+    Preconditions.assertTrue(newSize >= 0 && newSize <= size, () -> "Illegal newSize " + newSize + ", size=" + size);
+    size = newSize;
+    while (numRuns > 0 && runStarts[numRuns - 1] >= newSize) {
+      numRuns--;
+    }
+  }
+
+  void clear() {
+    truncate(0);
+  }
+
+  LogRecordList copy() {
+    final LogRecordList copy = new LogRecordList(startIndex);
+    copy.offsets = Arrays.copyOf(offsets, Math.max(size, INITIAL_CAPACITY));
+    copy.bodyCases = Arrays.copyOf(bodyCases, Math.max(size, INITIAL_CAPACITY));
+    copy.size = size;
+    copy.runStarts = Arrays.copyOf(runStarts, Math.max(numRuns, 1));
+    copy.runTerms = Arrays.copyOf(runTerms, Math.max(numRuns, 1));
+    copy.numRuns = numRuns;
+    return copy;
+  }
+
+  @Override
+  public String toString() {
+    return "records[" + startIndex + ", " + (startIndex + size - 1) + "] with " + numRuns + " term(s)";
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.ratis.server.raftlog.segmented;
 
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto.LogEntryBodyCase;
 import org.apache.ratis.server.RaftServerConfigKeys.Log.CorruptionPolicy;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.server.protocol.TermIndex;
@@ -31,18 +32,16 @@ import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
 import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.function.CheckedConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -88,8 +87,12 @@ public final class LogSegment {
     private final LogEntryHeader logEntryHeader;
 
     LogRecord(long offset, LogEntryProto entry) {
+      this(offset, LogEntryHeader.valueOf(entry));
+    }
+
+    LogRecord(long offset, LogEntryHeader logEntryHeader) {
       this.offset = offset;
-      this.logEntryHeader = LogEntryHeader.valueOf(entry);
+      this.logEntryHeader = logEntryHeader;
     }
 
     LogEntryHeader getLogEntryHeader() {
@@ -105,28 +108,112 @@ public final class LogSegment {
     }
   }
 
+  /** The options for reading segment files and caching their entries. */
+  static final class ReadOptions {
+    static ReadOptions valueOf(SizeInBytes maxOpSize) {
+      return new ReadOptions(maxOpSize, false, false);
+    }
+
+    private final SizeInBytes maxOpSize;
+    /** Read the closed segment files using mmap? */
+    private final boolean mmapEnabled;
+    /** Write and load the {@link LogSegmentIndexFile} of the closed segments? */
+    private final boolean indexEnabled;
+    /** The pool for caching the entries off-heap; null means caching the entries on the heap. */
+    private final OffHeapLogEntryCache.SlabPool offHeapPool;
+    /** Do the new open segments have the header for compression?  See {@link LogDataCompression}. */
+    private final boolean compressionEnabled;
+
+    ReadOptions(SizeInBytes maxOpSize, boolean mmapEnabled, boolean indexEnabled) {
+      this(maxOpSize, mmapEnabled, indexEnabled, null);
+    }
+
+    ReadOptions(SizeInBytes maxOpSize, boolean mmapEnabled, boolean indexEnabled,
+        OffHeapLogEntryCache.SlabPool offHeapPool) {
+      this(maxOpSize, mmapEnabled, indexEnabled, offHeapPool, false);
+    }
+
+    ReadOptions(SizeInBytes maxOpSize, boolean mmapEnabled, boolean indexEnabled,
+        OffHeapLogEntryCache.SlabPool offHeapPool, boolean compressionEnabled) {
+      this.maxOpSize = Objects.requireNonNull(maxOpSize, "maxOpSize == null");
+      this.mmapEnabled = mmapEnabled;
+      this.indexEnabled = indexEnabled;
+      this.offHeapPool = offHeapPool;
+      this.compressionEnabled = compressionEnabled;
+    }
+
+    SizeInBytes getMaxOpSize() {
+      return maxOpSize;
+    }
+
+    boolean isMmapEnabled() {
+      return mmapEnabled;
+    }
+
+    boolean isIndexEnabled() {
+      return indexEnabled;
+    }
+
+    OffHeapLogEntryCache.SlabPool getOffHeapPool() {
+      return offHeapPool;
+    }
+
+    boolean isCompressionEnabled() {
+      return compressionEnabled;
+    }
+  }
+
   static LogSegment newOpenSegment(RaftStorage storage, long start, SizeInBytes maxOpSize,
       SegmentedRaftLogMetrics raftLogMetrics) {
+    return newOpenSegment(storage, start, ReadOptions.valueOf(maxOpSize), raftLogMetrics);
+  }
+
+  static LogSegment newOpenSegment(RaftStorage storage, long start, ReadOptions options,
+      SegmentedRaftLogMetrics raftLogMetrics) {
     Preconditions.assertTrue(start >= 0);
-    return new LogSegment(storage, true, start, start - 1, maxOpSize, raftLogMetrics);
+    return new LogSegment(storage, true, start, start - 1, options, options.isCompressionEnabled(), raftLogMetrics);
   }
 
   @VisibleForTesting
   static LogSegment newCloseSegment(RaftStorage storage,
       long start, long end, SizeInBytes maxOpSize, SegmentedRaftLogMetrics raftLogMetrics) {
+    return newCloseSegment(storage, start, end, ReadOptions.valueOf(maxOpSize), raftLogMetrics);
+  }
+
+  static LogSegment newCloseSegment(RaftStorage storage,
+      long start, long end, ReadOptions options, SegmentedRaftLogMetrics raftLogMetrics) {
     Preconditions.assertTrue(start >= 0 && end >= start);
-    return new LogSegment(storage, false, start, end, maxOpSize, raftLogMetrics);
+    return new LogSegment(storage, false, start, end, options, false, raftLogMetrics);
   }
 
-  static LogSegment newLogSegment(RaftStorage storage, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
-      SegmentedRaftLogMetrics metrics) {
-    return startEnd.isOpen()? newOpenSegment(storage, startEnd.getStartIndex(), maxOpSize, metrics)
-        : newCloseSegment(storage, startEnd.getStartIndex(), startEnd.getEndIndex(), maxOpSize, metrics);
+  /** @return a new segment for loading the given segment file. */
+  private static LogSegment newLogSegment(RaftStorage storage, File file, LogSegmentStartEnd startEnd,
+      ReadOptions options, SegmentedRaftLogMetrics metrics) throws IOException {
+    final boolean compressed = SegmentedRaftLogFormat.hasCompressionHeader(file);
+    final long start = startEnd.getStartIndex();
+    final long end = startEnd.isOpen()? start - 1: startEnd.getEndIndex();
+    return new LogSegment(storage, startEnd.isOpen(), start, end, options, compressed, metrics);
   }
 
+  /**
+   * Read the entries from the given segment file.
+   * The log data of the entries are decoded; see {@link LogDataCompression}.
+   */
   public static int readSegmentFile(File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
       CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics, Consumer<LogEntryProto> entryConsumer)
       throws IOException {
+    final boolean compressed = SegmentedRaftLogFormat.hasCompressionHeader(file);
+    return readStoredEntries(file, startEnd, maxOpSize, corruptionPolicy, raftLogMetrics, stored -> {
+      if (entryConsumer != null) {
+        entryConsumer.accept(LogDataCompression.decode(stored, compressed));
+      }
+    });
+  }
+
+  /** Read the entries in the stored form, i.e. the log data are not decoded, from the given segment file. */
+  private static int readStoredEntries(File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
+      CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics,
+      CheckedConsumer<LogEntryProto, IOException> entryConsumer) throws IOException {
     int count = 0;
     try(SegmentedRaftLogInputStream in = new SegmentedRaftLogInputStream(file, startEnd, maxOpSize, raftLogMetrics)) {
       for(LogEntryProto prev = null, next; (next = in.nextEntry()) != null; prev = next) {
@@ -141,33 +228,89 @@ public final class LogSegment {
         count++;
       }
     } catch (IOException ioe) {
-      switch (corruptionPolicy) {
-        case EXCEPTION: throw ioe;
-        case WARN_AND_RETURN:
-          LOG.warn("Failed to read segment file {} ({}): only {} entries read successfully",
-              file, startEnd, count, ioe);
-          break;
-        default:
-          throw new IllegalStateException("Unexpected enum value: " + corruptionPolicy
-              + ", class=" + CorruptionPolicy.class);
-      }
+      handleCorruption(file, startEnd, corruptionPolicy, count, ioe);
     }
 
     return count;
   }
 
+  /**
+   * Read the entries in the stored form from a closed segment file using mmap,
+   * see {@link SegmentedRaftLogPositionedReader#readAll(long, CheckedConsumer)}.
+   */
+  static int readMappedSegmentFile(File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
+      CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics,
+      CheckedConsumer<LogEntryProto, IOException> entryConsumer) throws IOException {
+    Preconditions.assertTrue(!startEnd.isOpen(), () -> "Unexpected open segment " + startEnd);
+    final AtomicInteger count = new AtomicInteger();
+    try(SegmentedRaftLogPositionedReader in = new SegmentedRaftLogPositionedReader(
+        file, maxOpSize, true, raftLogMetrics)) {
+      in.readAll(startEnd.getEndIndex(), entry -> {
+        entryConsumer.accept(entry);
+        count.incrementAndGet();
+      });
+    } catch (IOException ioe) {
+      handleCorruption(file, startEnd, corruptionPolicy, count.get(), ioe);
+    }
+    return count.get();
+  }
+
+  private static void handleCorruption(File file, LogSegmentStartEnd startEnd, CorruptionPolicy corruptionPolicy,
+      int count, IOException ioe) throws IOException {
+    switch (corruptionPolicy) {
+      case EXCEPTION: throw ioe;
+      case WARN_AND_RETURN:
+        LOG.warn("Failed to read segment file {} ({}): only {} entries read successfully",
+            file, startEnd, count, ioe);
+        break;
+      default:
+        throw new IllegalStateException("Unexpected enum value: " + corruptionPolicy
+            + ", class=" + CorruptionPolicy.class);
+    }
+  }
+
   static LogSegment loadSegment(RaftStorage storage, File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
       boolean keepEntryInCache, Consumer<LogEntryProto> logConsumer, SegmentedRaftLogMetrics raftLogMetrics)
       throws IOException {
-    final LogSegment segment = newLogSegment(storage, startEnd, maxOpSize, raftLogMetrics);
-    final CorruptionPolicy corruptionPolicy = CorruptionPolicy.get(storage, RaftStorage::getLogCorruptionPolicy);
+    return loadSegment(storage, file, startEnd, ReadOptions.valueOf(maxOpSize),
+        keepEntryInCache, logConsumer, raftLogMetrics);
+  }
+
+  /**
+   * Load the segment from the given file.
+   * <p>
+   * When the index is enabled and a valid {@link LogSegmentIndexFile} exists for a closed segment,
+   * the segment is loaded from the index without reading all the entries.
+   * In such case, the entries are not cached
+   * and the logConsumer only receives the configuration entries.
+   * The checksums of the other entries are verified when they are first read.
+   */
+  static LogSegment loadSegment(RaftStorage storage, File file, LogSegmentStartEnd startEnd, ReadOptions options,
+      boolean keepEntryInCache, Consumer<LogEntryProto> logConsumer, SegmentedRaftLogMetrics raftLogMetrics)
+      throws IOException {
     final boolean isOpen = startEnd.isOpen();
-    final int entryCount = readSegmentFile(file, startEnd, maxOpSize, corruptionPolicy, raftLogMetrics, entry -> {
-      segment.append(keepEntryInCache || isOpen, entry, Op.LOAD_SEGMENT_FILE);
+    if (!isOpen && options.isIndexEnabled()) {
+      final LogSegment indexed = loadSegmentFromIndex(storage, file, startEnd, options, logConsumer, raftLogMetrics);
+      if (indexed != null) {
+        return indexed;
+      }
+    }
+
+    final LogSegment segment = newLogSegment(storage, file, startEnd, options, raftLogMetrics);
+    final CorruptionPolicy corruptionPolicy = CorruptionPolicy.get(storage, RaftStorage::getLogCorruptionPolicy);
+    final SizeInBytes maxOpSize = options.getMaxOpSize();
+    final boolean keep = keepEntryInCache || isOpen;
+    final CheckedConsumer<LogEntryProto, IOException> entryConsumer = stored -> {
+      // decode only if the entry is used
+      final LogEntryProto entry = keep || logConsumer != null? segment.decode(stored): stored;
+      segment.append(keep, entry, stored, Op.LOAD_SEGMENT_FILE);
       if (logConsumer != null) {
         logConsumer.accept(entry);
       }
-    });
+    };
+    final int entryCount = options.isMmapEnabled() && !isOpen
+        ? readMappedSegmentFile(file, startEnd, maxOpSize, corruptionPolicy, raftLogMetrics, entryConsumer)
+        : readStoredEntries(file, startEnd, maxOpSize, corruptionPolicy, raftLogMetrics, entryConsumer);
     LOG.info("Successfully read {} entries from segment file {}", entryCount, file);
 
     final long start = startEnd.getStartIndex();
@@ -181,6 +324,7 @@ public final class LogSegment {
 
     if (entryCount == 0) {
       // The segment does not have any entries, delete the file.
+      LogSegmentIndexFile.delete(file);
       final Path deleted = FileUtils.deleteFile(file);
       LOG.info("Deleted RaftLog segment since entry count is zero: startEnd={}, path={}", startEnd, deleted);
       return null;
@@ -194,9 +338,72 @@ public final class LogSegment {
     } catch (Exception e) {
       throw new IllegalStateException("Failed to read segment file " + file, e);
     }
+
+    if (!isOpen && !corrupted && options.isIndexEnabled()) {
+      // write the index so that the segment can be loaded from it next time.
+      segment.writeIndexFile(file);
+    }
+    return segment;
+  }
+
+  /** @return the segment loaded from the index file; or null if the index file does not exist or it is invalid. */
+  private static LogSegment loadSegmentFromIndex(RaftStorage storage, File file, LogSegmentStartEnd startEnd,
+      ReadOptions options, Consumer<LogEntryProto> logConsumer, SegmentedRaftLogMetrics raftLogMetrics) {
+    final LogSegment segment;
+    try {
+      segment = newLogSegment(storage, file, startEnd, options, raftLogMetrics);
+    } catch (IOException e) {
+      LOG.warn("Failed to read the header of segment file {} ({})", file, startEnd, e);
+      return null;
+    }
+    try {
+      final LogSegmentIndexFile index = LogSegmentIndexFile.read(file, startEnd);
+      if (index == null) {
+        return null;
+      }
+      segment.records.addAll(index.getRecords());
+      segment.totalFileSize = index.getSegmentFileSize();
+      segment.assertSegment(startEnd.getStartIndex(), segment.records.size(), false, startEnd.getEndIndex());
+
+      // verify the last entry; it also verifies the file length
+      segment.loadCache(segment.getLastRecord());
+      if (logConsumer != null) {
+        for (int i = 0; i < segment.records.size(); i++) {
+          if (segment.records.getLogEntryBodyCase(i) == LogEntryBodyCase.CONFIGURATIONENTRY) {
+            logConsumer.accept(segment.loadCache(segment.records.get(i)));
+          }
+        }
+      }
+      segment.evictCache();
+
+      if (file.length() > segment.getTotalFileSize()) {
+        // The segment has extra padding, truncate it.
+        FileUtils.truncateFile(file, segment.getTotalFileSize());
+      }
+    } catch (Exception e) {
+      LOG.warn("Failed to load segment file {} ({}) from its index; read the segment file instead.",
+          file, startEnd, e);
+      segment.clear();
+      LogSegmentIndexFile.delete(file);
+      return null;
+    }
+    LOG.info("Successfully loaded {} entries from the index of segment file {}", segment.records.size(), file);
     return segment;
   }
 
+  void writeIndexFile(File file) {
+    try {
+      LogSegmentIndexFile.write(file, records, totalFileSize);
+    } catch (IOException e) {
+      LOG.warn("Failed to write the index file for segment {} ({})", file, this, e);
+    }
+  }
+
+  /** @return a copy of the records. */
+  LogRecordList copyRecords() {
+    return records.copy();
+  }
+
   private void assertSegment(long expectedStart, int expectedEntryCount, boolean corrupted, long expectedEnd) {
     Preconditions.assertSame(expectedStart, getStartIndex(), "Segment start index");
     Preconditions.assertSame(expectedEntryCount, records.size(), "Number of records");
@@ -207,7 +414,7 @@ public final class LogSegment {
     final LogRecord last = getLastRecord();
     if (last != null) {
       Preconditions.assertSame(expectedLastIndex, last.getTermIndex().getIndex(), "Index at the last record");
-      Preconditions.assertSame(expectedStart, records.get(0).getTermIndex().getIndex(), "Index at the first record");
+      Preconditions.assertSame(expectedStart, records.getTermIndex(0).getIndex(), "Index at the first record");
     }
     if (!corrupted) {
       Preconditions.assertSame(expectedEnd, expectedLastIndex, "End/last Index");
@@ -215,11 +422,15 @@ public final class LogSegment {
   }
 
   /**
-   * The current log entry loader simply loads the whole segment into the memory.
-   * In most of the cases this may be good enough considering the main use case
-   * for load log entries is for leader appending to followers.
-   *
-   * In the future we can make the cache loader configurable if necessary.
+   * The log entry loader for the entries evicted from the cache.
+   * <p>
+   * For a closed segment, the entries are read directly from their offsets
+   * using a {@link SegmentedRaftLogPositionedReader}.
+   * Since the main use case for loading log entries is for leader appending to followers,
+   * the loader reads ahead the subsequent entries, up to maxOpSize bytes in total.
+   * When mmap is enabled, the entries are parsed directly from the mapped file.
+   * <p>
+   * For an open segment, the loader simply loads the whole segment into the memory.
    */
   class LogEntryLoader extends CacheLoader<LogRecord, LogEntryProto> {
     private final SegmentedRaftLogMetrics raftLogMetrics;
@@ -230,25 +441,86 @@ public final class LogSegment {
 
     @Override
     public LogEntryProto load(LogRecord key) throws IOException {
+      final LogEntryProto proto = isOpen ? loadSegmentFile(key) : loadFromOffset(key);
+      loadingTimes.incrementAndGet();
+      if (proto == null) {
+        throw new RaftLogIOException("Failed to load log entry " + key);
+      }
+      return proto;
+    }
+
+    private LogEntryProto loadSegmentFile(LogRecord key) throws IOException {
       final File file = getFile();
       // note the loading should not exceed the endIndex: it is possible that
       // the on-disk log file should be truncated but has not been done yet.
       final AtomicReference<LogEntryProto> toReturn = new AtomicReference<>();
       final LogSegmentStartEnd startEnd = LogSegmentStartEnd.valueOf(startIndex, endIndex, isOpen);
-      readSegmentFile(file, startEnd, maxOpSize,
-          getLogCorruptionPolicy(), raftLogMetrics, entry -> {
+      final int count = readStoredEntries(file, startEnd, options.getMaxOpSize(),
+          getLogCorruptionPolicy(), raftLogMetrics, stored -> {
+        final LogEntryProto entry = decode(stored);
         final TermIndex ti = TermIndex.valueOf(entry);
         putEntryCache(ti, entry, Op.LOAD_SEGMENT_FILE);
         if (ti.equals(key.getTermIndex())) {
           toReturn.set(entry);
         }
       });
-      loadingTimes.incrementAndGet();
-      final LogEntryProto proto = toReturn.get();
-      if (proto == null) {
-        throw new RaftLogIOException("Failed to load log entry " + key);
+      if (raftLogMetrics != null) {
+        raftLogMetrics.onRaftLogLoadEntries(count, file.length());
       }
-      return proto;
+      return toReturn.get();
+    }
+
+    private LogEntryProto loadFromOffset(LogRecord key) throws IOException {
+      final long from = key.getTermIndex().getIndex();
+      final long readAheadLimit = options.getMaxOpSize().getSize();
+      long to = from;
+      while (to < endIndex && getEndOffset(to + 1) - key.getOffset() <= readAheadLimit) {
+        to++;
+      }
+      final int length = Math.toIntExact(getEndOffset(to) - key.getOffset());
+
+      final List<LogEntryProto> entries = getPositionedReader(raftLogMetrics).read(key.getOffset(), length);
+      Preconditions.assertSame(to - from + 1, entries.size(), "number of entries read");
+      LogEntryProto toReturn = null;
+      for (LogEntryProto stored : entries) {
+        final LogEntryProto entry = decode(stored);
+        final TermIndex ti = TermIndex.valueOf(entry);
+        final LogRecord record = getLogRecord(ti.getIndex());
+        if (record == null || !record.getTermIndex().equals(ti)) {
+          throw new RaftLogIOException("Unexpected log entry " + ti + " read from " + positionedReader
+              + ", expected record: " + record);
+        }
+        putEntryCache(ti, entry, Op.LOAD_SEGMENT_FILE);
+        if (ti.equals(key.getTermIndex())) {
+          toReturn = entry;
+        }
+      }
+      return toReturn;
+    }
+  }
+
+  /** @return the end offset (exclusive) of the entry with the given index in the segment file. */
+  private long getEndOffset(long index) {
+    return index < endIndex ? getLogRecord(index + 1).getOffset() : totalFileSize;
+  }
+
+  private SegmentedRaftLogPositionedReader getPositionedReader(SegmentedRaftLogMetrics raftLogMetrics) {
+    final File file = getFile();
+    if (positionedReader != null && !positionedReader.getFile().equals(file)) {
+      closePositionedReader();
+    }
+    if (positionedReader == null) {
+      positionedReader = new SegmentedRaftLogPositionedReader(
+          file, options.getMaxOpSize(), options.isMmapEnabled(), raftLogMetrics);
+    }
+    return positionedReader;
+  }
+
+  /** Close the file channel, if there is any, used for loading the evicted entries of this segment. */
+  synchronized void closePositionedReader() {
+    if (positionedReader != null) {
+      positionedReader.close();
+      positionedReader = null;
     }
   }
 
@@ -264,34 +536,54 @@ public final class LogSegment {
   /** Segment end index, inclusive. */
   private volatile long endIndex;
   private final RaftStorage storage;
-  private final SizeInBytes maxOpSize;
+  private final ReadOptions options;
+  /** Does the segment file have the header for compression?  See {@link LogDataCompression}. */
+  private final boolean compressed;
   private final LogEntryLoader cacheLoader;
+  /** For reading the entries of a closed segment by their offsets; guarded by this object's monitor. */
+  private SegmentedRaftLogPositionedReader positionedReader;
   /** later replace it with a metric */
   private final AtomicInteger loadingTimes = new AtomicInteger();
 
   /**
    * the list of records is more like the index of a segment
    */
-  private final List<LogRecord> records = new ArrayList<>();
+  private final LogRecordList records;
   /**
    * the entryCache caches the content of log entries.
    */
-  private final Map<TermIndex, LogEntryProto> entryCache = new ConcurrentHashMap<>();
-
-  private LogSegment(RaftStorage storage, boolean isOpen, long start, long end, SizeInBytes maxOpSize,
-      SegmentedRaftLogMetrics raftLogMetrics) {
+  private final LogEntryCache entryCache;
+  /** Is the cache accessed since the CLOCK hand of {@link SegmentedRaftLogCacheManager} passed it last time? */
+  private volatile boolean referenced;
+  /** The sweep clearing the {@link #referenced} bit; the segment is not evicted in the same sweep. */
+  private volatile long secondChanceSweep = 0;
+
+  private LogSegment(RaftStorage storage, boolean isOpen, long start, long end, ReadOptions options,
+      boolean compressed, SegmentedRaftLogMetrics raftLogMetrics) {
     this.storage = storage;
     this.isOpen = isOpen;
     this.startIndex = start;
     this.endIndex = end;
-    this.maxOpSize = maxOpSize;
+    this.options = options;
+    this.compressed = compressed;
     this.cacheLoader = new LogEntryLoader(raftLogMetrics);
+    this.records = new LogRecordList(start);
+    this.entryCache = LogEntryCache.newInstance(start, options.getOffHeapPool());
   }
 
   long getStartIndex() {
     return startIndex;
   }
 
+  boolean isCompressed() {
+    return compressed;
+  }
+
+  /** @return the given entry read from the segment file with its log data decoded. */
+  private LogEntryProto decode(LogEntryProto stored) throws RaftLogIOException {
+    return LogDataCompression.decode(stored, compressed);
+  }
+
   long getEndIndex() {
     return endIndex;
   }
@@ -309,41 +601,68 @@ public final class LogSegment {
   }
 
   void appendToOpenSegment(LogEntryProto entry, Op op) {
+    appendToOpenSegment(entry, entry, op);
+  }
+
+  /**
+   * @param entry the entry to be cached.
+   * @param stored the same entry in the form written to the segment file; see {@link LogDataCompression}.
+   */
+  void appendToOpenSegment(LogEntryProto entry, LogEntryProto stored, Op op) {
     Preconditions.assertTrue(isOpen(), "The log segment %s is not open for append", this);
-    append(true, entry, op);
+    append(true, entry, stored, op);
   }
 
-  private void append(boolean keepEntryInCache, LogEntryProto entry, Op op) {
+  private void append(boolean keepEntryInCache, LogEntryProto entry, LogEntryProto stored, Op op) {
     Objects.requireNonNull(entry, "entry == null");
     if (records.isEmpty()) {
       Preconditions.assertTrue(entry.getIndex() == startIndex,
           "gap between start index %s and first entry to append %s",
           startIndex, entry.getIndex());
+    } else {
+      final long lastIndex = startIndex + records.size() - 1;
+      Preconditions.assertTrue(entry.getIndex() == lastIndex + 1,
+          "gap between entries %s and %s", entry.getIndex(), lastIndex);
     }
 
-    final LogRecord currentLast = getLastRecord();
-    if (currentLast != null) {
-      Preconditions.assertTrue(entry.getIndex() == currentLast.getTermIndex().getIndex() + 1,
-          "gap between entries %s and %s", entry.getIndex(), currentLast.getTermIndex().getIndex());
-    }
-
-    final LogRecord record = new LogRecord(totalFileSize, entry);
     if (keepEntryInCache) {
-      putEntryCache(record.getTermIndex(), entry, op);
+      putEntryCache(TermIndex.valueOf(entry), entry, op);
     }
-    records.add(record);
-    totalFileSize += getEntrySize(entry, op);
+    records.add(totalFileSize, entry.getTerm(), entry.getLogEntryBodyCase());
+    // the state machine data is not written to the segment file; see SegmentedRaftLogWorker.WriteLog
+    totalFileSize += getEntrySize(stored, Op.CHECK_SEGMENT_FILE_FULL);
     endIndex = entry.getIndex();
   }
 
   LogEntryProto getEntryFromCache(TermIndex ti) {
-    return entryCache.get(ti);
+    final LogEntryProto entry = entryCache.get(ti);
+    if (entry != null && !referenced) {
+      referenced = true;
+    }
+    return entry;
+  }
+
+  /**
+   * Give this segment a second chance in the CLOCK eviction:
+   * clear the referenced bit and keep the segment until the hand returns in a later sweep.
+   *
+   * @return true iff the segment should be kept in the given sweep,
+   *         i.e. it is referenced or its referenced bit is already cleared in the same sweep.
+   */
+  boolean giveSecondChance(long sweep) {
+    if (referenced) {
+      referenced = false;
+      secondChanceSweep = sweep;
+      return true;
+    }
+    return secondChanceSweep == sweep;
   }
 
   /**
    * Acquire LogSegment's monitor so that there is no concurrent loading.
    */
   synchronized LogEntryProto loadCache(LogRecord record) throws RaftLogIOException {
+    referenced = true;
     LogEntryProto entry = entryCache.get(record.getTermIndex());
     if (entry != null) {
       return entry;
@@ -364,13 +683,20 @@ public final class LogSegment {
     return null;
   }
 
+  /** @return the {@link TermIndex} at the given index without creating a {@link LogRecord}; or null if not found. */
+  TermIndex getTermIndex(long index) {
+    if (index >= startIndex && index <= endIndex) {
+      return records.getTermIndex(Math.toIntExact(index - startIndex));
+    }
+    return null;
+  }
+
   private LogRecord getLastRecord() {
-    return records.isEmpty() ? null : records.get(records.size() - 1);
+    return records.getLast();
   }
 
   TermIndex getLastTermIndex() {
-    LogRecord last = getLastRecord();
-    return last == null ? null : last.getTermIndex();
+    return records.isEmpty() ? null : records.getTermIndex(records.size() - 1);
   }
 
   long getTotalFileSize() {
@@ -378,7 +704,8 @@ public final class LogSegment {
   }
 
   long getTotalCacheSize() {
-    return totalCacheSize.get();
+    final long allocated = entryCache.getAllocatedSize();
+    return allocated >= 0? allocated : totalCacheSize.get();
   }
 
   /**
@@ -386,13 +713,15 @@ public final class LogSegment {
    */
   synchronized void truncate(long fromIndex) {
     Preconditions.assertTrue(fromIndex >= startIndex && fromIndex <= endIndex);
-    for (long index = endIndex; index >= fromIndex; index--) {
-      LogRecord removed = records.remove(Math.toIntExact(index - startIndex));
-      removeEntryCache(removed.getTermIndex(), Op.REMOVE_CACHE);
-      totalFileSize = removed.offset;
+    final int fromPosition = Math.toIntExact(fromIndex - startIndex);
+    for (int i = records.size() - 1; i >= fromPosition; i--) {
+      removeEntryCache(records.getTermIndex(i), Op.REMOVE_CACHE);
     }
+    totalFileSize = records.getOffset(fromPosition);
+    records.truncate(fromPosition);
     isOpen = false;
     this.endIndex = fromIndex - 1;
+    closePositionedReader();
   }
 
   void close() {
@@ -424,6 +753,7 @@ public final class LogSegment {
   synchronized void clear() {
     records.clear();
     evictCache();
+    closePositionedReader();
     endIndex = startIndex - 1;
   }
 
@@ -437,9 +767,9 @@ public final class LogSegment {
   }
 
   void putEntryCache(TermIndex key, LogEntryProto value, Op op) {
-    final LogEntryProto previous = entryCache.put(key, value);
+    final boolean previous = entryCache.put(key, value);
     long previousSize = 0;
-    if (previous != null) {
+    if (previous) {
       // Different threads maybe load LogSegment file into cache at the same time, so duplicate maybe happen
       previousSize = getEntrySize(value, Op.REMOVE_CACHE);
     }
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.io.CorruptedFileException;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto.LogEntryBodyCase;
+import org.apache.ratis.util.AtomicFileOutputStream;
+import org.apache.ratis.util.ByteBufferChecksum;
+import org.apache.ratis.util.Crc32CFactory;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A sidecar index file of a closed log segment,
+ * so that the segment can be loaded without reading all its entries.
+ * <p>
+ * Format:
+ *   (1) 8-byte header "RaftIdx1".
+ *   (2) The start index (8 bytes), the number of entries n (4 bytes) and the segment file size (8 bytes).
+ *   (3) For each entry, the term (8 bytes), the offset (8 bytes) and the {@link LogEntryBodyCase} number (4 bytes).
+ *   (4) 4-byte checksum of all the bytes above.
+ * <p>
+ * The index of an entry is not stored since it is the start index plus the entry position.
+ */
+final class LogSegmentIndexFile {
+  static final String SUFFIX = ".index";
+
+  private static final byte[] HEADER = "RaftIdx1".getBytes(StandardCharsets.UTF_8);
+  private static final int FIXED_LENGTH = HEADER.length + 8 + 4 + 8 + 4;
+  private static final int RECORD_LENGTH = 8 + 8 + 4;
+
+  private final LogRecordList records;
+  private final long segmentFileSize;
+
+  private LogSegmentIndexFile(LogRecordList records, long segmentFileSize) {
+    this.records = records;
+    this.segmentFileSize = segmentFileSize;
+  }
+
+  LogRecordList getRecords() {
+    return records;
+  }
+
+  long getSegmentFileSize() {
+    return segmentFileSize;
+  }
+
+  static File getIndexFile(File segmentFile) {
+    return new File(segmentFile.getParentFile(), segmentFile.getName() + SUFFIX);
+  }
+
+  /** Write the index of the given records; the file is written atomically and sync'ed. */
+  static void write(File segmentFile, LogRecordList records, long segmentFileSize) throws IOException {
+    final File indexFile = getIndexFile(segmentFile);
+    final ByteBufferChecksum checksum = Crc32CFactory.newCrc32C();
+    final AtomicFileOutputStream atomic = new AtomicFileOutputStream(indexFile);
+    try {
+      final DataOutputStream out = new DataOutputStream(
+          new CheckedOutputStream(new BufferedOutputStream(atomic), checksum));
+      out.write(HEADER);
+      out.writeLong(records.isEmpty() ? 0 : records.getStartIndex());
+      out.writeInt(records.size());
+      out.writeLong(segmentFileSize);
+      for (int i = 0; i < records.size(); i++) {
+        out.writeLong(records.getTerm(i));
+        out.writeLong(records.getOffset(i));
+        out.writeInt(records.getLogEntryBodyCase(i).getNumber());
+      }
+      out.writeInt((int) checksum.getValue());
+      out.flush();
+    } catch (IOException e) {
+      atomic.abort();
+      throw e;
+    }
+    atomic.close();
+  }
+
+  /**
+   * Read the index of a closed segment.
+   *
+   * @return the index, or null if the index file does not exist.
+   * @throws IOException if the index file is corrupted or it does not match the segment.
+   */
+  static LogSegmentIndexFile read(File segmentFile, LogSegmentStartEnd startEnd) throws IOException {
+    final File indexFile = getIndexFile(segmentFile);
+    if (!indexFile.exists()) {
+      return null;
+    }
+    final byte[] bytes = Files.readAllBytes(indexFile.toPath());
+    if (bytes.length < FIXED_LENGTH) {
+      throw new CorruptedFileException(indexFile, "The file is too short");
+    }
+
+    final ByteBufferChecksum checksum = Crc32CFactory.newCrc32C();
+    checksum.update(bytes, 0, bytes.length - 4);
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    final int expectedChecksum = buffer.getInt(bytes.length - 4);
+    if (expectedChecksum != (int) checksum.getValue()) {
+      throw new CorruptedFileException(indexFile, StringUtils.format(
+          "Calculated checksum is %08X but read checksum is %08X.", (int) checksum.getValue(), expectedChecksum));
+    }
+
+    final byte[] header = new byte[HEADER.length];
+    buffer.get(header);
+    final long startIndex = buffer.getLong();
+    final int n = buffer.getInt();
+    final long segmentFileSize = buffer.getLong();
+    if (!Arrays.equals(HEADER, header)) {
+      throw new CorruptedFileException(indexFile, "Header mismatched: " + StringUtils.bytes2HexString(header));
+    } else if (bytes.length != FIXED_LENGTH + (long) n * RECORD_LENGTH) {
+      throw new CorruptedFileException(indexFile, "Unexpected file length for " + n + " records");
+    } else if (startIndex != startEnd.getStartIndex() || n != startEnd.getEndIndex() - startIndex + 1) {
+      throw new CorruptedFileException(indexFile, "Index range [" + startIndex + ", " + (startIndex + n - 1)
+          + "] does not match segment " + startEnd);
+    } else if (segmentFile.length() < segmentFileSize) {
+      throw new CorruptedFileException(indexFile, "The segment file " + segmentFile + " is shorter than "
+          + segmentFileSize);
+    }
+
+    final LogRecordList records = new LogRecordList(startIndex);
+    long prevTerm = -1;
+    long prevOffset = SegmentedRaftLogFormat.getHeaderLength() - 1;
+    for (int i = 0; i < n; i++) {
+      final long term = buffer.getLong();
+      final long offset = buffer.getLong();
+      final LogEntryBodyCase bodyCase = LogEntryBodyCase.forNumber(buffer.getInt());
+      if (term < prevTerm || offset <= prevOffset || offset >= segmentFileSize || bodyCase == null) {
+        throw new CorruptedFileException(indexFile, "Invalid record #" + i + ": term=" + term
+            + ", offset=" + offset + ", bodyCase=" + bodyCase);
+      }
+      records.add(offset, term, bodyCase);
+      prevTerm = term;
+      prevOffset = offset;
+    }
+    return new LogSegmentIndexFile(records, segmentFileSize);
+  }
+
+  static void delete(File segmentFile) {
+    FileUtils.deleteFileQuietly(getIndexFile(segmentFile));
+  }
+}
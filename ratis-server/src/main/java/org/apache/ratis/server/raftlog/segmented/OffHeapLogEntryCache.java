@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.ratis.util.DirectBufferCleaner;
+import org.apache.ratis.util.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link LogEntryCache} keeping the entries serialized in direct {@link ByteBuffer} slabs.
+ * The entries are decoded when they are read.
+ * <p>
+ * The slabs are allocated from a {@link SlabPool} and appended sequentially.
+ * The location of an entry is kept in primitive arrays indexed by the entry index relative to the segment start,
+ * so that there are no per-entry objects on the heap.
+ * The space of a removed entry is not reused; all the slabs are released together in {@link #clear()},
+ * i.e. when the segment cache is evicted or the segment is purged.
+ * The size of this cache is the total capacity of its slabs, see {@link #getAllocatedSize()}.
+ * <p>
+ * The slabs which are not pooled are freed explicitly by {@link DirectBufferCleaner}
+ * instead of waiting for the garbage collector,
+ * which does not see the off-heap memory and may free it much later.
+ * It is safe since the entries are copied out of the slabs when they are decoded.
+ */
+final class OffHeapLogEntryCache implements LogEntryCache {
+  /** A pool of direct slabs with the same size, shared by the segments of a log. */
+  static final class SlabPool implements Closeable {
+    private final int slabSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> pooled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numPooled = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    SlabPool(int slabSize, int maxPooled) {
+      Preconditions.assertTrue(slabSize > 0, () -> "Non-positive slabSize = " + slabSize);
+      this.slabSize = slabSize;
+      this.maxPooled = maxPooled;
+    }
+
+    int getSlabSize() {
+      return slabSize;
+    }
+
+    int getNumPooled() {
+      return numPooled.get();
+    }
+
+    /** @return a slab with at least the given size; an entry larger than the slab size gets its own buffer. */
+    ByteBuffer allocate(int size) {
+      if (size > slabSize) {
+        return ByteBuffer.allocateDirect(size);
+      }
+      final ByteBuffer slab = pooled.poll();
+      if (slab == null) {
+        return ByteBuffer.allocateDirect(slabSize);
+      }
+      numPooled.decrementAndGet();
+      slab.clear();
+      return slab;
+    }
+
+    /** Release the given slab to the pool; free it if it is oversized or the pool is full or closed. */
+    void release(ByteBuffer slab) {
+      if (slab.capacity() == slabSize && !closed) {
+        if (numPooled.incrementAndGet() <= maxPooled) {
+          pooled.offer(slab);
+          return;
+        }
+        numPooled.decrementAndGet();
+      }
+      DirectBufferCleaner.clean(slab);
+    }
+
+    /** Free all the pooled slabs.  The slabs released afterward are freed immediately. */
+    @Override
+    public void close() {
+      closed = true;
+      for (ByteBuffer slab; (slab = pooled.poll()) != null; ) {
+        numPooled.decrementAndGet();
+        DirectBufferCleaner.clean(slab);
+      }
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final long startIndex;
+  private final SlabPool pool;
+
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  /** The slab for appending new entries. */
+  private ByteBuffer current;
+
+  // the arrays below are indexed by (entry index - startIndex)
+  private long[] terms = new long[0];
+  /** (slab id << 32) | offset */
+  private long[] locations = new long[0];
+  /** The serialized sizes; -1 means absent. */
+  private int[] sizes = new int[0];
+  private int numEntries = 0;
+  /** The total capacity of the slabs. */
+  private long allocatedSize = 0;
+
+  OffHeapLogEntryCache(long startIndex, SlabPool pool) {
+    this.startIndex = startIndex;
+    this.pool = pool;
+  }
+
+  private int slot(long index) {
+    return Math.toIntExact(index - startIndex);
+  }
+
+  private void ensureCapacity(int slot) {
+    if (slot < sizes.length) {
+      return;
+    }
+    final int capacity = Math.max(Math.max(INITIAL_CAPACITY, slot + 1), sizes.length << 1);
+    terms = Arrays.copyOf(terms, capacity);
+    locations = Arrays.copyOf(locations, capacity);
+    final int oldLength = sizes.length;
+    sizes = Arrays.copyOf(sizes, capacity);
+    Arrays.fill(sizes, oldLength, capacity, -1);
+  }
+
+  @Override
+  public synchronized LogEntryProto get(TermIndex ti) {
+    final int slot = slot(ti.getIndex());
+    if (slot < 0 || slot >= sizes.length || sizes[slot] < 0 || terms[slot] != ti.getTerm()) {
+      return null;
+    }
+    return decode(slot);
+  }
+
+  private LogEntryProto decode(int slot) {
+    final long location = locations[slot];
+    final int offset = (int) location;
+    final ByteBuffer buffer = slabs.get((int) (location >>> 32)).duplicate();
+    buffer.limit(offset + sizes[slot]).position(offset);
+    try {
+      return LogEntryProto.parseFrom(buffer);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Failed to decode the cached entry at slot " + slot, e);
+    }
+  }
+
+  @Override
+  public synchronized boolean put(TermIndex ti, LogEntryProto entry) {
+    final int slot = slot(ti.getIndex());
+    Preconditions.assertTrue(slot >= 0, () -> "Entry " + ti + " is before the segment start " + startIndex);
+    ensureCapacity(slot);
+
+    final int size = entry.getSerializedSize();
+    if (current == null || current.remaining() < size) {
+      current = pool.allocate(size);
+      slabs.add(current);
+      allocatedSize += current.capacity();
+    }
+    final int offset = current.position();
+    try {
+      final CodedOutputStream out = CodedOutputStream.newInstance(current.duplicate());
+      entry.writeTo(out);
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write " + ti + " to the off-heap cache", e);
+    }
+    current.position(offset + size);
+
+    final boolean previous = sizes[slot] >= 0;
+    if (!previous) {
+      numEntries++;
+    }
+    terms[slot] = ti.getTerm();
+    locations[slot] = ((long) (slabs.size() - 1) << 32) | offset;
+    sizes[slot] = size;
+    return previous;
+  }
+
+  @Override
+  public synchronized LogEntryProto remove(TermIndex ti) {
+    final LogEntryProto removed = get(ti);
+    if (removed != null) {
+      sizes[slot(ti.getIndex())] = -1;
+      numEntries--;
+    }
+    return removed;
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return numEntries == 0;
+  }
+
+  @Override
+  public synchronized long getAllocatedSize() {
+    return allocatedSize;
+  }
+
+  @Override
+  public synchronized void clear() {
+    slabs.forEach(pool::release);
+    slabs.clear();
+    current = null;
+    allocatedSize = 0;
+    terms = new long[0];
+    locations = new long[0];
+    sizes = new int[0];
+    numEntries = 0;
+  }
+}
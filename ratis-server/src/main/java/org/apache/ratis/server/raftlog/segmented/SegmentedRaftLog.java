@@ -36,11 +36,14 @@ import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogCache.TruncateI
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.statemachine.TransactionContext;
+import org.apache.ratis.statemachine.impl.TransactionContextImpl;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.util.AutoCloseableLock;
 import org.apache.ratis.util.AwaitToRun;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ProtoUtils;
+import org.apache.ratis.util.ReferenceCountedObject;
 import org.apache.ratis.util.StringUtils;
 
 import java.io.File;
@@ -51,9 +54,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import org.apache.ratis.util.UncheckedAutoCloseable;
 
@@ -198,9 +203,15 @@ public final class SegmentedRaftLog extends RaftLogBase {
   private final StateMachine stateMachine;
   private final SegmentedRaftLogCache cache;
   private final AwaitToRun cacheEviction;
+  /** For the server-wide cache budget; null if it is disabled. */
+  private final SegmentedRaftLogCacheManager cacheManager;
   private final SegmentedRaftLogWorker fileLogWorker;
   private final long segmentMaxSize;
   private final boolean stateMachineCachingEnabled;
+  /** Compress the log data of the entries written to the segments; null if compression is disabled. */
+  private final LogDataCompression compression;
+  /** Share the state machine data read among the log appenders; null if the cache is disabled. */
+  private final StateMachineDataCache stateMachineDataCache;
   private final SegmentedRaftLogMetrics metrics;
 
   @SuppressWarnings({"squid:S2095"}) // Suppress closeable  warning
@@ -214,9 +225,13 @@ public final class SegmentedRaftLog extends RaftLogBase {
     this.segmentMaxSize = RaftServerConfigKeys.Log.segmentSizeMax(b.properties).getSize();
     this.cache = new SegmentedRaftLogCache(b.memberId, storage, b.properties, getRaftLogMetrics());
     this.cacheEviction = new AwaitToRun(b.memberId + "-cacheEviction", this::checkAndEvictCache).start();
+    this.cacheManager = b.cacheManager;
     this.fileLogWorker = new SegmentedRaftLogWorker(b.memberId, stateMachine,
-        b.submitUpdateCommitEvent, b.server, storage, b.properties, getRaftLogMetrics());
+        b.submitUpdateCommitEvent, b.server, storage, b.properties, getRaftLogMetrics(), b.syncCoordinator,
+        b.sharedWorkerPool);
     stateMachineCachingEnabled = RaftServerConfigKeys.Log.StateMachineData.cachingEnabled(b.properties);
+    this.compression = LogDataCompression.newInstance(b.memberId, b.properties);
+    this.stateMachineDataCache = StateMachineDataCache.newInstance(b.properties, metrics);
   }
 
   @Override
@@ -231,6 +246,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
     fileLogWorker.start(Math.max(cache.getEndIndex(), lastIndexInSnapshot),
         Math.min(cache.getLastIndexInClosedSegments(), lastIndexInSnapshot),
         openSegmentFile);
+    if (cacheManager != null) {
+      cacheManager.register(this);
+    }
   }
 
   @Override
@@ -292,7 +310,7 @@ public final class SegmentedRaftLog extends RaftLogBase {
 
     // the entry is not in the segment's cache. Load the cache without holding the lock.
     getRaftLogMetrics().onRaftLogCacheMiss();
-    cacheEviction.signal();
+    signalCacheEviction();
     return segment.loadCache(record);
   }
 
@@ -309,7 +327,7 @@ public final class SegmentedRaftLog extends RaftLogBase {
     try {
       CompletableFuture<ByteString> future = null;
       if (stateMachine != null) {
-        future = stateMachine.data().read(entry, server.getTransactionContext(entry, false)).exceptionally(ex -> {
+        future = readStateMachineData(entry).exceptionally(ex -> {
           stateMachine.event().notifyLogFailed(ex, entry);
           throw new CompletionException("Failed to read state machine data for log entry " + entry, ex);
         });
@@ -322,6 +340,33 @@ public final class SegmentedRaftLog extends RaftLogBase {
     }
   }
 
+  private CompletableFuture<ByteString> readStateMachineData(LogEntryProto entry) {
+    final Supplier<CompletableFuture<ByteString>> reader
+        = () -> stateMachine.data().read(entry, server.getTransactionContext(entry, false));
+    return stateMachineDataCache == null? reader.get()
+        : stateMachineDataCache.getOrRead(entry, reader, server::getFollowerNextIndices);
+  }
+
+  private void signalCacheEviction() {
+    cacheEviction.signal();
+    if (cacheManager != null) {
+      cacheManager.signal();
+    }
+  }
+
+  /**
+   * Evict the cache for the server-wide budget.
+   *
+   * @return the number of bytes freed.
+   * @see SegmentedRaftLogCache#evictCache(long[], long, long, long, boolean, boolean, long)
+   */
+  long evictCache(long sweep, boolean evictReferenced, boolean evictNeeded, long bytesToFree) {
+    try (AutoCloseableLock ignored = writeLock()) {
+      return cache.evictCache(server.getFollowerNextIndices(), fileLogWorker.getSafeCacheEvictIndex(),
+          server.getLastAppliedIndex(), sweep, evictReferenced, evictNeeded, bytesToFree);
+    }
+  }
+
   private void checkAndEvictCache() {
     if (cache.shouldEvict()) {
       try (AutoCloseableLock ignored = writeLock()){
@@ -338,8 +383,7 @@ public final class SegmentedRaftLog extends RaftLogBase {
   public TermIndex getTermIndex(long index) {
     checkLogState();
     try(AutoCloseableLock readLock = readLock()) {
-      LogRecord record = cache.getLogRecord(index);
-      return record != null ? record.getTermIndex() : null;
+      return cache.getTermIndex(index);
     }
   }
 
@@ -364,6 +408,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
     checkLogState();
     try(AutoCloseableLock writeLock = writeLock()) {
       SegmentedRaftLogCache.TruncationSegments ts = cache.truncate(index);
+      if (stateMachineDataCache != null) {
+        stateMachineDataCache.truncate(index);
+      }
       if (ts != null) {
         Task task = fileLogWorker.truncate(ts, index);
         return task.getFuture();
@@ -377,6 +424,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
   protected CompletableFuture<Long> purgeImpl(long index) {
     try (AutoCloseableLock writeLock = writeLock()) {
       SegmentedRaftLogCache.TruncationSegments ts = cache.purge(index);
+      if (stateMachineDataCache != null) {
+        stateMachineDataCache.purge(index);
+      }
       updateSnapshotIndexFromStateMachine();
       if (ts != null) {
         LOG.info("{}: {}", getName(), ts);
@@ -390,6 +440,40 @@ public final class SegmentedRaftLog extends RaftLogBase {
 
   @Override
   protected CompletableFuture<Long> appendEntryImpl(LogEntryProto entry, TransactionContext context) {
+    if (!(context instanceof TransactionContextImpl) || !((TransactionContextImpl) context).isZeroCopy()) {
+      return appendEntryImpl(entry, entry, context);
+    }
+
+    // The entry points to a zero-copy client request: retain the request until the entry is written.
+    if (!TransactionContextImpl.retainRequest(context)) {
+      throw new IllegalStateException(getName() + ": Failed to append " + toLogEntryString(entry)
+          + " since the client request has already been released");
+    }
+    final CompletableFuture<Long> writeFuture;
+    try {
+      writeFuture = appendEntryImpl(entry, copy(entry), context);
+    } catch (RuntimeException e) {
+      TransactionContextImpl.releaseRequest(context);
+      throw e;
+    }
+    return writeFuture.whenComplete((index, e) -> TransactionContextImpl.releaseRequest(context));
+  }
+
+  /**
+   * @return a heap copy of the given zero-copy entry to be kept in the cache.
+   *         When state machine caching is enabled, the state machine data is not copied
+   *         since it is cached by the state machine, which must copy the data it keeps.
+   */
+  private LogEntryProto copy(LogEntryProto entry) {
+    return ProtoUtils.copy(stateMachineCachingEnabled? LogProtoUtils.removeStateMachineData(entry): entry);
+  }
+
+  /**
+   * @param entry the entry to be appended; its state machine data, if there is any, is passed to the state machine.
+   * @param retained the same entry which can be kept in the cache.
+   */
+  private CompletableFuture<Long> appendEntryImpl(LogEntryProto entry, LogEntryProto retained,
+      TransactionContext context) {
     checkLogState();
     if (LOG.isTraceEnabled()) {
       LOG.trace("{}: appendEntry {}", getName(), LogProtoUtils.toLogEntryString(entry));
@@ -398,11 +482,12 @@ public final class SegmentedRaftLog extends RaftLogBase {
       final Timekeeper.Context appendEntryTimerContext = getRaftLogMetrics().startAppendEntryTimer();
       validateLogEntry(entry);
       final LogSegment currentOpenSegment = cache.getOpenSegment();
+      LogEntryProto stored = currentOpenSegment == null? null: toStored(currentOpenSegment, retained);
       boolean rollOpenSegment = false;
       if (currentOpenSegment == null) {
         cache.addOpenSegment(entry.getIndex());
         fileLogWorker.startLogSegment(entry.getIndex());
-      } else if (isSegmentFull(currentOpenSegment, entry)) {
+      } else if (isSegmentFull(currentOpenSegment, stored)) {
         rollOpenSegment = true;
       } else {
         final TermIndex last = currentOpenSegment.getLastTermIndex();
@@ -418,20 +503,24 @@ public final class SegmentedRaftLog extends RaftLogBase {
       if (rollOpenSegment) {
         cache.rollOpenSegment(true);
         fileLogWorker.rollLogSegment(currentOpenSegment);
-        cacheEviction.signal();
+        signalCacheEviction();
+      }
+      final LogSegment openSegment = cache.getOpenSegment();
+      if (stored == null || openSegment.isCompressed() != currentOpenSegment.isCompressed()) {
+        stored = toStored(openSegment, retained);
       }
 
       // If the entry has state machine data, then the entry should be inserted
       // to statemachine first and then to the cache. Not following the order
       // will leave a spurious entry in the cache.
       CompletableFuture<Long> writeFuture =
-          fileLogWorker.writeLogEntry(entry, context).getFuture();
+          fileLogWorker.writeLogEntry(entry, stored, context).getFuture();
       if (stateMachineCachingEnabled) {
         // The stateMachineData will be cached inside the StateMachine itself.
-        cache.appendEntry(LogProtoUtils.removeStateMachineData(entry),
+        cache.appendEntry(LogProtoUtils.removeStateMachineData(retained), stored,
             LogSegment.Op.WRITE_CACHE_WITH_STATE_MACHINE_CACHE);
       } else {
-        cache.appendEntry(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+        cache.appendEntry(retained, stored, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
       }
       writeFuture.whenComplete((clientReply, exception) -> appendEntryTimerContext.stop());
       return writeFuture;
@@ -441,6 +530,15 @@ public final class SegmentedRaftLog extends RaftLogBase {
     }
   }
 
+  /** @return the given entry in the form to be written to the given segment; see {@link LogDataCompression}. */
+  private LogEntryProto toStored(LogSegment segment, LogEntryProto entry) {
+    if (!segment.isCompressed()) {
+      return entry;
+    }
+    // an existing segment may have the header for compression even if compression is disabled now.
+    return compression != null? compression.encode(entry): LogDataCompression.encodeUncompressed(entry);
+  }
+
   private boolean isSegmentFull(LogSegment segment, LogEntryProto entry) {
     if (segment.getTotalFileSize() >= segmentMaxSize) {
       return true;
@@ -455,6 +553,20 @@ public final class SegmentedRaftLog extends RaftLogBase {
 
   @Override
   public List<CompletableFuture<Long>> appendImpl(List<LogEntryProto> entries) {
+    return appendImpl(entries, false);
+  }
+
+  /**
+   * Append the zero-copy entries.
+   * The entries are written to the log file and passed to the state machine as they are,
+   * while the cache and the transaction contexts keep heap copies of them.
+   */
+  @Override
+  protected List<CompletableFuture<Long>> appendImpl(ReferenceCountedObject<List<LogEntryProto>> entriesRef) {
+    return appendImpl(entriesRef.get(), true);
+  }
+
+  private List<CompletableFuture<Long>> appendImpl(List<LogEntryProto> entries, boolean zeroCopy) {
     checkLogState();
     if (entries == null || entries.isEmpty()) {
       return Collections.emptyList();
@@ -474,7 +586,8 @@ public final class SegmentedRaftLog extends RaftLogBase {
       }
       for (int i = index; i < entries.size(); i++) {
         final LogEntryProto entry = entries.get(i);
-        futures.add(appendEntry(entry, server.getTransactionContext(entry, true)));
+        final LogEntryProto retained = zeroCopy? copy(entry): entry;
+        futures.add(appendEntryImpl(entry, retained, server.getTransactionContext(retained, true)));
       }
       return futures;
     }
@@ -516,7 +629,7 @@ public final class SegmentedRaftLog extends RaftLogBase {
       if (openSegment.getEndIndex() <= lastSnapshotIndex) {
         fileLogWorker.closeLogSegment(openSegment);
         cache.rollOpenSegment(false);
-        cacheEviction.signal();
+        signalCacheEviction();
       }
     }
     return purgeImpl(lastSnapshotIndex).whenComplete((purged, e) -> updatePurgeIndex(purged));
@@ -524,10 +637,16 @@ public final class SegmentedRaftLog extends RaftLogBase {
 
   @Override
   public void close() throws IOException {
+    if (cacheManager != null) {
+      cacheManager.unregister(this);
+    }
     try(AutoCloseableLock writeLock = writeLock()) {
       super.close();
       cacheEviction.close();
       cache.close();
+      if (stateMachineDataCache != null) {
+        stateMachineDataCache.clear();
+      }
     }
     fileLogWorker.close();
     storage.close();
@@ -558,6 +677,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
     private RaftStorage storage;
     private LongSupplier snapshotIndexSupplier = () -> RaftLog.INVALID_LOG_INDEX;
     private RaftProperties properties;
+    private SegmentedRaftLogSyncCoordinator syncCoordinator;
+    private ExecutorService sharedWorkerPool;
+    private SegmentedRaftLogCacheManager cacheManager;
 
     private Builder() {}
 
@@ -608,6 +730,24 @@ public final class SegmentedRaftLog extends RaftLogBase {
       return this;
     }
 
+    /** Set the coordinator for group commit; null means group commit is disabled. */
+    public Builder setSyncCoordinator(SegmentedRaftLogSyncCoordinator syncCoordinator) {
+      this.syncCoordinator = syncCoordinator;
+      return this;
+    }
+
+    /** Set the shared pool for running the log worker; null means using a dedicated worker thread. */
+    public Builder setSharedWorkerPool(ExecutorService sharedWorkerPool) {
+      this.sharedWorkerPool = sharedWorkerPool;
+      return this;
+    }
+
+    /** Set the manager for the server-wide cache budget; null means the budget is disabled. */
+    public Builder setCacheManager(SegmentedRaftLogCacheManager cacheManager) {
+      this.cacheManager = cacheManager;
+      return this;
+    }
+
     public SegmentedRaftLog build() {
       return new SegmentedRaftLog(this);
     }
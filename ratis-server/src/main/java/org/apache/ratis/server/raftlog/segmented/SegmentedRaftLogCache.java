@@ -32,7 +32,6 @@ import org.apache.ratis.util.AutoCloseableLock;
 import org.apache.ratis.util.AutoCloseableReadWriteLock;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
-import org.apache.ratis.util.SizeInBytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -372,6 +371,8 @@ public class SegmentedRaftLogCache {
 
         if (segmentIndex == -segments.size() - 1) {
           for (LogSegment ls : segments) {
+            ls.closePositionedReader();
+            ls.evictCache();
             list.add(SegmentFileInfo.newClosedSegmentFileInfo(ls));
           }
           segments.clear();
@@ -386,6 +387,8 @@ public class SegmentedRaftLogCache {
           for (int i = 0; i <= startIndex; i++) {
             LogSegment segment = segments.remove(0); // must remove the first segment to avoid gaps.
             sizeInBytes -= segment.getTotalFileSize();
+            segment.closePositionedReader();
+            segment.evictCache();
             list.add(SegmentFileInfo.newClosedSegmentFileInfo(segment));
           }
         } else {
@@ -416,12 +419,17 @@ public class SegmentedRaftLogCache {
   private volatile LogSegment openSegment;
   private final LogSegmentList closedSegments;
   private final RaftStorage storage;
-  private final SizeInBytes maxOpSize;
+  private final LogSegment.ReadOptions readOptions;
   private final SegmentedRaftLogMetrics raftLogMetrics;
 
   private final int maxCachedSegments;
   private final CacheInvalidationPolicy evictionPolicy = new CacheInvalidationPolicyDefault();
   private final long maxSegmentCacheSize;
+  /**
+   * The CLOCK hand of {@link SegmentedRaftLogCacheManager} in this log,
+   * i.e. the start index of the next closed segment to sweep; guarded by the write lock of the log.
+   */
+  private long clockHand = 0;
 
   SegmentedRaftLogCache(Object name, RaftStorage storage, RaftProperties properties,
       SegmentedRaftLogMetrics raftLogMetrics) {
@@ -434,17 +442,34 @@ public class SegmentedRaftLogCache {
     this.raftLogMetrics.addOpenSegmentSizeInBytes(this::getOpenSegmentSizeInBytes);
     this.maxCachedSegments = RaftServerConfigKeys.Log.segmentCacheNumMax(properties);
     this.maxSegmentCacheSize = RaftServerConfigKeys.Log.segmentCacheSizeMax(properties).getSize();
-    this.maxOpSize = RaftServerConfigKeys.Log.Appender.bufferByteLimit(properties);
+    this.readOptions = new LogSegment.ReadOptions(RaftServerConfigKeys.Log.Appender.bufferByteLimit(properties),
+        RaftServerConfigKeys.Log.readMmapEnabled(properties), RaftServerConfigKeys.Log.segmentIndexEnabled(properties),
+        newOffHeapPool(properties), LogDataCompression.isEnabled(properties));
+  }
+
+  /** @return a pool for the off-heap cache if it is enabled; otherwise, return null. */
+  private static OffHeapLogEntryCache.SlabPool newOffHeapPool(RaftProperties properties) {
+    if (!RaftServerConfigKeys.Log.segmentCacheOffHeapEnabled(properties)) {
+      return null;
+    }
+    final int slabSize = Math.toIntExact(RaftServerConfigKeys.Log.segmentCacheOffHeapSlabSize(properties).getSize());
+    // pool up to a segment of free slabs
+    final long segmentSize = RaftServerConfigKeys.Log.segmentSizeMax(properties).getSize();
+    return new OffHeapLogEntryCache.SlabPool(slabSize, Math.toIntExact(Math.max(1, segmentSize / slabSize)));
   }
 
   int getMaxCachedSegments() {
     return maxCachedSegments;
   }
 
+  LogSegment.ReadOptions getReadOptions() {
+    return readOptions;
+  }
+
   void loadSegment(LogSegmentPath pi, boolean keepEntryInCache,
       Consumer<LogEntryProto> logConsumer) throws IOException {
     final LogSegment logSegment = LogSegment.loadSegment(storage, pi.getPath().toFile(), pi.getStartEnd(),
-        maxOpSize, keepEntryInCache, logConsumer, raftLogMetrics);
+        readOptions, keepEntryInCache, logConsumer, raftLogMetrics);
     if (logSegment != null) {
       addSegment(logSegment);
     }
@@ -481,6 +506,62 @@ public class SegmentedRaftLogCache {
     }
   }
 
+  /** @return the total size of the cached entries in the closed segments and the open segment. */
+  long getTotalCacheSize() {
+    return closedSegments.getCacheInfo().getSize()
+        + Optional.ofNullable(openSegment).map(LogSegment::getTotalCacheSize).orElse(0L);
+  }
+
+  /**
+   * Sweep the closed segments, from the {@link #clockHand}, for the server-wide budget
+   * of {@link SegmentedRaftLogCacheManager}.
+   * A referenced segment gets a second chance, see {@link LogSegment#giveSecondChance(long)}.
+   * A segment currently being read by a follower or the state machine is never evicted.
+   * <p>
+   * When this many bytes are freed, the hand stays at the next segment;
+   * otherwise, the hand has passed all the segments and the next sweep of this log starts from the oldest segment.
+   *
+   * @param sweep the id of the current sweep.
+   * @param evictReferenced evict also the referenced segments?  It is the last resort after a full rotation.
+   * @param evictNeeded evict also the segments to be read later by a follower or the state machine?
+   * @param bytesToFree stop once this many bytes are freed.
+   * @return the number of bytes freed.
+   */
+  long evictCache(long[] followerNextIndices, long safeEvictIndex, long lastAppliedIndex,
+      long sweep, boolean evictReferenced, boolean evictNeeded, long bytesToFree) {
+    long freed = 0;
+    try (AutoCloseableLock readLock = closedSegments.readLock()) {
+      for (int i = 0; i < closedSegments.size() && freed < bytesToFree; i++) {
+        final LogSegment s = closedSegments.get(i);
+        if (s.getStartIndex() < clockHand) {
+          continue; // the hand has passed it in the current rotation
+        }
+        if (s.isOpen() || s.getEndIndex() > safeEvictIndex) {
+          break;
+        }
+        clockHand = s.getEndIndex() + 1;
+        if (!s.hasCache() || s.containsIndex(lastAppliedIndex)
+            || (followerNextIndices != null && Arrays.stream(followerNextIndices).anyMatch(s::containsIndex))) {
+          continue;
+        }
+        final boolean needed = s.getEndIndex() > lastAppliedIndex || (followerNextIndices != null
+            && Arrays.stream(followerNextIndices).anyMatch(next -> next <= s.getEndIndex()));
+        if (needed && !evictNeeded) {
+          continue;
+        }
+        if (s.giveSecondChance(sweep) && !evictReferenced) {
+          continue;
+        }
+        freed += s.getTotalCacheSize();
+        s.evictCache();
+      }
+    }
+    if (freed < bytesToFree) {
+      clockHand = 0;
+    }
+    return freed;
+  }
+
 
   private void validateAdding(LogSegment segment) {
     final LogSegment lastClosed = closedSegments.getLast();
@@ -504,7 +585,7 @@ public class SegmentedRaftLogCache {
   }
 
   void addOpenSegment(long startIndex) {
-    setOpenSegment(LogSegment.newOpenSegment(storage, startIndex, maxOpSize, raftLogMetrics));
+    setOpenSegment(LogSegment.newOpenSegment(storage, startIndex, readOptions, raftLogMetrics));
   }
 
   private void setOpenSegment(LogSegment openSegment) {
@@ -552,6 +633,11 @@ public class SegmentedRaftLogCache {
     return segment == null ? null : segment.getLogRecord(index);
   }
 
+  TermIndex getTermIndex(long index) {
+    final LogSegment segment = getSegment(index);
+    return segment == null ? null : segment.getTermIndex(index);
+  }
+
   /**
    * @param startIndex inclusive
    * @param endIndex exclusive
@@ -618,10 +704,18 @@ public class SegmentedRaftLogCache {
   }
 
   void appendEntry(LogEntryProto entry, LogSegment.Op op) {
+    appendEntry(entry, entry, op);
+  }
+
+  /**
+   * @param entry the entry to be cached.
+   * @param stored the same entry in the form written to the segment file; see {@link LogDataCompression}.
+   */
+  void appendEntry(LogEntryProto entry, LogEntryProto stored, LogSegment.Op op) {
     // SegmentedRaftLog does the segment creation/rolling work. Here we just
     // simply append the entry into the open segment.
     Objects.requireNonNull(openSegment, "openSegment == null");
-    openSegment.appendToOpenSegment(entry, op);
+    openSegment.appendToOpenSegment(entry, stored, op);
   }
 
   /**
@@ -755,5 +849,6 @@ public class SegmentedRaftLogCache {
       clearOpenSegment();
     }
     closedSegments.clear();
+    Optional.ofNullable(readOptions.getOffHeapPool()).ifPresent(OffHeapLogEntryCache.SlabPool::close);
   }
 }
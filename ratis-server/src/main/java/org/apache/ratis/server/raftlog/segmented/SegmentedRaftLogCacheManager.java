@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.AwaitToRun;
+import org.apache.ratis.util.JavaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Enforce a server-wide budget on the log entry caches of all the {@link SegmentedRaftLog}s in a server.
+ * <p>
+ * When the total cache size exceeds the budget,
+ * the closed segments of all the logs are swept in the CLOCK order.
+ * The hand continues from where the previous sweep stopped.
+ * A segment accessed since the hand passed it last time gets a second chance:
+ * it is kept until the hand returns in a later sweep.
+ * A segment to be read later by a follower or the state machine is evicted only after the others,
+ * and a referenced segment is evicted only as the last resort after a full rotation.
+ * As a result, the hot groups keep their caches while the idle groups give their memory back.
+ * <p>
+ * The per-log limits, {@link RaftServerConfigKeys.Log#segmentCacheNumMax(RaftProperties)}
+ * and {@link RaftServerConfigKeys.Log#segmentCacheSizeMax(RaftProperties)}, are still enforced by each log.
+ */
+public final class SegmentedRaftLogCacheManager implements Closeable {
+  static final Logger LOG = LoggerFactory.getLogger(SegmentedRaftLogCacheManager.class);
+
+  /** @return a new manager if the server-wide cache budget is set; otherwise, return null. */
+  public static SegmentedRaftLogCacheManager newInstance(Object name, RaftProperties properties) {
+    final long max = RaftServerConfigKeys.Log.segmentCacheGlobalSizeMax(properties).getSize();
+    return max > 0? new SegmentedRaftLogCacheManager(name, max): null;
+  }
+
+  private final String name;
+  private final long maxBytes;
+  private final List<SegmentedRaftLog> logs = new CopyOnWriteArrayList<>();
+  private final AwaitToRun eviction;
+  /** The CLOCK hand, i.e. the log to start the next sweep; guarded by this object. */
+  private int hand = 0;
+  /** The id of the last sweep; guarded by this object. */
+  private long sweeps = 0;
+
+  private SegmentedRaftLogCacheManager(Object name, long maxBytes) {
+    this.name = name + "-" + JavaUtils.getClassSimpleName(getClass());
+    this.maxBytes = maxBytes;
+    this.eviction = new AwaitToRun(this.name, this::checkAndEvict).start();
+  }
+
+  void register(SegmentedRaftLog log) {
+    logs.add(log);
+  }
+
+  void unregister(SegmentedRaftLog log) {
+    logs.remove(log);
+  }
+
+  /** Signal the manager to check the budget asynchronously. */
+  void signal() {
+    eviction.signal();
+  }
+
+  long getTotalCacheSize() {
+    long total = 0;
+    for (SegmentedRaftLog log : logs) {
+      total += log.getRaftLogCache().getTotalCacheSize();
+    }
+    return total;
+  }
+
+  private void checkAndEvict() {
+    final long excess = getTotalCacheSize() - maxBytes;
+    if (excess > 0) {
+      evict(excess);
+    }
+  }
+
+  synchronized long evict(long bytesToFree) {
+    final List<SegmentedRaftLog> snapshot = new ArrayList<>(logs);
+    final int n = snapshot.size();
+    final long sweep = ++sweeps;
+    long freed = 0;
+    // Each pass is a full rotation of the hand; the referenced segments are kept in this sweep.
+    // 1. the unreferenced segments not needed; 2. the unreferenced segments; 3. the last resort: all the segments
+    for (int pass = 0; pass < 3; pass++) {
+      for (int k = 0; k < n; k++) {
+        final int i = (hand + k) % n;
+        freed += snapshot.get(i).evictCache(sweep, pass >= 2, pass >= 1, bytesToFree - freed);
+        if (freed >= bytesToFree) {
+          // stay at this log; its own hand is at the next segment
+          hand = i;
+          LOG.debug("{}: freed {} bytes", name, freed);
+          return freed;
+        }
+      }
+    }
+    LOG.debug("{}: freed {} bytes but {} bytes are required", name, freed, bytesToFree);
+    return freed;
+  }
+
+  @Override
+  public void close() {
+    eviction.close();
+    logs.clear();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
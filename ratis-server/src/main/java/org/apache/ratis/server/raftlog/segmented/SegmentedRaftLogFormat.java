@@ -19,19 +19,34 @@ package org.apache.ratis.server.raftlog.segmented;
 
 import org.apache.ratis.util.Preconditions;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public interface SegmentedRaftLogFormat {
   class Internal {
-    private static final ByteBuffer HEADER;
+    private static final ByteBuffer HEADER = newHeader("RaftLog1");
+    /** The header of the segments with the log data encoded by {@link LogDataCompression}. */
+    private static final ByteBuffer HEADER_V2 = newHeader("RaftLog2");
     private static final byte TERMINATOR_BYTE = 0;
 
-    static {
-      final byte[] bytes = "RaftLog1".getBytes(StandardCharsets.UTF_8);
+    private static ByteBuffer newHeader(String s) {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
       final ByteBuffer header = ByteBuffer.allocateDirect(bytes.length);
       header.put(bytes).flip();
-      HEADER = header.asReadOnlyBuffer();
+      return header.asReadOnlyBuffer();
+    }
+
+    private static int matchHeader(ByteBuffer header, byte[] bytes, int offset, int length) {
+      for(int i = 0; i < length; i++) {
+        if (bytes[offset + i] != header.get(i)) {
+          return i;
+        }
+      }
+      return length;
     }
   }
 
@@ -40,17 +55,34 @@ public interface SegmentedRaftLogFormat {
   }
 
   static ByteBuffer getHeaderBytebuffer() {
-    return Internal.HEADER.duplicate();
+    return getHeaderBytebuffer(false);
+  }
+
+  /** @return the header for the segments with or without compression. */
+  static ByteBuffer getHeaderBytebuffer(boolean compression) {
+    return (compression? Internal.HEADER_V2: Internal.HEADER).duplicate();
   }
 
+  /** @return the match length with any of the supported headers. */
   static int matchHeader(byte[] bytes, int offset, int length) {
     Preconditions.assertTrue(length <= getHeaderLength());
-    for(int i = 0; i < length; i++) {
-      if (bytes[offset + i] != Internal.HEADER.get(i)) {
-        return i;
+    return Math.max(Internal.matchHeader(Internal.HEADER, bytes, offset, length),
+        Internal.matchHeader(Internal.HEADER_V2, bytes, offset, length));
+  }
+
+  /** @return true iff the given segment file has the header for compression. */
+  static boolean hasCompressionHeader(File file) throws IOException {
+    final byte[] bytes = new byte[getHeaderLength()];
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      for (int n = 0; n < bytes.length; ) {
+        final int read = in.read(bytes, n, bytes.length - n);
+        if (read < 0) {
+          return false;
+        }
+        n += read;
       }
     }
-    return length;
+    return Internal.matchHeader(Internal.HEADER_V2, bytes, 0, bytes.length) == bytes.length;
   }
 
   static byte getTerminator() {
@@ -19,10 +19,11 @@ package org.apache.ratis.server.raftlog.segmented;
 
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.util.ByteBufferChecksum;
+import org.apache.ratis.util.Crc32CFactory;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
-import org.apache.ratis.util.PureJavaCrc32C;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,7 +33,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 
 public class SegmentedRaftLogOutputStream implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(SegmentedRaftLogOutputStream.class);
@@ -50,7 +51,7 @@ public class SegmentedRaftLogOutputStream implements Closeable {
 
   private final String name;
   private final BufferedWriteChannel out; // buffered FileChannel for writing
-  private final PureJavaCrc32C checksum = new PureJavaCrc32C();
+  private final ByteBufferChecksum checksum = Crc32CFactory.newCrc32C();
 
   private final long segmentMaxSize;
   private final long preallocatedSize;
@@ -58,6 +59,16 @@ public class SegmentedRaftLogOutputStream implements Closeable {
   public SegmentedRaftLogOutputStream(File file, boolean append, long segmentMaxSize,
       long preallocatedSize, ByteBuffer byteBuffer)
       throws IOException {
+    this(file, append, segmentMaxSize, preallocatedSize, byteBuffer, false);
+  }
+
+  /**
+   * @param compression Should a new segment have the header for compression?
+   *                    When appending to an existing segment, its header is unchanged.
+   */
+  public SegmentedRaftLogOutputStream(File file, boolean append, long segmentMaxSize,
+      long preallocatedSize, ByteBuffer byteBuffer, boolean compression)
+      throws IOException {
     this.name = JavaUtils.getClassSimpleName(getClass()) + "(" + file.getName() + ")";
     this.segmentMaxSize = segmentMaxSize;
     this.preallocatedSize = preallocatedSize;
@@ -66,7 +77,7 @@ public class SegmentedRaftLogOutputStream implements Closeable {
     if (!append) {
       // write header
       preallocateIfNecessary(SegmentedRaftLogFormat.getHeaderLength());
-      out.writeToChannel(SegmentedRaftLogFormat.getHeaderBytebuffer());
+      out.writeToChannel(SegmentedRaftLogFormat.getHeaderBytebuffer(compression));
       out.flush();
     }
   }
@@ -132,7 +143,7 @@ public class SegmentedRaftLogOutputStream implements Closeable {
     }
   }
 
-  CompletableFuture<Void> asyncFlush(ExecutorService executor) throws IOException {
+  CompletableFuture<Void> asyncFlush(Executor executor) throws IOException {
     try {
       return out.asyncFlush(executor);
     } catch (IOException ioe) {
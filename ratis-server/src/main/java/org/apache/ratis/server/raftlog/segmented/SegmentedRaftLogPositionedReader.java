@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.io.CorruptedFileException;
+import org.apache.ratis.metrics.Timekeeper;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.exceptions.ChecksumException;
+import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedInputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.apache.ratis.util.ByteBufferChecksum;
+import org.apache.ratis.util.Crc32CFactory;
+import org.apache.ratis.util.DirectBufferCleaner;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.IOUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.StringUtils;
+import org.apache.ratis.util.function.CheckedConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read log entries from a closed segment file at known offsets.
+ * <p>
+ * Unlike {@link SegmentedRaftLogReader}, which scans a segment from the beginning,
+ * this reader seeks directly to the offset of the requested entries
+ * and verifies only the checksums of the entries it reads.
+ * The underlying {@link FileChannel} is opened lazily and kept open until {@link #close()}.
+ * <p>
+ * When mmap is enabled, the file is mapped once
+ * and the entries are parsed directly from the {@link MappedByteBuffer}
+ * instead of being copied to a heap buffer.
+ * Since closed segment files are immutable, the mapping remains valid until {@link #close()},
+ * which unmaps the file explicitly.
+ * The parsed entries do not share the mapped buffer, so they remain valid after the file is unmapped.
+ * <p>
+ * When mmap is disabled, {@link #readAll(long, CheckedConsumer)} reads the file in chunks of a max entry size
+ * instead of reading the entire segment into the heap.
+ */
+class SegmentedRaftLogPositionedReader implements Closeable {
+  static final Logger LOG = LoggerFactory.getLogger(SegmentedRaftLogPositionedReader.class);
+
+  private final File file;
+  private final SizeInBytes maxOpSize;
+  private final boolean mmapEnabled;
+  private final SegmentedRaftLogMetrics raftLogMetrics;
+  private final ByteBufferChecksum checksum = Crc32CFactory.newCrc32C();
+
+  private FileChannel channel;
+  private MappedByteBuffer mapped;
+
+  SegmentedRaftLogPositionedReader(File file, SizeInBytes maxOpSize, boolean mmapEnabled,
+      SegmentedRaftLogMetrics raftLogMetrics) {
+    this.file = file;
+    this.maxOpSize = maxOpSize;
+    this.mmapEnabled = mmapEnabled;
+    this.raftLogMetrics = raftLogMetrics;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  private FileChannel getChannel() throws IOException {
+    if (channel == null) {
+      channel = FileUtils.newFileChannel(file, StandardOpenOption.READ);
+    }
+    return channel;
+  }
+
+  /** @return the mapped buffer covering the given end position, or null if the file cannot be mapped. */
+  private MappedByteBuffer getMapped(long end) throws IOException {
+    if (mapped == null || mapped.capacity() < end) {
+      final FileChannel fc = getChannel();
+      final long size = fc.size();
+      if (size > Integer.MAX_VALUE || size < end) {
+        return null;
+      }
+      unmap();
+      mapped = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    return mapped;
+  }
+
+  /** @return a buffer containing the given byte range of the file. */
+  private ByteBuffer getRange(long offset, int length) throws IOException {
+    final MappedByteBuffer m = mmapEnabled ? getMapped(offset + length) : null;
+    if (m != null) {
+      final ByteBuffer duplicated = m.duplicate();
+      duplicated.position(Math.toIntExact(offset));
+      duplicated.limit(Math.toIntExact(offset + length));
+      return duplicated.slice();
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    readFully(getChannel(), buffer, offset);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Read the log entries stored in the given byte range of the file.
+   *
+   * @param offset the offset of the first entry in the file.
+   * @param length the total length of the entries, including their length prefixes and checksums.
+   * @return the entries read, in the file order.
+   */
+  synchronized List<LogEntryProto> read(long offset, int length) throws IOException {
+    final Timekeeper timekeeper = Optional.ofNullable(raftLogMetrics)
+        .map(SegmentedRaftLogMetrics::getReadEntryTimer)
+        .orElse(null);
+    final List<LogEntryProto> entries = new ArrayList<>();
+    try (AutoCloseable ignored = Timekeeper.start(timekeeper)) {
+      final ByteBuffer buffer = getRange(offset, length);
+      while (buffer.hasRemaining()) {
+        entries.add(decodeEntry(buffer, offset));
+      }
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Failed to read " + length + " bytes at offset " + offset + " from " + file, e);
+    }
+
+    if (raftLogMetrics != null) {
+      raftLogMetrics.onRaftLogLoadEntries(entries.size(), length);
+    }
+    return entries;
+  }
+
+  /**
+   * Read all the log entries of a closed segment, starting from the header.
+   * The reading stops at the end of the file, at the terminator,
+   * or after the entry with the given end index.
+   *
+   * @return the number of entries read.
+   */
+  synchronized int readAll(long endIndex, CheckedConsumer<LogEntryProto, IOException> entryConsumer)
+      throws IOException {
+    final long size = getChannel().size();
+    final MappedByteBuffer m = mmapEnabled ? getMapped(size) : null;
+    final int maxFrameLength = getMaxFrameLength();
+    final ChunkedInput in = m != null ? new ChunkedInput(m.duplicate())
+        : new ChunkedInput(size, Math.toIntExact(Math.min(size, maxFrameLength)));
+    verifyHeader(in.ensure(SegmentedRaftLogFormat.getHeaderLength()));
+
+    int count = 0;
+    for (LogEntryProto prev = null; in.ensure(maxFrameLength).hasRemaining() && !isTerminator(in.buffer); ) {
+      final LogEntryProto next;
+      try {
+        next = decodeEntry(in.buffer, in.bufferOffset);
+      } catch (EOFException eof) {
+        LOG.warn("Ignoring the last partial written log entry in {}: {}", file, eof.getMessage());
+        break;
+      }
+      if (prev != null) {
+        Preconditions.assertTrue(next.getIndex() == prev.getIndex() + 1,
+            "gap between entry %s and entry %s", prev, next);
+      }
+      entryConsumer.accept(next);
+      count++;
+      if (next.getIndex() >= endIndex) {
+        break;
+      }
+      prev = next;
+    }
+    return count;
+  }
+
+  /** @return the max length of an entry frame, including the length prefix and the checksum. */
+  private int getMaxFrameLength() {
+    final int max = maxOpSize.getSizeInt();
+    return CodedOutputStream.computeUInt32SizeNoTag(max) + max + 4;
+  }
+
+  /** Read a file sequentially using a buffer, which is either a chunk of the file or the mapped file. */
+  private final class ChunkedInput {
+    private final long size;
+    private final ByteBuffer buffer;
+    /** The file offset corresponding to buffer position 0. */
+    private long bufferOffset = 0;
+
+    /** Read the file in chunks of the given size. */
+    ChunkedInput(long size, int chunkSize) {
+      this.size = size;
+      this.buffer = ByteBuffer.allocate(chunkSize);
+      buffer.limit(0);
+    }
+
+    /** Read the given mapped file. */
+    ChunkedInput(ByteBuffer mapped) {
+      this.size = mapped.remaining();
+      this.buffer = mapped;
+    }
+
+    /**
+     * Make sure that the buffer has at least the given number of bytes remaining,
+     * unless it reaches the end of the file, by reading the next chunk.
+     *
+     * @return the buffer.
+     */
+    ByteBuffer ensure(int length) throws IOException {
+      final long end = bufferOffset + buffer.limit();
+      if (buffer.remaining() >= length || end >= size) {
+        return buffer;
+      }
+      bufferOffset += buffer.position();
+      buffer.compact();
+      buffer.limit(buffer.position() + Math.toIntExact(Math.min(buffer.remaining(), size - end)));
+      readFully(getChannel(), buffer, end);
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  private void verifyHeader(ByteBuffer buffer) throws IOException {
+    final byte[] header = new byte[Math.min(SegmentedRaftLogFormat.getHeaderLength(), buffer.remaining())];
+    buffer.get(header);
+    final int matchLength = SegmentedRaftLogFormat.matchHeader(header, 0, header.length);
+    if (header.length < SegmentedRaftLogFormat.getHeaderLength() || matchLength != header.length) {
+      throw new CorruptedFileException(file, "Log header mismatched: header in file="
+          + StringUtils.bytes2HexString(header, 0, header.length)
+          + ", expected header=" + StringUtils.bytes2HexString(SegmentedRaftLogFormat.getHeaderBytebuffer()));
+    }
+  }
+
+  private static boolean isTerminator(ByteBuffer buffer) {
+    return SegmentedRaftLogFormat.isTerminator(buffer.get(buffer.position()));
+  }
+
+  private void readFully(FileChannel fc, ByteBuffer buffer, long offset) throws IOException {
+    for (long position = offset; buffer.hasRemaining(); ) {
+      final int n = fc.read(buffer, position);
+      if (n < 0) {
+        throw new EOFException("Reached the end of " + file + " (size=" + fc.size() + ") at position " + position
+            + ": expected to read " + buffer.limit() + " bytes from offset " + offset);
+      }
+      position += n;
+    }
+  }
+
+  /**
+   * Decode a log entry "frame" from the given buffer and verify its checksum.
+   * The buffer position will be advanced to the end of the frame.
+   *
+   * @param bufferOffset the file offset corresponding to buffer position 0; it is only used in error messages.
+   */
+  private LogEntryProto decodeEntry(ByteBuffer buffer, long bufferOffset) throws IOException {
+    final int start = buffer.position();
+    final long position = bufferOffset + start;
+    if (SegmentedRaftLogFormat.isTerminator(buffer.get(start))) {
+      throw new CorruptedFileException(file, "Unexpected terminator at position " + position);
+    }
+
+    final int entryLength = CodedInputStream.newInstance(buffer.duplicate()).readRawVarint32();
+    final int max = maxOpSize.getSizeInt();
+    if (entryLength > max) {
+      throw new IOException("Entry has size " + entryLength + ", but MAX_OP_SIZE = " + maxOpSize);
+    }
+    final int protoLength = CodedOutputStream.computeUInt32SizeNoTag(entryLength) + entryLength;
+    final int frameLength = protoLength + 4;
+    if (buffer.remaining() < frameLength) {
+      throw new EOFException("Log entry at position " + position + " in " + file + " has length " + frameLength
+          + " but only " + buffer.remaining() + " bytes remaining in the range read");
+    }
+
+    // verify checksum
+    final ByteBuffer proto = buffer.duplicate();
+    proto.limit(start + protoLength);
+    checksum.reset();
+    checksum.update(proto.duplicate());
+    final int expectedChecksum = buffer.getInt(start + protoLength);
+    final int calculatedChecksum = (int) checksum.getValue();
+    if (expectedChecksum != calculatedChecksum) {
+      final String s = StringUtils.format("Log entry corrupted: Calculated checksum is %08X but read checksum is %08X.",
+          calculatedChecksum, expectedChecksum);
+      throw new ChecksumException(s, position);
+    }
+
+    // parse the buffer without copying it; note that the parsed entry does not share the buffer.
+    proto.position(start + protoLength - entryLength);
+    buffer.position(start + frameLength);
+    return LogEntryProto.parseFrom(UnsafeByteOperations.unsafeWrap(proto));
+  }
+
+  @Override
+  public synchronized void close() {
+    unmap();
+    if (channel != null) {
+      IOUtils.cleanup(LOG, channel);
+      channel = null;
+    }
+  }
+
+  private void unmap() {
+    if (mapped != null) {
+      DirectBufferCleaner.clean(mapped);
+      mapped = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return JavaUtils.getClassSimpleName(getClass()) + "(" + file.getName() + ")";
+  }
+}
@@ -25,10 +25,10 @@ import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedInputStream;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.util.Crc32CFactory;
 import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.Preconditions;
-import org.apache.ratis.util.PureJavaCrc32C;
 import org.apache.ratis.util.SizeInBytes;
 import org.apache.ratis.util.StringUtils;
 import org.slf4j.Logger;
@@ -154,7 +154,7 @@ class SegmentedRaftLogReader implements Closeable {
     this.file = file;
     this.limiter = new LimitedInputStream(new BufferedInputStream(FileUtils.newInputStream(file)));
     in = new DataInputStream(limiter);
-    checksum = new PureJavaCrc32C();
+    checksum = Crc32CFactory.newCrc32C();
     this.maxOpSize = maxOpSize;
     this.raftLogMetrics = raftLogMetrics;
   }
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.ConcurrentUtils;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinate the log syncs of all the {@link SegmentedRaftLog}s in a server.
+ * <p>
+ * There is one {@link Volume} for each volume (i.e. {@link java.nio.file.FileStore})
+ * containing the storage directories.
+ * A {@link Volume} is an {@link Executor} collecting the sync tasks into batches.
+ * The tasks submitted while a batch is running form the next batch,
+ * so that the batches grow with the load and an idle volume runs a task immediately.
+ * When the previous batch has more than one task,
+ * it waits up to a window for the same number of tasks, or up to a max batch size.
+ * The tasks of a batch run concurrently,
+ * so that the device receives the syncs of all the groups together
+ * and the file system can merge them, e.g. into a single journal commit.
+ */
+public final class SegmentedRaftLogSyncCoordinator implements Closeable {
+  static final Logger LOG = LoggerFactory.getLogger(SegmentedRaftLogSyncCoordinator.class);
+
+  /** @return a new coordinator if group commit is enabled; otherwise, return null. */
+  public static SegmentedRaftLogSyncCoordinator newInstance(Object name, RaftProperties properties) {
+    return RaftServerConfigKeys.Log.GroupCommit.enabled(properties)?
+        new SegmentedRaftLogSyncCoordinator(name, properties): null;
+  }
+
+  /** The sync tasks of a volume. */
+  static final class Volume implements Executor {
+    private final String name;
+    private final TimeDuration window;
+    private final int batchSizeMax;
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    /** For running the sync tasks of a batch concurrently. */
+    private final ExecutorService syncExecutor;
+    private final Daemon daemon;
+    private volatile boolean running = true;
+
+    /** The size of the previous batch, i.e. the expected number of syncs per batch; used by the daemon only. */
+    private int previousBatchSize = 1;
+    private final AtomicLong numBatches = new AtomicLong();
+
+    Volume(String name, TimeDuration window, int batchSizeMax, int syncThreads) {
+      this.name = name;
+      this.window = window;
+      this.batchSizeMax = batchSizeMax;
+      this.syncExecutor = ConcurrentUtils.newThreadPoolWithMax(true, syncThreads, name + "-sync-");
+      this.daemon = Daemon.newBuilder().setName(name).setRunnable(this::run).build();
+      daemon.start();
+    }
+
+    long getNumBatches() {
+      return numBatches.get();
+    }
+
+    @Override
+    public synchronized void execute(Runnable syncTask) {
+      if (!running) {
+        // the coordinator is already closed; run it in the caller thread.
+        syncTask.run();
+        return;
+      }
+      queue.offer(syncTask);
+    }
+
+    private void run() {
+      final List<Runnable> batch = new ArrayList<>(batchSizeMax);
+      while (running || !queue.isEmpty()) {
+        try {
+          final Runnable first = queue.poll(1, TimeUnit.SECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+          // take all the tasks submitted while the previous batch was running
+          queue.drainTo(batch, batchSizeMax - batch.size());
+          if (batch.size() < previousBatchSize) {
+            // wait only under load, i.e. when more syncs are expected
+            pollBatch(batch, previousBatchSize);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          LOG.info("{} is interrupted", name);
+          break;
+        } finally {
+          runBatch(batch);
+        }
+      }
+      // run the remaining tasks so that their futures are completed.
+      for (Runnable r; (r = queue.poll()) != null; ) {
+        r.run();
+      }
+    }
+
+    /** Poll more tasks until the batch reaches the expected size or the window is expired. */
+    private void pollBatch(List<Runnable> batch, int expectedSize) throws InterruptedException {
+      final long deadline = System.nanoTime() + window.toLong(TimeUnit.NANOSECONDS);
+      final int size = Math.min(expectedSize, batchSizeMax);
+      while (batch.size() < size) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return;
+        }
+        final Runnable next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (next == null) {
+          return;
+        }
+        batch.add(next);
+      }
+    }
+
+    /** Run the tasks in the batch concurrently and wait for all of them. */
+    private void runBatch(List<Runnable> batch) {
+      if (batch.isEmpty()) {
+        return;
+      }
+      LOG.debug("{}: sync a batch of {}", name, batch.size());
+      final List<CompletableFuture<Void>> futures = new ArrayList<>(batch.size() - 1);
+      for (int i = 1; i < batch.size(); i++) {
+        final Runnable r = batch.get(i);
+        try {
+          futures.add(CompletableFuture.runAsync(() -> runSyncTask(r), syncExecutor));
+        } catch (RejectedExecutionException e) {
+          runSyncTask(r);
+        }
+      }
+      runSyncTask(batch.get(0));
+      futures.forEach(CompletableFuture::join);
+
+      numBatches.incrementAndGet();
+      previousBatchSize = batch.size();
+      batch.clear();
+    }
+
+    private void runSyncTask(Runnable r) {
+      try {
+        r.run();
+      } catch (Exception e) {
+        LOG.error("{}: Failed to run sync task {}", name, r, e);
+      }
+    }
+
+    private synchronized void stop() {
+      running = false;
+    }
+
+    void close() {
+      stop();
+      try {
+        daemon.join(TimeUnit.SECONDS.toMillis(3));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      syncExecutor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private final String name;
+  private final TimeDuration window;
+  private final int batchSizeMax;
+  private final int syncThreads;
+  /** Volume key (either a {@link java.nio.file.FileStore} or a directory) -> {@link Volume}. */
+  private final Map<Object, Volume> volumes = new ConcurrentHashMap<>();
+  private volatile boolean closed = false;
+
+  private SegmentedRaftLogSyncCoordinator(Object name, RaftProperties properties) {
+    this.name = name + "-" + JavaUtils.getClassSimpleName(getClass());
+    this.window = RaftServerConfigKeys.Log.GroupCommit.window(properties);
+    this.batchSizeMax = RaftServerConfigKeys.Log.GroupCommit.batchSizeMax(properties);
+    this.syncThreads = RaftServerConfigKeys.Log.GroupCommit.syncThreads(properties);
+    LOG.info("{}: window={}, batchSizeMax={}, syncThreads={}", this.name, window, batchSizeMax, syncThreads);
+  }
+
+  /** @return the {@link Volume} containing the given directory. */
+  Volume getVolume(File dir) {
+    if (closed) {
+      throw new IllegalStateException(name + " is already closed");
+    }
+    return volumes.computeIfAbsent(getVolumeKey(dir),
+        key -> new Volume(name + "-" + volumes.size(), window, batchSizeMax, syncThreads));
+  }
+
+  private Object getVolumeKey(File dir) {
+    try {
+      return Files.getFileStore(dir.toPath());
+    } catch (IOException e) {
+      LOG.warn("{}: Failed to get the FileStore of {}, use the directory as the volume", name, dir, e);
+      return dir.getAbsoluteFile();
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    volumes.values().forEach(Volume::close);
+    volumes.clear();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -52,6 +52,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -148,7 +149,18 @@ class SegmentedRaftLogWorker {
   private final DataBlockingQueue<Task> queue;
   private final WriteLogTasks writeTasks = new WriteLogTasks();
   private volatile boolean running = true;
+  /** The dedicated worker thread; null if the shared worker pool is used. */
   private final ExecutorService workerThreadExecutor;
+  /**
+   * The shared worker pool, if there is any.
+   * The tasks are run as cooperative tasks in the pool, one task at a time in FIFO order.
+   */
+  private final ExecutorService sharedWorkerPool;
+  private final TaskQueue sharedTaskQueue;
+  /** Has {@link #start(long, long, File)} been called?  Guarded by this object. */
+  private boolean started = false;
+  /** The exception, if there is any, when a log task fails. */
+  private RaftLogIOException logIOException;
   private final RaftStorage storage;
   @SuppressWarnings({"squid:S3077"}) // Suppress volatile for generic type
   private volatile SegmentedRaftLogOutputStream out;
@@ -179,13 +191,19 @@ class SegmentedRaftLogWorker {
 
   private final boolean asyncFlush;
   private final boolean unsafeFlush;
+  private final boolean segmentIndexEnabled;
+  private final boolean compressionEnabled;
   private final ExecutorService flushExecutor;
+  /** For async-flush: either the {@link #flushExecutor} or a group commit volume. */
+  private final Executor asyncFlushExecutor;
 
   private final StateMachineDataPolicy stateMachineDataPolicy;
 
+  @SuppressWarnings("checkstyle:ParameterNumber")
   SegmentedRaftLogWorker(RaftGroupMemberId memberId, StateMachine stateMachine, Runnable submitUpdateCommitEvent,
                          RaftServer.Division server, RaftStorage storage, RaftProperties properties,
-                         SegmentedRaftLogMetrics metricRegistry) {
+                         SegmentedRaftLogMetrics metricRegistry, SegmentedRaftLogSyncCoordinator syncCoordinator,
+                         ExecutorService sharedWorkerPool) {
     this.name = memberId + "-" + JavaUtils.getClassSimpleName(getClass());
     LOG.info("new {} for {}", name, storage);
 
@@ -202,10 +220,14 @@ class SegmentedRaftLogWorker {
     this.segmentMaxSize = RaftServerConfigKeys.Log.segmentSizeMax(properties).getSize();
     this.preallocatedSize = RaftServerConfigKeys.Log.preallocatedSize(properties).getSize();
     this.forceSyncNum = RaftServerConfigKeys.Log.forceSyncNum(properties);
+    this.segmentIndexEnabled = RaftServerConfigKeys.Log.segmentIndexEnabled(properties);
+    this.compressionEnabled = LogDataCompression.isEnabled(properties);
 
     this.stateMachineDataPolicy = new StateMachineDataPolicy(properties, metricRegistry);
 
-    this.workerThreadExecutor = ConcurrentUtils.newSingleThreadExecutor(name);
+    this.sharedWorkerPool = sharedWorkerPool;
+    this.sharedTaskQueue = sharedWorkerPool == null? null: new TaskQueue(name);
+    this.workerThreadExecutor = sharedWorkerPool != null? null: ConcurrentUtils.newSingleThreadExecutor(name);
 
     // Server Id can be null in unit tests
     metricRegistry.addDataQueueSizeGauge(queue::getNumElements);
@@ -228,8 +250,14 @@ class SegmentedRaftLogWorker {
       throw new IllegalStateException("Cannot enable both " +  RaftServerConfigKeys.Log.UNSAFE_FLUSH_ENABLED_KEY +
           " and " + RaftServerConfigKeys.Log.ASYNC_FLUSH_ENABLED_KEY);
     }
-    this.flushExecutor = (!asyncFlush && !unsafeFlush)? null
+    if (syncCoordinator != null && unsafeFlush) {
+      throw new IllegalStateException("Cannot enable both " +  RaftServerConfigKeys.Log.UNSAFE_FLUSH_ENABLED_KEY +
+          " and " + RaftServerConfigKeys.Log.GroupCommit.ENABLED_KEY);
+    }
+    this.flushExecutor = (syncCoordinator != null || (!asyncFlush && !unsafeFlush))? null
         : ConcurrentUtils.newSingleThreadExecutor(name + "-flush");
+    this.asyncFlushExecutor = syncCoordinator != null?
+        syncCoordinator.getVolume(storage.getStorageDir().getRoot()): flushExecutor;
   }
 
   void start(long latestIndex, long evictIndex, File openSegmentFile) throws IOException {
@@ -241,14 +269,33 @@ class SegmentedRaftLogWorker {
       Preconditions.assertTrue(openSegmentFile.exists());
       allocateSegmentedRaftLogOutputStream(openSegmentFile, true);
     }
-    workerThreadExecutor.submit(this::run);
+    if (workerThreadExecutor != null) {
+      workerThreadExecutor.submit(this::run);
+    } else {
+      synchronized (this) {
+        started = true;
+        // submit the tasks added before start
+        for (int i = queue.getNumElements(); i > 0; i--) {
+          submitSharedTask();
+        }
+      }
+    }
   }
 
   void close() {
     this.running = false;
     Optional.ofNullable(flushExecutor).ifPresent(ExecutorService::shutdown);
-    ConcurrentUtils.shutdownAndWait(TimeDuration.ONE_SECOND.multiply(3),
-        workerThreadExecutor, timeout -> LOG.warn("{}: shutdown timeout in " + timeout, name));
+    if (workerThreadExecutor != null) {
+      ConcurrentUtils.shutdownAndWait(TimeDuration.ONE_SECOND.multiply(3),
+          workerThreadExecutor, timeout -> LOG.warn("{}: shutdown timeout in " + timeout, name));
+    } else {
+      // wait for the running task, if there is any, since the tasks are run in order.
+      try {
+        sharedTaskQueue.submit(() -> null, sharedWorkerPool).get(3, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        LOG.warn("{}: Failed to wait for the running task", name, e);
+      }
+    }
     IOUtils.cleanup(LOG, out);
     PlatformDependent.freeDirectBuffer(writeBuffer);
     LOG.info("{} close()", name);
@@ -292,47 +339,79 @@ class SegmentedRaftLogWorker {
       }
     }
     task.startTimerOnEnqueue(raftLogMetrics.getEnqueuedTimer());
+    if (sharedTaskQueue != null) {
+      synchronized (this) {
+        if (started) {
+          submitSharedTask();
+        }
+      }
+    }
     return task;
   }
 
   boolean isAlive() {
-    return running && !workerThreadExecutor.isTerminated();
+    final ExecutorService executor = workerThreadExecutor != null? workerThreadExecutor: sharedWorkerPool;
+    return running && !executor.isTerminated();
   }
 
-  private void run() {
-    // if and when a log task encounters an exception
-    RaftLogIOException logIOException = null;
+  /** Submit a cooperative task to the shared pool for running the head of the {@link #queue}. */
+  private void submitSharedTask() {
+    sharedTaskQueue.submit(() -> {
+      if (running) {
+        Optional.ofNullable(queue.poll()).ifPresent(this::runSharedTask);
+      }
+      return null;
+    }, sharedWorkerPool);
+  }
+
+  private void runSharedTask(Task task) {
+    try {
+      runTask(task);
+    } catch (Exception e) {
+      if (!running) {
+        LOG.info("{} got closed and hit exception", name, e);
+      } else {
+        LOG.error("{} hit exception", name, e);
+        Optional.ofNullable(server).ifPresent(RaftServer.Division::close);
+      }
+    }
+  }
+
+  private void runTask(Task task) {
+    task.stopTimerOnDequeue();
+    try {
+      if (logIOException != null) {
+        throw logIOException;
+      } else {
+        try (UncheckedAutoCloseable ignored = raftLogMetrics.startTaskExecutionTimer(task.getClass())) {
+          task.execute();
+        }
+      }
+    } catch (IOException e) {
+      if (task.getEndIndex() < lastWrittenIndex) {
+        LOG.info("Ignore IOException when handling task " + task
+            + " which is smaller than the lastWrittenIndex."
+            + " There should be a snapshot installed.", e);
+      } else {
+        task.failed(e);
+        if (logIOException == null) {
+          logIOException = new RaftLogIOException("Log already failed"
+              + " at index " + task.getEndIndex()
+              + " for task " + task, e);
+        }
+        return;
+      }
+    }
+    task.done();
+  }
 
+  private void run() {
     CodeInjectionForTesting.execute(RUN_WORKER, server == null ? null : server.getId(), null, queue);
     while (running) {
       try {
         Task task = queue.poll(ONE_SECOND);
         if (task != null) {
-          task.stopTimerOnDequeue();
-          try {
-            if (logIOException != null) {
-              throw logIOException;
-            } else {
-              try (UncheckedAutoCloseable ignored = raftLogMetrics.startTaskExecutionTimer(task.getClass())) {
-                task.execute();
-              }
-            }
-          } catch (IOException e) {
-            if (task.getEndIndex() < lastWrittenIndex) {
-              LOG.info("Ignore IOException when handling task " + task
-                  + " which is smaller than the lastWrittenIndex."
-                  + " There should be a snapshot installed.", e);
-            } else {
-              task.failed(e);
-              if (logIOException == null) {
-                logIOException = new RaftLogIOException("Log already failed"
-                    + " at index " + task.getEndIndex()
-                    + " for task " + task, e);
-              }
-              continue;
-            }
-          }
-          task.done();
+          runTask(task);
         }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
@@ -381,7 +460,8 @@ class SegmentedRaftLogWorker {
           // unsafe-flush: call updateFlushedIndexIncreasingly() without waiting the underlying FileChannel.force(..).
           unsafeFlushOutStream();
           updateFlushedIndexIncreasingly();
-        } else if (asyncFlush) {
+        } else if (asyncFlushExecutor != null) {
+          // async-flush or group commit
           asyncFlushOutStream(f);
         } else {
           flushOutStream();
@@ -396,12 +476,12 @@ class SegmentedRaftLogWorker {
 
   private void unsafeFlushOutStream() throws IOException {
     final Timekeeper.Context logSyncTimerContext = raftLogMetrics.getSyncTimer().time();
-    out.asyncFlush(flushExecutor).whenComplete((v, e) -> logSyncTimerContext.stop());
+    out.asyncFlush(asyncFlushExecutor).whenComplete((v, e) -> logSyncTimerContext.stop());
   }
 
   private void asyncFlushOutStream(CompletableFuture<Void> stateMachineFlush) throws IOException {
     final Timekeeper.Context logSyncTimerContext = raftLogMetrics.getSyncTimer().time();
-    out.asyncFlush(flushExecutor)
+    out.asyncFlush(asyncFlushExecutor)
         .thenCombine(stateMachineFlush, (async, sm) -> async)
         .whenComplete((v, e) -> {
           updateFlushedIndexIncreasingly(lastWrittenIndex);
@@ -448,8 +528,13 @@ class SegmentedRaftLogWorker {
     addIOTask(new StartLogSegment(segmentToClose.getEndIndex() + 1));
   }
 
-  Task writeLogEntry(LogEntryProto entry, TransactionContext context) {
-    return addIOTask(new WriteLog(entry, context));
+  /**
+   * @param entry the entry to be appended; its state machine data, if there is any, is passed to the state machine.
+   * @param stored the same entry in the stored form, i.e. its log data may be compressed,
+   *               and it may be a heap copy of a zero-copy entry.
+   */
+  Task writeLogEntry(LogEntryProto entry, LogEntryProto stored, TransactionContext context) {
+    return addIOTask(new WriteLog(entry, stored, context));
   }
 
   Task truncate(TruncationSegments ts, long index) {
@@ -480,7 +565,9 @@ class SegmentedRaftLogWorker {
         try(UncheckedAutoCloseable ignored = raftLogMetrics.startPurgeTimer()) {
           SegmentFileInfo[] toDeletes = segments.getToDelete();
           for (int i = toDeletes.length - 1; i >= 0; i--) {
-            final Path deleted = FileUtils.deleteFile(toDeletes[i].getFile(storage));
+            final File toDelete = toDeletes[i].getFile(storage);
+            LogSegmentIndexFile.delete(toDelete);
+            final Path deleted = FileUtils.deleteFile(toDelete);
             LOG.info("{}: Purged RaftLog segment: info={}, path={}", name, toDeletes[i], deleted);
           }
         }
@@ -498,9 +585,9 @@ class SegmentedRaftLogWorker {
     private final CompletableFuture<?> stateMachineFuture;
     private final CompletableFuture<Long> combined;
 
-    WriteLog(LogEntryProto entry, TransactionContext context) {
-      this.entry = LogProtoUtils.removeStateMachineData(entry);
-      if (this.entry == entry) {
+    WriteLog(LogEntryProto entry, LogEntryProto stored, TransactionContext context) {
+      this.entry = LogProtoUtils.removeStateMachineData(stored);
+      if (!LogProtoUtils.hasStateMachineData(entry)) {
         final StateMachineLogEntryProto proto = entry.hasStateMachineLogEntry()? entry.getStateMachineLogEntry(): null;
         if (stateMachine != null && proto != null && proto.getType() == StateMachineLogEntryProto.Type.DATASTREAM) {
           final ClientInvocationId invocationId = ClientInvocationId.valueOf(proto);
@@ -512,7 +599,6 @@ class SegmentedRaftLogWorker {
         }
       } else {
         try {
-          // this.entry != entry iff the entry has state machine data
           this.stateMachineFuture = stateMachine.data().write(entry, context);
         } catch (Exception e) {
           LOG.error(name + ": writeStateMachineData failed for index " + entry.getIndex()
@@ -580,11 +666,16 @@ class SegmentedRaftLogWorker {
   private class FinalizeLogSegment extends Task {
     private final long startIndex;
     private final long endIndex;
+    /** The records and the file size for writing the {@link LogSegmentIndexFile}; null if index is disabled. */
+    private final LogRecordList records;
+    private final long totalFileSize;
 
     FinalizeLogSegment(LogSegment segmentToClose) {
       Preconditions.assertTrue(segmentToClose != null, "Log segment to be rolled is null");
       this.startIndex = segmentToClose.getStartIndex();
       this.endIndex = segmentToClose.getEndIndex();
+      this.records = segmentIndexEnabled? segmentToClose.copyRecords(): null;
+      this.totalFileSize = segmentToClose.getTotalFileSize();
     }
 
     @Override
@@ -602,6 +693,7 @@ class SegmentedRaftLogWorker {
 
         FileUtils.move(openFile, dstFile);
         LOG.info("{}: Rolled log segment from {} to {}", name, openFile, dstFile);
+        writeIndexFile(dstFile);
       } else { // delete the file of the empty segment
         final Path deleted = FileUtils.deleteFile(openFile);
         LOG.info("{}: Deleted empty RaftLog segment: startEnd={}, path={}", name, openStartEnd, deleted);
@@ -610,6 +702,20 @@ class SegmentedRaftLogWorker {
       safeCacheEvictIndex.updateToMax(endIndex, traceIndexChange);
     }
 
+    private void writeIndexFile(File segmentFile) {
+      if (records == null) {
+        // remove the stale index, if there is any, written when the index was enabled.
+        LogSegmentIndexFile.delete(segmentFile);
+        return;
+      }
+      try {
+        LogSegmentIndexFile.write(segmentFile, records, totalFileSize);
+      } catch (IOException e) {
+        // the segment will be loaded by reading the entire file
+        LOG.warn("{}: Failed to write the index file for {}", name, segmentFile, e);
+      }
+    }
+
     @Override
     void failed(IOException e) {
       // not failed for a specific log entry, but an entire segment
@@ -679,6 +785,7 @@ class SegmentedRaftLogWorker {
           final File delFile = del.getFile(storage);
           Preconditions.assertTrue(delFile.exists(),
               "File %s to be deleted does not exist", delFile);
+          LogSegmentIndexFile.delete(delFile);
           final Path deleted = FileUtils.deleteFile(delFile);
           LOG.info("{}: Deleted RaftLog segment for {}: path={}", name, segments.getReason(), deleted);
           minStart = Math.min(minStart, del.getStartIndex());
@@ -692,6 +799,7 @@ class SegmentedRaftLogWorker {
         final File fileToTruncate = segments.getToTruncate().getFile(storage);
         Preconditions.assertTrue(fileToTruncate.exists(),
             "File %s to be truncated does not exist", fileToTruncate);
+        LogSegmentIndexFile.delete(fileToTruncate);
         FileUtils.truncateFile(fileToTruncate, segments.getToTruncate().getTargetLength());
 
         // rename the file
@@ -748,6 +856,6 @@ class SegmentedRaftLogWorker {
     Preconditions.assertNull(out, "out");
     Preconditions.assertSame(0, writeBuffer.position(), "writeBuffer.position()");
     out = new SegmentedRaftLogOutputStream(file, append, segmentMaxSize,
-        preallocatedSize, writeBuffer);
+        preallocatedSize, writeBuffer, compressionEnabled);
   }
 }
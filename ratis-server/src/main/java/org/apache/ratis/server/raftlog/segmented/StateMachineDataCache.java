@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.SizeInBytes;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A cache of the state machine data read by {@link SegmentedRaftLog#getEntryWithData(long)}.
+ * The log appenders of a leader share the same read for an entry,
+ * instead of reading the data from the state machine once for each follower.
+ * <p>
+ * The cache is bounded by a byte budget.
+ * An entry is evicted once the nextIndex of every follower has passed it,
+ * or when the budget is exceeded, starting from the smallest index.
+ */
+final class StateMachineDataCache {
+  static StateMachineDataCache newInstance(RaftProperties properties, SegmentedRaftLogMetrics metrics) {
+    final SizeInBytes max = RaftServerConfigKeys.Log.StateMachineData.readCacheSizeMax(properties);
+    return max.getSize() > 0? new StateMachineDataCache(max.getSize(), metrics): null;
+  }
+
+  private static final class Item {
+    private final long term;
+    private final CompletableFuture<ByteString> future = new CompletableFuture<>();
+    /** The size of the data; -1 if the read is not yet completed. */
+    private long size = -1;
+
+    private Item(long term) {
+      this.term = term;
+    }
+  }
+
+  private final long maxBytes;
+  private final SegmentedRaftLogMetrics metrics;
+  /** index -> item; guarded by this object. */
+  private final NavigableMap<Long, Item> items = new TreeMap<>();
+  /** The total size of the completed items; guarded by this object. */
+  private long bytes = 0;
+
+  StateMachineDataCache(long maxBytes, SegmentedRaftLogMetrics metrics) {
+    this.maxBytes = maxBytes;
+    this.metrics = metrics;
+    metrics.addStateMachineDataCacheSizeInBytes(this::getBytes);
+  }
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  synchronized int size() {
+    return items.size();
+  }
+
+  /**
+   * Get the data of the given entry from the cache.
+   * If it is not found, read it using the given reader and then put it in the cache.
+   *
+   * @param followerNextIndices the nextIndex of the followers for evicting the passed entries;
+   *                            null means that this server is not the leader.
+   */
+  CompletableFuture<ByteString> getOrRead(LogEntryProto entry, Supplier<CompletableFuture<ByteString>> reader,
+      Supplier<long[]> followerNextIndices) {
+    final long index = entry.getIndex();
+    final Item item;
+    synchronized (this) {
+      final Item cached = items.get(index);
+      if (cached != null && cached.term == entry.getTerm()) {
+        metrics.onStateMachineDataCacheHit();
+        return cached.future.thenApply(data -> {
+          metrics.onStateMachineDataCacheBytesSaved(data.size());
+          return data;
+        });
+      }
+      metrics.onStateMachineDataCacheMiss();
+      item = new Item(entry.getTerm());
+      put(index, item);
+    }
+
+    evict(followerNextIndices.get());
+    final CompletableFuture<ByteString> future;
+    try {
+      future = reader.get();
+    } catch (RuntimeException e) {
+      remove(index, item);
+      item.future.completeExceptionally(e);
+      throw e;
+    }
+    future.whenComplete((data, e) -> {
+      if (e != null) {
+        remove(index, item);
+        item.future.completeExceptionally(e);
+      } else {
+        completed(index, item, data);
+        item.future.complete(data);
+      }
+    });
+    return item.future;
+  }
+
+  private synchronized void put(long index, Item item) {
+    final Item previous = items.put(index, item);
+    if (previous != null) {
+      removed(previous);
+    }
+  }
+
+  private synchronized void remove(long index, Item item) {
+    if (items.remove(index, item)) {
+      removed(item);
+    }
+  }
+
+  private void removed(Item item) {
+    if (item.size > 0) {
+      bytes -= item.size;
+    }
+  }
+
+  private synchronized void completed(long index, Item item, ByteString data) {
+    if (items.get(index) != item) {
+      return; // already evicted
+    }
+    item.size = data.size();
+    bytes += item.size;
+    // evict from the smallest index until the budget is met
+    for (Iterator<Item> i = items.values().iterator(); bytes > maxBytes && i.hasNext(); ) {
+      final Item first = i.next();
+      i.remove();
+      removed(first);
+    }
+  }
+
+  /** Evict the entries which all the followers have passed, or all the entries if this is not the leader. */
+  synchronized void evict(long[] followerNextIndices) {
+    if (followerNextIndices == null) {
+      clear();
+      return;
+    }
+    long min = Long.MAX_VALUE;
+    for (long nextIndex : followerNextIndices) {
+      min = Math.min(min, nextIndex);
+    }
+    removeAll(items.headMap(min, false));
+  }
+
+  /** Invalidate the entries with index >= the given index after the log is truncated. */
+  synchronized void truncate(long index) {
+    removeAll(items.tailMap(index, true));
+  }
+
+  /** Invalidate the entries with index <= the given index after the log is purged. */
+  synchronized void purge(long index) {
+    removeAll(items.headMap(index, true));
+  }
+
+  synchronized void clear() {
+    items.clear();
+    bytes = 0;
+  }
+
+  private void removeAll(Map<Long, Item> removing) {
+    removing.values().forEach(this::removed);
+    removing.clear();
+  }
+}
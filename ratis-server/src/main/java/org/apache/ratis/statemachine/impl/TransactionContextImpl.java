@@ -26,9 +26,11 @@ import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ReferenceCountedObject;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -74,6 +76,12 @@ public class TransactionContextImpl implements TransactionContext {
 
   private final CompletableFuture<Long> logIndexFuture = new CompletableFuture<>();
 
+  /**
+   * For a zero-copy client request, it is the reference of the request
+   * which the log entry and the other fields of this object may point to; otherwise, it is null.
+   */
+  private volatile ReferenceCountedObject<?> requestRef;
+
   private TransactionContextImpl(RaftPeerRole serverRole, RaftClientRequest clientRequest, StateMachine stateMachine,
       StateMachineLogEntryProto stateMachineLogEntry) {
     this.serverRole = serverRole;
@@ -157,6 +165,49 @@ public class TransactionContextImpl implements TransactionContext {
     return logEntry = LogProtoUtils.toLogEntryProto(stateMachineLogEntry, term, index);
   }
 
+  /**
+   * Set the reference of a zero-copy client request.
+   * The caller retains the request until the client reply is sent.
+   * The users of this transaction afterward, such as the log writer and the state machine updater,
+   * must retain the request by {@link #retainRequest(TransactionContext)}.
+   */
+  public void setRequestRef(ReferenceCountedObject<?> ref) {
+    this.requestRef = ref;
+  }
+
+  /** @return true if the client request of this transaction is zero-copy. */
+  public boolean isZeroCopy() {
+    return requestRef != null;
+  }
+
+  /**
+   * Retain the zero-copy client request of the given transaction, if there is any.
+   *
+   * @return true if the request is retained or it is not zero-copy;
+   *         false if the request has already been released, so that the transaction can no longer be used.
+   */
+  public static boolean retainRequest(TransactionContext trx) {
+    final ReferenceCountedObject<?> ref = getRequestRef(trx);
+    if (ref == null) {
+      return true;
+    }
+    try {
+      ref.retain();
+      return true;
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  /** Release the zero-copy client request retained by {@link #retainRequest(TransactionContext)}. */
+  public static void releaseRequest(TransactionContext trx) {
+    Optional.ofNullable(getRequestRef(trx)).ifPresent(ReferenceCountedObject::release);
+  }
+
+  private static ReferenceCountedObject<?> getRequestRef(TransactionContext trx) {
+    return trx instanceof TransactionContextImpl? ((TransactionContextImpl) trx).requestRef: null;
+  }
+
   public CompletableFuture<Long> getLogIndexFuture() {
     return logIndexFuture;
   }
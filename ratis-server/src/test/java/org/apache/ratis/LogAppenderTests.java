@@ -32,7 +32,9 @@ import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.leader.LogAppender;
 import org.apache.ratis.server.impl.MiniRaftCluster;
+import org.apache.ratis.server.impl.RaftServerTestUtil;
 import org.apache.ratis.server.metrics.RaftServerMetricsImpl;
+import org.apache.ratis.server.metrics.RaftServerMetricsImpl.FollowerAppendStage;
 import org.apache.ratis.server.raftlog.LogProtoUtils;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.statemachine.impl.SimpleStateMachine4Testing;
@@ -125,6 +127,39 @@ public abstract class LogAppenderTests<CLUSTER extends MiniRaftCluster>
     runWithNewCluster(3, this::runTest);
   }
 
+  @Test
+  public void testFollowerOf() throws Exception {
+    runWithNewCluster(3, this::runTestFollowerOf);
+  }
+
+  void runTestFollowerOf(CLUSTER cluster) throws Exception {
+    final RaftServer.Division leader = waitForLeader(cluster);
+    final RaftPeerId leaderId = leader.getId();
+    final long term = leader.getInfo().getCurrentTerm();
+    try (RaftClient client = cluster.createClient(leaderId)) {
+      Assertions.assertTrue(client.io().send(new SimpleMessage("m")).isSuccess());
+    }
+
+    // the followers take the fast path for the appendEntries requests from the leader in the term
+    for (RaftServer.Division follower : cluster.getFollowers()) {
+      JavaUtils.attempt(() -> assertTrue(RaftServerTestUtil.isFollowerOf(follower, leaderId, term)),
+          10, ONE_SECOND, follower.getId() + " isFollowerOf " + leaderId, LOG);
+      Assertions.assertFalse(RaftServerTestUtil.isFollowerOf(follower, leaderId, term + 1));
+      Assertions.assertFalse(RaftServerTestUtil.isFollowerOf(follower, follower.getId(), term));
+    }
+    Assertions.assertFalse(RaftServerTestUtil.isFollowerOf(leader, leaderId, term));
+
+    // after a leader change, the old leader is no longer recognized by the fast path
+    cluster.killServer(leaderId);
+    final RaftServer.Division newLeader = waitForLeader(cluster);
+    final long newTerm = newLeader.getInfo().getCurrentTerm();
+    for (RaftServer.Division follower : cluster.getFollowers()) {
+      Assertions.assertFalse(RaftServerTestUtil.isFollowerOf(follower, leaderId, term));
+      JavaUtils.attempt(() -> assertTrue(RaftServerTestUtil.isFollowerOf(follower, newLeader.getId(), newTerm)),
+          10, ONE_SECOND, follower.getId() + " isFollowerOf " + newLeader.getId(), LOG);
+    }
+  }
+
   @Test
   public void testFollowerHeartbeatMetric() throws IOException, InterruptedException {
 
@@ -168,6 +203,10 @@ public abstract class LogAppenderTests<CLUSTER extends MiniRaftCluster>
         assertTrue(t.getTimer().getMeanRate() > 0.0d);
         assertTrue(t.getTimer().getCount() > 0L);
       }
+      for (FollowerAppendStage stage : FollowerAppendStage.values()) {
+        final DefaultTimekeeperImpl t = (DefaultTimekeeperImpl) followerMetrics.getFollowerAppendEntryTimer(stage);
+        assertTrue(t.getTimer().getCount() > 0L, () -> stage + " is not timed");
+      }
     }
   }
 
@@ -141,6 +141,11 @@ public final class RaftServerTestUtil {
     return ((RaftServerImpl)server).getState();
   }
 
+  /** @return is the given server a follower of the given leader in the given term? */
+  public static boolean isFollowerOf(RaftServer.Division server, RaftPeerId leaderId, long term) {
+    return getState(server).isFollowerOf(leaderId, term);
+  }
+
   public static ConfigurationManager getConfigurationManager(RaftServer.Division server) {
     return (ConfigurationManager) RaftTestUtil.getDeclaredField(getState(server), "configurationManager");
   }
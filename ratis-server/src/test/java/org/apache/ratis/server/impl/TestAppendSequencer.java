@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.util.Daemon;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Test {@link AppendSequencer}.
+ */
+public class TestAppendSequencer extends BaseTest {
+  static final String EXECUTOR_THREAD = "sequencerExecutor";
+
+  /** A batch appended by the sequencer and the thread appending it. */
+  static final class Batch {
+    private final List<AppendSequencer.Append> appends;
+    private final String thread = Thread.currentThread().getName();
+
+    Batch(List<AppendSequencer.Append> appends) {
+      this.appends = new ArrayList<>(appends);
+    }
+  }
+
+  private final List<Batch> batches = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+  private final CountDownLatch firstBatchReleased = new CountDownLatch(1);
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setup() {
+    executor = Executors.newSingleThreadExecutor(r -> new Thread(r, EXECUTOR_THREAD));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  private List<CompletableFuture<RaftClientReply>> appendBatch(List<AppendSequencer.Append> appends) {
+    batches.add(new Batch(appends));
+    if (batches.size() == 1) {
+      firstBatchStarted.countDown();
+      await(firstBatchReleased);
+    }
+    return appends.stream()
+        .map(a -> CompletableFuture.<RaftClientReply>completedFuture(null))
+        .collect(Collectors.toList());
+  }
+
+  static void await(CountDownLatch latch) {
+    try {
+      Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static AppendSequencer.Append newAppend() {
+    return new AppendSequencer.Append(null, null, null, null, null);
+  }
+
+  @Test
+  public void testHandOff() throws Exception {
+    final AppendSequencer sequencer = new AppendSequencer("test", 2, this::appendBatch, executor);
+
+    // the submitting thread becomes the appender and is blocked in the first batch
+    final AppendSequencer.Append first = newAppend();
+    final String submitter = "submitter";
+    final Thread thread = Daemon.newBuilder().setName(submitter).setRunnable(() -> sequencer.submit(first)).build();
+    thread.start();
+    await(firstBatchStarted);
+
+    // the other threads return without appending
+    final List<AppendSequencer.Append> others = Arrays.asList(newAppend(), newAppend(), newAppend(), newAppend());
+    final List<CompletableFuture<RaftClientReply>> futures = others.stream()
+        .map(sequencer::submit)
+        .collect(Collectors.toList());
+    Assertions.assertEquals(1, batches.size());
+    for (CompletableFuture<RaftClientReply> f : futures) {
+      Assertions.assertFalse(f.isDone());
+    }
+
+    // the submitting thread appends only one batch and hands off the others
+    firstBatchReleased.countDown();
+    thread.join(10_000);
+    Assertions.assertFalse(thread.isAlive());
+    first.getFuture().get(10, TimeUnit.SECONDS);
+    for (CompletableFuture<RaftClientReply> f : futures) {
+      f.get(10, TimeUnit.SECONDS);
+    }
+
+    Assertions.assertEquals(3, batches.size());
+    Assertions.assertEquals(Collections.singletonList(first), batches.get(0).appends);
+    Assertions.assertEquals(submitter, batches.get(0).thread);
+    Assertions.assertEquals(others.subList(0, 2), batches.get(1).appends);
+    Assertions.assertEquals(EXECUTOR_THREAD, batches.get(1).thread);
+    Assertions.assertEquals(others.subList(2, 4), batches.get(2).appends);
+    Assertions.assertEquals(EXECUTOR_THREAD, batches.get(2).thread);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.server.raftlog.memory.MemoryRaftLog;
+import org.apache.ratis.util.JavaUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test {@link FollowerAppendLog}.
+ */
+public class TestFollowerAppendLog extends BaseTest {
+  private static final long TERM = 1;
+  private static final CompletableFuture<Void> NO_ROLE_CHANGE = CompletableFuture.completedFuture(null);
+
+  private MemoryRaftLog log;
+  private ExecutorService executor;
+  private FollowerAppendLog appendLog;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    log = new MemoryRaftLog(RaftServerTestUtil.TEST_MEMBER_ID, () -> -1, new RaftProperties());
+    log.open(RaftLog.INVALID_LOG_INDEX, null);
+    executor = Executors.newSingleThreadExecutor();
+    appendLog = new FollowerAppendLog(() -> log, executor);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    executor.shutdown();
+    log.close();
+  }
+
+  static List<LogEntryProto> newEntries(long index) {
+    return Collections.singletonList(LogEntryProto.newBuilder().setTerm(TERM).setIndex(index).build());
+  }
+
+  private CompletableFuture<Void> append(long index, CompletableFuture<Void> roleChange) {
+    return appendLog.append(newEntries(index), null, roleChange, appendLog.getGeneration());
+  }
+
+  @Test
+  public void testAppendAfterRoleChange() throws Exception {
+    final CompletableFuture<Void> roleChange = new CompletableFuture<>();
+    final CompletableFuture<Void> f0 = append(0, roleChange);
+    // chained to the previous append, which is waiting for the role change
+    final CompletableFuture<Void> f1 = append(1, NO_ROLE_CHANGE);
+    Assertions.assertFalse(f0.isDone());
+    Assertions.assertFalse(f1.isDone());
+    Assertions.assertTrue(appendLog.contains(TermIndex.valueOf(TERM, 0)));
+    Assertions.assertTrue(appendLog.contains(TermIndex.valueOf(TERM, 1)));
+
+    roleChange.complete(null);
+    f0.get(10, TimeUnit.SECONDS);
+    f1.get(10, TimeUnit.SECONDS);
+    Assertions.assertEquals(1, log.getLastEntryTermIndex().getIndex());
+    Assertions.assertFalse(appendLog.contains(TermIndex.valueOf(TERM, 0)));
+    Assertions.assertFalse(appendLog.contains(TermIndex.valueOf(TERM, 1)));
+  }
+
+  static void assertFailure(Throwable expected, CompletableFuture<Void> future) {
+    final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+        () -> future.get(10, TimeUnit.SECONDS));
+    Assertions.assertSame(expected, e.getCause());
+  }
+
+  @Test
+  public void testRoleChangeFailure() throws Exception {
+    final IOException failure = new IOException("Failed to change role");
+    // the role change has already failed
+    final CompletableFuture<Void> failed = JavaUtils.completeExceptionally(failure);
+    Assertions.assertSame(failed, append(0, failed));
+    Assertions.assertFalse(appendLog.contains(TermIndex.valueOf(TERM, 0)));
+
+    final long generation = appendLog.getGeneration();
+    final CompletableFuture<Void> roleChange = new CompletableFuture<>();
+    final CompletableFuture<Void> f0 = append(0, roleChange);
+    final CompletableFuture<Void> f1 = append(1, NO_ROLE_CHANGE);
+    roleChange.completeExceptionally(failure);
+
+    // the append waiting for the failed role change and the appends chained after it fail
+    assertFailure(failure, f0);
+    assertFailure(failure, f1);
+    Assertions.assertNull(log.getLastEntryTermIndex());
+    Assertions.assertFalse(appendLog.contains(TermIndex.valueOf(TERM, 0)));
+    Assertions.assertFalse(appendLog.contains(TermIndex.valueOf(TERM, 1)));
+
+    // a request checked before the failure is rejected
+    Assertions.assertNotEquals(generation, appendLog.getGeneration());
+    final CompletableFuture<Void> f2 = appendLog.append(newEntries(2), null, NO_ROLE_CHANGE, generation);
+    final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+        () -> f2.get(10, TimeUnit.SECONDS));
+    Assertions.assertInstanceOf(IOException.class, e.getCause());
+    Assertions.assertNull(log.getLastEntryTermIndex());
+
+    // the entries can be appended again
+    append(0, NO_ROLE_CHANGE).get(10, TimeUnit.SECONDS);
+    append(1, NO_ROLE_CHANGE).get(10, TimeUnit.SECONDS);
+    Assertions.assertEquals(1, log.getLastEntryTermIndex().getIndex());
+  }
+}
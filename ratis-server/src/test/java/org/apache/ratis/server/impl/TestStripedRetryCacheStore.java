@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.ClientInvocationId;
+import org.apache.ratis.server.impl.RetryCacheImpl.CacheEntry;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test {@link StripedRetryCacheStore}.
+ */
+public class TestStripedRetryCacheStore {
+  private static final TimeDuration EXPIRY_TIME = TimeDuration.valueOf(32, TimeUnit.SECONDS);
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private StripedRetryCacheStore newStore() {
+    return new StripedRetryCacheStore(EXPIRY_TIME, 2, nanos::get);
+  }
+
+  private void advance(long seconds) {
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  @Test
+  public void testPutAndInvalidate() {
+    final StripedRetryCacheStore store = newStore();
+    final ClientId clientId = ClientId.randomId();
+
+    final CacheEntry first = new CacheEntry(clientId, 1);
+    Assertions.assertSame(first, store.putIfAbsent(first));
+    Assertions.assertSame(first, store.putIfAbsent(new CacheEntry(clientId, 1)));
+    Assertions.assertEquals(1, store.hitCount());
+    Assertions.assertEquals(1, store.missCount());
+
+    final CacheEntry refreshed = new CacheEntry(clientId, 1);
+    store.put(refreshed);
+    Assertions.assertSame(refreshed, store.getIfPresent(ClientInvocationId.valueOf(clientId, 1)));
+    Assertions.assertEquals(1, store.size());
+
+    store.invalidate(clientId, Arrays.asList(1L, 2L));
+    Assertions.assertNull(store.getIfPresent(ClientInvocationId.valueOf(clientId, 1)));
+    Assertions.assertEquals(0, store.size());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    final StripedRetryCacheStore store = newStore();
+    final ClientId[] clients = {ClientId.randomId(), ClientId.randomId(), ClientId.randomId()};
+    final Map<ClientInvocationId, CacheEntry> expected = new HashMap<>();
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    // enough entries to resize the stripes and to wrap around the probing
+    for (int i = 0; i < 10_000; i++) {
+      final ClientId clientId = clients[random.nextInt(clients.length)];
+      final long callId = random.nextInt(2_000);
+      final ClientInvocationId key = ClientInvocationId.valueOf(clientId, callId);
+      if (random.nextInt(3) == 0) {
+        store.invalidate(clientId, Collections.singletonList(callId));
+        expected.remove(key);
+      } else {
+        final CacheEntry entry = new CacheEntry(key);
+        Assertions.assertSame(expected.computeIfAbsent(key, k -> entry), store.putIfAbsent(entry));
+      }
+    }
+
+    Assertions.assertEquals(expected.size(), store.size());
+    for (Map.Entry<ClientInvocationId, CacheEntry> e : expected.entrySet()) {
+      Assertions.assertSame(e.getValue(), store.getIfPresent(e.getKey()));
+    }
+  }
+
+  @Test
+  public void testExpiry() {
+    final StripedRetryCacheStore store = newStore();
+    final ClientId clientId = ClientId.randomId();
+    final ClientInvocationId key = ClientInvocationId.valueOf(clientId, 1);
+    store.putIfAbsent(new CacheEntry(key));
+
+    advance(20);
+    store.putIfAbsent(new CacheEntry(clientId, 2));
+    Assertions.assertNotNull(store.getIfPresent(key));
+
+    // the first entry is expired after the expiry time plus at most one tick
+    advance(14);
+    Assertions.assertNull(store.getIfPresent(key));
+    Assertions.assertEquals(2, store.size());
+
+    // the expired entries are removed in bulk by the next write
+    store.putIfAbsent(new CacheEntry(clientId, 3));
+    Assertions.assertEquals(2, store.size());
+    Assertions.assertNotNull(store.getIfPresent(ClientInvocationId.valueOf(clientId, 2)));
+
+    // an expired entry is replaced by a new entry
+    advance(100);
+    final CacheEntry entry = new CacheEntry(clientId, 2);
+    Assertions.assertSame(entry, store.putIfAbsent(entry));
+    Assertions.assertEquals(1, store.size());
+
+    store.invalidateAll();
+    Assertions.assertEquals(0, store.size());
+  }
+}
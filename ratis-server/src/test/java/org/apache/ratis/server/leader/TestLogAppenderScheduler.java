@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.leader;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Appender.ExecutionMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Test {@link LogAppenderScheduler}.
+ */
+public class TestLogAppenderScheduler {
+  static RaftProperties newProperties(ExecutionMode mode, int threads) {
+    final RaftProperties properties = new RaftProperties();
+    RaftServerConfigKeys.Log.Appender.setExecutionMode(properties, mode);
+    RaftServerConfigKeys.Log.Appender.setSchedulerThreads(properties, threads);
+    return properties;
+  }
+
+  @Test
+  public void testReferenceCount() {
+    Assertions.assertNull(LogAppenderScheduler.get());
+    Assertions.assertFalse(LogAppenderScheduler.acquire("s0", newProperties(ExecutionMode.THREAD, 2)));
+    Assertions.assertNull(LogAppenderScheduler.get());
+
+    Assertions.assertTrue(LogAppenderScheduler.acquire("s1", newProperties(ExecutionMode.SCHEDULER, 2)));
+    final ScheduledThreadPoolExecutor scheduler = LogAppenderScheduler.get();
+    Assertions.assertNotNull(scheduler);
+    Assertions.assertEquals(2, scheduler.getCorePoolSize());
+
+    // a later server with more threads grows the shared scheduler
+    Assertions.assertTrue(LogAppenderScheduler.acquire("s2", newProperties(ExecutionMode.SCHEDULER, 3)));
+    Assertions.assertSame(scheduler, LogAppenderScheduler.get());
+    Assertions.assertEquals(3, scheduler.getCorePoolSize());
+    // but a later server with fewer threads does not shrink it
+    Assertions.assertTrue(LogAppenderScheduler.acquire("s3", newProperties(ExecutionMode.SCHEDULER, 1)));
+    Assertions.assertEquals(3, scheduler.getCorePoolSize());
+
+    LogAppenderScheduler.release("s1");
+    LogAppenderScheduler.release("s2");
+    Assertions.assertSame(scheduler, LogAppenderScheduler.get());
+    Assertions.assertFalse(scheduler.isShutdown());
+
+    // the last release shuts down the scheduler
+    LogAppenderScheduler.release("s3");
+    Assertions.assertNull(LogAppenderScheduler.get());
+    Assertions.assertTrue(scheduler.isShutdown());
+    Assertions.assertThrows(IllegalStateException.class, () -> LogAppenderScheduler.release("s4"));
+
+    // a new scheduler is created for the next server
+    Assertions.assertTrue(LogAppenderScheduler.acquire("s5", newProperties(ExecutionMode.SCHEDULER, 2)));
+    Assertions.assertNotSame(scheduler, LogAppenderScheduler.get());
+    LogAppenderScheduler.release("s5");
+  }
+}
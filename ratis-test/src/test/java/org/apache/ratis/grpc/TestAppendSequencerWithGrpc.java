@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc;
+
+import org.apache.ratis.RaftAsyncTests;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/** Run the async tests with {@link RaftServerConfigKeys.Write.Sequencer} enabled. */
+@Timeout(100)
+public class TestAppendSequencerWithGrpc extends RaftAsyncTests<MiniRaftClusterWithGrpc>
+    implements MiniRaftClusterWithGrpc.FactoryGet {
+  {
+    RaftServerConfigKeys.Write.Sequencer.setEnabled(getProperties(), true);
+    RaftServerConfigKeys.Write.Sequencer.setBatchSizeMax(getProperties(), 8);
+  }
+
+  @Test
+  public void testConcurrentClients() throws Exception {
+    runWithNewCluster(NUM_SERVERS, this::runTestConcurrentClients);
+  }
+
+  void runTestConcurrentClients(MiniRaftClusterWithGrpc cluster) throws Exception {
+    RaftTestUtil.waitForLeader(cluster);
+    final int numClients = 5;
+    final int numMessages = 50;
+    final List<RaftClient> clients = new ArrayList<>();
+    final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+    try {
+      for (int c = 0; c < numClients; c++) {
+        clients.add(cluster.createClient());
+      }
+      for (int i = 0; i < numMessages; i++) {
+        for (int c = 0; c < numClients; c++) {
+          final String m = "c" + c + "-m" + i;
+          futures.add(clients.get(c).async().send(new RaftTestUtil.SimpleMessage(m)));
+        }
+      }
+
+      final Set<Long> indices = new HashSet<>();
+      for (CompletableFuture<RaftClientReply> f : futures) {
+        final RaftClientReply reply = f.get();
+        Assertions.assertTrue(reply.isSuccess(), () -> "Failed: " + reply);
+        Assertions.assertTrue(indices.add(reply.getLogIndex()), () -> "Duplicated index: " + reply);
+      }
+      Assertions.assertEquals(numClients * numMessages, indices.size());
+    } finally {
+      for (RaftClient client : clients) {
+        client.close();
+      }
+    }
+  }
+}
@@ -18,8 +18,23 @@
 package org.apache.ratis.grpc;
 
 import org.apache.ratis.InstallSnapshotNotificationTests;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.junit.jupiter.api.Test;
 
 public class TestInstallSnapshotNotificationWithGrpc
     extends InstallSnapshotNotificationTests<MiniRaftClusterWithGrpc>
     implements MiniRaftClusterWithGrpc.FactoryGet {
+
+  /** The followers are notified to install snapshots outside the scheduler shared by the appenders. */
+  @Test
+  public void testAddNewFollowersWithScheduler() throws Exception {
+    RaftServerConfigKeys.Log.Appender.setExecutionMode(getProperties(),
+        RaftServerConfigKeys.Log.Appender.ExecutionMode.SCHEDULER);
+    try {
+      testAddNewFollowers();
+    } finally {
+      RaftServerConfigKeys.Log.Appender.setExecutionMode(getProperties(),
+          RaftServerConfigKeys.Log.Appender.EXECUTION_MODE_DEFAULT);
+    }
+  }
 }
@@ -18,6 +18,7 @@
 package org.apache.ratis.grpc;
 
 import org.apache.ratis.InstallSnapshotFromLeaderTests;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -52,4 +53,19 @@ implements MiniRaftClusterWithGrpc.FactoryGet {
         GrpcConfigKeys.Server.setHeartbeatChannel(getProperties(), separateHeartbeat);
         super.testInstallSnapshotLeaderSwitch();
     }
+
+    /** The snapshots are installed outside the scheduler shared by the appenders. */
+    @ParameterizedTest
+    @MethodSource("data")
+    public void testMultiFileInstallSnapshotWithScheduler(Boolean separateHeartbeat) throws Exception {
+        GrpcConfigKeys.Server.setHeartbeatChannel(getProperties(), separateHeartbeat);
+        RaftServerConfigKeys.Log.Appender.setExecutionMode(getProperties(),
+            RaftServerConfigKeys.Log.Appender.ExecutionMode.SCHEDULER);
+        try {
+            super.testMultiFileInstallSnapshot();
+        } finally {
+            RaftServerConfigKeys.Log.Appender.setExecutionMode(getProperties(),
+                RaftServerConfigKeys.Log.Appender.EXECUTION_MODE_DEFAULT);
+        }
+    }
 }
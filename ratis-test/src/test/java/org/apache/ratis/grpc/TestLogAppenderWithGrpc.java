@@ -109,6 +109,45 @@ public class TestLogAppenderWithGrpc
     runWithNewCluster(2, this::runTestRestartLogAppender);
   }
 
+  @ParameterizedTest
+  @MethodSource("data")
+  public void testSchedulerExecutionMode(Boolean separateHeartbeat) throws Exception {
+    GrpcConfigKeys.Server.setHeartbeatChannel(getProperties(), separateHeartbeat);
+    RaftServerConfigKeys.Log.Appender.setExecutionMode(getProperties(),
+        RaftServerConfigKeys.Log.Appender.ExecutionMode.SCHEDULER);
+    try {
+      runWithNewCluster(3, this::runTestSchedulerExecutionMode);
+    } finally {
+      RaftServerConfigKeys.Log.Appender.setExecutionMode(getProperties(),
+          RaftServerConfigKeys.Log.Appender.EXECUTION_MODE_DEFAULT);
+    }
+  }
+
+  private void runTestSchedulerExecutionMode(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = waitForLeader(cluster);
+    try(RaftClient client = cluster.createClient(leader.getId())) {
+      for(int i = 0; i < 10; i++) {
+        final RaftClientReply reply = client.io().send(new RaftTestUtil.SimpleMessage("m" + i));
+        Assertions.assertTrue(reply.isSuccess());
+      }
+
+      // no appender threads; the appenders are driven by the shared scheduler
+      final String appenderThreadPrefix = leader.getMemberId() + "->";
+      Assertions.assertTrue(Thread.getAllStackTraces().keySet().stream()
+          .noneMatch(t -> t.getName().startsWith(appenderThreadPrefix)));
+
+      // restart the appenders and then send more messages
+      RaftServerTestUtil.restartLogAppenders(leader);
+      for(int i = 10; i < 20; i++) {
+        final RaftClientReply reply = client.io().send(new RaftTestUtil.SimpleMessage("m" + i));
+        Assertions.assertTrue(reply.isSuccess());
+      }
+      final RaftClientReply watch = client.io().watch(
+          leader.getRaftLog().getLastCommittedIndex(), RaftProtos.ReplicationLevel.ALL_COMMITTED);
+      Assertions.assertTrue(watch.isSuccess());
+    }
+  }
+
   private void runTestRestartLogAppender(MiniRaftClusterWithGrpc cluster) throws Exception {
     final RaftServer.Division leader = waitForLeader(cluster);
 
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.server;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.metrics.MetricRegistries;
+import org.apache.ratis.metrics.MetricRegistryInfo;
+import org.apache.ratis.metrics.RatisMetricRegistry;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_UNCOMPRESSED_BYTES;
+import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_WIRE_BYTES;
+
+public class TestGrpcMessageCompression extends BaseTest
+    implements MiniRaftClusterWithGrpc.FactoryGet {
+  {
+    GrpcConfigKeys.Server.setCompressionCodec(getProperties(), "gzip");
+    GrpcConfigKeys.Server.setCompressionThreshold(getProperties(), SizeInBytes.ONE_KB);
+  }
+
+  @Test
+  public void testCompression() throws Exception {
+    runWithNewCluster(3, this::runTestCompression);
+  }
+
+  void runTestCompression(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    final String data = String.join("", Collections.nCopies(1024, "compressible"));
+    try (RaftClient client = cluster.createClient()) {
+      for (int i = 0; i < 10; i++) {
+        final RaftClientReply reply = client.io().send(new RaftTestUtil.SimpleMessage(i + data));
+        Assertions.assertTrue(reply.isSuccess());
+      }
+    }
+
+    final MetricRegistryInfo info = new MetricRegistryInfo(leader.getMemberId().toString(),
+        "ratis_grpc", "log_appender", "Metrics for Ratis Grpc Log Appender");
+    final RatisMetricRegistry registry = MetricRegistries.global().get(info).orElseThrow(AssertionError::new);
+    for (RaftServer.Division follower : cluster.getFollowers()) {
+      final String id = follower.getId().toString();
+      JavaUtils.attempt(() -> {
+        final long uncompressed = registry.counter(
+            String.format(RATIS_GRPC_METRICS_LOG_APPENDER_UNCOMPRESSED_BYTES, id)).getCount();
+        final long wire = registry.counter(String.format(RATIS_GRPC_METRICS_LOG_APPENDER_WIRE_BYTES, id)).getCount();
+        Assertions.assertTrue(uncompressed > 10 * data.length(), () -> "uncompressed = " + uncompressed);
+        Assertions.assertTrue(wire < uncompressed / 10, () -> "wire = " + wire + ", uncompressed = " + uncompressed);
+      }, 50, HUNDRED_MILLIS, "checkCompression-" + id, LOG);
+    }
+  }
+}
@@ -17,12 +17,15 @@
  */
 package org.apache.ratis.grpc.server;
 
+import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_COMPRESSION_RATIO;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_INCONSISTENCY;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_LATENCY;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_NOT_LEADER;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_PENDING_COUNT;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_SUCCESS;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_TIMEOUT;
+import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_UNCOMPRESSED_BYTES;
+import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_LOG_APPENDER_WIRE_BYTES;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_REQUESTS_COUNT;
 import static org.apache.ratis.grpc.metrics.GrpcServerMetrics.RATIS_GRPC_METRICS_REQUEST_RETRY_COUNT;
 import static org.mockito.Mockito.when;
@@ -131,6 +134,20 @@ public class TestGrpcServerMetrics {
     }
   }
 
+  @Test
+  public void testGrpcLogAppenderMessageSizes() {
+    final String follower = followerId.toString();
+    grpcServerMetrics.onMessageSent(follower, 1000, 1000);
+    grpcServerMetrics.onMessageSent(follower, 3000, 200);
+    Assertions.assertEquals(4000L, ratisMetricRegistry.counter(
+        String.format(RATIS_GRPC_METRICS_LOG_APPENDER_UNCOMPRESSED_BYTES, follower)).getCount());
+    Assertions.assertEquals(1200L, ratisMetricRegistry.counter(
+        String.format(RATIS_GRPC_METRICS_LOG_APPENDER_WIRE_BYTES, follower)).getCount());
+    final String name = String.format(RATIS_GRPC_METRICS_LOG_APPENDER_COMPRESSION_RATIO, follower);
+    final Gauge gauge = ServerMetricsTestUtils.getGaugeWithName(name, grpcServerMetrics::getRegistry);
+    Assertions.assertEquals(0.3, gauge.getValue());
+  }
+
   private void assertCounterIncremented(String counterVar, Consumer<String> incFunction) {
     String counter = String.format(counterVar, raftPeerId.toString());
     Assertions.assertEquals(0L, ratisMetricRegistry.counter(counter).getCount());
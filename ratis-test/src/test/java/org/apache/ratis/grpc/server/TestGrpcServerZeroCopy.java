@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.server;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.RaftTestUtil.SimpleMessage;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.retry.RetryPolicies;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.impl.MiniRaftCluster;
+import org.apache.ratis.server.impl.RaftServerTestUtil;
+import org.apache.ratis.statemachine.StateMachine;
+import org.apache.ratis.statemachine.TransactionContext;
+import org.apache.ratis.statemachine.impl.SimpleStateMachine4Testing;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.ProtoUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestGrpcServerZeroCopy extends BaseTest
+    implements MiniRaftClusterWithGrpc.FactoryGet {
+  {
+    getProperties().setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY,
+        SimpleStateMachine4Testing.class, StateMachine.class);
+    GrpcConfigKeys.Server.setZeroCopyEnabled(getProperties(), true);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testZeroCopyAppendEntries(boolean stateMachineCaching) throws Exception {
+    RaftServerConfigKeys.Log.StateMachineData.setCachingEnabled(getProperties(), stateMachineCaching);
+    runWithNewCluster(3, this::runTestZeroCopyAppendEntries);
+  }
+
+  void runTestZeroCopyAppendEntries(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    final String large = String.join("", Collections.nCopies(10_000, "0123456789"));
+    final SimpleMessage[] messages = new SimpleMessage[20];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = new SimpleMessage(i % 2 == 0 ? i + large : "m" + i);
+    }
+    try (RaftClient client = cluster.createClient()) {
+      for (SimpleMessage m : messages) {
+        final RaftClientReply reply = client.io().send(m);
+        Assertions.assertTrue(reply.isSuccess());
+      }
+    }
+
+    final long term = leader.getInfo().getCurrentTerm();
+    final long applied = leader.getInfo().getLastAppliedIndex();
+    for (RaftServer.Division follower : cluster.getFollowers()) {
+      RaftTestUtil.assertLogEntries(follower, term, messages, 50, LOG);
+      JavaUtils.attempt(() -> Assertions.assertTrue(follower.getInfo().getLastAppliedIndex() >= applied),
+          50, HUNDRED_MILLIS, "checkApplied-" + follower.getId(), LOG);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testZeroCopyAsyncClientRequests(boolean stateMachineCaching) throws Exception {
+    RaftServerConfigKeys.Log.StateMachineData.setCachingEnabled(getProperties(), stateMachineCaching);
+    runWithNewCluster(3, this::runTestZeroCopyAsyncClientRequests);
+  }
+
+  void runTestZeroCopyAsyncClientRequests(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    final String large = String.join("", Collections.nCopies(10_000, "0123456789"));
+    final SimpleMessage[] messages = new SimpleMessage[50];
+    final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+    try (RaftClient client = cluster.createClient()) {
+      for (int i = 0; i < messages.length; i++) {
+        messages[i] = new SimpleMessage(i % 3 == 0 ? i + large : "m" + i);
+        futures.add(client.async().send(messages[i]));
+      }
+      for (CompletableFuture<RaftClientReply> f : futures) {
+        Assertions.assertTrue(f.get().isSuccess());
+      }
+    }
+
+    final long term = leader.getInfo().getCurrentTerm();
+    for (RaftServer.Division server : cluster.iterateDivisions()) {
+      RaftTestUtil.assertLogEntries(server, term, messages, 50, LOG);
+    }
+  }
+
+  /** A state machine failing to apply any transaction. */
+  public static class FailingStateMachine extends SimpleStateMachine4Testing {
+    private final AtomicInteger numFailures = new AtomicInteger();
+
+    @Override
+    public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
+      numFailures.incrementAndGet();
+      throw new IllegalStateException("Failed to applyTransaction " + trx.getLogEntry().getIndex());
+    }
+  }
+
+  @Test
+  public void testApplyTransactionFailure() throws Exception {
+    getProperties().setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY, FailingStateMachine.class, StateMachine.class);
+    runWithNewCluster(3, this::runTestApplyTransactionFailure);
+  }
+
+  void runTestApplyTransactionFailure(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    final FailingStateMachine stateMachine = (FailingStateMachine) leader.getStateMachine();
+    try (RaftClient client = cluster.createClient(leader.getId(), RetryPolicies.noRetry())) {
+      client.async().send(new SimpleMessage("m"));
+      JavaUtils.attempt(() -> Assertions.assertTrue(stateMachine.numFailures.get() > 0),
+          50, HUNDRED_MILLIS, "checkFailures", LOG);
+    }
+
+    // the requests retained for applying must be released even if applyTransaction has failed
+    final GrpcServicesImpl services = (GrpcServicesImpl) RaftServerTestUtil.getServerRpc(leader);
+    JavaUtils.attempt(() -> Assertions.assertEquals(0,
+            services.getClientProtocolService().getZeroCopyUnclosedCount()),
+        50, HUNDRED_MILLIS, "checkReleased", LOG);
+  }
+
+  /** The entries received with zero-copy are copied to the heap once, not twice. */
+  @Test
+  public void testCopyAllocation() {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    Assumptions.assumeTrue(threadBean.isThreadAllocatedMemorySupported()
+        && threadBean.isThreadAllocatedMemoryEnabled());
+
+    final int size = 4 << 20;
+    final LogEntryProto entry = LogEntryProto.newBuilder().setTerm(1).setIndex(1)
+        .setStateMachineLogEntry(StateMachineLogEntryProto.newBuilder()
+            .setLogData(ByteString.copyFrom(new byte[size])))
+        .build();
+    ProtoUtils.copy(entry); // warm up
+
+    final long threadId = Thread.currentThread().getId();
+    final long before = threadBean.getThreadAllocatedBytes(threadId);
+    final LogEntryProto copied = ProtoUtils.copy(entry);
+    final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+    Assertions.assertEquals(entry, copied);
+    Assertions.assertNotSame(entry.getStateMachineLogEntry().getLogData(),
+        copied.getStateMachineLogEntry().getLogData());
+    Assertions.assertTrue(allocated < size * 3L / 2, () -> "allocated " + allocated + " bytes for copying "
+        + size + " bytes");
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.netty;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClientConfigKeys;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.RaftRpcReplyProto;
+import org.apache.ratis.proto.RaftProtos.RaftRpcRequestProto;
+import org.apache.ratis.proto.RaftProtos.RequestVoteReplyProto;
+import org.apache.ratis.proto.RaftProtos.RequestVoteRequestProto;
+import org.apache.ratis.proto.netty.NettyProtos.RaftNettyServerReplyProto;
+import org.apache.ratis.proto.netty.NettyProtos.RaftNettyServerRequestProto;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
+import org.apache.ratis.protocol.exceptions.TimeoutIOException;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.thirdparty.io.netty.bootstrap.ServerBootstrap;
+import org.apache.ratis.thirdparty.io.netty.channel.Channel;
+import org.apache.ratis.thirdparty.io.netty.channel.ChannelHandlerContext;
+import org.apache.ratis.thirdparty.io.netty.channel.ChannelInitializer;
+import org.apache.ratis.thirdparty.io.netty.channel.ChannelPipeline;
+import org.apache.ratis.thirdparty.io.netty.channel.EventLoopGroup;
+import org.apache.ratis.thirdparty.io.netty.channel.SimpleChannelInboundHandler;
+import org.apache.ratis.thirdparty.io.netty.channel.socket.SocketChannel;
+import org.apache.ratis.thirdparty.io.netty.handler.codec.protobuf.ProtobufDecoder;
+import org.apache.ratis.thirdparty.io.netty.handler.codec.protobuf.ProtobufEncoder;
+import org.apache.ratis.thirdparty.io.netty.handler.codec.protobuf.ProtobufVarint32FrameDecoder;
+import org.apache.ratis.thirdparty.io.netty.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test {@link NettyRpcProxy} with a fake server which replies the requests under the control of the tests.
+ */
+public class TestNettyRpcProxy extends BaseTest implements MiniRaftClusterWithNetty.FactoryGet {
+  /** A received request and the context to reply it. */
+  static final class Received {
+    private final ChannelHandlerContext ctx;
+    private final RaftNettyServerRequestProto request;
+
+    Received(ChannelHandlerContext ctx, RaftNettyServerRequestProto request) {
+      this.ctx = ctx;
+      this.request = request;
+    }
+
+    /** Reply with the given call id, and with the rpc call id of the request in the reply content. */
+    void reply(long callId) {
+      final RaftRpcReplyProto rpcReply = RaftRpcReplyProto.newBuilder()
+          .setCallId(request.getRequestVoteRequest().getServerRequest().getCallId())
+          .build();
+      ctx.writeAndFlush(RaftNettyServerReplyProto.newBuilder()
+          .setRequestVoteReply(RequestVoteReplyProto.newBuilder().setServerReply(rpcReply))
+          .setCallId(callId)
+          .build());
+    }
+
+    void reply() {
+      reply(request.getCallId());
+    }
+  }
+
+  private final BlockingQueue<Received> received = new LinkedBlockingQueue<>();
+  private EventLoopGroup group;
+  private Channel serverChannel;
+  private NettyRpcProxy.PeerMap proxies;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    group = NettyUtils.newEventLoopGroup(getClass().getSimpleName(), 2, false);
+    final ChannelInitializer<SocketChannel> initializer = new ChannelInitializer<SocketChannel>() {
+      @Override
+      protected void initChannel(SocketChannel ch) {
+        final ChannelPipeline p = ch.pipeline();
+        p.addLast(new ProtobufVarint32FrameDecoder());
+        p.addLast(new ProtobufDecoder(RaftNettyServerRequestProto.getDefaultInstance()));
+        p.addLast(new ProtobufVarint32LengthFieldPrepender());
+        p.addLast(new ProtobufEncoder());
+        p.addLast(new SimpleChannelInboundHandler<RaftNettyServerRequestProto>() {
+          @Override
+          protected void channelRead0(ChannelHandlerContext ctx, RaftNettyServerRequestProto request) {
+            received.offer(new Received(ctx, request));
+          }
+        });
+      }
+    };
+    serverChannel = new ServerBootstrap()
+        .group(group)
+        .channel(NettyUtils.getServerChannelClass(group))
+        .childHandler(initializer)
+        .bind(new InetSocketAddress("localhost", 0))
+        .sync()
+        .channel();
+
+    final RaftProperties properties = new RaftProperties();
+    RaftClientConfigKeys.Rpc.setRequestTimeout(properties, TimeDuration.valueOf(1, TimeUnit.SECONDS));
+    proxies = new NettyRpcProxy.PeerMap(getClass().getSimpleName(), properties);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (proxies != null) {
+      proxies.close();
+    }
+    if (serverChannel != null) {
+      serverChannel.close().awaitUninterruptibly();
+    }
+    if (group != null) {
+      group.shutdownGracefully();
+    }
+  }
+
+  private NettyRpcProxy getProxy() throws IOException {
+    final int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    final RaftPeer peer = RaftPeer.newBuilder().setId("s0").setAddress("localhost:" + port).build();
+    proxies.addRaftPeers(Collections.singletonList(peer));
+    return proxies.getProxy(peer.getId());
+  }
+
+  static RaftNettyServerRequestProto newRequest(long rpcCallId) {
+    final RaftRpcRequestProto rpcRequest = RaftRpcRequestProto.newBuilder().setCallId(rpcCallId).build();
+    return RaftNettyServerRequestProto.newBuilder()
+        .setRequestVoteRequest(RequestVoteRequestProto.newBuilder().setServerRequest(rpcRequest))
+        .build();
+  }
+
+  static long getRpcCallId(CompletableFuture<RaftNettyServerReplyProto> future) throws Exception {
+    return future.get(10, TimeUnit.SECONDS).getRequestVoteReply().getServerReply().getCallId();
+  }
+
+  private Received poll() throws InterruptedException {
+    final Received r = received.poll(10, TimeUnit.SECONDS);
+    Assertions.assertNotNull(r);
+    return r;
+  }
+
+  static void assertFailure(Class<? extends Throwable> expected, CompletableFuture<?> future) {
+    final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+        () -> future.get(10, TimeUnit.SECONDS));
+    Assertions.assertInstanceOf(expected, e.getCause());
+  }
+
+  @Test
+  public void testOutOfOrderReplies() throws Exception {
+    final NettyRpcProxy proxy = getProxy();
+    final CompletableFuture<RaftNettyServerReplyProto> f1 = proxy.sendAsync(newRequest(1));
+    final CompletableFuture<RaftNettyServerReplyProto> f2 = proxy.sendAsync(newRequest(2));
+    final Received r1 = poll();
+    final Received r2 = poll();
+
+    r2.reply();
+    Assertions.assertEquals(2, getRpcCallId(f2));
+    Assertions.assertFalse(f1.isDone());
+    r1.reply();
+    Assertions.assertEquals(1, getRpcCallId(f1));
+    Assertions.assertEquals(0, proxy.getNumPendingReplies());
+  }
+
+  @Test
+  public void testRepliesWithoutCallId() throws Exception {
+    final NettyRpcProxy proxy = getProxy();
+    final CompletableFuture<RaftNettyServerReplyProto> f1 = proxy.sendAsync(newRequest(1));
+    final CompletableFuture<RaftNettyServerReplyProto> f2 = proxy.sendAsync(newRequest(2));
+    final Received r1 = poll();
+    final Received r2 = poll();
+
+    // a peer without call id support replies in order
+    r1.reply(0);
+    Assertions.assertEquals(1, getRpcCallId(f1));
+    r2.reply(0);
+    Assertions.assertEquals(2, getRpcCallId(f2));
+    Assertions.assertEquals(0, proxy.getNumPendingReplies());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    final NettyRpcProxy proxy = getProxy();
+    final CompletableFuture<RaftNettyServerReplyProto> f = proxy.sendAsync(newRequest(1));
+    final Received r = poll();
+    Assertions.assertEquals(1, proxy.getNumPendingReplies());
+
+    // the request is not replied in time; it remains pending until the reply is received
+    assertFailure(TimeoutIOException.class, f);
+    Assertions.assertEquals(1, proxy.getNumPendingReplies());
+
+    // a late reply is ignored
+    r.reply();
+    final CompletableFuture<RaftNettyServerReplyProto> f2 = proxy.sendAsync(newRequest(2));
+    poll().reply();
+    Assertions.assertEquals(2, getRpcCallId(f2));
+    Assertions.assertEquals(0, proxy.getNumPendingReplies());
+  }
+
+  @Test
+  public void testTimeoutWithoutCallId() throws Exception {
+    final NettyRpcProxy proxy = getProxy();
+    final CompletableFuture<RaftNettyServerReplyProto> f1 = proxy.sendAsync(newRequest(1));
+    final Received r1 = poll();
+    assertFailure(TimeoutIOException.class, f1);
+
+    final CompletableFuture<RaftNettyServerReplyProto> f2 = proxy.sendAsync(newRequest(2));
+    final Received r2 = poll();
+
+    // a peer without call id support replies in order, including the timed-out request
+    r1.reply(0);
+    r2.reply(0);
+    Assertions.assertEquals(2, getRpcCallId(f2));
+    Assertions.assertEquals(0, proxy.getNumPendingReplies());
+  }
+
+  @Test
+  public void testChannelInactive() throws Exception {
+    final NettyRpcProxy proxy = getProxy();
+    final CompletableFuture<RaftNettyServerReplyProto> f1 = proxy.sendAsync(newRequest(1));
+    final CompletableFuture<RaftNettyServerReplyProto> f2 = proxy.sendAsync(newRequest(2));
+    final Received r1 = poll();
+    poll();
+
+    r1.ctx.close();
+    assertFailure(AlreadyClosedException.class, f1);
+    assertFailure(AlreadyClosedException.class, f2);
+    Assertions.assertEquals(0, proxy.getNumPendingReplies());
+  }
+
+  @Test
+  public void testRequestNotSet() throws Exception {
+    runWithNewCluster(1, cluster -> {
+      final RaftServer.Division server = RaftTestUtil.waitForLeader(cluster);
+      try (NettyRpcProxy.PeerMap serverProxies = new NettyRpcProxy.PeerMap("testRequestNotSet", getProperties())) {
+        serverProxies.addRaftPeers(cluster.getGroup().getPeers());
+        final NettyRpcProxy proxy = serverProxies.getProxy(server.getId());
+        // the server replies an exception instead of failing in the event loop
+        final CompletableFuture<RaftNettyServerReplyProto> f
+            = proxy.sendAsync(RaftNettyServerRequestProto.getDefaultInstance());
+        final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+            () -> f.get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IOException.class, e.getCause());
+        Assertions.assertInstanceOf(IllegalArgumentException.class, e.getCause().getCause());
+      }
+    });
+  }
+}
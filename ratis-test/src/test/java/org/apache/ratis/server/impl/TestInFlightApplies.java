@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.server.impl.StateMachineUpdater.InFlightApplies;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestInFlightApplies extends BaseTest {
+  @Test
+  public void testInFlightApplies() {
+    final InFlightApplies applies = new InFlightApplies();
+    assertEquals(0, applies.getCount());
+    assertTrue(applies.getAllCompleted().isDone());
+
+    // completed applies are not counted
+    applies.add(CompletableFuture.completedFuture(null));
+    assertEquals(0, applies.getCount());
+    assertTrue(applies.getAllCompleted().isDone());
+
+    final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final CompletableFuture<Void> f = new CompletableFuture<>();
+      futures.add(f);
+      applies.add(f);
+    }
+    assertEquals(futures.size(), applies.getCount());
+    final CompletableFuture<Void> allCompleted = applies.getAllCompleted();
+
+    // complete out of order
+    for (int i = futures.size() - 1; i > 0; i--) {
+      futures.get(i).complete(null);
+      assertFalse(allCompleted.isDone());
+    }
+    assertEquals(1, applies.getCount());
+
+    // exceptions also complete the applies
+    futures.get(0).completeExceptionally(new IllegalStateException("Failed to apply"));
+    assertEquals(0, applies.getCount());
+    assertTrue(allCompleted.isDone());
+
+    // a new signal is created for the next round
+    final CompletableFuture<Void> next = new CompletableFuture<>();
+    applies.add(next);
+    assertNotSame(allCompleted, applies.getAllCompleted());
+    assertFalse(applies.getAllCompleted().isDone());
+    next.complete(null);
+    assertTrue(applies.getAllCompleted().isDone());
+  }
+}
@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -191,6 +192,129 @@ public class TestLogSegment extends BaseTest {
     Assertions.assertEquals(loadInitial ? 0 : 1, closedSegment.getLoadingTimes());
   }
 
+  @Test
+  public void testLoadCacheFromOffset() throws Exception {
+    runTestLoadCacheFromOffset(false);
+  }
+
+  @Test
+  public void testLoadCacheFromOffsetMmap() throws Exception {
+    runTestLoadCacheFromOffset(true);
+  }
+
+  private void runTestLoadCacheFromOffset(boolean mmapEnabled) throws Exception {
+    final SegmentedRaftLogMetrics raftLogMetrics = new SegmentedRaftLogMetrics(RaftServerTestUtil.TEST_MEMBER_ID);
+    final File closedSegmentFile = prepareLog(false, 1000, 100, 1, false);
+    final RaftStorage storage = RaftStorageTestUtils.newRaftStorage(storageDir);
+    // a small maxOpSize so that only a few entries are read for each load
+    final SizeInBytes maxOpSize = SizeInBytes.valueOf(4 * size(
+        LogProtoUtils.toLogEntryProto(new SimpleOperation("m99").getLogEntryContent(), 1, 1099)));
+    final LogSegment closedSegment = LogSegment.loadSegment(storage, closedSegmentFile,
+        LogSegmentStartEnd.valueOf(1000, 1099L), new LogSegment.ReadOptions(maxOpSize, mmapEnabled, false),
+        false, null, raftLogMetrics);
+    try {
+      // load an entry in the middle of the segment
+      final LogSegment.LogRecord record = closedSegment.getLogRecord(1050);
+      Assertions.assertNull(closedSegment.getEntryFromCache(record.getTermIndex()));
+      final LogEntryProto entry = closedSegment.loadCache(record);
+      Assertions.assertEquals(record.getTermIndex(), TermIndex.valueOf(entry));
+      Assertions.assertEquals(1, closedSegment.getLoadingTimes());
+
+      // the previous entry is not read but the next entries are read ahead
+      Assertions.assertNull(closedSegment.getEntryFromCache(closedSegment.getLogRecord(1049).getTermIndex()));
+      Assertions.assertNotNull(closedSegment.getEntryFromCache(closedSegment.getLogRecord(1051).getTermIndex()));
+
+      final long bytesPerEntry = raftLogMetrics.getLoadBytesPerEntry();
+      Assertions.assertTrue(bytesPerEntry > 0);
+      Assertions.assertTrue(bytesPerEntry <= maxOpSize.getSize());
+
+      checkLogSegment(closedSegment, 1000, 1099, false, closedSegment.getTotalFileSize(), 1);
+      Assertions.assertTrue(closedSegment.getLoadingTimes() > 1);
+    } finally {
+      closedSegment.clear();
+      storage.close();
+    }
+  }
+
+  @Test
+  public void testLoadMappedSegment() throws Exception {
+    final File closedSegmentFile = prepareLog(false, 1000, 100, 1, false);
+    final RaftStorage storage = RaftStorageTestUtils.newRaftStorage(storageDir);
+    final LogSegment closedSegment = LogSegment.loadSegment(storage, closedSegmentFile,
+        LogSegmentStartEnd.valueOf(1000, 1099L), new LogSegment.ReadOptions(MAX_OP_SIZE, true, false),
+        true, null, null);
+    try {
+      checkLogSegment(closedSegment, 1000, 1099, false, closedSegmentFile.length(), 1);
+      Assertions.assertEquals(0, closedSegment.getLoadingTimes());
+    } finally {
+      closedSegment.clear();
+      storage.close();
+    }
+  }
+
+  @Test
+  public void testPositionedReaderReadAll() throws Exception {
+    final File closedSegmentFile = prepareLog(false, 1000, 100, 1, false);
+    runTestPositionedReaderReadAll(closedSegmentFile, true);
+    // a small max op size, so that the file is read in many chunks
+    runTestPositionedReaderReadAll(closedSegmentFile, false);
+  }
+
+  private static void runTestPositionedReaderReadAll(File file, boolean mmapEnabled) throws Exception {
+    try (SegmentedRaftLogPositionedReader reader = new SegmentedRaftLogPositionedReader(
+        file, SizeInBytes.valueOf(100), mmapEnabled, null)) {
+      for (int i = 0; i < 2; i++) {
+        final List<LogEntryProto> entries = new ArrayList<>();
+        Assertions.assertEquals(100, reader.readAll(1099, entries::add));
+        for (int j = 0; j < entries.size(); j++) {
+          Assertions.assertEquals(1000 + j, entries.get(j).getIndex());
+        }
+        // the entries remain valid after the file is closed (and unmapped); the reader can be reopened.
+        reader.close();
+        Assertions.assertEquals(1099, entries.get(entries.size() - 1).getIndex());
+        Assertions.assertEquals(new SimpleOperation("m99").getLogEntryContent().getLogData(),
+            entries.get(99).getStateMachineLogEntry().getLogData());
+      }
+    }
+  }
+
+  @Test
+  public void testLoadSegmentFromIndex() throws Exception {
+    final File closedSegmentFile = prepareLog(false, 1000, 100, 1, false);
+    final File indexFile = LogSegmentIndexFile.getIndexFile(closedSegmentFile);
+    final RaftStorage storage = RaftStorageTestUtils.newRaftStorage(storageDir);
+    final LogSegmentStartEnd startEnd = LogSegmentStartEnd.valueOf(1000, 1099L);
+    final LogSegment.ReadOptions options = new LogSegment.ReadOptions(MAX_OP_SIZE, false, true);
+    try {
+      // the first load reads the entire segment file and then writes the index
+      Assertions.assertFalse(indexFile.exists());
+      final LogSegment scanned = LogSegment.loadSegment(storage, closedSegmentFile, startEnd, options,
+          false, null, null);
+      checkLogSegment(scanned, 1000, 1099, false, closedSegmentFile.length(), 1);
+      scanned.clear();
+      Assertions.assertTrue(indexFile.exists());
+
+      // the second load uses the index; the entries are loaded from the file when they are read
+      final LogSegment indexed = LogSegment.loadSegment(storage, closedSegmentFile, startEnd, options,
+          false, null, null);
+      Assertions.assertFalse(indexed.hasCache());
+      checkLogSegment(indexed, 1000, 1099, false, closedSegmentFile.length(), 1);
+      indexed.clear();
+
+      // a corrupted index is deleted and the segment file is read instead
+      final byte[] bytes = Files.readAllBytes(indexFile.toPath());
+      bytes[bytes.length / 2] ^= 1;
+      Files.write(indexFile.toPath(), bytes);
+      final LogSegment rescanned = LogSegment.loadSegment(storage, closedSegmentFile, startEnd, options,
+          false, null, null);
+      checkLogSegment(rescanned, 1000, 1099, false, closedSegmentFile.length(), 1);
+      rescanned.clear();
+      Assertions.assertTrue(indexFile.exists());
+    } finally {
+      storage.close();
+    }
+  }
+
   @Test
   public void testAppendEntries() throws Exception {
     final long start = 1000;
@@ -286,6 +410,101 @@ public class TestLogSegment extends BaseTest {
         SegmentedRaftLogFormat.getHeaderLength(), term);
   }
 
+  @Test
+  public void testTruncateMultipleTerms() throws Exception {
+    final long start = 1000;
+    LogSegment segment = LogSegment.newOpenSegment(null, start, MAX_OP_SIZE, null);
+    // the term changes every 10 entries
+    for (int i = 0; i < 100; i++) {
+      LogEntryProto entry = LogProtoUtils.toLogEntryProto(
+          new SimpleOperation("m" + i).getLogEntryContent(), 1 + i / 10, i + start);
+      segment.appendToOpenSegment(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+    }
+    for (int i = 0; i < 100; i++) {
+      final TermIndex ti = TermIndex.valueOf(1 + i / 10, i + start);
+      Assertions.assertEquals(ti, segment.getTermIndex(ti.getIndex()));
+      Assertions.assertEquals(ti, segment.getLogRecord(ti.getIndex()).getTermIndex());
+    }
+
+    // truncate in the middle of a term and then at a term boundary
+    segment.truncate(start + 55);
+    Assertions.assertEquals(TermIndex.valueOf(6, start + 54), segment.getLastTermIndex());
+    segment.truncate(start + 50);
+    Assertions.assertEquals(TermIndex.valueOf(5, start + 49), segment.getLastTermIndex());
+    Assertions.assertNull(segment.getTermIndex(start + 50));
+
+    // append a record with a new term after the truncation
+    final LogRecordList records = segment.copyRecords();
+    records.add(segment.getTotalFileSize(), 7, LogEntryProto.LogEntryBodyCase.STATEMACHINELOGENTRY);
+    Assertions.assertEquals(51, records.size());
+    Assertions.assertEquals(5, records.getTerm(49));
+    Assertions.assertEquals(7, records.getTerm(50));
+    Assertions.assertEquals(1, records.getTerm(0));
+  }
+
+  @Test
+  public void testOffHeapCache() throws Exception {
+    final long term = 1;
+    final long start = 1000;
+    // small slabs so that the entries span multiple slabs
+    final OffHeapLogEntryCache.SlabPool pool = new OffHeapLogEntryCache.SlabPool(1024, 4);
+    final LogSegment segment = LogSegment.newOpenSegment(null, start,
+        new LogSegment.ReadOptions(MAX_OP_SIZE, false, false, pool), null);
+    final LogEntryProto[] entries = new LogEntryProto[200];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = LogProtoUtils.toLogEntryProto(new SimpleOperation("m" + i).getLogEntryContent(), term, i + start);
+      segment.appendToOpenSegment(entries[i], LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+    }
+    for (LogEntryProto entry : entries) {
+      Assertions.assertEquals(entry, segment.getEntryFromCache(TermIndex.valueOf(entry)));
+    }
+    // the cache size is the slab size, not the entry size
+    final long cacheSize = segment.getTotalCacheSize();
+    Assertions.assertEquals(0, cacheSize % pool.getSlabSize());
+    Assertions.assertTrue(cacheSize >= Arrays.stream(entries).mapToLong(LogEntryProto::getSerializedSize).sum());
+    // a different term is not found
+    Assertions.assertNull(segment.getEntryFromCache(TermIndex.valueOf(term + 1, start)));
+
+    segment.truncate(start + 50);
+    Assertions.assertNull(segment.getEntryFromCache(TermIndex.valueOf(entries[50])));
+    Assertions.assertEquals(entries[49], segment.getEntryFromCache(TermIndex.valueOf(entries[49])));
+
+    // the slabs are released to the pool
+    segment.evictCache();
+    Assertions.assertFalse(segment.hasCache());
+    Assertions.assertEquals(0, segment.getTotalCacheSize());
+    Assertions.assertEquals(4, pool.getNumPooled());
+  }
+
+  @Test
+  public void testSlabPool() {
+    final int slabSize = 1024;
+    final OffHeapLogEntryCache.SlabPool pool = new OffHeapLogEntryCache.SlabPool(slabSize, 4);
+
+    // an oversized buffer is not pooled
+    final ByteBuffer oversized = pool.allocate(slabSize + 1);
+    Assertions.assertEquals(slabSize + 1, oversized.capacity());
+    pool.release(oversized);
+    Assertions.assertEquals(0, pool.getNumPooled());
+
+    // the slabs beyond the max are not pooled
+    final ByteBuffer[] slabs = new ByteBuffer[6];
+    for (int i = 0; i < slabs.length; i++) {
+      slabs[i] = pool.allocate(1);
+      Assertions.assertEquals(slabSize, slabs[i].capacity());
+    }
+    Arrays.stream(slabs).forEach(pool::release);
+    Assertions.assertEquals(4, pool.getNumPooled());
+
+    // the pool is drained when it is closed; the slabs released afterward are not pooled
+    final ByteBuffer slab = pool.allocate(1);
+    Assertions.assertEquals(3, pool.getNumPooled());
+    pool.close();
+    Assertions.assertEquals(0, pool.getNumPooled());
+    pool.release(slab);
+    Assertions.assertEquals(0, pool.getNumPooled());
+  }
+
   @Test
   public void testPreallocateSegment() throws Exception {
     RaftStorage storage = RaftStorageTestUtils.newRaftStorage(storageDir);
@@ -48,6 +48,7 @@ import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.SizeInBytes;
 import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.Timestamp;
 
 import java.io.File;
 import java.io.IOException;
@@ -60,6 +61,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -340,6 +343,152 @@ public class TestSegmentedRaftLog extends BaseTest {
     }
   }
 
+  /**
+   * With a large window, the syncs on an idle volume must not wait for the window.
+   */
+  @Test
+  public void testGroupCommitLatency() throws Exception {
+    RaftServerConfigKeys.Log.GroupCommit.setEnabled(properties, true);
+    final TimeDuration window = TimeDuration.valueOf(10, TimeUnit.SECONDS);
+    RaftServerConfigKeys.Log.GroupCommit.setWindow(properties, window);
+    final List<SegmentRange> ranges = prepareRanges(0, 1, 10, 0);
+    final List<LogEntryProto> entries = prepareLogEntries(ranges, null);
+    final RaftStorage storage2 = RaftStorageTestUtils.newRaftStorage(new File(storageDir, "storage2"));
+
+    try (SegmentedRaftLogSyncCoordinator coordinator
+             = SegmentedRaftLogSyncCoordinator.newInstance(PEER_ID, properties)) {
+      Assertions.assertNotNull(coordinator);
+      Assertions.assertSame(coordinator.getVolume(storage.getStorageDir().getRoot()),
+          coordinator.getVolume(storage2.getStorageDir().getRoot()));
+
+      try (SegmentedRaftLog raftLog = newSegmentedRaftLog(storage, coordinator);
+           SegmentedRaftLog raftLog2 = newSegmentedRaftLog(storage2, coordinator)) {
+        raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+        raftLog2.open(RaftLog.INVALID_LOG_INDEX, null);
+        final Timestamp start = Timestamp.currentTime();
+        // append one entry at a time so that each batch has a single sync
+        for (LogEntryProto entry : entries) {
+          for (SegmentedRaftLog log : Arrays.asList(raftLog, raftLog2)) {
+            log.appendEntry(entry).join();
+            JavaUtils.attempt(() -> Assertions.assertEquals(entry.getIndex(), log.getFlushIndex()),
+                100, TimeDuration.ONE_MILLISECOND, "flushIndex", LOG);
+          }
+        }
+        final TimeDuration elapsed = start.elapsedTime();
+        Assertions.assertTrue(elapsed.compareTo(window.multiply(0.5)) < 0, () -> "elapsed " + elapsed);
+      }
+    } finally {
+      storage2.close();
+    }
+
+    for (RaftStorage s : Arrays.asList(storage, storage2)) {
+      try (SegmentedRaftLog raftLog = newSegmentedRaftLog(s, properties)) {
+        raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+        checkEntries(raftLog, entries, 0, entries.size());
+      }
+    }
+  }
+
+  /**
+   * The syncs submitted while a batch is running form the next batch and run concurrently.
+   */
+  @Test
+  public void testGroupCommitBatching() throws Exception {
+    final int n = 10;
+    final SegmentedRaftLogSyncCoordinator.Volume volume = new SegmentedRaftLogSyncCoordinator.Volume(
+        "testGroupCommitBatching", TimeDuration.valueOf(10, TimeUnit.SECONDS), 100, n);
+    try {
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch released = new CountDownLatch(1);
+      final CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+        started.countDown();
+        await(released);
+      }, volume);
+      Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+      // the tasks can complete only if they run concurrently
+      final CountDownLatch concurrent = new CountDownLatch(n);
+      final List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        futures.add(CompletableFuture.runAsync(() -> {
+          concurrent.countDown();
+          await(concurrent);
+        }, volume));
+      }
+      released.countDown();
+
+      first.get(10, TimeUnit.SECONDS);
+      for (CompletableFuture<Void> f : futures) {
+        f.get(10, TimeUnit.SECONDS);
+      }
+      Assertions.assertEquals(2, volume.getNumBatches());
+    } finally {
+      volume.close();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Append entries to two logs sharing a single-thread worker pool.
+   */
+  @Test
+  public void testAppendEntryWithSharedWorkerPool() throws Exception {
+    final List<SegmentRange> ranges = prepareRanges(0, 5, 200, 0);
+    final List<LogEntryProto> entries = prepareLogEntries(ranges, null);
+    final RaftStorage storage2 = RaftStorageTestUtils.newRaftStorage(new File(storageDir, "storage2"));
+    final ExecutorService pool = Executors.newSingleThreadExecutor();
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog(storage, pool);
+         SegmentedRaftLog raftLog2 = newSegmentedRaftLog(storage2, pool)) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      raftLog2.open(RaftLog.INVALID_LOG_INDEX, null);
+      final List<CompletableFuture<Long>> futures = new ArrayList<>();
+      for (LogEntryProto entry : entries) {
+        futures.add(raftLog.appendEntry(entry));
+        futures.add(raftLog2.appendEntry(entry));
+      }
+      futures.forEach(CompletableFuture::join);
+      final long lastIndex = entries.get(entries.size() - 1).getIndex();
+      Assertions.assertEquals(lastIndex, raftLog.getFlushIndex());
+      Assertions.assertEquals(lastIndex, raftLog2.getFlushIndex());
+    } finally {
+      pool.shutdown();
+      storage2.close();
+    }
+
+    for (RaftStorage s : Arrays.asList(storage, storage2)) {
+      try (SegmentedRaftLog raftLog = newSegmentedRaftLog(s, properties)) {
+        raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+        checkEntries(raftLog, entries, 0, entries.size());
+      }
+    }
+  }
+
+  private SegmentedRaftLog newSegmentedRaftLog(RaftStorage storage, SegmentedRaftLogSyncCoordinator coordinator) {
+    return SegmentedRaftLog.newBuilder()
+        .setMemberId(MEMBER_ID)
+        .setStorage(storage)
+        .setProperties(properties)
+        .setSyncCoordinator(coordinator)
+        .build();
+  }
+
+  private SegmentedRaftLog newSegmentedRaftLog(RaftStorage storage, ExecutorService sharedWorkerPool) {
+    return SegmentedRaftLog.newBuilder()
+        .setMemberId(MEMBER_ID)
+        .setStorage(storage)
+        .setProperties(properties)
+        .setSharedWorkerPool(sharedWorkerPool)
+        .build();
+  }
+
   @ParameterizedTest
   @MethodSource("data")
   public void testAppendEntryAfterPurge(Boolean useAsyncFlush, Boolean smSyncFlush) throws Exception {
@@ -401,6 +550,67 @@ public class TestSegmentedRaftLog extends BaseTest {
     }
   }
 
+  @Test
+  public void testAppendEntryWithCompression() throws Exception {
+    RaftServerConfigKeys.Log.setSegmentSizeMax(properties, SizeInBytes.valueOf("128KB"));
+    final String data = String.join("", Collections.nCopies(128, "compressible"));
+    final List<LogEntryProto> entries = prepareLogEntries(prepareRanges(0, 1, 1024, 0), () -> data);
+    final int half = entries.size() / 2;
+    final int compressedEnd = entries.size() - 32;
+
+    // append the first half without compression
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.subList(0, half).stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+      Assertions.assertFalse(raftLog.getRaftLogCache().getOpenSegment().isCompressed());
+    }
+
+    // append with compression; the existing open segment remains without compression until it is rolled
+    RaftServerConfigKeys.Log.Compression.setCodec(properties, "deflate");
+    RaftServerConfigKeys.Log.Compression.setThreshold(properties, SizeInBytes.ONE_KB);
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      Assertions.assertFalse(raftLog.getRaftLogCache().getOpenSegment().isCompressed());
+      entries.subList(half, compressedEnd).stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+
+      final LogSegment open = raftLog.getRaftLogCache().getOpenSegment();
+      assertTrue(open.isCompressed());
+      // the cache has the uncompressed entries
+      final LogEntryProto last = entries.get(compressedEnd - 1);
+      Assertions.assertEquals(last, open.getEntryFromCache(TermIndex.valueOf(last)));
+      // but the segment file has the compressed entries
+      long uncompressedSize = SegmentedRaftLogFormat.getHeaderLength();
+      for (long i = open.getStartIndex(); i <= open.getEndIndex(); i++) {
+        uncompressedSize += LogSegment.getEntrySize(entries.get(Math.toIntExact(i)),
+            LogSegment.Op.CHECK_SEGMENT_FILE_FULL);
+      }
+      assertTrue(open.getTotalFileSize() < uncompressedSize / 2,
+          () -> "totalFileSize=" + open.getTotalFileSize() + ", uncompressedSize=" + uncompressedSize);
+      checkEntries(raftLog, entries, 0, compressedEnd);
+    }
+
+    // append after compression is disabled; the existing open segment remains with the header for compression
+    RaftServerConfigKeys.Log.Compression.setCodec(properties, LogDataCompression.NONE);
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.subList(compressedEnd, entries.size()).stream().map(raftLog::appendEntry)
+          .forEach(CompletableFuture::join);
+      assertTrue(raftLog.getRaftLogCache().getOpenSegment().isCompressed());
+      checkEntries(raftLog, entries, 0, entries.size());
+    }
+
+    // all the entries can be read from the segment files
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      checkEntries(raftLog, entries, 0, entries.size());
+      final LogSegment open = raftLog.getRaftLogCache().getOpenSegment();
+      assertTrue(open.isCompressed());
+      assertTrue(SegmentedRaftLogFormat.hasCompressionHeader(open.getFile()));
+    }
+    final List<LogSegmentPath> paths = LogSegmentPath.getLogSegmentPaths(storage);
+    Assertions.assertFalse(SegmentedRaftLogFormat.hasCompressionHeader(paths.get(0).getPath().toFile()));
+  }
+
   @ParameterizedTest
   @MethodSource("data")
   public void testPurgeAfterAppendEntry(Boolean useAsyncFlush, Boolean smSyncFlush) throws Exception {
@@ -338,4 +338,92 @@ public class TestSegmentedRaftLogCache {
         s.contains(RAFT_LOG_CACHE_OPEN_SEGMENT_SIZE_IN_BYTES)).values().iterator().next().getValue();
     Assertions.assertEquals(openSegmentSizeInBytes.longValue(), cache.getOpenSegmentSizeInBytes());
   }
+
+  private LogSegment[] prepareSegmentsForGlobalEviction() {
+    final LogSegment[] segments = {prepareLogSegment(0, 99, false),
+        prepareLogSegment(100, 199, false), prepareLogSegment(200, 299, false)};
+    for (LogSegment segment : segments) {
+      cache.addSegment(segment);
+    }
+    cache.addSegment(prepareLogSegment(300, 310, true));
+    return segments;
+  }
+
+  @Test
+  public void testEvictCacheReferenced() {
+    final LogSegment[] segments = prepareSegmentsForGlobalEviction();
+    final long[] followerNextIndices = {305, 305};
+    final LogRecord record = segments[1].getLogRecord(150);
+    Assertions.assertNotNull(segments[1].getEntryFromCache(record.getTermIndex()));
+
+    // the referenced segment gets a second chance
+    final long size = segments[0].getTotalCacheSize() + segments[2].getTotalCacheSize();
+    Assertions.assertEquals(size, cache.evictCache(followerNextIndices, 299, 305, 1, false, false, Long.MAX_VALUE));
+    Assertions.assertFalse(segments[0].hasCache());
+    Assertions.assertTrue(segments[1].hasCache());
+    Assertions.assertFalse(segments[2].hasCache());
+
+    // it is kept in the same sweep even if the needed segments are also evicted
+    Assertions.assertEquals(0, cache.evictCache(followerNextIndices, 299, 305, 1, false, true, Long.MAX_VALUE));
+    Assertions.assertTrue(segments[1].hasCache());
+
+    // it is evicted when the hand returns in a later sweep
+    cache.evictCache(followerNextIndices, 299, 305, 2, false, false, Long.MAX_VALUE);
+    Assertions.assertFalse(segments[1].hasCache());
+    Assertions.assertEquals(0, segments[0].getTotalCacheSize());
+  }
+
+  @Test
+  public void testEvictCacheLastResort() {
+    final LogSegment[] segments = prepareSegmentsForGlobalEviction();
+    final long[] followerNextIndices = {305, 305};
+    final LogRecord record = segments[1].getLogRecord(150);
+    Assertions.assertNotNull(segments[1].getEntryFromCache(record.getTermIndex()));
+
+    cache.evictCache(followerNextIndices, 299, 305, 1, false, true, Long.MAX_VALUE);
+    Assertions.assertTrue(segments[1].hasCache());
+    // after a full rotation, the referenced segment is evicted as the last resort
+    Assertions.assertEquals(segments[1].getTotalCacheSize(),
+        cache.evictCache(followerNextIndices, 299, 305, 1, true, true, Long.MAX_VALUE));
+    Assertions.assertFalse(segments[1].hasCache());
+  }
+
+  @Test
+  public void testEvictCacheClockHand() {
+    final LogSegment[] segments = prepareSegmentsForGlobalEviction();
+    final long[] followerNextIndices = {305, 305};
+    final LogRecord record = segments[0].getLogRecord(50);
+    Assertions.assertNotNull(segments[0].getEntryFromCache(record.getTermIndex()));
+
+    // segment 0 gets a second chance; stop after segment 1 is evicted
+    Assertions.assertEquals(segments[1].getTotalCacheSize(),
+        cache.evictCache(followerNextIndices, 299, 305, 1, false, false, 1));
+    Assertions.assertTrue(segments[0].hasCache());
+    Assertions.assertFalse(segments[1].hasCache());
+    Assertions.assertTrue(segments[2].hasCache());
+
+    // the next sweep continues from the hand, i.e. segment 0 is kept until the hand returns
+    Assertions.assertEquals(segments[2].getTotalCacheSize(),
+        cache.evictCache(followerNextIndices, 299, 305, 2, false, false, Long.MAX_VALUE));
+    Assertions.assertTrue(segments[0].hasCache());
+    Assertions.assertFalse(segments[2].hasCache());
+
+    // the hand returns to segment 0
+    cache.evictCache(followerNextIndices, 299, 305, 3, false, false, Long.MAX_VALUE);
+    Assertions.assertFalse(segments[0].hasCache());
+  }
+
+  @Test
+  public void testEvictCacheNeeded() {
+    final LogSegment[] segments = prepareSegmentsForGlobalEviction();
+    final long[] followerNextIndices = {305, 0};
+
+    // segments 1 and 2 are needed by the slow follower
+    Assertions.assertEquals(0, cache.evictCache(followerNextIndices, 299, 305, 1, true, false, Long.MAX_VALUE));
+    cache.evictCache(followerNextIndices, 299, 305, 1, true, true, Long.MAX_VALUE);
+    // segment 0 is being read by the slow follower
+    Assertions.assertTrue(segments[0].hasCache());
+    Assertions.assertFalse(segments[1].hasCache());
+    Assertions.assertFalse(segments[2].hasCache());
+  }
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class TestStateMachineDataCache extends BaseTest {
+  private static final int DATA_SIZE = 100;
+
+  private SegmentedRaftLogMetrics metrics;
+  private final AtomicInteger numReads = new AtomicInteger();
+
+  @BeforeEach
+  public void setup() {
+    metrics = new SegmentedRaftLogMetrics(RaftGroupMemberId.valueOf(RaftPeerId.valueOf("s0"), RaftGroupId.randomId()));
+    numReads.set(0);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    metrics.unregister();
+  }
+
+  static LogEntryProto newEntry(long term, long index) {
+    return LogEntryProto.newBuilder().setTerm(term).setIndex(index).build();
+  }
+
+  private Supplier<CompletableFuture<ByteString>> newReader() {
+    return () -> {
+      numReads.incrementAndGet();
+      return CompletableFuture.completedFuture(ByteString.copyFrom(new byte[DATA_SIZE]));
+    };
+  }
+
+  private static Supplier<long[]> nextIndices(long... indices) {
+    return () -> indices;
+  }
+
+  @Test
+  public void testShareReads() throws Exception {
+    final StateMachineDataCache cache = new StateMachineDataCache(10 * DATA_SIZE, metrics);
+    for (int follower = 0; follower < 3; follower++) {
+      for (long i = 0; i < 5; i++) {
+        final ByteString data = cache.getOrRead(newEntry(1, i), newReader(), nextIndices(0, 0, 0)).get();
+        Assertions.assertEquals(DATA_SIZE, data.size());
+      }
+    }
+    Assertions.assertEquals(5, numReads.get());
+    Assertions.assertEquals(5 * DATA_SIZE, cache.getBytes());
+    Assertions.assertEquals(2 * 5 * DATA_SIZE, metrics.getRegistry()
+        .counter(SegmentedRaftLogMetrics.RAFT_LOG_STATEMACHINE_DATA_CACHE_BYTES_SAVED).getCount());
+    Assertions.assertEquals(66, metrics.getStateMachineDataCacheHitRate());
+
+    // a different term at the same index is a miss
+    cache.getOrRead(newEntry(2, 4), newReader(), nextIndices(0, 0, 0)).get();
+    Assertions.assertEquals(6, numReads.get());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    final StateMachineDataCache cache = new StateMachineDataCache(3 * DATA_SIZE, metrics);
+    for (long i = 0; i < 5; i++) {
+      cache.getOrRead(newEntry(1, i), newReader(), nextIndices(0, 0)).get();
+    }
+    // the budget is met by evicting the smallest indices
+    Assertions.assertEquals(3, cache.size());
+    Assertions.assertEquals(3 * DATA_SIZE, cache.getBytes());
+
+    // evict the entries passed by all the followers
+    cache.evict(new long[]{5, 3});
+    Assertions.assertEquals(2, cache.size());
+
+    cache.truncate(4);
+    Assertions.assertEquals(1, cache.size());
+    cache.purge(3);
+    Assertions.assertEquals(0, cache.size());
+    Assertions.assertEquals(0, cache.getBytes());
+
+    // not a leader
+    cache.getOrRead(newEntry(1, 5), newReader(), nextIndices(0)).get();
+    cache.evict(null);
+    Assertions.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testFailedRead() {
+    final StateMachineDataCache cache = new StateMachineDataCache(3 * DATA_SIZE, metrics);
+    final CompletableFuture<ByteString> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("test"));
+    final CompletableFuture<ByteString> future = cache.getOrRead(newEntry(1, 1), () -> failed, nextIndices(0));
+    Assertions.assertTrue(future.isCompletedExceptionally());
+    Assertions.assertEquals(0, cache.size());
+  }
+}
@@ -34,6 +34,8 @@ import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.simulation.MiniRaftClusterWithSimulatedRpc;
 import org.apache.ratis.statemachine.impl.SimpleStateMachine4Testing;
+import org.apache.ratis.statemachine.impl.SimpleStateMachineStorage;
+import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Slf4jUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -42,10 +44,12 @@ import org.slf4j.event.Level;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -172,6 +176,142 @@ public class TestStateMachine extends BaseTest implements MiniRaftClusterWithSim
     }
   }
 
+  static class AsyncSnapshotStateMachine extends SimpleStateMachine4Testing {
+    public static AsyncSnapshotStateMachine get(RaftServer.Division s) {
+      return (AsyncSnapshotStateMachine)s.getStateMachine();
+    }
+
+    private final CompletableFuture<Void> persist = new CompletableFuture<>();
+    private final AtomicInteger numSnapshots = new AtomicInteger();
+    /** The thread calling {@link #takeSnapshotAsync()}. */
+    private final AtomicReference<Thread> updater = new AtomicReference<>();
+    /** The thread persisting the snapshot. */
+    private final AtomicReference<Thread> persister = new AtomicReference<>();
+    /** The threads getting the storage, e.g. for cleaning up the old snapshots, after a snapshot is persisted. */
+    private final Queue<Thread> storageUsers = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public CompletableFuture<Long> takeSnapshotAsync() {
+      numSnapshots.incrementAndGet();
+      updater.compareAndSet(null, Thread.currentThread());
+      // persist the snapshot only after the test unblocks it
+      return persist.thenApplyAsync(v -> {
+        final long i = takeSnapshot();
+        persister.compareAndSet(null, Thread.currentThread());
+        return i;
+      });
+    }
+
+    @Override
+    public SimpleStateMachineStorage getStateMachineStorage() {
+      if (persister.get() != null) {
+        storageUsers.add(Thread.currentThread());
+      }
+      return super.getStateMachineStorage();
+    }
+
+    // the snapshot is persisted in another thread; exclude it from the transactions being applied.
+    @Override
+    public synchronized CompletableFuture<Message> applyTransaction(TransactionContext trx) {
+      return super.applyTransaction(trx);
+    }
+
+    @Override
+    public synchronized long takeSnapshot() {
+      return super.takeSnapshot();
+    }
+  }
+
+  @Test
+  public void testTakeSnapshotAsync() throws Throwable {
+    final RaftProperties properties = new RaftProperties();
+    properties.setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY, AsyncSnapshotStateMachine.class, StateMachine.class);
+    final int threshold = 10;
+    RaftServerConfigKeys.Snapshot.setAutoTriggerEnabled(properties, true);
+    RaftServerConfigKeys.Snapshot.setAutoTriggerThreshold(properties, threshold);
+
+    try(MiniRaftClusterWithSimulatedRpc cluster = getFactory().newCluster(1, properties)) {
+      cluster.start();
+      final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+      final AsyncSnapshotStateMachine sm = AsyncSnapshotStateMachine.get(leader);
+
+      try(final RaftClient client = cluster.createClient()) {
+        // the transactions are applied while the snapshot is being persisted
+        for (RaftTestUtil.SimpleMessage m : RaftTestUtil.SimpleMessage.create(4 * threshold)) {
+          Assertions.assertTrue(client.io().send(m).isSuccess());
+        }
+        Assertions.assertEquals(1, sm.numSnapshots.get());
+        Assertions.assertNull(sm.getLatestSnapshot());
+
+        sm.persist.complete(null);
+        JavaUtils.attempt(() -> Assertions.assertNotNull(sm.getLatestSnapshot()),
+            10, ONE_SECOND, "latestSnapshot", LOG);
+        // the snapshot is completed by the updater thread but not by the persisting thread
+        JavaUtils.attempt(() -> Assertions.assertTrue(sm.storageUsers.contains(sm.updater.get())),
+            10, ONE_SECOND, "storageUsers", LOG);
+        Assertions.assertFalse(sm.storageUsers.contains(sm.persister.get()));
+
+        // a new snapshot can be taken once the previous snapshot is completed
+        for (RaftTestUtil.SimpleMessage m : RaftTestUtil.SimpleMessage.create(threshold)) {
+          Assertions.assertTrue(client.io().send(m).isSuccess());
+        }
+        JavaUtils.attempt(() -> Assertions.assertTrue(sm.numSnapshots.get() >= 2),
+            10, ONE_SECOND, "numSnapshots", LOG);
+      }
+    }
+  }
+
+  static class BatchStateMachine extends SimpleStateMachine4Testing implements StateMachine.BatchApi {
+    public static BatchStateMachine get(RaftServer.Division s) {
+      return (BatchStateMachine)s.getStateMachine();
+    }
+
+    private final AtomicInteger numBatches = new AtomicInteger();
+    private final AtomicInteger numBatchedTransactions = new AtomicInteger();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+    @Override
+    public List<CompletableFuture<Message>> applyTransactions(List<TransactionContext> trxs) {
+      numBatches.incrementAndGet();
+      numBatchedTransactions.addAndGet(trxs.size());
+      maxBatchSize.accumulateAndGet(trxs.size(), Math::max);
+      final List<CompletableFuture<Message>> futures = new ArrayList<>(trxs.size());
+      for (TransactionContext trx : trxs) {
+        futures.add(applyTransaction(trx));
+      }
+      return futures;
+    }
+  }
+
+  @Test
+  public void testApplyTransactionsInBatches() throws Throwable {
+    final RaftProperties properties = new RaftProperties();
+    properties.setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY, BatchStateMachine.class, StateMachine.class);
+    final int batchSizeMax = 8;
+    RaftServerConfigKeys.Apply.setBatchSizeMax(properties, batchSizeMax);
+
+    try(MiniRaftClusterWithSimulatedRpc cluster = getFactory().newCluster(NUM_SERVERS, properties)) {
+      cluster.start();
+      final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+
+      final int numTrx = 100;
+      try(final RaftClient client = cluster.createClient()) {
+        for (RaftTestUtil.SimpleMessage m : RaftTestUtil.SimpleMessage.create(numTrx)) {
+          Assertions.assertTrue(client.io().send(m).isSuccess());
+        }
+      }
+
+      for (RaftServer.Division division : cluster.iterateDivisions()) {
+        final BatchStateMachine sm = BatchStateMachine.get(division);
+        JavaUtils.attempt(() -> Assertions.assertEquals(numTrx, sm.numBatchedTransactions.get()),
+            10, ONE_SECOND, division.getId() + "-numBatchedTransactions", LOG);
+        Assertions.assertTrue(sm.maxBatchSize.get() <= batchSizeMax);
+        LOG.info("{}: {} batches, maxBatchSize={}", division.getId(), sm.numBatches, sm.maxBatchSize);
+      }
+      Assertions.assertEquals(numTrx, BatchStateMachine.get(leader).numBatchedTransactions.get());
+    }
+  }
+
   @Test
   public void testStateMachineRegistry() throws Throwable {
     final Map<RaftGroupId, StateMachine> registry = new ConcurrentHashMap<>();
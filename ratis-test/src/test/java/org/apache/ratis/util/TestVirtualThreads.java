@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.apache.ratis.BaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestVirtualThreads extends BaseTest {
+  static boolean isJava21OrAbove() {
+    final String version = System.getProperty("java.specification.version");
+    return !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+  }
+
+  @Test
+  public void testIsSupported() {
+    Assertions.assertEquals(isJava21OrAbove(), VirtualThreads.isSupported());
+  }
+
+  @Test
+  public void testBuildThread() throws Exception {
+    runTestBuildThread(false);
+    runTestBuildThread(true);
+  }
+
+  static void runTestBuildThread(boolean virtual) throws Exception {
+    final String name = "testBuildThread-" + virtual;
+    final CompletableFuture<String> ran = new CompletableFuture<>();
+    final Thread t = Daemon.newBuilder().setName(name).setVirtual(virtual)
+        .setRunnable(() -> ran.complete(Thread.currentThread().getName()))
+        .buildThread();
+    Assertions.assertEquals(name, t.getName());
+    Assertions.assertTrue(t.isDaemon());
+    // a virtual thread is not a Daemon since Daemon extends Thread
+    Assertions.assertEquals(!virtual || !VirtualThreads.isSupported(), t instanceof Daemon);
+
+    t.start();
+    Assertions.assertEquals(name, ran.get(10, TimeUnit.SECONDS));
+    t.join();
+  }
+
+  @Test
+  public void testThreadPool() throws Exception {
+    final ExecutorService executor = ConcurrentUtils.newThreadPoolWithMax(true, 2, "testThreadPool", true);
+    try {
+      final Thread t = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+      Assertions.assertTrue(t.getName().startsWith("testThreadPool-thread"), t.getName());
+    } finally {
+      ConcurrentUtils.shutdownAndWait(executor);
+    }
+  }
+}